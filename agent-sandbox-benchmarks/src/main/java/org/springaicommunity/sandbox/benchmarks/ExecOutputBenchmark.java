@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springaicommunity.sandbox.ExecResult;
+import org.springaicommunity.sandbox.ExecSpec;
+import org.springaicommunity.sandbox.LocalSandbox;
+import org.springaicommunity.sandbox.OutputLimit;
+
+/**
+ * Output capture cost of {@link LocalSandbox#exec(ExecSpec)} for commands producing
+ * between 1KB and 100MB of stdout, captured in full and through a bounded
+ * {@link OutputLimit}.
+ *
+ * @since 0.9.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExecOutputBenchmark {
+
+	@Param({ "1024", "1048576", "104857600" })
+	public int outputBytes;
+
+	private LocalSandbox sandbox;
+
+	private ExecSpec full;
+
+	private ExecSpec bounded;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.sandbox = LocalSandbox.builder().tempDirectory("bench-output-").build();
+		String command = "head -c " + this.outputBytes + " /dev/zero | tr '\\0' x";
+		this.full = ExecSpec.builder().shellCommand(command).build();
+		this.bounded = ExecSpec.builder().shellCommand(command).outputLimit(16 * 1024, 16 * 1024).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.sandbox.close();
+	}
+
+	@Benchmark
+	public ExecResult captureFull() {
+		return this.sandbox.exec(this.full);
+	}
+
+	@Benchmark
+	public ExecResult captureBounded() {
+		return this.sandbox.exec(this.bounded);
+	}
+
+}
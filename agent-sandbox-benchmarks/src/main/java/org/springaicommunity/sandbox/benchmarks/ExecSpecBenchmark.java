@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springaicommunity.sandbox.ExecSpec;
+import org.springaicommunity.sandbox.ExecSpecCustomizer;
+
+/**
+ * Allocation and CPU cost of building {@link ExecSpec} instances and running them
+ * through a chain of {@link ExecSpecCustomizer customizers}, the work done before every
+ * command reaches a backend.
+ *
+ * @since 0.9.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecSpecBenchmark {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	@Param({ "0", "1", "4", "16" })
+	public int customizerCount;
+
+	private ExecSpec spec;
+
+	private ExecSpecCustomizer chain;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.spec = ExecSpec.builder().command("mvn", "-q", "compile").env("JAVA_HOME", "/opt/java").build();
+		ExecSpecCustomizer[] customizers = new ExecSpecCustomizer[this.customizerCount];
+		for (int i = 0; i < customizers.length; i++) {
+			String key = "VAR_" + i;
+			customizers[i] = original -> original.toBuilder().env(key, "value").build();
+		}
+		this.chain = ExecSpecCustomizer.chain(customizers);
+	}
+
+	@Benchmark
+	public ExecSpec of() {
+		return ExecSpec.of("mvn", "-q", "compile");
+	}
+
+	@Benchmark
+	public ExecSpec builder() {
+		return ExecSpec.builder()
+			.command("mvn", "-q", "compile")
+			.env("JAVA_HOME", "/opt/java")
+			.timeout(TIMEOUT)
+			.build();
+	}
+
+	@Benchmark
+	public ExecSpec shellCommand() {
+		return ExecSpec.builder().shellCommand("cd project && mvn -q compile").build();
+	}
+
+	/**
+	 * Apply {@code customizerCount} customizers, each adding one environment variable as
+	 * a typical authentication customizer would.
+	 */
+	@Benchmark
+	public ExecSpec customizerChain() {
+		return this.chain.customize(this.spec);
+	}
+
+}
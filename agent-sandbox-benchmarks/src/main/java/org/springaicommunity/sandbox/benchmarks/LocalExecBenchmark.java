@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springaicommunity.sandbox.ExecResult;
+import org.springaicommunity.sandbox.ExecSpec;
+import org.springaicommunity.sandbox.LocalSandbox;
+
+/**
+ * Process spawn latency of {@link LocalSandbox#exec(ExecSpec)}: the fixed cost paid by
+ * every command, measured with commands that do no work of their own.
+ *
+ * @since 0.9.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalExecBenchmark {
+
+	private static final ExecSpec TRUE = ExecSpec.of("true");
+
+	private static final ExecSpec SHELL_TRUE = ExecSpec.builder().shellCommand("true").build();
+
+	private LocalSandbox sandbox;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.sandbox = LocalSandbox.builder().tempDirectory("bench-exec-").build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.sandbox.close();
+	}
+
+	/**
+	 * Spawn a binary directly.
+	 */
+	@Benchmark
+	public ExecResult spawn() {
+		return this.sandbox.exec(TRUE);
+	}
+
+	/**
+	 * Spawn the same command through a shell, as {@code shellCommand} does.
+	 */
+	@Benchmark
+	public ExecResult spawnShell() {
+		return this.sandbox.exec(SHELL_TRUE);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springaicommunity.sandbox.FileEntry;
+import org.springaicommunity.sandbox.LocalSandbox;
+import org.springaicommunity.sandbox.SandboxFiles;
+
+/**
+ * Listing cost of {@link SandboxFiles#list(String, int)} on a local workspace of 100 to
+ * 100,000 files, spread over directories of {@value #FILES_PER_DIRECTORY} files each.
+ *
+ * @since 0.9.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalFilesListBenchmark {
+
+	private static final int FILES_PER_DIRECTORY = 100;
+
+	@Param({ "100", "1000", "10000", "100000" })
+	public int fileCount;
+
+	private Path root;
+
+	private LocalSandbox sandbox;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.root = Files.createTempDirectory("bench-list-");
+		for (int i = 0; i < this.fileCount; i++) {
+			Path dir = this.root.resolve("dir-" + (i / FILES_PER_DIRECTORY));
+			if (i % FILES_PER_DIRECTORY == 0) {
+				Files.createDirectory(dir);
+			}
+			Files.writeString(dir.resolve("file-" + i + ".txt"), "content " + i);
+		}
+		this.sandbox = LocalSandbox.builder().workingDirectory(this.root).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.sandbox.close();
+		try (Stream<Path> paths = Files.walk(this.root)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	/**
+	 * List the directories at the workspace root.
+	 */
+	@Benchmark
+	public List<FileEntry> listTopLevel() {
+		return this.sandbox.files().list(".");
+	}
+
+	/**
+	 * List every file and directory in the workspace.
+	 */
+	@Benchmark
+	public List<FileEntry> listRecursive() {
+		return this.sandbox.files().list(".", 2);
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Runs the JMH benchmarks selected by the command
+ * line with the GC profiler always enabled, so every result reports the allocation rate
+ * and bytes allocated per operation next to the timing:
+ *
+ * <pre>{@code
+ * ./mvnw -Pbenchmarks -pl agent-sandbox-benchmarks -am package
+ * java -jar agent-sandbox-benchmarks/target/benchmarks.jar LocalFilesListBenchmark -p fileCount=100,1000
+ * }</pre>
+ *
+ * <p>
+ * Accepts the standard JMH options ({@code -h} lists them).
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class SandboxBenchmarks {
+
+	private SandboxBenchmarks() {
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds a single bash script that runs a batch of {@link ExecSpec}s in order and splits
+ * the combined output back into one {@link ExecResult} per command.
+ *
+ * <p>
+ * Remote sandbox implementations use this to implement
+ * {@link Sandbox#execBatch(List, boolean)} with one process start (one container exec or
+ * one envd request) instead of one round trip and login-shell startup per command. Each
+ * command runs in its own subshell with its own environment. After each command the
+ * script prints a frame marker carrying a random nonce, the exit code and the duration to
+ * stdout, and a matching marker to stderr, so output is attributed exactly even when a
+ * command does not end its output with a newline.
+ * </p>
+ *
+ * <p>
+ * Commands with an {@link OutputLimit} write to temporary files in the sandbox and only
+ * the retained head and tail of each stream reach the batch output, together with the
+ * full byte counts in the frame marker. The batch output is therefore bounded by
+ * {@link #outputLimit()}, which sandboxes pass to their capture streams.
+ * </p>
+ *
+ * <p>
+ * Per-command timeouts are enforced with coreutils {@code timeout} when it is installed.
+ * A command that times out ends the batch and {@link #parse(String, String)} throws the
+ * same {@link SandboxException} that {@link Sandbox#exec(ExecSpec)} would. Durations use
+ * {@code $EPOCHREALTIME} (bash 5+) and fall back to whole seconds via {@code date}.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class BatchScript {
+
+	/**
+	 * Marker value for shell commands created with
+	 * {@link ExecSpec.Builder#shellCommand(String)}.
+	 */
+	private static final String SHELL_COMMAND_MARKER = "__SHELL_COMMAND__";
+
+	/**
+	 * Extra time granted to the whole batch on top of the per-command timeouts, covering
+	 * shell startup and framing.
+	 */
+	private static final Duration BATCH_OVERHEAD = Duration.ofSeconds(10);
+
+	/**
+	 * Bytes allowed per command and stream for the frame markers.
+	 */
+	private static final int FRAME_BYTES = 128;
+
+	/**
+	 * Shell function printing a captured stream file whole, or only its first {@code $2}
+	 * and last {@code $3} bytes when it is longer than both together.
+	 */
+	private static final String CAP_FUNCTION = """
+			__cap() { if [ "$(wc -c <"$1")" -le $(($2 + $3)) ]; then cat "$1"; \
+			else head -c "$2" "$1"; [ "$3" -eq 0 ] || tail -c "$3" "$1"; fi; }
+			""";
+
+	private final List<ExecSpec> specs;
+
+	private final boolean stopOnFirstFailure;
+
+	private final Duration defaultTimeout;
+
+	private final String marker;
+
+	/**
+	 * Create a batch script.
+	 * @param specs the commands to run, in order, with customizers already applied
+	 * @param stopOnFirstFailure whether to stop after the first command that exits with a
+	 * non-zero code
+	 * @param defaultTimeout timeout for commands that do not set one, or {@code null} to
+	 * let them run without a limit
+	 */
+	public BatchScript(List<ExecSpec> specs, boolean stopOnFirstFailure, Duration defaultTimeout) {
+		if (specs == null || specs.isEmpty()) {
+			throw new IllegalArgumentException("Batch must contain at least one command");
+		}
+		this.specs = List.copyOf(specs);
+		this.stopOnFirstFailure = stopOnFirstFailure;
+		this.defaultTimeout = defaultTimeout;
+		this.marker = "__SANDBOX_BATCH_" + UUID.randomUUID().toString().replace("-", "") + "__";
+	}
+
+	/**
+	 * The bash script that runs the whole batch.
+	 * @return the script source
+	 */
+	public String script() {
+		StringBuilder script = new StringBuilder();
+		script.append("__m=").append(quote(marker)).append('\n');
+		script.append("__to=; command -v timeout >/dev/null 2>&1 && __to=1\n");
+		if (specs.stream().anyMatch(spec -> spec.outputLimit() != null)) {
+			script.append("__d=$(mktemp -d) || exit 1\n");
+			script.append("trap 'rm -rf \"$__d\"' EXIT\n");
+			script.append(CAP_FUNCTION);
+		}
+		for (int i = 0; i < specs.size(); i++) {
+			ExecSpec spec = specs.get(i);
+			Duration timeout = timeoutOf(spec);
+			script.append(now("__s"));
+			script.append("( ");
+			for (Map.Entry<String, String> entry : spec.env().entrySet()) {
+				script.append("export ")
+					.append(entry.getKey())
+					.append('=')
+					.append(quote(entry.getValue()))
+					.append("; ");
+			}
+			String command = commandLine(spec.command());
+			if (timeout != null) {
+				String seconds = String.format(Locale.ROOT, "%.3f", timeout.toMillis() / 1000.0);
+				script.append("if [ -n \"$__to\" ]; then exec timeout ")
+					.append(seconds)
+					.append(' ')
+					.append(command)
+					.append("; else exec ")
+					.append(command)
+					.append("; fi");
+			}
+			else {
+				script.append("exec ").append(command);
+			}
+			OutputLimit limit = spec.outputLimit();
+			if (limit == null) {
+				script.append(" )\n");
+				script.append("__rc=$?\n");
+				script.append(now("__e"));
+				script.append("printf '%s:%d:%d:%d\\n' \"$__m\" ").append(i).append(" \"$__rc\" \"$((__e-__s))\"\n");
+			}
+			else {
+				script.append(" ) >\"$__d/o\" 2>\"$__d/e\"\n");
+				script.append("__rc=$?\n");
+				script.append(now("__e"));
+				script.append("__cap \"$__d/o\" ")
+					.append(limit.headBytes())
+					.append(' ')
+					.append(limit.tailBytes())
+					.append('\n');
+				script.append("__cap \"$__d/e\" ")
+					.append(limit.headBytes())
+					.append(' ')
+					.append(limit.tailBytes())
+					.append(" >&2\n");
+				script.append("printf '%s:%d:%d:%d:%d:%d\\n' \"$__m\" ")
+					.append(i)
+					.append(" \"$__rc\" \"$((__e-__s))\" \"$(wc -c <\"$__d/o\")\" \"$(wc -c <\"$__d/e\")\"\n");
+			}
+			script.append("printf '%s:%d\\n' \"$__m\" ").append(i).append(" >&2\n");
+			if (stopOnFirstFailure) {
+				script.append("[ \"$__rc\" -eq 0 ] || exit 0\n");
+			}
+			if (timeout != null) {
+				script.append("[ \"$__rc\" -eq 124 ] && [ $((__e-__s)) -ge ")
+					.append(timeout.toNanos() / 1000)
+					.append(" ] && exit 0\n");
+			}
+		}
+		return script.toString();
+	}
+
+	/**
+	 * Timeout for the process running the whole batch: the sum of the per-command
+	 * timeouts plus a fixed allowance for shell startup.
+	 * @return the batch timeout, or {@code null} if any command may run without a limit
+	 */
+	public Duration timeout() {
+		Duration total = BATCH_OVERHEAD;
+		for (ExecSpec spec : specs) {
+			Duration timeout = timeoutOf(spec);
+			if (timeout == null) {
+				return null;
+			}
+			total = total.plus(timeout);
+		}
+		return total;
+	}
+
+	/**
+	 * Capture budget for each stream of the process running the whole batch: the sum of
+	 * the per-command limits plus an allowance for the frame markers. Output within this
+	 * budget is never truncated, so every frame reaches {@link #parse(String, String)}.
+	 * @return the batch output limit, or {@code null} if any command captures its output
+	 * without a limit
+	 */
+	public OutputLimit outputLimit() {
+		long total = 0;
+		for (ExecSpec spec : specs) {
+			if (spec.outputLimit() == null) {
+				return null;
+			}
+			total += spec.outputLimit().maxBytes() + FRAME_BYTES;
+		}
+		return new OutputLimit((int) Math.min(total, Integer.MAX_VALUE), 0);
+	}
+
+	/**
+	 * Split the output of the batch process into per-command results.
+	 * @param stdout complete stdout of the batch process
+	 * @param stderr complete stderr of the batch process
+	 * @return one result per command that ran, in order
+	 * @throws SandboxException if a command timed out or the batch ended before all
+	 * commands ran
+	 */
+	public List<ExecResult> parse(String stdout, String stderr) {
+		List<ExecResult> results = new ArrayList<>();
+		int outPosition = 0;
+		int errPosition = 0;
+		for (int i = 0; i < specs.size(); i++) {
+			String outTag = marker + ":" + i + ":";
+			int outAt = stdout.indexOf(outTag, outPosition);
+			String errTag = marker + ":" + i + "\n";
+			int errAt = stderr.indexOf(errTag, errPosition);
+			if (outAt < 0 || errAt < 0) {
+				break;
+			}
+			int lineEnd = stdout.indexOf('\n', outAt);
+			String[] fields = stdout.substring(outAt + outTag.length(), lineEnd).split(":");
+			int exitCode = Integer.parseInt(fields[0]);
+			Duration duration = Duration.ofNanos(Long.parseLong(fields[1]) * 1000);
+
+			ExecSpec spec = specs.get(i);
+			Duration timeout = timeoutOf(spec);
+			if (timeout != null && exitCode == 124 && duration.compareTo(timeout) >= 0) {
+				throw new SandboxException("Command timed out",
+						new TimeoutException("Command timed out after " + timeout, timeout));
+			}
+			long stdoutBytes = fields.length > 3 ? Long.parseLong(fields[2].trim()) : -1;
+			long stderrBytes = fields.length > 3 ? Long.parseLong(fields[3].trim()) : -1;
+			results.add(toResult(spec, exitCode, stdout.substring(outPosition, outAt),
+					stderr.substring(errPosition, errAt), duration, stdoutBytes, stderrBytes));
+			outPosition = lineEnd + 1;
+			errPosition = errAt + errTag.length();
+			if (stopOnFirstFailure && exitCode != 0) {
+				return List.copyOf(results);
+			}
+		}
+		if (results.size() < specs.size()) {
+			throw new SandboxException(
+					"Batch execution ended after " + results.size() + " of " + specs.size() + " commands");
+		}
+		return List.copyOf(results);
+	}
+
+	private Duration timeoutOf(ExecSpec spec) {
+		return spec.timeout() != null ? spec.timeout() : defaultTimeout;
+	}
+
+	private static ExecResult toResult(ExecSpec spec, int exitCode, String stdout, String stderr, Duration duration,
+			long stdoutBytes, long stderrBytes) {
+		if (spec.outputLimit() == null) {
+			return new ExecResult(exitCode, stdout, stderr, duration);
+		}
+		return ExecResult.of(exitCode, capture(spec.outputLimit(), stdout, stdoutBytes),
+				capture(spec.outputLimit(), stderr, stderrBytes), duration);
+	}
+
+	/**
+	 * Rebuild the capture stream of one command from the head and tail the script kept.
+	 * @param totalBytes byte count of the complete stream, or -1 if the script printed
+	 * the stream whole
+	 */
+	private static BoundedOutputStream capture(OutputLimit limit, String content, long totalBytes) {
+		BoundedOutputStream out = new BoundedOutputStream(limit);
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		if (totalBytes <= bytes.length) {
+			out.write(bytes, 0, bytes.length);
+			return out;
+		}
+		int head = Math.min(limit.headBytes(), bytes.length);
+		out.write(bytes, 0, head);
+		out.skip(totalBytes - bytes.length);
+		out.write(bytes, head, bytes.length - head);
+		return out;
+	}
+
+	/**
+	 * Shell statement storing the current time in microseconds in a variable, without
+	 * forking when {@code $EPOCHREALTIME} is available.
+	 */
+	private static String now(String variable) {
+		return variable + "=${EPOCHREALTIME//[.,]/}; [ -n \"$" + variable + "\" ] || " + variable
+				+ "=$(( $(date +%s) * 1000000 ))\n";
+	}
+
+	private static String commandLine(List<String> command) {
+		if (command.size() >= 2 && SHELL_COMMAND_MARKER.equals(command.get(0))) {
+			return "bash -c " + quote(command.get(1));
+		}
+		StringBuilder line = new StringBuilder();
+		for (String arg : command) {
+			if (line.length() > 0) {
+				line.append(' ');
+			}
+			line.append(quote(arg));
+		}
+		return line.toString();
+	}
+
+	private static String quote(String value) {
+		return "'" + value.replace("'", "'\\''") + "'";
+	}
+
+}
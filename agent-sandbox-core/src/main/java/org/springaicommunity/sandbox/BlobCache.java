@@ -0,0 +1,238 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Client-side index of the content already present in sandbox blob stores, used to avoid
+ * uploading the same file content more than once.
+ *
+ * <p>
+ * Entries map a store id and the SHA-256 hash of some content to its size. A store is a
+ * directory visible to one or more sandboxes, described by a {@link BlobStoreSpec};
+ * content found in a store is copied inside the sandbox instead of being sent over the
+ * network again. One cache is normally shared by every sandbox of an application.
+ * </p>
+ *
+ * <p>
+ * The cache is bounded by the total size of the content it tracks. When it grows past the
+ * budget the least recently used entries are forgotten and the
+ * {@linkplain #addEvictionListener eviction listeners} of their store are told, so that
+ * open stores delete the blobs and sandbox disk usage stays within the budget as well.
+ * Evicted content is simply uploaded again the next time it is needed. Content smaller
+ * than the minimum blob size is never tracked, because copying it in the sandbox costs as
+ * much as uploading it.
+ * </p>
+ *
+ * <p>
+ * Instances are thread-safe.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class BlobCache {
+
+	/** Content smaller than this is uploaded directly by default. */
+	public static final long DEFAULT_MIN_BLOB_SIZE = 64 * 1024;
+
+	private final long maxBytes;
+
+	private final long minBlobSize;
+
+	private final LinkedHashMap<Key, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<String, List<Consumer<String>>> evictionListeners = new HashMap<>();
+
+	private long totalBytes;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Create a cache with the default minimum blob size.
+	 * @param maxBytes the total size of the content to track
+	 */
+	public BlobCache(long maxBytes) {
+		this(maxBytes, DEFAULT_MIN_BLOB_SIZE);
+	}
+
+	/**
+	 * Create a cache.
+	 * @param maxBytes the total size of the content to track
+	 * @param minBlobSize the size below which content is uploaded directly
+	 */
+	public BlobCache(long maxBytes, long minBlobSize) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Max bytes must be positive");
+		}
+		if (minBlobSize < 0) {
+			throw new IllegalArgumentException("Min blob size cannot be negative");
+		}
+		this.maxBytes = maxBytes;
+		this.minBlobSize = minBlobSize;
+	}
+
+	/**
+	 * Check whether a store holds some content, marking the entry as recently used.
+	 * @param store the store id
+	 * @param hash the SHA-256 hash of the content
+	 * @return {@code true} if the content is known to be in the store
+	 */
+	public synchronized boolean contains(String store, String hash) {
+		boolean found = entries.get(new Key(store, hash)) != null;
+		if (found) {
+			hits++;
+		}
+		else {
+			misses++;
+		}
+		return found;
+	}
+
+	/**
+	 * Record that a store holds some content, for example a blob baked into the image of
+	 * a shared store. Content larger than the budget is not recorded.
+	 * @param store the store id
+	 * @param hash the SHA-256 hash of the content
+	 * @param size the content size in bytes
+	 */
+	public void add(String store, String hash, long size) {
+		List<Key> evicted = new ArrayList<>();
+		List<Map.Entry<Key, List<Consumer<String>>>> notifications = new ArrayList<>();
+		synchronized (this) {
+			if (size > maxBytes) {
+				return;
+			}
+			Long previous = entries.put(new Key(store, hash), size);
+			totalBytes += size - ((previous != null) ? previous : 0);
+			Iterator<Map.Entry<Key, Long>> eldest = entries.entrySet().iterator();
+			while (totalBytes > maxBytes) {
+				Map.Entry<Key, Long> entry = eldest.next();
+				totalBytes -= entry.getValue();
+				evicted.add(entry.getKey());
+				eldest.remove();
+			}
+			for (Key key : evicted) {
+				List<Consumer<String>> listeners = evictionListeners.get(key.store());
+				if (listeners != null) {
+					notifications.add(Map.entry(key, List.copyOf(listeners)));
+				}
+			}
+		}
+		// Listeners run outside the lock, as deleting a blob may take a round trip
+		for (Map.Entry<Key, List<Consumer<String>>> notification : notifications) {
+			notification.getValue().forEach(listener -> listener.accept(notification.getKey().hash()));
+		}
+	}
+
+	/**
+	 * Register a listener told the hash of every blob of a store that is evicted to stay
+	 * within the budget, so that the store can delete it.
+	 * @param store the store id
+	 * @param listener receives the hash of each evicted blob
+	 */
+	public synchronized void addEvictionListener(String store, Consumer<String> listener) {
+		evictionListeners.computeIfAbsent(store, key -> new ArrayList<>()).add(listener);
+	}
+
+	/**
+	 * Remove a listener registered with {@link #addEvictionListener}.
+	 * @param store the store id
+	 * @param listener the listener to remove
+	 */
+	public synchronized void removeEvictionListener(String store, Consumer<String> listener) {
+		List<Consumer<String>> listeners = evictionListeners.get(store);
+		if (listeners != null && listeners.remove(listener) && listeners.isEmpty()) {
+			evictionListeners.remove(store);
+		}
+	}
+
+	/**
+	 * Forget some content, for example after it was found missing from the store.
+	 * @param store the store id
+	 * @param hash the SHA-256 hash of the content
+	 */
+	public synchronized void remove(String store, String hash) {
+		Long size = entries.remove(new Key(store, hash));
+		if (size != null) {
+			totalBytes -= size;
+		}
+	}
+
+	/**
+	 * Forget all content of a store, for example when its sandbox is closed.
+	 * @param store the store id
+	 */
+	public synchronized void removeStore(String store) {
+		Iterator<Map.Entry<Key, Long>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, Long> entry = it.next();
+			if (entry.getKey().store().equals(store)) {
+				totalBytes -= entry.getValue();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Get the size below which content is uploaded directly.
+	 * @return the minimum blob size in bytes
+	 */
+	public long minBlobSize() {
+		return minBlobSize;
+	}
+
+	/**
+	 * Get the total size of the tracked content.
+	 * @return the size in bytes, at most the budget
+	 */
+	public synchronized long size() {
+		return totalBytes;
+	}
+
+	/**
+	 * Get the number of lookups that found the content in the store.
+	 * @return the hit count
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that did not find the content in the store.
+	 * @return the miss count
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "BlobCache{entries=" + entries.size() + ", bytes=" + totalBytes + ", maxBytes=" + maxBytes + "}";
+	}
+
+	private record Key(String store, String hash) {
+	}
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The blob store of one remote sandbox, used by its {@link SandboxFiles} to skip uploads
+ * of content already present in the sandbox.
+ *
+ * <p>
+ * Writes of at least {@link BlobCache#minBlobSize()} bytes are hashed first. If the
+ * {@link BlobCache} knows the store holds the content, the file is created with one
+ * {@code cp} inside the sandbox, using a reflink where the file system supports it, and
+ * given the mode of the host file it was copied from, or no executable bits when written
+ * from memory. Otherwise the content is uploaded and then copied into the store, named by
+ * its hash, for the next write. Files are copied rather than hardlinked so that later
+ * writes to one of them cannot change the others. A blob that went missing from the store
+ * is forgotten and the content uploaded again.
+ * </p>
+ *
+ * <p>
+ * A per-sandbox store only keeps content once it has been written twice, because most
+ * content is written to a sandbox only once and keeping it would cost an extra round trip
+ * and a second copy on the sandbox disk for nothing. Blobs the cache evicts to stay
+ * within its budget are deleted from the store while it is open.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class BlobStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+	private static final BlobStore DISABLED = new BlobStore(null, null, null, null, false);
+
+	private static final String COPY_FUNCTION = "copy() { cp --reflink=auto -- \"$1\" \"$2\" 2>/dev/null"
+			+ " || cp -- \"$1\" \"$2\"; }\n";
+
+	private static final String MATERIALIZE_SCRIPT = COPY_FUNCTION + "[ -f \"$1\" ] || exit 1\n"
+			+ "mkdir -p -- \"$(dirname -- \"$2\")\" && copy \"$1\" \"$2\" && chmod \"$3\" \"$2\"\n";
+
+	/** Mode change for files written from memory, which are never executable. */
+	private static final String CONTENT_MODE = "a-x";
+
+	private static final String DELETE_SCRIPT = "rm -f -- \"$1\"\n";
+
+	/** Hashes written once to a per-sandbox store that are remembered at most. */
+	private static final int MAX_SEEN_HASHES = 4096;
+
+	private static final String STORE_SCRIPT = COPY_FUNCTION + "[ -f \"$2\" ] && exit 0\n"
+			+ "mkdir -p -- \"${2%/*}\" && copy \"$1\" \"$2.$$\" && mv -f -- \"$2.$$\" \"$2\"\n";
+
+	private final BlobCache cache;
+
+	private final String id;
+
+	private final String directory;
+
+	private final SandboxShell shell;
+
+	private final boolean perSandbox;
+
+	private final Consumer<String> evictionListener = this::deleteBlob;
+
+	private final Map<String, Boolean> seenHashes = new LinkedHashMap<>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > MAX_SEEN_HASHES;
+		}
+
+	};
+
+	private BlobStore(BlobCache cache, String id, String directory, SandboxShell shell, boolean perSandbox) {
+		this.cache = cache;
+		this.id = id;
+		this.directory = directory;
+		this.shell = shell;
+		this.perSandbox = perSandbox;
+	}
+
+	/**
+	 * Open the store of a sandbox.
+	 * @param spec the store configuration, or {@code null} to upload everything
+	 * @param sandboxId an id unique to the sandbox, naming a per-sandbox store
+	 * @param shell runs scripts in the sandbox
+	 * @return the store
+	 */
+	public static BlobStore open(BlobStoreSpec spec, String sandboxId, SandboxShell shell) {
+		if (spec == null) {
+			return DISABLED;
+		}
+		BlobStore store = spec.isPerSandbox()
+				? new BlobStore(spec.cache(), "sandbox:" + sandboxId, spec.directory(), shell, true)
+				: new BlobStore(spec.cache(), spec.id(), spec.directory(), shell, false);
+		spec.cache().addEvictionListener(store.id, store.evictionListener);
+		return store;
+	}
+
+	/**
+	 * A store that uploads everything.
+	 * @return the store
+	 */
+	public static BlobStore disabled() {
+		return DISABLED;
+	}
+
+	/**
+	 * Write content to a sandbox file.
+	 * @param targetPath the absolute path of the file in the sandbox
+	 * @param content the content
+	 * @param upload uploads the content to the file if it is not in the store
+	 * @throws SandboxException if the upload fails
+	 */
+	public void write(String targetPath, byte[] content, Runnable upload) {
+		if (cache == null || content.length < cache.minBlobSize()) {
+			upload.run();
+			return;
+		}
+		String hash = HexFormat.of().formatHex(FileManifest.sha256().digest(content));
+		write(targetPath, hash, content.length, CONTENT_MODE, upload);
+	}
+
+	/**
+	 * Write the content of a host file to a sandbox file.
+	 * @param targetPath the absolute path of the file in the sandbox
+	 * @param source the host file
+	 * @param upload uploads the host file if its content is not in the store
+	 * @throws SandboxException if the host file cannot be read or the upload fails
+	 */
+	public void write(String targetPath, Path source, Runnable upload) {
+		if (cache == null) {
+			upload.run();
+			return;
+		}
+		String hash;
+		long size;
+		int mode;
+		try {
+			size = Files.size(source);
+			hash = (size < cache.minBlobSize()) ? null : FileManifest.hash(source, FileManifest.sha256());
+			mode = TarArchives.fileMode(source);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read " + source, e);
+		}
+		if (hash == null) {
+			upload.run();
+			return;
+		}
+		write(targetPath, hash, size, Integer.toOctalString(mode & 07777), upload);
+	}
+
+	private void write(String targetPath, String hash, long size, String mode, Runnable upload) {
+		String blob = directory + "/" + hash;
+		if (cache.contains(id, hash)) {
+			try {
+				shell.run(MATERIALIZE_SCRIPT, blob, targetPath, mode);
+				logger.debug("Copied {} from blob store {}", targetPath, id);
+				return;
+			}
+			catch (SandboxException e) {
+				logger.debug("Blob {} is no longer in store {}, uploading", hash, id, e);
+				cache.remove(id, hash);
+			}
+		}
+		upload.run();
+		if (perSandbox && !seenBefore(hash)) {
+			return;
+		}
+		try {
+			shell.run(STORE_SCRIPT, targetPath, blob);
+			cache.add(id, hash, size);
+		}
+		catch (SandboxException e) {
+			// The store may be read-only; the upload itself succeeded
+			logger.debug("Failed to add {} to blob store {}", targetPath, id, e);
+		}
+	}
+
+	/**
+	 * Forget the content of a per-sandbox store once its sandbox is gone. Shared stores
+	 * are left as they are.
+	 */
+	public void close() {
+		if (cache == null) {
+			return;
+		}
+		cache.removeEvictionListener(id, evictionListener);
+		if (perSandbox) {
+			cache.removeStore(id);
+		}
+	}
+
+	/**
+	 * Record a write of some content to a per-sandbox store.
+	 * @return {@code true} if the same content was written before
+	 */
+	private boolean seenBefore(String hash) {
+		synchronized (seenHashes) {
+			return seenHashes.put(hash, Boolean.TRUE) != null;
+		}
+	}
+
+	/**
+	 * Delete an evicted blob in the background, so that the write that caused the
+	 * eviction, possibly in another sandbox, does not wait for it.
+	 */
+	private void deleteBlob(String hash) {
+		String blob = directory + "/" + hash;
+		try {
+			SandboxExecutors.defaultExecutor().execute(() -> {
+				try {
+					shell.run(DELETE_SCRIPT, blob);
+					logger.debug("Deleted evicted blob {} from store {}", hash, id);
+				}
+				catch (SandboxException e) {
+					logger.debug("Failed to delete evicted blob {} from store {}", hash, id, e);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			logger.debug("Failed to schedule deletion of evicted blob {} from store {}", hash, id, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return (cache != null) ? "BlobStore{id=" + id + ", directory=" + directory + "}" : "BlobStore{disabled}";
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.util.Objects;
+
+/**
+ * Where a remote sandbox keeps the blobs tracked by a {@link BlobCache}.
+ *
+ * <p>
+ * A per-sandbox store lives in the sandbox's own {@code /tmp} and deduplicates content
+ * written more than once to the same sandbox. A shared store is a directory that several
+ * sandboxes see with the same contents, such as a mounted volume or a directory baked
+ * into the base image; content uploaded to one sandbox is then copied from the store in
+ * every other sandbox. Blobs in a shared store that the application did not upload itself
+ * can be announced with {@link BlobCache#add(String, String, long)}, using their SHA-256
+ * hash as the file name.
+ * </p>
+ *
+ * @param cache the cache tracking the content of the store
+ * @param id the store id, or {@code null} for a store private to each sandbox
+ * @param directory the absolute store directory in the sandbox
+ * @since 0.9.1
+ */
+public record BlobStoreSpec(BlobCache cache, String id, String directory) {
+
+	/** Directory of per-sandbox stores. */
+	public static final String DEFAULT_DIRECTORY = "/tmp/agent-sandbox-blobs";
+
+	public BlobStoreSpec {
+		Objects.requireNonNull(cache, "cache cannot be null");
+		Objects.requireNonNull(directory, "directory cannot be null");
+		if (!directory.startsWith("/")) {
+			throw new IllegalArgumentException("Blob store directory must be absolute: " + directory);
+		}
+	}
+
+	/**
+	 * A store private to each sandbox.
+	 * @param cache the cache tracking the content of the store
+	 * @return the spec
+	 */
+	public static BlobStoreSpec perSandbox(BlobCache cache) {
+		return new BlobStoreSpec(cache, null, DEFAULT_DIRECTORY);
+	}
+
+	/**
+	 * A store shared by every sandbox configured with the same id.
+	 * @param cache the cache tracking the content of the store
+	 * @param id the store id
+	 * @param directory the absolute store directory in each sandbox
+	 * @return the spec
+	 */
+	public static BlobStoreSpec shared(BlobCache cache, String id, String directory) {
+		if (id == null || id.isBlank()) {
+			throw new IllegalArgumentException("Store id cannot be empty");
+		}
+		return new BlobStoreSpec(cache, id, directory);
+	}
+
+	/**
+	 * Checks if the store is private to each sandbox.
+	 * @return true for a per-sandbox store
+	 */
+	public boolean isPerSandbox() {
+		return id == null;
+	}
+
+}
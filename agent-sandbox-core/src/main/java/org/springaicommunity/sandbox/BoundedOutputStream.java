@@ -0,0 +1,211 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link OutputStream} that captures process output within an {@link OutputLimit}.
+ *
+ * <p>
+ * The first {@code headBytes} are stored in a fixed buffer and the last {@code tailBytes}
+ * in a fixed ring buffer, so memory use is bounded regardless of how much is written. The
+ * total number of bytes written is always tracked. Without a limit the stream captures
+ * everything, like a {@link ByteArrayOutputStream}.
+ * </p>
+ *
+ * <p>
+ * Sandbox implementations use one instance per stream and build the {@link ExecResult}
+ * from {@link #contentAsString()}, {@link #totalBytes()} and {@link #isTruncated()}.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class BoundedOutputStream extends OutputStream {
+
+	private final ByteArrayOutputStream unbounded;
+
+	private final byte[] head;
+
+	private final byte[] tail;
+
+	private int headLength;
+
+	private int tailPosition;
+
+	private int tailLength;
+
+	private long totalBytes;
+
+	/**
+	 * Create a capture stream.
+	 * @param limit the output budget, or {@code null} to capture everything
+	 */
+	public BoundedOutputStream(OutputLimit limit) {
+		if (limit == null) {
+			this.unbounded = new ByteArrayOutputStream();
+			this.head = null;
+			this.tail = null;
+		}
+		else {
+			this.unbounded = null;
+			this.head = new byte[limit.headBytes()];
+			this.tail = new byte[limit.tailBytes()];
+		}
+	}
+
+	@Override
+	public synchronized void write(int b) {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) {
+		totalBytes += len;
+		if (unbounded != null) {
+			unbounded.write(b, off, len);
+			return;
+		}
+		int toHead = Math.min(len, head.length - headLength);
+		System.arraycopy(b, off, head, headLength, toHead);
+		headLength += toHead;
+		off += toHead;
+		len -= toHead;
+		if (len == 0 || tail.length == 0) {
+			return;
+		}
+		if (len >= tail.length) {
+			System.arraycopy(b, off + len - tail.length, tail, 0, tail.length);
+			tailPosition = 0;
+			tailLength = tail.length;
+			return;
+		}
+		int first = Math.min(len, tail.length - tailPosition);
+		System.arraycopy(b, off, tail, tailPosition, first);
+		System.arraycopy(b, off + first, tail, 0, len - first);
+		tailPosition = (tailPosition + len) % tail.length;
+		tailLength = Math.min(tailLength + len, tail.length);
+	}
+
+	/**
+	 * Count bytes that were dropped before reaching this stream, for example by a
+	 * sandbox-side {@code head}/{@code tail}. They end the current tail, so the next
+	 * bytes written start a fresh one.
+	 * @param count number of dropped bytes
+	 */
+	synchronized void skip(long count) {
+		totalBytes += count;
+		tailPosition = 0;
+		tailLength = 0;
+	}
+
+	/**
+	 * Total number of bytes written, including bytes that were dropped.
+	 * @return the total byte count
+	 */
+	public synchronized long totalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Whether any bytes were dropped because the output exceeded the limit.
+	 * @return true if the captured content is incomplete
+	 */
+	public synchronized boolean isTruncated() {
+		return unbounded == null && totalBytes > headLength + tailLength;
+	}
+
+	/**
+	 * Decode the captured bytes as UTF-8. When output was dropped, the head and tail are
+	 * joined by a marker reporting the number of omitted bytes; multi-byte characters cut
+	 * by the limit are removed rather than decoded as replacement characters.
+	 * @return the captured content
+	 */
+	public synchronized String contentAsString() {
+		if (unbounded != null) {
+			return unbounded.toString(StandardCharsets.UTF_8);
+		}
+		byte[] tailBytes = orderedTail();
+		if (!isTruncated()) {
+			byte[] all = new byte[headLength + tailBytes.length];
+			System.arraycopy(head, 0, all, 0, headLength);
+			System.arraycopy(tailBytes, 0, all, headLength, tailBytes.length);
+			return new String(all, StandardCharsets.UTF_8);
+		}
+		int headEnd = completeSequenceEnd(head, headLength);
+		int tailStart = firstSequenceStart(tailBytes);
+		long omitted = totalBytes - headEnd - (tailBytes.length - tailStart);
+		StringBuilder content = new StringBuilder();
+		content.append(new String(head, 0, headEnd, StandardCharsets.UTF_8));
+		content.append("\n... [").append(omitted).append(" bytes truncated] ...\n");
+		content.append(new String(tailBytes, tailStart, tailBytes.length - tailStart, StandardCharsets.UTF_8));
+		return content.toString();
+	}
+
+	@Override
+	public String toString() {
+		return contentAsString();
+	}
+
+	private byte[] orderedTail() {
+		byte[] ordered = new byte[tailLength];
+		if (tailLength < tail.length) {
+			System.arraycopy(tail, 0, ordered, 0, tailLength);
+		}
+		else {
+			int first = tail.length - tailPosition;
+			System.arraycopy(tail, tailPosition, ordered, 0, first);
+			System.arraycopy(tail, 0, ordered, first, tailPosition);
+		}
+		return ordered;
+	}
+
+	/**
+	 * End index of the longest prefix that does not finish with an incomplete UTF-8
+	 * sequence.
+	 */
+	private static int completeSequenceEnd(byte[] bytes, int length) {
+		int start = length - 1;
+		while (start >= 0 && length - start < 4 && isContinuation(bytes[start])) {
+			start--;
+		}
+		if (start < 0) {
+			return length;
+		}
+		int lead = bytes[start] & 0xFF;
+		int expected = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+		return length - start < expected ? start : length;
+	}
+
+	/**
+	 * Index of the first byte that is not the continuation of a sequence cut off before
+	 * the start of the array.
+	 */
+	private static int firstSequenceStart(byte[] bytes) {
+		int start = 0;
+		while (start < bytes.length && start < 3 && isContinuation(bytes[start])) {
+			start++;
+		}
+		return start;
+	}
+
+	private static boolean isContinuation(byte b) {
+		return (b & 0xC0) == 0x80;
+	}
+
+}
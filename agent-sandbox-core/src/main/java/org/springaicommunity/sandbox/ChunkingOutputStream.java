@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * {@link OutputStream} that forwards raw process output to a capture stream and publishes
+ * it as {@link OutputChunk}s to an {@link OutputListener}.
+ *
+ * <p>
+ * Bytes are decoded as UTF-8 incrementally; an incomplete multi-byte sequence at the end
+ * of a write is held back until the next write so that characters are never split between
+ * chunks. Sandbox implementations wrap their stdout and stderr capture streams with this
+ * class to implement {@link Sandbox#exec(ExecSpec, OutputListener)}.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread-safe; each stream of a process needs its own instance.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class ChunkingOutputStream extends OutputStream {
+
+	private final OutputChunk.Type type;
+
+	private final OutputStream capture;
+
+	private final OutputListener listener;
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+		.onMalformedInput(CodingErrorAction.REPLACE)
+		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private ByteBuffer pending = ByteBuffer.allocate(0);
+
+	private boolean finished;
+
+	/**
+	 * Create a chunking stream.
+	 * @param type the stream type reported on emitted chunks
+	 * @param capture stream receiving every raw byte, typically the result buffer
+	 * @param listener listener receiving decoded chunks
+	 */
+	public ChunkingOutputStream(OutputChunk.Type type, OutputStream capture, OutputListener listener) {
+		this.type = type;
+		this.capture = capture;
+		this.listener = listener;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return;
+		}
+		capture.write(b, off, len);
+		ByteBuffer input;
+		if (pending.hasRemaining()) {
+			input = ByteBuffer.allocate(pending.remaining() + len);
+			input.put(pending).put(b, off, len).flip();
+		}
+		else {
+			input = ByteBuffer.wrap(b, off, len);
+		}
+		emit(input, false);
+		pending = input.hasRemaining() ? ByteBuffer.allocate(input.remaining()).put(input).flip()
+				: ByteBuffer.allocate(0);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		capture.flush();
+	}
+
+	/**
+	 * Emit any bytes held back from an incomplete trailing character. Called once the
+	 * process output has ended; further calls have no effect.
+	 */
+	public void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		emit(pending, true);
+		pending = ByteBuffer.allocate(0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		capture.close();
+	}
+
+	private void emit(ByteBuffer input, boolean endOfInput) {
+		CharBuffer chars = CharBuffer.allocate((int) (input.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+		decoder.decode(input, chars, endOfInput);
+		if (endOfInput) {
+			decoder.flush(chars);
+			decoder.reset();
+		}
+		chars.flip();
+		if (chars.hasRemaining()) {
+			listener.onOutput(new OutputChunk(type, chars.toString(), Instant.now()));
+		}
+	}
+
+}
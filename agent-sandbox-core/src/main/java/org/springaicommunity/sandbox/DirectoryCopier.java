@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies a host directory tree as cheaply as the file system allows.
+ *
+ * <p>
+ * On Linux and macOS the copy is delegated to {@code cp}, asking for copy-on-write clones
+ * ({@code --reflink=auto} and {@code -c} respectively), so on Btrfs, XFS, ZFS or APFS
+ * file contents are shared until either side writes them. Elsewhere, or if {@code cp}
+ * fails, the tree is copied with {@link Files#copy}, preserving attributes and symbolic
+ * links. Hard links are never used: a command rewriting a file in place would change it
+ * in every copy.
+ * </p>
+ */
+final class DirectoryCopier {
+
+	private static final Logger logger = LoggerFactory.getLogger(DirectoryCopier.class);
+
+	private static final String OS_NAME = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+
+	private DirectoryCopier() {
+	}
+
+	/**
+	 * Copy the contents of {@code source} into {@code target}.
+	 * @param source the directory to copy
+	 * @param target an existing, empty directory
+	 * @throws IOException if the copy fails
+	 */
+	static void copy(Path source, Path target) throws IOException {
+		if (!Files.isDirectory(source)) {
+			throw new IOException("Not a directory: " + source);
+		}
+		List<String> command = cloneCommand(source, target);
+		if (command != null && run(command)) {
+			return;
+		}
+		copyTree(source, target);
+	}
+
+	private static List<String> cloneCommand(Path source, Path target) {
+		// "source/." copies the directory contents rather than the directory itself
+		String from = source.toString() + "/.";
+		if (OS_NAME.contains("linux")) {
+			return List.of("cp", "-a", "--reflink=auto", from, target.toString());
+		}
+		if (OS_NAME.contains("mac")) {
+			return List.of("cp", "-a", "-c", from, target.toString());
+		}
+		return null;
+	}
+
+	private static boolean run(List<String> command) {
+		try {
+			Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.start();
+			if (!process.waitFor(10, TimeUnit.MINUTES)) {
+				process.destroyForcibly();
+				return false;
+			}
+			if (process.exitValue() != 0) {
+				logger.debug("{} exited with {}, copying directory in process", command.get(0), process.exitValue());
+				return false;
+			}
+			return true;
+		}
+		catch (IOException e) {
+			logger.debug("Cannot run {}, copying directory in process", command.get(0), e);
+			return false;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static void copyTree(Path source, Path target) throws IOException {
+		Files.walkFileTree(source, new SimpleFileVisitor<>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Path copy = target.resolve(source.relativize(dir).toString());
+				try {
+					Files.copy(dir, copy, StandardCopyOption.COPY_ATTRIBUTES);
+				}
+				catch (FileAlreadyExistsException e) {
+					// The target root, or a directory left behind by a failed clone
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.copy(file, target.resolve(source.relativize(file).toString()), StandardCopyOption.COPY_ATTRIBUTES,
+						StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Incremental host-to-sandbox directory sync used to implement
+ * {@link SandboxFiles#sync(Path, String)}.
+ *
+ * <p>
+ * Each sync hashes the host tree, obtains the hashes of the sandbox tree in one call,
+ * copies added and changed files with a single
+ * {@link SandboxFiles#importDirectory(Path, String, Predicate)}, and deletes the files
+ * that an earlier sync copied but that no longer exist on the host. Files created in the
+ * sandbox itself, such as build output, are never deleted.
+ * </p>
+ *
+ * <p>
+ * The manifest of each synced directory is kept between calls. Host files whose size and
+ * modification time are unchanged are not hashed again, and remote sandboxes only hash
+ * the files modified since the previous sync, found with {@code find -newer} against a
+ * stamp file touched after each sync. Syncing an unchanged tree therefore costs one
+ * command in the sandbox. Changes in the sandbox that preserve modification times, such
+ * as {@code touch -d}, are not detected.
+ * </p>
+ *
+ * <p>
+ * Instances belong to one {@link SandboxFiles} and are thread-safe; syncs run one at a
+ * time.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class DirectorySync {
+
+	private static final Logger logger = LoggerFactory.getLogger(DirectorySync.class);
+
+	private final Target target;
+
+	private final Map<Path, FileManifest> hostManifests = new HashMap<>();
+
+	private final Map<String, FileManifest> syncedManifests = new HashMap<>();
+
+	private final Map<String, FileManifest> targetManifests = new HashMap<>();
+
+	DirectorySync(Target target) {
+		this.target = target;
+	}
+
+	/**
+	 * Create a sync for a remote sandbox whose files are inspected with shell commands.
+	 * The sandbox needs {@code find} and {@code sha256sum}.
+	 * @param files the files accessor used to copy the changed files
+	 * @param shell runs scripts in the sandbox working directory
+	 * @return the sync
+	 */
+	public static DirectorySync overShell(SandboxFiles files, SandboxShell shell) {
+		return new DirectorySync(new ShellTarget(files, shell));
+	}
+
+	/**
+	 * Make a sandbox directory reflect a host directory.
+	 * @param hostDir the host directory
+	 * @param targetDir the sandbox directory relative to the working directory
+	 * @return what was changed
+	 * @throws SandboxException if the sync fails
+	 */
+	public synchronized SyncResult sync(Path hostDir, String targetDir) {
+		if (hostDir == null || !Files.isDirectory(hostDir)) {
+			throw new IllegalArgumentException("Host directory does not exist: " + hostDir);
+		}
+		Path hostKey = hostDir.toAbsolutePath().normalize();
+		FileManifest host;
+		try {
+			host = FileManifest.scan(hostDir, hostManifests.get(hostKey));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to scan host directory: " + hostDir, e);
+		}
+		hostManifests.put(hostKey, host);
+
+		FileManifest previous = syncedManifests.get(targetDir);
+		FileManifest current = target.manifest(targetDir, targetManifests.get(targetDir));
+
+		List<String> added = new ArrayList<>();
+		List<String> updated = new ArrayList<>();
+		int unchanged = 0;
+		for (Map.Entry<String, FileManifest.Entry> entry : host.entries().entrySet()) {
+			String existing = current.hash(entry.getKey());
+			if (existing == null) {
+				added.add(entry.getKey());
+			}
+			else if (!existing.equals(entry.getValue().hash())) {
+				updated.add(entry.getKey());
+			}
+			else {
+				unchanged++;
+			}
+		}
+		List<String> deleted = new ArrayList<>();
+		if (previous != null) {
+			for (String path : previous.paths()) {
+				if (host.get(path) == null && current.get(path) != null) {
+					deleted.add(path);
+				}
+			}
+		}
+
+		if (!added.isEmpty() || !updated.isEmpty()) {
+			Set<String> copy = new HashSet<>(added);
+			copy.addAll(updated);
+			target.upload(hostDir, targetDir, includingParents(copy));
+		}
+		if (!deleted.isEmpty() || previous == null || !added.isEmpty() || !updated.isEmpty()) {
+			target.finish(targetDir, deleted);
+		}
+
+		// What the sandbox holds now, so the next sync can reuse its hashes
+		Map<String, FileManifest.Entry> expected = new HashMap<>(current.entries());
+		added.forEach(path -> expected.put(path, host.get(path)));
+		updated.forEach(path -> expected.put(path, host.get(path)));
+		deleted.forEach(expected::remove);
+		targetManifests.put(targetDir, new FileManifest(expected));
+		syncedManifests.put(targetDir, host);
+
+		logger.debug("Synced {} to {}: {} added, {} updated, {} deleted, {} unchanged", hostDir, targetDir,
+				added.size(), updated.size(), deleted.size(), unchanged);
+		return new SyncResult(added, updated, deleted, unchanged);
+	}
+
+	/**
+	 * Import filter accepting the given files and the directories leading to them.
+	 */
+	private static Predicate<Path> includingParents(Set<String> files) {
+		Set<String> accepted = new HashSet<>(files);
+		for (String file : files) {
+			int slash = file.lastIndexOf('/');
+			while (slash > 0) {
+				accepted.add(file.substring(0, slash));
+				slash = file.lastIndexOf('/', slash - 1);
+			}
+		}
+		return path -> accepted.contains(path.toString().replace('\\', '/'));
+	}
+
+	/**
+	 * The sandbox side of a sync.
+	 */
+	interface Target {
+
+		/**
+		 * Hash the files of a sandbox directory.
+		 * @param targetDir the directory relative to the working directory
+		 * @param expected the contents expected from the previous sync, whose hashes may
+		 * be reused for files not modified since, or {@code null} on the first sync
+		 * @return the manifest; empty if the directory does not exist
+		 */
+		FileManifest manifest(String targetDir, FileManifest expected);
+
+		/**
+		 * Copy the files accepted by the filter.
+		 */
+		void upload(Path hostDir, String targetDir, Predicate<Path> filter);
+
+		/**
+		 * Delete files and record that the directory is in sync.
+		 */
+		void finish(String targetDir, List<String> deleted);
+
+	}
+
+	/**
+	 * Target for remote sandboxes: one command lists the directory, hashing only the
+	 * files modified since the stamp of the previous sync.
+	 */
+	private static final class ShellTarget implements Target {
+
+		private static final String STAMP_DIR = "/tmp/agent-sandbox-sync/";
+
+		private static final String MANIFEST_SCRIPT = "cd \"$1\" 2>/dev/null || exit 0\n"
+				+ "if [ -n \"$3\" ] && [ -f \"$2\" ]; then\n"
+				+ "  find . -type f ! -newer \"$2\" -exec printf '= %s\\n' {} +\n"
+				+ "  find . -type f -newer \"$2\" -exec sha256sum {} +\n" + "else\n"
+				+ "  find . -type f -exec sha256sum {} +\n" + "fi\n";
+
+		private static final String FINISH_SCRIPT = "cd \"$1\" || exit 1\n" + "stamp=$2\n" + "shift 2\n"
+				+ "if [ $# -gt 0 ]; then rm -f -- \"$@\"; fi\n" + "mkdir -p \"${stamp%/*}\" && touch \"$stamp\"\n";
+
+		private final SandboxFiles files;
+
+		private final SandboxShell shell;
+
+		private final Map<String, String> stamps = new ConcurrentHashMap<>();
+
+		ShellTarget(SandboxFiles files, SandboxShell shell) {
+			this.files = files;
+			this.shell = shell;
+		}
+
+		@Override
+		public FileManifest manifest(String targetDir, FileManifest expected) {
+			String output = shell.run(MANIFEST_SCRIPT, targetDir, stamp(targetDir),
+					(expected != null) ? "incremental" : "");
+			Map<String, FileManifest.Entry> entries = new HashMap<>();
+			for (String line : output.split("\n")) {
+				if (line.startsWith("= ")) {
+					// Not modified since the previous sync: reuse the known hash
+					String path = stripDot(line.substring(2));
+					String hash = (expected != null) ? expected.hash(path) : null;
+					entries.put(path, FileManifest.Entry.ofHash((hash != null) ? hash : FileManifest.UNKNOWN));
+				}
+				else if (line.length() > 66 && line.charAt(64) == ' ' && !line.startsWith("\\")) {
+					// @formatter:off
+					// sha256sum prints "<hash>  <path>", or "<hash> *<path>" in binary mode
+					// @formatter:on
+					entries.put(stripDot(line.substring(66)), FileManifest.Entry.ofHash(line.substring(0, 64)));
+				}
+			}
+			return new FileManifest(entries);
+		}
+
+		@Override
+		public void upload(Path hostDir, String targetDir, Predicate<Path> filter) {
+			files.importDirectory(hostDir, targetDir, filter);
+		}
+
+		@Override
+		public void finish(String targetDir, List<String> deleted) {
+			List<String> args = new ArrayList<>();
+			args.add(targetDir);
+			args.add(stamp(targetDir));
+			args.addAll(deleted);
+			shell.run(FINISH_SCRIPT, args.toArray(new String[0]));
+		}
+
+		private String stamp(String targetDir) {
+			return stamps.computeIfAbsent(targetDir, dir -> STAMP_DIR + UUID.randomUUID());
+		}
+
+		private static String stripDot(String path) {
+			return path.startsWith("./") ? path.substring(2) : path;
+		}
+
+	}
+
+}
@@ -27,17 +27,58 @@ import java.util.Objects;
  * analyzed by LLMs in a single pass.
  * </p>
  *
+ * <p>
+ * When the {@link ExecSpec} carries an {@link OutputLimit}, {@code stdout} and
+ * {@code stderr} hold only the retained head and tail of each stream; the byte counts and
+ * truncation flags describe the complete output the process produced.
+ * </p>
+ *
  * @param exitCode the process exit code (0 typically indicates success)
  * @param stdout the standard output stream content
  * @param stderr the standard error stream content
  * @param duration the wall-clock time taken to execute the command
+ * @param stdoutBytes total number of bytes the process wrote to stdout
+ * @param stderrBytes total number of bytes the process wrote to stderr
+ * @param stdoutTruncated whether stdout was truncated by the output limit
+ * @param stderrTruncated whether stderr was truncated by the output limit
  */
-public record ExecResult(int exitCode, String stdout, String stderr, Duration duration) {
+public record ExecResult(int exitCode, String stdout, String stderr, Duration duration, long stdoutBytes,
+		long stderrBytes, boolean stdoutTruncated, boolean stderrTruncated) {
 
 	public ExecResult {
 		Objects.requireNonNull(stdout, "stdout cannot be null");
 		Objects.requireNonNull(stderr, "stderr cannot be null");
 		Objects.requireNonNull(duration, "duration cannot be null");
+		if (stdoutBytes < 0 || stderrBytes < 0) {
+			throw new IllegalArgumentException("Byte counts cannot be negative");
+		}
+	}
+
+	/**
+	 * Creates a result for fully captured output; byte counts are the UTF-8 length of
+	 * each stream.
+	 * @param exitCode the process exit code
+	 * @param stdout the standard output stream content
+	 * @param stderr the standard error stream content
+	 * @param duration the wall-clock time taken to execute the command
+	 */
+	public ExecResult(int exitCode, String stdout, String stderr, Duration duration) {
+		this(exitCode, stdout, stderr, duration, utf8Length(stdout), utf8Length(stderr), false, false);
+	}
+
+	/**
+	 * Creates a result from the capture streams used during execution.
+	 * @param exitCode the process exit code
+	 * @param stdout the captured standard output
+	 * @param stderr the captured standard error
+	 * @param duration the wall-clock time taken to execute the command
+	 * @return the execution result
+	 * @since 0.9.1
+	 */
+	public static ExecResult of(int exitCode, BoundedOutputStream stdout, BoundedOutputStream stderr,
+			Duration duration) {
+		return new ExecResult(exitCode, stdout.contentAsString(), stderr.contentAsString(), duration,
+				stdout.totalBytes(), stderr.totalBytes(), stdout.isTruncated(), stderr.isTruncated());
 	}
 
 	/**
@@ -94,22 +135,32 @@ public record ExecResult(int exitCode, String stdout, String stderr, Duration du
 	}
 
 	/**
-	 * Gets the total length of output (stdout + stderr). Useful for metrics and
-	 * determining if output was truncated.
+	 * Gets the total length of captured output (stdout + stderr). Use
+	 * {@link #stdoutBytes()} and {@link #stderrBytes()} for the size of the output the
+	 * process actually produced.
 	 * @return combined length of stdout and stderr in characters
 	 */
 	public int outputLength() {
 		return stdout.length() + stderr.length();
 	}
 
+	/**
+	 * Indicates whether either stream was truncated by the {@link OutputLimit}.
+	 * @return true if stdout or stderr is incomplete
+	 */
+	public boolean truncated() {
+		return stdoutTruncated || stderrTruncated;
+	}
+
 	/**
 	 * Creates a summary string suitable for logging or display. Does not include the full
 	 * output to avoid log spam.
 	 * @return concise summary of the execution result
 	 */
 	public String summary() {
-		return String.format("ExecResult{exitCode=%d, success=%s, duration=%s, stdoutLen=%d, stderrLen=%d}", exitCode,
-				success(), duration, stdout.length(), stderr.length());
+		return String.format(
+				"ExecResult{exitCode=%d, success=%s, duration=%s, stdoutLen=%d, stderrLen=%d, stdoutBytes=%d, stderrBytes=%d, truncated=%s}",
+				exitCode, success(), duration, stdout.length(), stderr.length(), stdoutBytes, stderrBytes, truncated());
 	}
 
 	@Override
@@ -119,4 +170,28 @@ public record ExecResult(int exitCode, String stdout, String stderr, Duration du
 				stdout, stderr);
 	}
 
-}
\ No newline at end of file
+	static long utf8Length(String s) {
+		if (s == null) {
+			return 0;
+		}
+		long length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length++;
+			}
+			else if (c < 0x800) {
+				length += 2;
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				length += 4;
+				i++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+}
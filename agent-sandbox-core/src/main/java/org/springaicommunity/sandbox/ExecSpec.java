@@ -36,10 +36,13 @@ public class ExecSpec {
 
 	private final Duration timeout;
 
-	private ExecSpec(List<String> command, Map<String, String> env, Duration timeout) {
+	private final OutputLimit outputLimit;
+
+	private ExecSpec(List<String> command, Map<String, String> env, Duration timeout, OutputLimit outputLimit) {
 		this.command = List.copyOf(command);
 		this.env = Map.copyOf(env);
 		this.timeout = timeout;
+		this.outputLimit = outputLimit;
 	}
 
 	// Getters
@@ -55,6 +58,14 @@ public class ExecSpec {
 		return timeout;
 	}
 
+	/**
+	 * Output budget applied to each of stdout and stderr.
+	 * @return the output limit, or {@code null} if output is captured in full
+	 */
+	public OutputLimit outputLimit() {
+		return outputLimit;
+	}
+
 	// Convenience factory for simple cases
 	public static ExecSpec of(String... cmd) {
 		return builder().command(cmd).build();
@@ -76,6 +87,8 @@ public class ExecSpec {
 
 		private Duration timeout;
 
+		private OutputLimit outputLimit;
+
 		public Builder() {
 		}
 
@@ -83,6 +96,7 @@ public class ExecSpec {
 			this.command = spec.command;
 			this.env = spec.env;
 			this.timeout = spec.timeout;
+			this.outputLimit = spec.outputLimit;
 		}
 
 		public Builder command(String... cmd) {
@@ -132,11 +146,30 @@ public class ExecSpec {
 			return this;
 		}
 
+		/**
+		 * Keep only the first {@code headBytes} and last {@code tailBytes} of each output
+		 * stream. Output in between is dropped as it arrives, so capture memory stays
+		 * constant; the {@link ExecResult} reports total byte counts and whether
+		 * truncation happened.
+		 */
+		public Builder outputLimit(int headBytes, int tailBytes) {
+			this.outputLimit = new OutputLimit(headBytes, tailBytes);
+			return this;
+		}
+
+		/**
+		 * Set the output budget for each stream, or {@code null} to capture all output.
+		 */
+		public Builder outputLimit(OutputLimit outputLimit) {
+			this.outputLimit = outputLimit;
+			return this;
+		}
+
 		public ExecSpec build() {
 			if (command == null || command.isEmpty()) {
 				throw new IllegalArgumentException("Command cannot be null or empty");
 			}
-			return new ExecSpec(command, env, timeout);
+			return new ExecSpec(command, env, timeout, outputLimit);
 		}
 
 	}
@@ -149,17 +182,18 @@ public class ExecSpec {
 			return false;
 		ExecSpec execSpec = (ExecSpec) o;
 		return Objects.equals(command, execSpec.command) && Objects.equals(env, execSpec.env)
-				&& Objects.equals(timeout, execSpec.timeout);
+				&& Objects.equals(timeout, execSpec.timeout) && Objects.equals(outputLimit, execSpec.outputLimit);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(command, env, timeout);
+		return Objects.hash(command, env, timeout, outputLimit);
 	}
 
 	@Override
 	public String toString() {
-		return "ExecSpec{" + "command=" + command + ", env=" + env + ", timeout=" + timeout + '}';
+		return "ExecSpec{" + "command=" + command + ", env=" + env + ", timeout=" + timeout + ", outputLimit="
+				+ outputLimit + '}';
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A change to a file or directory reported by a {@link FileWatch}.
+ *
+ * <p>
+ * Renames are reported as {@link Type#DELETED} for the old path and {@link Type#CREATED}
+ * for the new one. Writing a new file usually produces {@link Type#CREATED} followed by
+ * one or more {@link Type#MODIFIED} events; how writes are coalesced depends on the
+ * backend.
+ * </p>
+ *
+ * @param type the kind of change
+ * @param path the changed entry relative to the watched directory, using {@code /} as
+ * separator; empty for {@link Type#OVERFLOW}
+ * @param timestamp when the event was received by the sandbox client
+ * @since 0.9.1
+ */
+public record FileEvent(Type type, String path, Instant timestamp) {
+
+	public FileEvent {
+		Objects.requireNonNull(type, "type cannot be null");
+		Objects.requireNonNull(path, "path cannot be null");
+		Objects.requireNonNull(timestamp, "timestamp cannot be null");
+	}
+
+	/**
+	 * Create an event received now.
+	 * @param type the kind of change
+	 * @param path the changed entry relative to the watched directory
+	 * @return the event
+	 */
+	public static FileEvent of(Type type, String path) {
+		return new FileEvent(type, path, Instant.now());
+	}
+
+	/**
+	 * Kind of file system change.
+	 */
+	public enum Type {
+
+		/**
+		 * A file or directory was created or moved into the watched tree.
+		 */
+		CREATED,
+
+		/**
+		 * A file's content or attributes changed.
+		 */
+		MODIFIED,
+
+		/**
+		 * A file or directory was deleted or moved out of the watched tree.
+		 */
+		DELETED,
+
+		/**
+		 * Events were lost because the backend could not keep up; list the directory to
+		 * resynchronize.
+		 */
+		OVERFLOW
+
+	}
+
+}
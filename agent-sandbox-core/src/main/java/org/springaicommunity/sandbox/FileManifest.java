@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 content hashes of the regular files of a directory tree, keyed by their path
+ * relative to the directory with {@code /} as separator.
+ *
+ * <p>
+ * Entries scanned on a local file system also record size and modification time, so a
+ * later scan can reuse the hash of a file whose size and modification time are unchanged
+ * instead of reading it again.
+ * </p>
+ */
+final class FileManifest {
+
+	/** Hash of an entry whose content is not known. */
+	static final String UNKNOWN = "";
+
+	static final FileManifest EMPTY = new FileManifest(Map.of());
+
+	private final Map<String, Entry> entries;
+
+	FileManifest(Map<String, Entry> entries) {
+		this.entries = Collections.unmodifiableMap(new TreeMap<>(entries));
+	}
+
+	/**
+	 * Hash the regular files below a directory. Symbolic links are not followed.
+	 * @param dir the directory to scan; a missing directory yields an empty manifest
+	 * @param previous an earlier scan whose hashes may be reused, or {@code null}
+	 * @return the manifest
+	 * @throws IOException if the tree cannot be read
+	 */
+	static FileManifest scan(Path dir, FileManifest previous) throws IOException {
+		if (!Files.isDirectory(dir)) {
+			return EMPTY;
+		}
+		Map<String, Entry> entries = new TreeMap<>();
+		MessageDigest digest = sha256();
+		Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (attrs.isRegularFile()) {
+					String path = dir.relativize(file).toString().replace('\\', '/');
+					long size = attrs.size();
+					long modified = attrs.lastModifiedTime().toMillis();
+					Entry known = (previous != null) ? previous.get(path) : null;
+					boolean reusable = known != null && known.size() == size && known.modified() == modified
+							&& !UNKNOWN.equals(known.hash());
+					entries.put(path, new Entry(reusable ? known.hash() : hash(file, digest), size, modified));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+		return new FileManifest(entries);
+	}
+
+	/**
+	 * Get the entry for a path.
+	 * @param path the relative path
+	 * @return the entry, or {@code null} if the file is not in the manifest
+	 */
+	Entry get(String path) {
+		return entries.get(path);
+	}
+
+	/**
+	 * Get the hash for a path.
+	 * @param path the relative path
+	 * @return the hash, {@link #UNKNOWN}, or {@code null} if the file is not in the
+	 * manifest
+	 */
+	String hash(String path) {
+		Entry entry = entries.get(path);
+		return (entry != null) ? entry.hash() : null;
+	}
+
+	Set<String> paths() {
+		return entries.keySet();
+	}
+
+	Map<String, Entry> entries() {
+		return entries;
+	}
+
+	static String hash(Path file, MessageDigest digest) throws IOException {
+		digest.reset();
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file)) {
+			int n;
+			while ((n = in.read(buffer)) >= 0) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A file of the manifest.
+	 *
+	 * @param hash lowercase hex SHA-256 of the content, or {@link #UNKNOWN}
+	 * @param size size in bytes, or -1 if not known
+	 * @param modified modification time in epoch milliseconds, or -1 if not known
+	 */
+	record Entry(String hash, long size, long modified) {
+
+		static Entry ofHash(String hash) {
+			return new Entry(hash, -1, -1);
+		}
+
+	}
+
+}
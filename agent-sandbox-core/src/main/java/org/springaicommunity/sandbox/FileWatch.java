@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+/**
+ * Handle of an active directory watch started by
+ * {@link SandboxFiles#watch(String, boolean, FileWatchListener)}.
+ *
+ * <pre>{@code
+ * try (FileWatch watch = sandbox.files().watch("target", true, event -> {
+ *     if (event.type() == FileEvent.Type.CREATED && event.path().endsWith(".jar")) {
+ *         built.countDown();
+ *     }
+ * })) {
+ *     sandbox.exec(ExecSpec.of("mvn", "package"));
+ * }
+ * }</pre>
+ *
+ * <p>
+ * A watch ends when it is closed or when the watched directory is deleted. Watches should
+ * be closed before their sandbox.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public interface FileWatch extends AutoCloseable {
+
+	/**
+	 * Check whether events are still being delivered.
+	 * @return true until the watch is closed or ends
+	 */
+	boolean isActive();
+
+	/**
+	 * Stop watching. No events are delivered after this method returns, except possibly
+	 * one that was already being delivered.
+	 */
+	@Override
+	void close();
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+/**
+ * Callback for receiving file system changes from a {@link FileWatch}.
+ *
+ * <p>
+ * Events of one watch are delivered in order from a single background thread. Listeners
+ * should return quickly; exceptions thrown by a listener are logged and do not stop the
+ * watch.
+ * </p>
+ *
+ * @see SandboxFiles#watch(String, boolean, FileWatchListener)
+ * @since 0.9.1
+ */
+@FunctionalInterface
+public interface FileWatchListener {
+
+	/**
+	 * Called for every change observed in the watched directory.
+	 * @param event the change
+	 */
+	void onEvent(FileEvent event);
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.util.Objects;
+
+/**
+ * A line matched by {@link SandboxFiles#grep(String, String, java.util.List, int)}.
+ *
+ * @param path the file path relative to the searched directory, using {@code /}
+ * separators
+ * @param lineNumber the 1-based line number
+ * @param line the text of the line, without its terminator
+ * @since 0.9.1
+ */
+public record GrepMatch(String path, int lineNumber, String line) {
+
+	public GrepMatch {
+		Objects.requireNonNull(path, "path cannot be null");
+		Objects.requireNonNull(line, "line cannot be null");
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+/**
+ * Sparse index of the line starts of a file, used by {@link LocalSandboxFiles} so that
+ * repeated line-range reads only scan a few lines before the requested range instead of
+ * the whole file.
+ *
+ * <p>
+ * The offset of every {@value #STRIDE}th line is kept, so the index of a file with
+ * millions of lines stays small. An index describes one version of a file, identified by
+ * its size and modification time.
+ * </p>
+ */
+final class LineIndex {
+
+	static final int STRIDE = 256;
+
+	private final long size;
+
+	private final FileTime modified;
+
+	/** Offset of line {@code i * STRIDE + 1}. */
+	private final long[] checkpoints;
+
+	private LineIndex(long size, FileTime modified, long[] checkpoints) {
+		this.size = size;
+		this.modified = modified;
+		this.checkpoints = checkpoints;
+	}
+
+	static LineIndex build(FileChannel channel, long size, FileTime modified) throws IOException {
+		long[] checkpoints = new long[16];
+		int count = 1;
+		int line = 1;
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		long position = 0;
+		int n;
+		while ((n = channel.read(buffer.clear(), position)) > 0) {
+			byte[] bytes = buffer.array();
+			for (int i = 0; i < n; i++) {
+				if (bytes[i] == '\n') {
+					line++;
+					if ((line - 1) % STRIDE == 0) {
+						if (count == checkpoints.length) {
+							checkpoints = Arrays.copyOf(checkpoints, count * 2);
+						}
+						checkpoints[count++] = position + i + 1;
+					}
+				}
+			}
+			position += n;
+		}
+		return new LineIndex(size, modified, Arrays.copyOf(checkpoints, count));
+	}
+
+	boolean isCurrent(long size, FileTime modified) {
+		return this.size == size && this.modified.equals(modified);
+	}
+
+	/**
+	 * Get the last indexed line at or before a line.
+	 * @param line the line number, starting at 1
+	 * @return the line number of the checkpoint
+	 */
+	int checkpointLine(int line) {
+		return checkpoint(line) * STRIDE + 1;
+	}
+
+	/**
+	 * Get the offset of the last indexed line at or before a line.
+	 * @param line the line number, starting at 1
+	 * @return the byte offset of the checkpoint line
+	 */
+	long checkpointOffset(int line) {
+		return checkpoints[checkpoint(line)];
+	}
+
+	private int checkpoint(int line) {
+		return Math.min((line - 1) / STRIDE, checkpoints.length - 1);
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link FileWatch} for {@link LocalSandbox} backed by a {@link WatchService}.
+ *
+ * <p>
+ * A watch service only reports changes to the direct children of registered directories,
+ * so a recursive watch registers every directory of the tree and registers directories as
+ * they are created. Entries created inside a new directory before it was registered are
+ * found by scanning it and reported as created.
+ * </p>
+ */
+final class LocalFileWatch implements FileWatch {
+
+	private static final Logger logger = LoggerFactory.getLogger(LocalFileWatch.class);
+
+	private final Path root;
+
+	private final boolean recursive;
+
+	private final FileWatchListener listener;
+
+	private final WatchService watchService;
+
+	private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+
+	private volatile boolean active = true;
+
+	LocalFileWatch(Path root, boolean recursive, FileWatchListener listener) throws IOException {
+		this.root = root;
+		this.recursive = recursive;
+		this.listener = listener;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		try {
+			register(root, false);
+		}
+		catch (IOException e) {
+			watchService.close();
+			throw e;
+		}
+		SandboxExecutors.defaultExecutor().execute(this::run);
+	}
+
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+
+	@Override
+	public void close() {
+		active = false;
+		try {
+			watchService.close();
+		}
+		catch (IOException e) {
+			logger.debug("Failed to close watch service for {}", root, e);
+		}
+	}
+
+	private void run() {
+		try {
+			while (active) {
+				WatchKey key = watchService.take();
+				Path dir = directories.get(key);
+				if (dir != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						handle(dir, event);
+					}
+				}
+				if (!key.reset()) {
+					directories.remove(key);
+					if (directories.isEmpty()) {
+						// The watched directory itself is gone
+						break;
+					}
+				}
+			}
+		}
+		catch (ClosedWatchServiceException e) {
+			// Closed by the caller
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			close();
+		}
+	}
+
+	private void handle(Path dir, WatchEvent<?> event) {
+		WatchEvent.Kind<?> kind = event.kind();
+		if (kind == StandardWatchEventKinds.OVERFLOW) {
+			emit(FileEvent.Type.OVERFLOW, "");
+			return;
+		}
+		Path child = dir.resolve((Path) event.context());
+		if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+			emit(FileEvent.Type.CREATED, relativize(child));
+			if (recursive && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+				try {
+					register(child, true);
+				}
+				catch (IOException e) {
+					logger.debug("Failed to watch new directory {}", child, e);
+				}
+			}
+		}
+		else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+			emit(FileEvent.Type.MODIFIED, relativize(child));
+		}
+		else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+			emit(FileEvent.Type.DELETED, relativize(child));
+		}
+	}
+
+	/**
+	 * Register a directory, and its subdirectories for a recursive watch.
+	 * @param reportExisting whether to report the entries found as created, for
+	 * directories that appeared after the watch started
+	 */
+	private void register(Path start, boolean reportExisting) throws IOException {
+		if (!recursive) {
+			directories.put(watch(start), start);
+			return;
+		}
+		Files.walkFileTree(start, new SimpleFileVisitor<>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				directories.put(watch(dir), dir);
+				if (reportExisting && !dir.equals(start)) {
+					emit(FileEvent.Type.CREATED, relativize(dir));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (reportExisting) {
+					emit(FileEvent.Type.CREATED, relativize(file));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+	private WatchKey watch(Path dir) throws IOException {
+		return dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE);
+	}
+
+	private String relativize(Path path) {
+		return root.relativize(path).toString().replace('\\', '/');
+	}
+
+	private void emit(FileEvent.Type type, String path) {
+		if (!active) {
+			return;
+		}
+		try {
+			listener.onEvent(FileEvent.of(type, path));
+		}
+		catch (RuntimeException e) {
+			logger.warn("File watch listener failed for {} {}", type, path, e);
+		}
+	}
+
+}
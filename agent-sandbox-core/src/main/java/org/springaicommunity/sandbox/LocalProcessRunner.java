@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs commands for {@link LocalSandbox} with {@link ProcessBuilder}, without blocking a
+ * thread while they run.
+ *
+ * <p>
+ * Output is pumped on the {@linkplain SandboxExecutors#defaultExecutor() default
+ * executor}, so on Java 21+ the two pumps of each process are virtual threads, and
+ * completion is signalled by {@link Process#onExit()}. Live processes are tracked in one
+ * registry that a single shutdown hook destroys on JVM exit, instead of a hook per
+ * process.
+ * </p>
+ *
+ * @see LocalSandbox.ExecEngine#PROCESS_BUILDER
+ */
+final class LocalProcessRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(LocalProcessRunner.class);
+
+	private static final Set<Process> liveProcesses = ConcurrentHashMap.newKeySet();
+
+	static {
+		Runtime.getRuntime()
+			.addShutdownHook(new Thread(() -> liveProcesses.forEach(Process::destroy), "agent-sandbox-process-reaper"));
+	}
+
+	private LocalProcessRunner() {
+	}
+
+	/**
+	 * Start a command. The returned future completes exceptionally with a
+	 * {@link SandboxException} on failure or timeout; cancelling it, or a timeout,
+	 * terminates the process and its descendants.
+	 * @param command the command and arguments
+	 * @param directory the working directory
+	 * @param env variables added to the environment inherited from this JVM
+	 * @param timeout the command timeout, or {@code null} for none
+	 * @param outputLimit output budget per stream, may be {@code null} to capture all
+	 * output
+	 * @param listener receives output chunks as they arrive, may be {@code null}
+	 * @param killGracePeriod the time processes are given to exit before being killed
+	 * @return a future completed with the execution result
+	 */
+	static CompletableFuture<ExecResult> run(List<String> command, Path directory, Map<String, String> env,
+			Duration timeout, OutputLimit outputLimit, OutputListener listener, Duration killGracePeriod) {
+		Instant startTime = Instant.now();
+		ProcessBuilder builder = new ProcessBuilder(command).directory(directory.toFile());
+		builder.environment().putAll(env);
+		Process process;
+		try {
+			process = builder.start();
+		}
+		catch (IOException e) {
+			return CompletableFuture.failedFuture(new SandboxException("Failed to execute command", e));
+		}
+		liveProcesses.add(process);
+		process.onExit().thenRun(() -> liveProcesses.remove(process));
+		closeQuietly(process.getOutputStream());
+
+		BoundedOutputStream stdoutStream = new BoundedOutputStream(outputLimit);
+		BoundedOutputStream stderrStream = new BoundedOutputStream(outputLimit);
+		ChunkingOutputStream stdoutChunks = listener != null
+				? new ChunkingOutputStream(OutputChunk.Type.STDOUT, stdoutStream, listener) : null;
+		ChunkingOutputStream stderrChunks = listener != null
+				? new ChunkingOutputStream(OutputChunk.Type.STDERR, stderrStream, listener) : null;
+
+		Executor executor = SandboxExecutors.defaultExecutor();
+		CompletableFuture<Void> stdoutPump = CompletableFuture.runAsync(
+				() -> pump(process.getInputStream(), stdoutChunks != null ? stdoutChunks : stdoutStream), executor);
+		CompletableFuture<Void> stderrPump = CompletableFuture.runAsync(
+				() -> pump(process.getErrorStream(), stderrChunks != null ? stderrChunks : stderrStream), executor);
+		CompletableFuture<Void> completion = CompletableFuture.allOf(process.onExit(), stdoutPump, stderrPump);
+		if (timeout != null) {
+			completion = completion.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		CompletableFuture<ExecResult> result = new CompletableFuture<>();
+		completion.whenComplete((ignored, error) -> {
+			if (error == null) {
+				finish(stdoutChunks);
+				finish(stderrChunks);
+				Duration duration = Duration.between(startTime, Instant.now());
+				result.complete(ExecResult.of(process.exitValue(), stdoutStream, stderrStream, duration));
+			}
+			else if (unwrap(error) instanceof java.util.concurrent.TimeoutException) {
+				// Report the timeout once the tree is gone, with the number of processes
+				ProcessTree.terminate(process.toHandle(), killGracePeriod).whenComplete((terminated, killError) -> {
+					closeStreams(process);
+					result.completeExceptionally(new SandboxException("Command timed out", new TimeoutException(
+							"Command timed out after " + timeout, timeout, terminated != null ? terminated : 0)));
+				});
+			}
+			else {
+				result.completeExceptionally(toSandboxException(error));
+			}
+		});
+		result.whenComplete((execResult, error) -> {
+			if (error != null && process.isAlive()) {
+				// Cancelled or failed: kill the process tree and unblock the pumps
+				logger.debug("Terminating process {} after {}", process.pid(), error.toString());
+				ProcessTree.terminate(process.toHandle(), killGracePeriod)
+					.whenComplete((terminated, killError) -> closeStreams(process));
+			}
+		});
+		return result;
+	}
+
+	private static void pump(InputStream in, OutputStream out) {
+		try (in) {
+			in.transferTo(out);
+		}
+		catch (IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	private static void finish(ChunkingOutputStream stream) {
+		if (stream != null) {
+			stream.finish();
+		}
+	}
+
+	private static Throwable unwrap(Throwable error) {
+		return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+	}
+
+	private static SandboxException toSandboxException(Throwable error) {
+		Throwable cause = unwrap(error);
+		if (cause instanceof SandboxException sandboxException) {
+			return sandboxException;
+		}
+		return new SandboxException("Failed to execute command", cause);
+	}
+
+	private static void closeStreams(Process process) {
+		closeQuietly(process.getInputStream());
+		closeQuietly(process.getErrorStream());
+	}
+
+	private static void closeQuietly(AutoCloseable closeable) {
+		try {
+			closeable.close();
+		}
+		catch (Exception e) {
+			logger.trace("Failed to close process stream", e);
+		}
+	}
+
+}
@@ -15,19 +15,21 @@
  */
 package org.springaicommunity.sandbox;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeroturnaround.exec.ProcessExecutor;
 import org.zeroturnaround.exec.ProcessResult;
+import org.zeroturnaround.exec.StartedProcess;
 
 /**
  * Sandbox implementation that executes commands directly on the host system.
@@ -58,13 +60,31 @@ public final class LocalSandbox implements Sandbox {
 
 	private static final Logger logger = LoggerFactory.getLogger(LocalSandbox.class);
 
+	/**
+	 * Default time a timed out or cancelled command and its descendants are given to exit
+	 * after {@code SIGTERM} before they are killed.
+	 */
+	public static final Duration DEFAULT_KILL_GRACE_PERIOD = Duration.ofSeconds(5);
+
 	private final Path workingDirectory;
 
 	private final List<ExecSpecCustomizer> customizers;
 
 	private final boolean cleanupOnClose;
 
-	private final LocalSandboxFiles sandboxFiles;
+	private final boolean asyncCleanup;
+
+	private final ExecEngine execEngine;
+
+	private final Duration killGracePeriod;
+
+	private final SandboxFiles sandboxFiles;
+
+	private final Executor executor;
+
+	private final SandboxMetrics metrics;
+
+	private final SandboxMeter meter;
 
 	private volatile boolean closed = false;
 
@@ -99,10 +119,23 @@ public final class LocalSandbox implements Sandbox {
 	 * @param cleanupOnClose whether to delete the working directory on close
 	 */
 	LocalSandbox(Path workingDirectory, List<ExecSpecCustomizer> customizers, boolean cleanupOnClose) {
+		this(workingDirectory, customizers, cleanupOnClose, false, ExecEngine.ZT_EXEC, DEFAULT_KILL_GRACE_PERIOD,
+				SandboxExecutors.defaultExecutor(), SandboxMetrics.NOOP);
+	}
+
+	private LocalSandbox(Path workingDirectory, List<ExecSpecCustomizer> customizers, boolean cleanupOnClose,
+			boolean asyncCleanup, ExecEngine execEngine, Duration killGracePeriod, Executor executor,
+			SandboxMetrics metrics) {
 		this.workingDirectory = workingDirectory;
 		this.customizers = List.copyOf(customizers);
 		this.cleanupOnClose = cleanupOnClose;
-		this.sandboxFiles = new LocalSandboxFiles(this, workingDirectory);
+		this.asyncCleanup = asyncCleanup;
+		this.execEngine = execEngine;
+		this.killGracePeriod = killGracePeriod;
+		this.executor = executor;
+		this.metrics = metrics;
+		this.meter = new SandboxMeter(metrics, "local");
+		this.sandboxFiles = meter.files(new LocalSandboxFiles(this, workingDirectory));
 		logger.warn("LocalSandbox created - NO ISOLATION PROVIDED. Commands execute directly on host system.");
 	}
 
@@ -121,39 +154,70 @@ public final class LocalSandbox implements Sandbox {
 
 	@Override
 	public ExecResult exec(ExecSpec spec) {
-		if (closed) {
-			throw new IllegalStateException("Sandbox is closed");
-		}
+		return meter.exec(spec, () -> execInternal(spec, null));
+	}
 
-		// Ensure working directory exists
-		try {
-			java.nio.file.Files.createDirectories(workingDirectory);
+	@Override
+	public ExecResult exec(ExecSpec spec, OutputListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Output listener cannot be null");
 		}
-		catch (IOException e) {
-			throw new SandboxException("Failed to create working directory: " + workingDirectory, e);
+		return meter.exec(spec, () -> execInternal(spec, listener));
+	}
+
+	/**
+	 * Execute a command asynchronously. With {@link ExecEngine#ZT_EXEC} the command runs
+	 * on this sandbox's executor; with {@link ExecEngine#PROCESS_BUILDER} no thread is
+	 * held while it runs. Cancelling the returned future destroys the process.
+	 * @param spec the execution specification
+	 * @return a future completed with the execution result
+	 */
+	@Override
+	public CompletableFuture<ExecResult> execAsync(ExecSpec spec) {
+		if (execEngine == ExecEngine.PROCESS_BUILDER) {
+			return meter.execAsync(spec, () -> {
+				try {
+					ExecSpec customizedSpec = applyCustomizers(spec);
+					return LocalProcessRunner.run(prepareCommand(customizedSpec), workingDirectory,
+							customizedSpec.env(), customizedSpec.timeout(), customizedSpec.outputLimit(), null,
+							killGracePeriod);
+				}
+				catch (RuntimeException e) {
+					return CompletableFuture.failedFuture(e);
+				}
+			});
 		}
+		return SandboxExecutors.supplyAsync(() -> exec(spec), executor);
+	}
 
+	private ExecResult execInternal(ExecSpec spec, OutputListener listener) {
 		var startTime = Instant.now();
 		var customizedSpec = applyCustomizers(spec);
-		var command = customizedSpec.command();
+		List<String> finalCommand = prepareCommand(customizedSpec);
 
-		if (command.isEmpty()) {
-			throw new IllegalArgumentException("Command cannot be null or empty");
+		if (execEngine == ExecEngine.PROCESS_BUILDER) {
+			return awaitResult(LocalProcessRunner.run(finalCommand, workingDirectory, customizedSpec.env(),
+					customizedSpec.timeout(), customizedSpec.outputLimit(), listener, killGracePeriod));
 		}
 
-		// Handle shell commands
-		List<String> finalCommand = processCommand(command);
+		// Capture stdout and stderr separately - declared outside try for access in
+		// catch.
+		// Only the head and tail are kept when the spec sets an output limit.
+		BoundedOutputStream stdoutStream = new BoundedOutputStream(customizedSpec.outputLimit());
+		BoundedOutputStream stderrStream = new BoundedOutputStream(customizedSpec.outputLimit());
 
-		// Capture stdout and stderr separately - declared outside try for access in catch
-		ByteArrayOutputStream stdoutStream = new ByteArrayOutputStream();
-		ByteArrayOutputStream stderrStream = new ByteArrayOutputStream();
+		// When streaming, zt-exec pumps write through to the listener as output arrives
+		ChunkingOutputStream stdoutChunks = listener != null
+				? new ChunkingOutputStream(OutputChunk.Type.STDOUT, stdoutStream, listener) : null;
+		ChunkingOutputStream stderrChunks = listener != null
+				? new ChunkingOutputStream(OutputChunk.Type.STDERR, stderrStream, listener) : null;
 
 		try {
 			// Use zt-exec for robust process execution
-			ProcessExecutor executor = new ProcessExecutor().command(finalCommand)
+			ProcessExecutor processExecutor = new ProcessExecutor().command(finalCommand)
 				.directory(workingDirectory.toFile())
-				.redirectOutput(stdoutStream)
-				.redirectError(stderrStream)
+				.redirectOutput(stdoutChunks != null ? stdoutChunks : stdoutStream)
+				.redirectError(stderrChunks != null ? stderrChunks : stderrStream)
 				.destroyOnExit();
 
 			logger.debug("LocalSandbox executing command in directory: {}", workingDirectory);
@@ -178,42 +242,141 @@ public final class LocalSandbox implements Sandbox {
 				// parent)
 				var mergedEnv = new java.util.HashMap<>(System.getenv());
 				mergedEnv.putAll(customizedSpec.env());
-				executor.environment(mergedEnv);
-			}
-
-			// Handle timeout
-			if (customizedSpec.timeout() != null) {
-				logger.debug("LocalSandbox timeout: {}", customizedSpec.timeout());
-				executor.timeout(customizedSpec.timeout().toMillis(), TimeUnit.MILLISECONDS);
+				processExecutor.environment(mergedEnv);
 			}
 
 			logger.debug("LocalSandbox about to execute command...");
-			ProcessResult result = executor.execute();
+			ProcessResult result = awaitProcess(processExecutor.start(), customizedSpec.timeout());
 			logger.debug("LocalSandbox command completed with exit code: {}", result.getExitValue());
+			finishChunks(stdoutChunks, stderrChunks);
 			Duration duration = Duration.between(startTime, Instant.now());
-
-			String stdout = stdoutStream.toString(StandardCharsets.UTF_8);
-			String stderr = stderrStream.toString(StandardCharsets.UTF_8);
-			return new ExecResult(result.getExitValue(), stdout, stderr, duration);
+			return ExecResult.of(result.getExitValue(), stdoutStream, stderrStream, duration);
 		}
 		catch (org.zeroturnaround.exec.InvalidExitValueException e) {
 			// zt-exec throws this for non-zero exit codes when expected values are set
 			// The streams are still populated, so we can return the captured output
+			finishChunks(stdoutChunks, stderrChunks);
 			Duration duration = Duration.between(startTime, Instant.now());
-			String stdout = stdoutStream.toString(StandardCharsets.UTF_8);
-			String stderr = stderrStream.toString(StandardCharsets.UTF_8);
-			return new ExecResult(e.getExitValue(), stdout, stderr, duration);
+			return ExecResult.of(e.getExitValue(), stdoutStream, stderrStream, duration);
 		}
-		catch (java.util.concurrent.TimeoutException e) {
-			org.springaicommunity.sandbox.TimeoutException timeoutException = new org.springaicommunity.sandbox.TimeoutException(
-					"Command timed out after " + customizedSpec.timeout(), customizedSpec.timeout());
-			throw new SandboxException("Command timed out", timeoutException);
+		catch (SandboxException e) {
+			throw e;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Command execution interrupted", e);
 		}
 		catch (Exception e) {
 			throw new SandboxException("Failed to execute command", e);
 		}
 	}
 
+	/**
+	 * Check that the sandbox is open, ensure the working directory exists and resolve the
+	 * shell command marker.
+	 */
+	private List<String> prepareCommand(ExecSpec customizedSpec) {
+		checkOpen();
+
+		// Ensure working directory exists
+		try {
+			java.nio.file.Files.createDirectories(workingDirectory);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to create working directory: " + workingDirectory, e);
+		}
+
+		var command = customizedSpec.command();
+		if (command.isEmpty()) {
+			throw new IllegalArgumentException("Command cannot be null or empty");
+		}
+
+		// Handle shell commands
+		return processCommand(command);
+	}
+
+	/**
+	 * Wait for a command started by {@link LocalProcessRunner}, destroying it if the
+	 * waiting thread is interrupted.
+	 */
+	private static ExecResult awaitResult(CompletableFuture<ExecResult> future) {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof SandboxException sandboxException) {
+				throw sandboxException;
+			}
+			throw new SandboxException("Failed to execute command", e.getCause());
+		}
+		catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Command execution interrupted", e);
+		}
+	}
+
+	/**
+	 * Wait for a started process, terminating it and its descendants if the timeout
+	 * expires or the waiting thread is interrupted (for example when an
+	 * {@link #execAsync} future is cancelled).
+	 */
+	private ProcessResult awaitProcess(StartedProcess started, Duration timeout)
+			throws InterruptedException, IOException {
+		boolean completed = false;
+		try {
+			ProcessResult result;
+			if (timeout != null) {
+				logger.debug("LocalSandbox timeout: {}", timeout);
+				result = started.getFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			}
+			else {
+				result = started.getFuture().get();
+			}
+			completed = true;
+			return result;
+		}
+		catch (java.util.concurrent.TimeoutException e) {
+			completed = true;
+			int terminated = terminate(started);
+			throw new SandboxException("Command timed out",
+					new TimeoutException("Command timed out after " + timeout, timeout, terminated));
+		}
+		catch (ExecutionException e) {
+			completed = true;
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IOException("Process execution failed", e.getCause());
+		}
+		finally {
+			if (!completed) {
+				terminate(started);
+			}
+		}
+	}
+
+	/**
+	 * Terminate the process tree, waiting at most the grace period, and stop zt-exec.
+	 * @return the number of processes terminated
+	 */
+	private int terminate(StartedProcess started) {
+		int terminated = ProcessTree.terminate(started.getProcess().toHandle(), killGracePeriod).join();
+		started.getFuture().cancel(true);
+		return terminated;
+	}
+
+	private static void finishChunks(ChunkingOutputStream... streams) {
+		for (ChunkingOutputStream stream : streams) {
+			if (stream != null) {
+				stream.finish();
+			}
+		}
+	}
+
 	private List<String> processCommand(List<String> command) {
 		// Handle special shell command marker
 		if (command.size() >= 2 && "__SHELL_COMMAND__".equals(command.get(0))) {
@@ -239,27 +402,12 @@ public final class LocalSandbox implements Sandbox {
 
 	@Override
 	public Process startInteractive(ExecSpec spec) {
-		if (closed) {
-			throw new IllegalStateException("Sandbox is closed");
-		}
-
-		// Ensure working directory exists
-		try {
-			java.nio.file.Files.createDirectories(workingDirectory);
-		}
-		catch (IOException e) {
-			throw new SandboxException("Failed to create working directory: " + workingDirectory, e);
-		}
+		return meter.startInteractive(spec, () -> startProcess(spec));
+	}
 
+	private Process startProcess(ExecSpec spec) {
 		var customizedSpec = applyCustomizers(spec);
-		var command = customizedSpec.command();
-
-		if (command.isEmpty()) {
-			throw new IllegalArgumentException("Command cannot be null or empty");
-		}
-
-		// Handle shell commands
-		List<String> finalCommand = processCommand(command);
+		List<String> finalCommand = prepareCommand(customizedSpec);
 
 		try {
 			ProcessBuilder pb = new ProcessBuilder(finalCommand);
@@ -278,6 +426,70 @@ public final class LocalSandbox implements Sandbox {
 		}
 	}
 
+	/**
+	 * Copy the working directory into a temporary directory that new sandboxes are copied
+	 * from. Copies are copy-on-write clones where the file system supports them, so
+	 * snapshots of large workspaces are cheap on Btrfs, XFS, ZFS and APFS.
+	 */
+	@Override
+	public SandboxSnapshot snapshot() {
+		return meter.snapshot(() -> {
+			checkOpen();
+			return new LocalSnapshot(copyToTempDirectory(workingDirectory, "sandbox-snapshot-"));
+		});
+	}
+
+	/**
+	 * Copy the working directory into a new temporary directory, deleted when the
+	 * returned sandbox is closed, without keeping a snapshot in between.
+	 */
+	@Override
+	public Sandbox fork() {
+		return meter.fork(() -> {
+			checkOpen();
+			return forkFrom(workingDirectory);
+		});
+	}
+
+	private LocalSandbox forkFrom(Path source) {
+		Path copy = copyToTempDirectory(source, "sandbox-fork-");
+		return new LocalSandbox(copy, customizers, true, asyncCleanup, execEngine, killGracePeriod, executor, metrics);
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Sandbox is closed");
+		}
+	}
+
+	private Path copyToTempDirectory(Path source, String prefix) {
+		Path copy = null;
+		try {
+			copy = java.nio.file.Files.createTempDirectory(prefix);
+			DirectoryCopier.copy(source, copy);
+			return copy;
+		}
+		catch (IOException e) {
+			if (copy != null) {
+				deleteQuietly(copy);
+			}
+			throw new SandboxException("Failed to copy working directory: " + source, e);
+		}
+	}
+
+	private void deleteQuietly(Path path) {
+		if (asyncCleanup) {
+			WorkspaceCleaner.deleteInBackground(path);
+			return;
+		}
+		try {
+			WorkspaceCleaner.delete(path);
+		}
+		catch (IOException e) {
+			logger.warn("Failed to cleanup temp directory: {}", path, e);
+		}
+	}
+
 	@Override
 	public void close() {
 		if (closed) {
@@ -286,30 +498,12 @@ public final class LocalSandbox implements Sandbox {
 		closed = true;
 
 		if (cleanupOnClose && workingDirectory != null) {
-			try {
-				deleteDirectoryRecursively(workingDirectory);
-				logger.debug("LocalSandbox cleaned up temp directory: {}", workingDirectory);
-			}
-			catch (IOException e) {
-				logger.warn("Failed to cleanup temp directory: {}", workingDirectory, e);
-			}
+			deleteQuietly(workingDirectory);
+			logger.debug("LocalSandbox cleaned up temp directory: {}", workingDirectory);
 		}
 		logger.debug("LocalSandbox closed");
 	}
 
-	private void deleteDirectoryRecursively(Path path) throws IOException {
-		if (java.nio.file.Files.exists(path)) {
-			java.nio.file.Files.walk(path).sorted(java.util.Comparator.reverseOrder()).forEach(p -> {
-				try {
-					java.nio.file.Files.delete(p);
-				}
-				catch (IOException e) {
-					logger.warn("Failed to delete: {}", p, e);
-				}
-			});
-		}
-	}
-
 	@Override
 	public boolean isClosed() {
 		return closed;
@@ -339,6 +533,66 @@ public final class LocalSandbox implements Sandbox {
 				customizers.size(), cleanupOnClose, closed);
 	}
 
+	/**
+	 * How {@link LocalSandbox} runs commands.
+	 *
+	 * @since 0.9.1
+	 */
+	public enum ExecEngine {
+
+		/**
+		 * Run commands with zt-exec. Output is pumped by platform threads and
+		 * {@link LocalSandbox#execAsync(ExecSpec)} occupies an executor thread while the
+		 * command runs. This is the default.
+		 */
+		ZT_EXEC,
+
+		/**
+		 * Run commands with {@link ProcessBuilder}, pumping output on virtual threads
+		 * where available and completing on {@link Process#onExit()}, so
+		 * {@link LocalSandbox#execAsync(ExecSpec)} holds no thread while the command
+		 * runs. Suited to many concurrent commands.
+		 */
+		PROCESS_BUILDER
+
+	}
+
+	/**
+	 * Snapshot holding a private copy of the working directory.
+	 */
+	private final class LocalSnapshot implements SandboxSnapshot {
+
+		private final Path directory;
+
+		private volatile boolean released;
+
+		LocalSnapshot(Path directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		public Sandbox newSandbox() {
+			if (released) {
+				throw new IllegalStateException("Snapshot is closed");
+			}
+			return forkFrom(directory);
+		}
+
+		@Override
+		public void close() {
+			if (!released) {
+				released = true;
+				deleteQuietly(directory);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "LocalSnapshot{directory=" + directory + "}";
+		}
+
+	}
+
 	/**
 	 * Builder for creating LocalSandbox instances with fluent configuration.
 	 */
@@ -354,6 +608,16 @@ public final class LocalSandbox implements Sandbox {
 
 		private String tempPrefix = "sandbox-";
 
+		private Executor executor = SandboxExecutors.defaultExecutor();
+
+		private SandboxMetrics metrics = SandboxMetrics.NOOP;
+
+		private boolean asyncCleanup = false;
+
+		private ExecEngine execEngine = ExecEngine.ZT_EXEC;
+
+		private Duration killGracePeriod = DEFAULT_KILL_GRACE_PERIOD;
+
 		/**
 		 * Set the working directory for the sandbox.
 		 * @param path the working directory path
@@ -418,6 +682,81 @@ public final class LocalSandbox implements Sandbox {
 			return this;
 		}
 
+		/**
+		 * Set the executor used by {@link LocalSandbox#execAsync(ExecSpec)}. Defaults to
+		 * {@link SandboxExecutors#defaultExecutor()}, which uses virtual threads when
+		 * available.
+		 * @param executor the executor for asynchronous execution
+		 * @return this builder
+		 */
+		public Builder executor(Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("Executor cannot be null");
+			}
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Set the listener that receives a measurement of every command execution,
+		 * interactive process start and file operation.
+		 * @param metrics the metrics listener
+		 * @return this builder
+		 */
+		public Builder metrics(SandboxMetrics metrics) {
+			if (metrics == null) {
+				throw new IllegalArgumentException("Metrics cannot be null");
+			}
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * Delete temporary directories in the background on close instead of on the
+		 * calling thread. The directory is renamed away before
+		 * {@link LocalSandbox#close()} returns and deleted in parallel by
+		 * {@link WorkspaceCleaner}; call
+		 * {@link WorkspaceCleaner#awaitPendingDeletions(java.time.Duration)} before the
+		 * JVM exits to let pending deletions finish. Also applies to forks and snapshots.
+		 * @param asyncCleanup whether to delete in the background
+		 * @return this builder
+		 * @since 0.9.1
+		 */
+		public Builder asyncCleanup(boolean asyncCleanup) {
+			this.asyncCleanup = asyncCleanup;
+			return this;
+		}
+
+		/**
+		 * Set how commands are run. Defaults to {@link ExecEngine#ZT_EXEC}.
+		 * @param execEngine the engine
+		 * @return this builder
+		 * @since 0.9.1
+		 */
+		public Builder execEngine(ExecEngine execEngine) {
+			if (execEngine == null) {
+				throw new IllegalArgumentException("Exec engine cannot be null");
+			}
+			this.execEngine = execEngine;
+			return this;
+		}
+
+		/**
+		 * Set how long a command and the processes it started are given to exit after
+		 * {@code SIGTERM} when it times out or is cancelled, before they are sent
+		 * {@code SIGKILL}. Defaults to {@link #DEFAULT_KILL_GRACE_PERIOD}.
+		 * @param killGracePeriod the grace period, zero to kill right away
+		 * @return this builder
+		 * @since 0.9.1
+		 */
+		public Builder killGracePeriod(Duration killGracePeriod) {
+			if (killGracePeriod == null || killGracePeriod.isNegative()) {
+				throw new IllegalArgumentException("Kill grace period cannot be null or negative");
+			}
+			this.killGracePeriod = killGracePeriod;
+			return this;
+		}
+
 		/**
 		 * Build the LocalSandbox instance.
 		 * @return a new LocalSandbox
@@ -445,7 +784,8 @@ public final class LocalSandbox implements Sandbox {
 				cleanup = false;
 			}
 
-			LocalSandbox sandbox = new LocalSandbox(workDir, customizers, cleanup);
+			LocalSandbox sandbox = new LocalSandbox(workDir, customizers, cleanup, asyncCleanup, execEngine,
+					killGracePeriod, executor, metrics);
 
 			// Setup initial files
 			if (!initialFiles.isEmpty()) {
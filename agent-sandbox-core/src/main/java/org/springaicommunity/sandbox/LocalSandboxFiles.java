@@ -17,13 +17,32 @@
 package org.springaicommunity.sandbox;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.time.Instant;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -38,13 +57,25 @@ import java.util.stream.Stream;
  */
 class LocalSandboxFiles implements SandboxFiles {
 
+	private static final int MAX_LINE_INDEXES = 32;
+
 	private final LocalSandbox sandbox;
 
 	private final Path workDir;
 
+	private final DirectorySync directorySync;
+
+	private final Map<Path, LineIndex> lineIndexes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+			return size() > MAX_LINE_INDEXES;
+		}
+	});
+
 	LocalSandboxFiles(LocalSandbox sandbox, Path workDir) {
 		this.sandbox = sandbox;
 		this.workDir = workDir;
+		this.directorySync = new DirectorySync(new LocalSyncTarget());
 	}
 
 	@Override
@@ -95,12 +126,241 @@ class LocalSandboxFiles implements SandboxFiles {
 		}
 	}
 
+	@Override
+	public InputStream openInputStream(String relativePath) {
+		try {
+			return Files.newInputStream(workDir.resolve(relativePath));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public OutputStream openOutputStream(String relativePath) {
+		try {
+			return Files.newOutputStream(createParentDirectories(relativePath));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to create file: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public byte[] readBytes(String relativePath) {
+		try {
+			return Files.readAllBytes(workDir.resolve(relativePath));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public byte[] readBytes(String relativePath, long offset, int length) {
+		RangeReads.checkBytes(offset, length);
+		try (FileChannel channel = FileChannel.open(workDir.resolve(relativePath), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, Math.max(0, channel.size() - offset)));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) < 0) {
+					break;
+				}
+			}
+			return Arrays.copyOf(buffer.array(), buffer.position());
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	/**
+	 * Reads from the closest indexed line before the range. The index of each file is
+	 * built on first use and reused until the file changes.
+	 */
+	@Override
+	public List<String> readLines(String relativePath, int fromLine, int toLine) {
+		RangeReads.checkLines(fromLine, toLine);
+		Path path = workDir.resolve(relativePath);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			LineIndex index = lineIndexes.get(path);
+			if (index == null || !index.isCurrent(attrs.size(), attrs.lastModifiedTime())) {
+				index = LineIndex.build(channel, attrs.size(), attrs.lastModifiedTime());
+				lineIndexes.put(path, index);
+			}
+			channel.position(index.checkpointOffset(fromLine));
+			return RangeReads.readLines(Channels.newInputStream(channel), index.checkpointLine(fromLine), fromLine,
+					toLine);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public SandboxFiles writeBytes(String relativePath, byte[] content) {
+		if (content == null) {
+			throw new IllegalArgumentException("Content cannot be null");
+		}
+		try {
+			Files.write(createParentDirectories(relativePath), content);
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to create file: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public SandboxFiles copyFrom(Path source, String relativePath) {
+		if (source == null) {
+			throw new IllegalArgumentException("Source path cannot be null");
+		}
+		try {
+			// Files.copy lets the file system copy without passing the content through
+			// the heap
+			Files.copy(source, createParentDirectories(relativePath), StandardCopyOption.REPLACE_EXISTING);
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to copy " + source + " to " + relativePath, e);
+		}
+	}
+
+	@Override
+	public SandboxFiles copyTo(String relativePath, Path target) {
+		if (target == null) {
+			throw new IllegalArgumentException("Target path cannot be null");
+		}
+		try {
+			Path parent = target.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+			Files.copy(workDir.resolve(relativePath), target, StandardCopyOption.REPLACE_EXISTING);
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to copy " + relativePath + " to " + target, e);
+		}
+	}
+
+	@Override
+	public SandboxFiles importDirectory(Path hostDir, String relativePath, Predicate<Path> filter) {
+		if (hostDir == null || !Files.isDirectory(hostDir)) {
+			throw new IllegalArgumentException("Host directory does not exist: " + hostDir);
+		}
+		Path targetDir = workDir.resolve(relativePath);
+		try {
+			// Copy file by file; on a local file system there is no per-call round trip
+			// to save by archiving
+			Files.walkFileTree(hostDir, new SimpleFileVisitor<>() {
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					Path relative = hostDir.relativize(dir);
+					if (!dir.equals(hostDir) && !filter.test(relative)) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					Files.createDirectories(targetDir.resolve(relative.toString()));
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Path relative = hostDir.relativize(file);
+					if (filter.test(relative) && (attrs.isRegularFile() || attrs.isSymbolicLink())) {
+						Files.copy(file, targetDir.resolve(relative.toString()), StandardCopyOption.REPLACE_EXISTING,
+								LinkOption.NOFOLLOW_LINKS);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+			});
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to import " + hostDir + " to " + relativePath, e);
+		}
+	}
+
+	@Override
+	public SandboxFiles exportDirectory(String relativePath, OutputStream tarStream) {
+		Path dirPath = workDir.resolve(relativePath);
+		if (!Files.isDirectory(dirPath)) {
+			throw new SandboxException("Path is not a directory: " + relativePath);
+		}
+		try {
+			TarArchives.write(dirPath, path -> true, tarStream);
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to export directory: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public FileWatch watch(String relativePath, boolean recursive, FileWatchListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener cannot be null");
+		}
+		Path dirPath = workDir.resolve(relativePath);
+		if (!Files.isDirectory(dirPath)) {
+			throw new SandboxException("Path is not a directory: " + relativePath);
+		}
+		try {
+			return new LocalFileWatch(dirPath, recursive, listener);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to watch directory: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public SyncResult sync(Path hostDir, String targetDir) {
+		return directorySync.sync(hostDir, targetDir);
+	}
+
+	@Override
+	public Stream<String> find(String relativePath, List<String> globs, int maxDepth) {
+		return LocalSearch.find(searchDirectory(relativePath), globs, maxDepth);
+	}
+
+	@Override
+	public Stream<GrepMatch> grep(String relativePath, String regex, List<String> globs, int maxMatches) {
+		return LocalSearch.grep(searchDirectory(relativePath), regex, globs, maxMatches);
+	}
+
+	private Path searchDirectory(String relativePath) {
+		Path dirPath = workDir.resolve(relativePath);
+		if (!Files.isDirectory(dirPath)) {
+			throw new SandboxException("Path is not a directory: " + relativePath);
+		}
+		return dirPath;
+	}
+
 	@Override
 	public boolean exists(String relativePath) {
 		Path path = workDir.resolve(relativePath);
 		return Files.exists(path);
 	}
 
+	@Override
+	public Optional<FileEntry> stat(String relativePath) {
+		Path path = workDir.resolve(relativePath);
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			Path name = path.getFileName();
+			return Optional.of(toEntry((name != null) ? name.toString() : relativePath, relativePath, attrs));
+		}
+		catch (NoSuchFileException e) {
+			return Optional.empty();
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file attributes: " + relativePath, e);
+		}
+	}
+
 	@Override
 	public List<FileEntry> list(String relativePath) {
 		return list(relativePath, 1);
@@ -108,41 +368,61 @@ class LocalSandboxFiles implements SandboxFiles {
 
 	@Override
 	public List<FileEntry> list(String relativePath, int maxDepth) {
-		try {
-			Path dirPath = workDir.resolve(relativePath);
-			if (!Files.exists(dirPath)) {
-				throw new SandboxException("Path does not exist: " + relativePath);
-			}
-			if (!Files.isDirectory(dirPath)) {
-				throw new SandboxException("Path is not a directory: " + relativePath);
-			}
+		try (Stream<FileEntry> entries = entries(relativePath, maxDepth)) {
+			return entries.collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
 
-			List<FileEntry> entries = new ArrayList<>();
-			try (Stream<Path> stream = Files.walk(dirPath, maxDepth)) {
-				stream.filter(p -> !p.equals(dirPath)).forEach(p -> {
-					try {
-						String name = p.getFileName().toString();
-						String path = workDir.relativize(p).toString();
-						FileType type = Files.isDirectory(p) ? FileType.DIRECTORY : FileType.FILE;
-						long size = Files.isDirectory(p) ? 0 : Files.size(p);
-						Instant modifiedTime = Files.getLastModifiedTime(p).toInstant();
-						entries.add(new FileEntry(name, type, path, size, modifiedTime));
-					}
-					catch (IOException e) {
-						throw new SandboxException("Failed to read file attributes: " + p, e);
-					}
-				});
-			}
-			return entries;
+	/**
+	 * Walks the tree with {@link Files#walk}, the pull-based form of
+	 * {@link Files#walkFileTree}, so entries are read only as fast as they are consumed,
+	 * and reads the attributes of each entry in one call. Entries deleted during the walk
+	 * are skipped.
+	 */
+	@Override
+	public Stream<FileEntry> walk(String relativePath, int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Max depth must be at least 1");
 		}
-		catch (SandboxException e) {
-			throw e;
+		return entries(relativePath, maxDepth);
+	}
+
+	/**
+	 * Lazily read the entries below a directory; a depth of 0 yields no entries.
+	 */
+	private Stream<FileEntry> entries(String relativePath, int maxDepth) {
+		Path dirPath = workDir.resolve(relativePath);
+		if (!Files.exists(dirPath)) {
+			throw new SandboxException("Path does not exist: " + relativePath);
+		}
+		if (!Files.isDirectory(dirPath)) {
+			throw new SandboxException("Path is not a directory: " + relativePath);
+		}
+		try {
+			return Files.walk(dirPath, maxDepth).filter(p -> !p.equals(dirPath)).map(p -> {
+				try {
+					BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+					return toEntry(p.getFileName().toString(), workDir.relativize(p).toString(), attrs);
+				}
+				catch (NoSuchFileException e) {
+					return null;
+				}
+				catch (IOException e) {
+					throw new SandboxException("Failed to read file attributes: " + p, e);
+				}
+			}).filter(Objects::nonNull);
 		}
 		catch (IOException e) {
 			throw new SandboxException("Failed to list directory: " + relativePath, e);
 		}
 	}
 
+	private static FileEntry toEntry(String name, String path, BasicFileAttributes attrs) {
+		FileType type = attrs.isDirectory() ? FileType.DIRECTORY : FileType.FILE;
+		long size = attrs.isDirectory() ? 0 : attrs.size();
+		return new FileEntry(name, type, path, size, attrs.lastModifiedTime().toInstant());
+	}
+
 	@Override
 	public SandboxFiles delete(String relativePath) {
 		return delete(relativePath, false);
@@ -187,4 +467,49 @@ class LocalSandboxFiles implements SandboxFiles {
 		return sandbox;
 	}
 
+	private Path createParentDirectories(String relativePath) throws IOException {
+		Path filePath = workDir.resolve(relativePath);
+		Path parent = filePath.getParent();
+		if (parent != null && !Files.exists(parent)) {
+			Files.createDirectories(parent);
+		}
+		return filePath;
+	}
+
+	/**
+	 * Sync target hashing the working directory directly; there are no round trips to
+	 * save, but unchanged files are still not read again.
+	 */
+	private final class LocalSyncTarget implements DirectorySync.Target {
+
+		@Override
+		public FileManifest manifest(String targetDir, FileManifest expected) {
+			try {
+				return FileManifest.scan(workDir.resolve(targetDir), expected);
+			}
+			catch (IOException e) {
+				throw new SandboxException("Failed to scan directory: " + targetDir, e);
+			}
+		}
+
+		@Override
+		public void upload(Path hostDir, String targetDir, Predicate<Path> filter) {
+			importDirectory(hostDir, targetDir, filter);
+		}
+
+		@Override
+		public void finish(String targetDir, List<String> deleted) {
+			Path dir = workDir.resolve(targetDir);
+			for (String path : deleted) {
+				try {
+					Files.deleteIfExists(dir.resolve(path));
+				}
+				catch (IOException e) {
+					throw new SandboxException("Failed to delete file: " + path, e);
+				}
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * File search for {@link LocalSandboxFiles}, using NIO instead of spawning processes.
+ *
+ * <p>
+ * {@link #grep} walks the tree lazily and scans the files of each batch of
+ * {@value #BATCH_SIZE} in parallel, emitting their matches in walk order. Closing the
+ * stream stops the walk after the current batch.
+ * </p>
+ */
+final class LocalSearch {
+
+	private static final int BATCH_SIZE = 64;
+
+	/** Files with a NUL byte in their first block are treated as binary and skipped. */
+	private static final int BINARY_PROBE_SIZE = 8192;
+
+	private LocalSearch() {
+	}
+
+	static Stream<String> find(Path directory, List<String> globs, int maxDepth) {
+		RemoteSearch.checkFind(globs, maxDepth);
+		Predicate<Path> nameFilter = nameFilter(globs);
+		try {
+			return Files.find(directory, maxDepth, (path, attrs) -> attrs.isRegularFile() && nameFilter.test(path))
+				.map(path -> relativize(directory, path));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to search directory: " + directory, e);
+		}
+	}
+
+	static Stream<GrepMatch> grep(Path directory, String regex, List<String> globs, int maxMatches) {
+		RemoteSearch.checkGrep(regex, globs, maxMatches);
+		Pattern pattern = Pattern.compile(regex);
+		Predicate<Path> nameFilter = nameFilter(globs);
+		Stream<Path> files;
+		try {
+			files = Files.walk(directory)
+				.filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) && nameFilter.test(path));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to search directory: " + directory, e);
+		}
+		Iterator<Path> walk = files.iterator();
+		Iterator<List<GrepMatch>> batches = new Iterator<>() {
+
+			@Override
+			public boolean hasNext() {
+				return walk.hasNext();
+			}
+
+			@Override
+			public List<GrepMatch> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				List<CompletableFuture<List<GrepMatch>>> scans = new ArrayList<>(BATCH_SIZE);
+				while (scans.size() < BATCH_SIZE && walk.hasNext()) {
+					Path file = walk.next();
+					scans.add(CompletableFuture.supplyAsync(() -> scan(directory, file, pattern, maxMatches),
+							SandboxExecutors.defaultExecutor()));
+				}
+				List<GrepMatch> matches = new ArrayList<>();
+				try {
+					scans.forEach(scan -> matches.addAll(scan.join()));
+				}
+				catch (CompletionException e) {
+					throw new SandboxException("Failed to search directory: " + directory, e.getCause());
+				}
+				return matches;
+			}
+
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)
+			.flatMap(List::stream)
+			.limit(maxMatches)
+			.onClose(files::close);
+	}
+
+	private static List<GrepMatch> scan(Path directory, Path file, Pattern pattern, int maxMatches) {
+		List<GrepMatch> matches = new ArrayList<>();
+		try (InputStream in = Files.newInputStream(file)) {
+			byte[] probe = in.readNBytes(BINARY_PROBE_SIZE);
+			for (byte b : probe) {
+				if (b == 0) {
+					return matches;
+				}
+			}
+			InputStream content = new SequenceInputStream(new ByteArrayInputStream(probe), in);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(content,
+					StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)));
+			String path = relativize(directory, file);
+			String line;
+			int lineNumber = 0;
+			while (matches.size() < maxMatches && (line = reader.readLine()) != null) {
+				lineNumber++;
+				if (pattern.matcher(line).find()) {
+					matches.add(new GrepMatch(path, lineNumber, line));
+				}
+			}
+			return matches;
+		}
+		catch (IOException e) {
+			// Unreadable files are skipped, as grep -s does
+			return matches;
+		}
+	}
+
+	private static Predicate<Path> nameFilter(List<String> globs) {
+		if (globs.isEmpty()) {
+			return path -> true;
+		}
+		List<PathMatcher> matchers = globs.stream()
+			.map(glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob))
+			.toList();
+		return path -> {
+			Path name = path.getFileName();
+			return name != null && matchers.stream().anyMatch(matcher -> matcher.matches(name));
+		};
+	}
+
+	private static String relativize(Path directory, Path path) {
+		return directory.relativize(path).toString().replace('\\', '/');
+	}
+
+}
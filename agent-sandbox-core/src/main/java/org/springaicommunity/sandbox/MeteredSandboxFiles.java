@@ -0,0 +1,223 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * {@link SandboxFiles} decorator that reports every operation to a {@link SandboxMeter}.
+ *
+ * <p>
+ * Mutating operations return this decorator rather than the delegate so that chained
+ * calls stay measured.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+final class MeteredSandboxFiles implements SandboxFiles {
+
+	private final SandboxFiles delegate;
+
+	private final SandboxMeter meter;
+
+	MeteredSandboxFiles(SandboxFiles delegate, SandboxMeter meter) {
+		this.delegate = delegate;
+		this.meter = meter;
+	}
+
+	@Override
+	public SandboxFiles create(String relativePath, String content) {
+		meter.measure(SandboxMetrics.FILES_CREATE, ExecResult.utf8Length(content),
+				() -> delegate.create(relativePath, content), files -> 0);
+		return this;
+	}
+
+	@Override
+	public SandboxFiles createDirectory(String relativePath) {
+		meter.measure(SandboxMetrics.FILES_CREATE_DIRECTORY, 0, () -> delegate.createDirectory(relativePath),
+				files -> 0);
+		return this;
+	}
+
+	@Override
+	public SandboxFiles setup(List<FileSpec> files) {
+		long bytesIn = (files != null) ? files.stream().mapToLong(file -> ExecResult.utf8Length(file.content())).sum()
+				: 0;
+		meter.measure(SandboxMetrics.FILES_SETUP, bytesIn, () -> delegate.setup(files), result -> 0);
+		return this;
+	}
+
+	@Override
+	public String read(String relativePath) {
+		return meter.measure(SandboxMetrics.FILES_READ, 0, () -> delegate.read(relativePath), ExecResult::utf8Length);
+	}
+
+	@Override
+	public InputStream openInputStream(String relativePath) {
+		return meter.measure(SandboxMetrics.FILES_OPEN_INPUT_STREAM, 0, () -> delegate.openInputStream(relativePath),
+				in -> 0);
+	}
+
+	@Override
+	public OutputStream openOutputStream(String relativePath) {
+		return meter.measure(SandboxMetrics.FILES_OPEN_OUTPUT_STREAM, 0, () -> delegate.openOutputStream(relativePath),
+				out -> 0);
+	}
+
+	@Override
+	public byte[] readBytes(String relativePath) {
+		return meter.measure(SandboxMetrics.FILES_READ_BYTES, 0, () -> delegate.readBytes(relativePath),
+				content -> content.length);
+	}
+
+	@Override
+	public byte[] readBytes(String relativePath, long offset, int length) {
+		return meter.measure(SandboxMetrics.FILES_READ_RANGE, 0, () -> delegate.readBytes(relativePath, offset, length),
+				content -> content.length);
+	}
+
+	@Override
+	public List<String> readLines(String relativePath, int fromLine, int toLine) {
+		return meter.measure(SandboxMetrics.FILES_READ_LINES, 0,
+				() -> delegate.readLines(relativePath, fromLine, toLine),
+				lines -> lines.stream().mapToLong(ExecResult::utf8Length).sum());
+	}
+
+	@Override
+	public SandboxFiles writeBytes(String relativePath, byte[] content) {
+		long bytesIn = (content != null) ? content.length : 0;
+		meter.measure(SandboxMetrics.FILES_WRITE_BYTES, bytesIn, () -> delegate.writeBytes(relativePath, content),
+				files -> 0);
+		return this;
+	}
+
+	@Override
+	public SandboxFiles copyFrom(Path source, String relativePath) {
+		meter.measure(SandboxMetrics.FILES_COPY_FROM, sizeOf(source), () -> delegate.copyFrom(source, relativePath),
+				files -> 0);
+		return this;
+	}
+
+	@Override
+	public SandboxFiles copyTo(String relativePath, Path target) {
+		meter.measure(SandboxMetrics.FILES_COPY_TO, 0, () -> delegate.copyTo(relativePath, target),
+				files -> sizeOf(target));
+		return this;
+	}
+
+	@Override
+	public SandboxFiles importDirectory(Path hostDir, String relativePath, Predicate<Path> filter) {
+		meter.measure(SandboxMetrics.FILES_IMPORT_DIRECTORY, 0,
+				() -> delegate.importDirectory(hostDir, relativePath, filter), files -> 0);
+		return this;
+	}
+
+	@Override
+	public SandboxFiles exportDirectory(String relativePath, OutputStream tarStream) {
+		meter.measure(SandboxMetrics.FILES_EXPORT_DIRECTORY, 0, () -> delegate.exportDirectory(relativePath, tarStream),
+				files -> 0);
+		return this;
+	}
+
+	@Override
+	public FileWatch watch(String relativePath, boolean recursive, FileWatchListener listener) {
+		return meter.measure(SandboxMetrics.FILES_WATCH, 0, () -> delegate.watch(relativePath, recursive, listener),
+				watch -> 0);
+	}
+
+	@Override
+	public SyncResult sync(Path hostDir, String targetDir) {
+		return meter.measure(SandboxMetrics.FILES_SYNC, 0, () -> delegate.sync(hostDir, targetDir), result -> 0);
+	}
+
+	@Override
+	public Stream<String> find(String relativePath, List<String> globs, int maxDepth) {
+		return meter.measure(SandboxMetrics.FILES_FIND, 0, () -> delegate.find(relativePath, globs, maxDepth),
+				results -> 0);
+	}
+
+	@Override
+	public Stream<GrepMatch> grep(String relativePath, String regex, List<String> globs, int maxMatches) {
+		return meter.measure(SandboxMetrics.FILES_GREP, 0, () -> delegate.grep(relativePath, regex, globs, maxMatches),
+				results -> 0);
+	}
+
+	@Override
+	public boolean exists(String relativePath) {
+		return meter.measure(SandboxMetrics.FILES_EXISTS, 0, () -> delegate.exists(relativePath), exists -> 0);
+	}
+
+	@Override
+	public Optional<FileEntry> stat(String relativePath) {
+		return meter.measure(SandboxMetrics.FILES_STAT, 0, () -> delegate.stat(relativePath), entry -> 0);
+	}
+
+	@Override
+	public Map<String, FileEntry> statAll(List<String> relativePaths) {
+		return meter.measure(SandboxMetrics.FILES_STAT_ALL, 0, () -> delegate.statAll(relativePaths), entries -> 0);
+	}
+
+	@Override
+	public List<FileEntry> list(String relativePath) {
+		return meter.measure(SandboxMetrics.FILES_LIST, 0, () -> delegate.list(relativePath), entries -> 0);
+	}
+
+	@Override
+	public List<FileEntry> list(String relativePath, int maxDepth) {
+		return meter.measure(SandboxMetrics.FILES_LIST, 0, () -> delegate.list(relativePath, maxDepth), entries -> 0);
+	}
+
+	@Override
+	public Stream<FileEntry> walk(String relativePath, int maxDepth) {
+		return meter.measure(SandboxMetrics.FILES_WALK, 0, () -> delegate.walk(relativePath, maxDepth), entries -> 0);
+	}
+
+	@Override
+	public SandboxFiles delete(String relativePath) {
+		meter.measure(SandboxMetrics.FILES_DELETE, 0, () -> delegate.delete(relativePath), files -> 0);
+		return this;
+	}
+
+	@Override
+	public SandboxFiles delete(String relativePath, boolean recursive) {
+		meter.measure(SandboxMetrics.FILES_DELETE, 0, () -> delegate.delete(relativePath, recursive), files -> 0);
+		return this;
+	}
+
+	@Override
+	public Sandbox and() {
+		return delegate.and();
+	}
+
+	private static long sizeOf(Path file) {
+		try {
+			return (file != null) ? Files.size(file) : 0;
+		}
+		catch (IOException e) {
+			return 0;
+		}
+	}
+
+}
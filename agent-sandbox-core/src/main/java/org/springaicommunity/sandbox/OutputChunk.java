@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A piece of process output delivered to an {@link OutputListener} while a command is
+ * still running.
+ *
+ * <p>
+ * Chunk boundaries follow whatever the backend received (pipe reads, Docker frames, E2B
+ * events) and are not aligned to lines. Multi-byte UTF-8 characters are never split
+ * across chunks.
+ * </p>
+ *
+ * @param type the stream the output was written to
+ * @param text the decoded output text
+ * @param timestamp when the output was received by the sandbox client
+ * @since 0.9.1
+ */
+public record OutputChunk(Type type, String text, Instant timestamp) {
+
+	public OutputChunk {
+		Objects.requireNonNull(type, "type cannot be null");
+		Objects.requireNonNull(text, "text cannot be null");
+		Objects.requireNonNull(timestamp, "timestamp cannot be null");
+	}
+
+	/**
+	 * Checks if this chunk was written to standard output.
+	 * @return true for stdout output
+	 */
+	public boolean isStdout() {
+		return type == Type.STDOUT;
+	}
+
+	/**
+	 * Checks if this chunk was written to standard error.
+	 * @return true for stderr output
+	 */
+	public boolean isStderr() {
+		return type == Type.STDERR;
+	}
+
+	/**
+	 * Output stream a chunk originates from.
+	 */
+	public enum Type {
+
+		/**
+		 * Standard output.
+		 */
+		STDOUT,
+
+		/**
+		 * Standard error.
+		 */
+		STDERR
+
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+/**
+ * Output budget for a single stream of an executed command.
+ *
+ * <p>
+ * When an {@link ExecSpec} carries an output limit, only the first {@code headBytes} and
+ * the last {@code tailBytes} of each stream are kept; everything in between is dropped
+ * and replaced by a truncation marker in the {@link ExecResult}. Capture memory therefore
+ * stays constant no matter how much the process prints. Total byte counts and truncation
+ * flags are reported on the result.
+ * </p>
+ *
+ * @param headBytes number of leading bytes to keep per stream
+ * @param tailBytes number of trailing bytes to keep per stream
+ * @since 0.9.1
+ * @see ExecSpec.Builder#outputLimit(int, int)
+ */
+public record OutputLimit(int headBytes, int tailBytes) {
+
+	public OutputLimit {
+		if (headBytes < 0) {
+			throw new IllegalArgumentException("headBytes cannot be negative");
+		}
+		if (tailBytes < 0) {
+			throw new IllegalArgumentException("tailBytes cannot be negative");
+		}
+	}
+
+	/**
+	 * Maximum number of bytes retained per stream.
+	 * @return head plus tail size
+	 */
+	public long maxBytes() {
+		return (long) headBytes + tailBytes;
+	}
+
+}
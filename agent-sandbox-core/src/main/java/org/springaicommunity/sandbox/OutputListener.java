@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+/**
+ * Callback for receiving command output incrementally while it is produced.
+ *
+ * <p>
+ * Used with {@link Sandbox#exec(ExecSpec, OutputListener)}. Stdout and stderr are pumped
+ * independently, so chunks of the two streams may be delivered from different threads.
+ * Chunks of the same stream are always delivered in order and never concurrently.
+ * Listeners should return quickly; slow listeners apply back-pressure to the process.
+ * </p>
+ *
+ * <pre>{@code
+ * ExecResult result = sandbox.exec(ExecSpec.of("mvn", "test"), chunk -> {
+ *     if (chunk.isStdout()) {
+ *         System.out.print(chunk.text());
+ *     }
+ * });
+ * }</pre>
+ *
+ * @since 0.9.1
+ */
+@FunctionalInterface
+public interface OutputListener {
+
+	/**
+	 * Called for every chunk of output received from the running command.
+	 * @param chunk the output chunk
+	 */
+	void onOutput(OutputChunk chunk);
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Terminates a local process together with its descendants, such as the JVMs, build
+ * daemons and servers forked by a shell command.
+ *
+ * <p>
+ * Every live process of the tree is sent {@code SIGTERM}; those still running after the
+ * grace period are sent {@code SIGKILL}. The tree is captured before anything is
+ * signalled, so children are found even after their parent exits. Descendants that were
+ * already re-parented, because their parent exited before the tree was captured, are not
+ * found.
+ * </p>
+ */
+final class ProcessTree {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProcessTree.class);
+
+	private ProcessTree() {
+	}
+
+	/**
+	 * Terminate a process and its descendants without blocking.
+	 * @param root the process at the root of the tree
+	 * @param gracePeriod the time allowed to exit after {@code SIGTERM} before
+	 * {@code SIGKILL} is sent; zero to send {@code SIGKILL} right away
+	 * @return a future completed with the number of processes that were terminated, once
+	 * all of them have been signalled to exit
+	 */
+	static CompletableFuture<Integer> terminate(ProcessHandle root, Duration gracePeriod) {
+		List<ProcessHandle> processes = new ArrayList<>();
+		root.descendants().forEach(processes::add);
+		processes.add(root);
+		processes.removeIf(process -> !process.isAlive());
+		if (processes.isEmpty()) {
+			return CompletableFuture.completedFuture(0);
+		}
+		if (gracePeriod.isZero()) {
+			processes.forEach(ProcessHandle::destroyForcibly);
+			return CompletableFuture.completedFuture(processes.size());
+		}
+
+		// Children first, so a parent cannot replace them before it exits
+		List<CompletableFuture<ProcessHandle>> exits = new ArrayList<>();
+		for (ProcessHandle process : processes) {
+			process.destroy();
+			exits.add(process.onExit());
+		}
+		return CompletableFuture.allOf(exits.toArray(new CompletableFuture<?>[0]))
+			.completeOnTimeout(null, gracePeriod.toMillis(), TimeUnit.MILLISECONDS)
+			.thenApply(ignored -> {
+				for (ProcessHandle process : processes) {
+					if (process.isAlive()) {
+						logger.debug("Process {} ignored SIGTERM for {}, killing it", process.pid(), gracePeriod);
+						process.destroyForcibly();
+					}
+				}
+				return processes.size();
+			});
+	}
+
+}
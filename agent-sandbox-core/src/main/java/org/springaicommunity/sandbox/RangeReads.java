@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Implements {@link SandboxFiles#readBytes(String, long, int)} and
+ * {@link SandboxFiles#readLines(String, int, int)} with a single command in a remote
+ * sandbox, so that only the requested part of the file is transferred.
+ *
+ * <p>
+ * Lines are separated by {@code \n}; a trailing {@code \r} is removed, and a last line
+ * without terminator counts as a line.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class RangeReads {
+
+	private static final String BYTES_SCRIPT = "[ -f \"$1\" ] || { echo \"No such file: $1\" >&2; exit 1; }\n"
+			+ "tail -c +\"$(( $2 + 1 ))\" -- \"$1\" | head -c \"$3\" | base64\n";
+
+	private static final String LINES_SCRIPT = "sed -n \"$2,$3p;$3q\" \"$1\"\n";
+
+	private RangeReads() {
+	}
+
+	/**
+	 * Read part of a file with {@code tail} and {@code head}.
+	 * @param shell runs scripts in the sandbox
+	 * @param path the absolute file path
+	 * @param offset the offset of the first byte
+	 * @param length the maximum number of bytes
+	 * @return the bytes, fewer than requested at the end of the file
+	 * @throws SandboxException if the file cannot be read
+	 */
+	public static byte[] readBytes(SandboxShell shell, String path, long offset, int length) {
+		checkBytes(offset, length);
+		String encoded;
+		try {
+			encoded = shell.run(BYTES_SCRIPT, path, String.valueOf(offset), String.valueOf(length));
+		}
+		catch (SandboxException e) {
+			throw new SandboxException("Failed to read file: " + path, e);
+		}
+		return Base64.getMimeDecoder().decode(encoded);
+	}
+
+	/**
+	 * Read a range of lines with {@code sed}, which stops reading after the last one.
+	 * @param shell runs scripts in the sandbox
+	 * @param path the absolute file path
+	 * @param fromLine the first line, starting at 1
+	 * @param toLine the last line, inclusive
+	 * @return the lines, fewer than requested at the end of the file
+	 * @throws SandboxException if the file cannot be read
+	 */
+	public static List<String> readLines(SandboxShell shell, String path, int fromLine, int toLine) {
+		checkLines(fromLine, toLine);
+		String output;
+		try {
+			output = shell.run(LINES_SCRIPT, path, String.valueOf(fromLine), String.valueOf(toLine));
+		}
+		catch (SandboxException e) {
+			throw new SandboxException("Failed to read file: " + path, e);
+		}
+		List<String> lines = new ArrayList<>();
+		String[] parts = output.split("\n", -1);
+		int count = parts[parts.length - 1].isEmpty() ? parts.length - 1 : parts.length;
+		for (int i = 0; i < count; i++) {
+			lines.add(stripCarriageReturn(parts[i]));
+		}
+		return lines;
+	}
+
+	/**
+	 * Read a range of lines from a stream.
+	 * @param in the stream, positioned at the start of a line
+	 * @param firstLine the number of the line at the start of the stream
+	 * @param fromLine the first line to return
+	 * @param toLine the last line to return, inclusive
+	 * @return the lines, fewer than requested at the end of the stream
+	 */
+	static List<String> readLines(InputStream in, int firstLine, int fromLine, int toLine) throws IOException {
+		List<String> lines = new ArrayList<>();
+		InputStream buffered = new BufferedInputStream(in, 64 * 1024);
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int current = firstLine;
+		int b;
+		while (current <= toLine && (b = buffered.read()) >= 0) {
+			if (b == '\n') {
+				if (current >= fromLine) {
+					lines.add(decode(line));
+				}
+				line.reset();
+				current++;
+			}
+			else if (current >= fromLine) {
+				line.write(b);
+			}
+		}
+		if (current >= fromLine && current <= toLine && line.size() > 0) {
+			lines.add(decode(line));
+		}
+		return lines;
+	}
+
+	/**
+	 * Validate the arguments of {@link SandboxFiles#readBytes(String, long, int)}.
+	 * @param offset the offset of the first byte
+	 * @param length the maximum number of bytes
+	 * @throws IllegalArgumentException if either is negative
+	 */
+	public static void checkBytes(long offset, int length) {
+		if (offset < 0) {
+			throw new IllegalArgumentException("Offset cannot be negative");
+		}
+		if (length < 0) {
+			throw new IllegalArgumentException("Length cannot be negative");
+		}
+	}
+
+	/**
+	 * Validate the arguments of {@link SandboxFiles#readLines(String, int, int)}.
+	 * @param fromLine the first line
+	 * @param toLine the last line
+	 * @throws IllegalArgumentException if the range is empty or starts before line 1
+	 */
+	public static void checkLines(int fromLine, int toLine) {
+		if (fromLine < 1) {
+			throw new IllegalArgumentException("Lines start at 1");
+		}
+		if (toLine < fromLine) {
+			throw new IllegalArgumentException("Last line cannot be before the first line");
+		}
+	}
+
+	private static String decode(ByteArrayOutputStream line) {
+		return stripCarriageReturn(line.toString(StandardCharsets.UTF_8));
+	}
+
+	private static String stripCarriageReturn(String line) {
+		return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for {@link Process} handles of processes running in a remote sandbox, as
+ * returned by {@link Sandbox#startInteractive(ExecSpec)}.
+ *
+ * <p>
+ * Subclasses feed the process output into {@link #stdoutSink()} and {@link #stderrSink()}
+ * as it arrives from the transport, call {@link #exited(int)} once the remote process has
+ * terminated, and provide the stdin stream and the means to kill the process. Waiting,
+ * exit status and the output streams are handled here.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public abstract class RemoteProcess extends Process {
+
+	private final StreamPipe stdout = new StreamPipe();
+
+	private final StreamPipe stderr = new StreamPipe();
+
+	private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+	/**
+	 * Get the stream receiving the process stdout. Bytes written here become readable
+	 * from {@link #getInputStream()}.
+	 * @return the stdout sink
+	 */
+	protected final OutputStream stdoutSink() {
+		return stdout.outputStream();
+	}
+
+	/**
+	 * Get the stream receiving the process stderr. Bytes written here become readable
+	 * from {@link #getErrorStream()}.
+	 * @return the stderr sink
+	 */
+	protected final OutputStream stderrSink() {
+		return stderr.outputStream();
+	}
+
+	/**
+	 * Record that the remote process has terminated. Closes both output sinks so readers
+	 * see end-of-stream after the remaining output. Only the first call has an effect.
+	 * @param code the exit code of the process
+	 */
+	protected final void exited(int code) {
+		closeQuietly(stdout.outputStream());
+		closeQuietly(stderr.outputStream());
+		exitCode.complete(code);
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return stdout.inputStream();
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		return stderr.inputStream();
+	}
+
+	@Override
+	public int waitFor() throws InterruptedException {
+		try {
+			return exitCode.get();
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Unexpected process failure", e);
+		}
+	}
+
+	@Override
+	public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+		try {
+			exitCode.get(timeout, unit);
+			return true;
+		}
+		catch (java.util.concurrent.TimeoutException e) {
+			return false;
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Unexpected process failure", e);
+		}
+	}
+
+	@Override
+	public int exitValue() {
+		Integer code = exitCode.getNow(null);
+		if (code == null) {
+			throw new IllegalThreadStateException("Process has not exited");
+		}
+		return code;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return !exitCode.isDone();
+	}
+
+	@Override
+	public CompletableFuture<Process> onExit() {
+		return exitCode.thenApply(code -> this);
+	}
+
+	private static void closeQuietly(OutputStream stream) {
+		try {
+			stream.close();
+		}
+		catch (IOException e) {
+			// Pipe sinks do not fail on close
+		}
+	}
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implements {@link SandboxFiles#find(String, List, int)},
+ * {@link SandboxFiles#grep(String, String, List, int)} and
+ * {@link SandboxFiles#walk(String, int)} for remote sandboxes with a single process
+ * started in the sandbox.
+ *
+ * <p>
+ * The process runs ripgrep when it is installed and falls back to {@code find} and
+ * {@code grep -rnIE}. Its output is parsed as it arrives, so the first results are
+ * available while the search is still running, and closing the returned stream kills the
+ * process. Hidden and git-ignored files are searched and binary files are skipped by both
+ * tools.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class RemoteSearch {
+
+	/** Exit status of the scripts when the directory does not exist. */
+	private static final int NOT_A_DIRECTORY = 3;
+
+	/** Exit status of the walk script when nothing exists at the path. */
+	private static final int NOT_FOUND = 4;
+
+	private static final String FIND_SCRIPT = "cd \"$1\" 2>/dev/null || exit 3\n" + "depth=$2\n" + "shift 2\n"
+			+ "if command -v rg >/dev/null 2>&1; then\n" + "  globs=()\n"
+			+ "  for g in \"$@\"; do globs+=(-g \"$g\"); done\n"
+			+ "  exec rg --files --no-config -uu --no-messages --max-depth \"$depth\" \"${globs[@]}\" .\n" + "fi\n"
+			+ "if [ $# -eq 0 ]; then exec find . -maxdepth \"$depth\" -type f; fi\n" + "names=(-name \"$1\")\n"
+			+ "shift\n" + "for g in \"$@\"; do names+=(-o -name \"$g\"); done\n"
+			+ "exec find . -maxdepth \"$depth\" -type f \\( \"${names[@]}\" \\)\n";
+
+	private static final String GREP_SCRIPT = "cd \"$1\" 2>/dev/null || exit 3\n" + "regex=$2\n" + "max=$3\n"
+			+ "shift 3\n" + "if command -v rg >/dev/null 2>&1; then\n" + "  globs=()\n"
+			+ "  for g in \"$@\"; do globs+=(-g \"$g\"); done\n"
+			+ "  exec rg --no-config -uu --no-messages --no-heading --with-filename --line-number --null"
+			+ " --color never --max-count \"$max\" \"${globs[@]}\" -e \"$regex\" .\n" + "fi\n" + "globs=()\n"
+			+ "for g in \"$@\"; do globs+=(--include=\"$g\"); done\n"
+			+ "exec grep -rnIsZE --max-count=\"$max\" \"${globs[@]}\" -e \"$regex\" .\n";
+
+	/** Prints {@code type|size|mtime|path} with the path last, as it may contain '|'. */
+	private static final String WALK_SCRIPT = "[ -e \"$1\" ] || exit 4\n" + "cd \"$1\" 2>/dev/null || exit 3\n"
+			+ "exec find . -mindepth 1 -maxdepth \"$2\" -printf '%y|%s|%T@|%P\\n'\n";
+
+	private RemoteSearch() {
+	}
+
+	/**
+	 * Find files by name.
+	 * @param starter starts a command in the sandbox and streams its output
+	 * @param directory the absolute directory to search
+	 * @param globs file name globs, any of which must match; empty to match all files
+	 * @param maxDepth the maximum depth, 1 for the files directly in the directory
+	 * @return the paths relative to the directory, which the caller must close
+	 * @throws SandboxException if the search cannot be started
+	 */
+	public static Stream<String> find(Function<List<String>, Process> starter, String directory, List<String> globs,
+			int maxDepth) {
+		checkFind(globs, maxDepth);
+		List<String> command = command(FIND_SCRIPT, directory, String.valueOf(maxDepth));
+		command.addAll(globs);
+		return results(starter.apply(command), directory, RemoteSearch::stripDot);
+	}
+
+	/**
+	 * Search the content of files.
+	 * @param starter starts a command in the sandbox and streams its output
+	 * @param directory the absolute directory to search
+	 * @param regex the regular expression
+	 * @param globs file name globs, any of which must match; empty to search all files
+	 * @param maxMatches the maximum number of matches to return
+	 * @return the matching lines, which the caller must close
+	 * @throws SandboxException if the search cannot be started
+	 */
+	public static Stream<GrepMatch> grep(Function<List<String>, Process> starter, String directory, String regex,
+			List<String> globs, int maxMatches) {
+		checkGrep(regex, globs, maxMatches);
+		List<String> command = command(GREP_SCRIPT, directory, regex, String.valueOf(maxMatches));
+		command.addAll(globs);
+		return results(starter.apply(command), directory, RemoteSearch::parseMatch).limit(maxMatches);
+	}
+
+	/**
+	 * List a directory tree.
+	 * @param starter starts a command in the sandbox and streams its output
+	 * @param directory the absolute directory to list
+	 * @param relativePath the directory relative to the sandbox working directory, which
+	 * prefixes the entry paths
+	 * @param maxDepth the maximum depth, 1 for the immediate children
+	 * @return the entries in traversal order, which the caller must close
+	 * @throws SandboxException if the listing cannot be started
+	 */
+	public static Stream<FileEntry> walk(Function<List<String>, Process> starter, String directory, String relativePath,
+			int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Max depth must be at least 1");
+		}
+		String prefix = relativePath.isEmpty() || relativePath.endsWith("/") ? relativePath : relativePath + "/";
+		return results(starter.apply(command(WALK_SCRIPT, directory, String.valueOf(maxDepth))), relativePath,
+				output -> parseEntry(output, prefix));
+	}
+
+	static void checkFind(List<String> globs, int maxDepth) {
+		if (globs == null) {
+			throw new IllegalArgumentException("Globs cannot be null");
+		}
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Max depth must be at least 1");
+		}
+	}
+
+	static void checkGrep(String regex, List<String> globs, int maxMatches) {
+		if (regex == null || regex.isEmpty()) {
+			throw new IllegalArgumentException("Regex cannot be empty");
+		}
+		if (globs == null) {
+			throw new IllegalArgumentException("Globs cannot be null");
+		}
+		if (maxMatches < 1) {
+			throw new IllegalArgumentException("Max matches must be at least 1");
+		}
+	}
+
+	private static List<String> command(String script, String... args) {
+		List<String> command = new ArrayList<>(List.of("bash", "-c", script, "bash"));
+		command.addAll(List.of(args));
+		return command;
+	}
+
+	/**
+	 * Both tools print {@code path NUL line-number : text}.
+	 */
+	private static GrepMatch parseMatch(String output) {
+		int nul = output.indexOf('\0');
+		int colon = output.indexOf(':', nul + 1);
+		if (nul < 0 || colon < 0) {
+			return null;
+		}
+		try {
+			int lineNumber = Integer.parseInt(output.substring(nul + 1, colon));
+			return new GrepMatch(stripDot(output.substring(0, nul)), lineNumber, output.substring(colon + 1));
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses {@code find -printf '%y|%s|%T@|%P'}, where the time is in fractional epoch
+	 * seconds. Symbolic links and special files are reported as files.
+	 */
+	private static FileEntry parseEntry(String output, String prefix) {
+		String[] parts = output.split("\\|", 4);
+		if (parts.length < 4 || parts[3].isEmpty()) {
+			return null;
+		}
+		try {
+			FileType type = "d".equals(parts[0]) ? FileType.DIRECTORY : FileType.FILE;
+			long size = type == FileType.DIRECTORY ? 0 : Long.parseLong(parts[1]);
+			BigDecimal epochSeconds = new BigDecimal(parts[2]);
+			Instant modifiedTime = Instant.ofEpochSecond(epochSeconds.longValue(),
+					epochSeconds.remainder(BigDecimal.ONE).movePointRight(9).longValue());
+			String name = parts[3].substring(parts[3].lastIndexOf('/') + 1);
+			return new FileEntry(name, type, prefix + parts[3], size, modifiedTime);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String stripDot(String path) {
+		return path.startsWith("./") ? path.substring(2) : path;
+	}
+
+	private static <T> Stream<T> results(Process process, String directory, Function<String, T> parser) {
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		Iterator<T> iterator = new Iterator<>() {
+
+			private T next;
+
+			private boolean done;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && !done) {
+					String line;
+					try {
+						line = reader.readLine();
+					}
+					catch (IOException e) {
+						throw new SandboxException("Failed to read search results in " + directory, e);
+					}
+					if (line == null) {
+						done = true;
+						checkExit(process, directory);
+					}
+					else {
+						next = parser.apply(line);
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T result = next;
+				next = null;
+				return result;
+			}
+
+		};
+		return StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(process::destroy);
+	}
+
+	/**
+	 * No match is not an error. Unreadable files are skipped silently, so anything
+	 * printed on stderr means the search itself failed, for example on an invalid regular
+	 * expression.
+	 */
+	private static void checkExit(Process process, String directory) {
+		try {
+			int exitCode = process.waitFor();
+			if (exitCode == NOT_FOUND) {
+				throw new SandboxException("Path does not exist: " + directory);
+			}
+			if (exitCode == NOT_A_DIRECTORY) {
+				throw new SandboxException("Path is not a directory: " + directory);
+			}
+			if (exitCode > 1) {
+				String stderr = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+				if (!stderr.isEmpty()) {
+					throw new SandboxException("Search failed in " + directory + " - " + stderr);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Interrupted while searching " + directory, e);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read search errors in " + directory, e);
+		}
+	}
+
+}
@@ -16,6 +16,10 @@
 package org.springaicommunity.sandbox;
 
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Sandbox interface for executing commands in isolated environments.
@@ -54,6 +58,99 @@ public interface Sandbox extends AutoCloseable {
 	 */
 	ExecResult exec(ExecSpec spec);
 
+	/**
+	 * Execute a command specification and stream its output to a listener while it runs.
+	 *
+	 * <p>
+	 * The listener receives stdout and stderr as they are produced; the returned result
+	 * still contains the complete captured output. Implementations that cannot stream
+	 * natively deliver the output in one chunk per stream once the command has finished,
+	 * which is what this default does.
+	 * </p>
+	 * @param spec the execution specification containing command, environment, etc.
+	 * @param listener receives output chunks as they arrive
+	 * @return the execution result
+	 * @throws SandboxException if execution fails (wraps IOException,
+	 * InterruptedException, TimeoutException)
+	 */
+	default ExecResult exec(ExecSpec spec, OutputListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Output listener cannot be null");
+		}
+		ExecResult result = exec(spec);
+		Instant now = Instant.now();
+		if (result.hasStdout()) {
+			listener.onOutput(new OutputChunk(OutputChunk.Type.STDOUT, result.stdout(), now));
+		}
+		if (result.hasStderr()) {
+			listener.onOutput(new OutputChunk(OutputChunk.Type.STDERR, result.stderr(), now));
+		}
+		return result;
+	}
+
+	/**
+	 * Execute a command specification asynchronously.
+	 *
+	 * <p>
+	 * The returned future completes with the execution result, or exceptionally with the
+	 * {@link SandboxException} that {@link #exec(ExecSpec)} would have thrown. Cancelling
+	 * the future kills the underlying process. Cancellation does not propagate from
+	 * dependent stages, so cancel the returned future itself.
+	 * </p>
+	 *
+	 * <p>
+	 * This default runs {@link #exec(ExecSpec)} on
+	 * {@link SandboxExecutors#defaultExecutor()}; implementations may use a configured
+	 * executor or a non-blocking transport instead.
+	 * </p>
+	 * @param spec the execution specification containing command, environment, etc.
+	 * @return a future completed with the execution result
+	 */
+	default CompletableFuture<ExecResult> execAsync(ExecSpec spec) {
+		return SandboxExecutors.supplyAsync(() -> exec(spec), SandboxExecutors.defaultExecutor());
+	}
+
+	/**
+	 * Execute several commands in order and return one result per command.
+	 * @param specs the commands to execute
+	 * @return the execution results, in the order of {@code specs}
+	 * @throws SandboxException if a command cannot be executed or times out
+	 * @see #execBatch(List, boolean)
+	 */
+	default List<ExecResult> execBatch(List<ExecSpec> specs) {
+		return execBatch(specs, false);
+	}
+
+	/**
+	 * Execute several commands in order and return one result per command, each with its
+	 * own exit code and duration. Behaves like calling {@link #exec(ExecSpec)} for each
+	 * spec in turn.
+	 *
+	 * <p>
+	 * This default does exactly that. Remote implementations override it to run the whole
+	 * batch in a single round trip (see {@link BatchScript}).
+	 * </p>
+	 * @param specs the commands to execute
+	 * @param stopOnFirstFailure whether to stop after the first command that exits with a
+	 * non-zero code; the failed command's result is the last one returned
+	 * @return the results of the commands that ran, in the order of {@code specs}
+	 * @throws SandboxException if a command cannot be executed or times out
+	 */
+	default List<ExecResult> execBatch(List<ExecSpec> specs, boolean stopOnFirstFailure) {
+		if (specs == null || specs.isEmpty()) {
+			throw new IllegalArgumentException("Batch must contain at least one command");
+		}
+		List<ExecResult> results = new ArrayList<>();
+		for (ExecSpec spec : specs) {
+			ExecResult result = exec(spec);
+			results.add(result);
+			if (stopOnFirstFailure && result.failed()) {
+				break;
+			}
+		}
+		return List.copyOf(results);
+	}
+
 	/**
 	 * Start an interactive process in the sandbox without waiting for completion. This is
 	 * used for bidirectional communication where the caller needs access to stdin/stdout
@@ -72,6 +169,60 @@ public interface Sandbox extends AutoCloseable {
 				"Interactive process execution not supported by this sandbox implementation");
 	}
 
+	/**
+	 * Open a long-lived shell session in the sandbox. Commands run through the session
+	 * share one bash process, so the working directory and exported environment persist
+	 * between calls and no process is started per command.
+	 *
+	 * <p>
+	 * This default starts {@code bash} through {@link #startInteractive(ExecSpec)}, so it
+	 * is available wherever interactive processes are supported. The caller must close
+	 * the session.
+	 * </p>
+	 * @return the open session
+	 * @throws SandboxException if the shell fails to start
+	 * @throws UnsupportedOperationException if interactive processes are not supported
+	 * @since 0.9.1
+	 */
+	default ShellSession openSession() {
+		return new ShellSession(startInteractive(ExecSpec.of("bash")));
+	}
+
+	/**
+	 * Save the current state of the sandbox so that new sandboxes can be created from it.
+	 *
+	 * <p>
+	 * Implementations use the cheapest copy their backend offers, such as a copy-on-write
+	 * file copy or a committed container image. The sandbox remains usable and later
+	 * changes to it do not affect the snapshot. The caller must close the snapshot.
+	 * </p>
+	 * @return the snapshot
+	 * @throws SandboxException if the state cannot be saved
+	 * @throws UnsupportedOperationException if snapshots are not supported
+	 * @since 0.9.1
+	 */
+	default SandboxSnapshot snapshot() {
+		throw new UnsupportedOperationException("Snapshots not supported by this sandbox implementation");
+	}
+
+	/**
+	 * Create a new, independent sandbox starting from the current state of this one.
+	 *
+	 * <p>
+	 * This default takes a {@link #snapshot()}, creates one sandbox from it and releases
+	 * the snapshot. To create several copies of the same state, take a snapshot instead.
+	 * </p>
+	 * @return the new sandbox, which the caller must close
+	 * @throws SandboxException if the copy cannot be created
+	 * @throws UnsupportedOperationException if snapshots are not supported
+	 * @since 0.9.1
+	 */
+	default Sandbox fork() {
+		try (SandboxSnapshot snapshot = snapshot()) {
+			return snapshot.newSandbox();
+		}
+	}
+
 	/**
 	 * Get the working directory path within the sandbox.
 	 * @return the sandbox working directory
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executors used by sandbox implementations for asynchronous work such as
+ * {@link Sandbox#execAsync(ExecSpec)}.
+ *
+ * <p>
+ * The {@linkplain #defaultExecutor() default executor} starts a virtual thread per task
+ * when the runtime supports them (Java 21+), so thousands of concurrent blocking
+ * executions do not pin platform threads. On older runtimes it falls back to a cached
+ * pool of daemon threads.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class SandboxExecutors {
+
+	private static final Logger logger = LoggerFactory.getLogger(SandboxExecutors.class);
+
+	private static final ExecutorService DEFAULT_EXECUTOR = createDefaultExecutor();
+
+	private SandboxExecutors() {
+	}
+
+	/**
+	 * Get the shared default executor. The executor is owned by this class and must not
+	 * be shut down.
+	 * @return the shared executor
+	 */
+	public static Executor defaultExecutor() {
+		return DEFAULT_EXECUTOR::execute;
+	}
+
+	/**
+	 * Run a blocking task asynchronously. Unlike
+	 * {@link CompletableFuture#supplyAsync(Supplier, Executor)}, cancelling the returned
+	 * future interrupts the thread running the task, which sandbox implementations treat
+	 * as a request to kill the underlying process.
+	 * @param <T> the result type
+	 * @param task the task to run
+	 * @param executor the executor to run the task on
+	 * @return a future completed with the task result
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+		InterruptibleFuture<T> future = new InterruptibleFuture<>();
+		try {
+			executor.execute(() -> future.run(task));
+		}
+		catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private static ExecutorService createDefaultExecutor() {
+		try {
+			// Resolved reflectively so the library still runs on Java 17
+			ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+				.invoke(null);
+			logger.debug("Using virtual threads for asynchronous sandbox execution");
+			return executor;
+		}
+		catch (ReflectiveOperationException e) {
+			logger.debug("Virtual threads not available, using a cached thread pool for asynchronous execution");
+			return Executors.newCachedThreadPool(new DaemonThreadFactory("agent-sandbox-exec-"));
+		}
+	}
+
+	/**
+	 * Creates daemon threads so that pending sandbox work never keeps the JVM alive.
+	 */
+	static final class DaemonThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+	/**
+	 * Future that interrupts its running task when cancelled.
+	 */
+	private static final class InterruptibleFuture<T> extends CompletableFuture<T> {
+
+		private Thread runner;
+
+		private boolean interrupted;
+
+		void run(Supplier<T> task) {
+			synchronized (this) {
+				if (isDone()) {
+					return;
+				}
+				runner = Thread.currentThread();
+			}
+			try {
+				complete(task.get());
+			}
+			catch (Throwable ex) {
+				completeExceptionally(ex);
+			}
+			finally {
+				synchronized (this) {
+					runner = null;
+					// Do not leak the interrupt of cancel() into the next task on this
+					// thread, but keep interrupts that came from anywhere else
+					if (interrupted) {
+						Thread.interrupted();
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				synchronized (this) {
+					if (runner != null) {
+						interrupted = true;
+						runner.interrupt();
+					}
+				}
+			}
+			return cancelled;
+		}
+
+	}
+
+}
@@ -16,8 +16,24 @@
 
 package org.springaicommunity.sandbox;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Accessor for file operations within a sandbox workspace.
@@ -44,6 +60,14 @@ import java.util.stream.Stream;
  * assertTrue(sandbox.files().exists("target/classes/Main.class"));
  * }</pre>
  *
+ * <p>
+ * {@link #create(String, String)} and {@link #read(String)} handle UTF-8 text. Binary
+ * content such as jars, images or archives is transferred with {@link #readBytes},
+ * {@link #writeBytes}, {@link #copyFrom}, {@link #copyTo} or the streams returned by
+ * {@link #openInputStream} and {@link #openOutputStream}, which do not hold the whole
+ * file in memory.
+ * </p>
+ *
  * @author Mark Pollack
  * @since 0.1.0
  * @see Sandbox#files()
@@ -92,6 +116,315 @@ public interface SandboxFiles {
 	 */
 	String read(String relativePath);
 
+	/**
+	 * Open a file in the sandbox for reading. The content is streamed from the sandbox as
+	 * it is read, so files of any size can be read with constant memory.
+	 *
+	 * <p>
+	 * The caller must close the returned stream.
+	 * </p>
+	 * @param relativePath path relative to the sandbox working directory
+	 * @return a stream of the file's bytes
+	 * @throws SandboxException if the file does not exist or cannot be opened
+	 * @since 0.9.1
+	 */
+	InputStream openInputStream(String relativePath);
+
+	/**
+	 * Open a file in the sandbox for writing, replacing any existing content.
+	 *
+	 * <p>
+	 * Parent directories are created automatically if they don't exist. The written
+	 * content is complete in the sandbox once the stream has been closed; remote
+	 * implementations report transfer failures from {@code write} or {@code close}. The
+	 * caller must close the returned stream.
+	 * </p>
+	 * @param relativePath path relative to the sandbox working directory
+	 * @return a stream writing to the file
+	 * @throws SandboxException if the file cannot be opened
+	 * @since 0.9.1
+	 */
+	OutputStream openOutputStream(String relativePath);
+
+	/**
+	 * Read a file from the sandbox working directory without decoding it.
+	 * @param relativePath path relative to the sandbox working directory
+	 * @return file content
+	 * @throws SandboxException if the file cannot be read
+	 * @since 0.9.1
+	 */
+	default byte[] readBytes(String relativePath) {
+		try (InputStream in = openInputStream(relativePath)) {
+			return in.readAllBytes();
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	/**
+	 * Read part of a file without transferring the rest of it.
+	 * @param relativePath path relative to the sandbox working directory
+	 * @param offset the offset of the first byte to read
+	 * @param length the maximum number of bytes to read
+	 * @return the bytes read, fewer than {@code length} at the end of the file and empty
+	 * if the offset is past it
+	 * @throws SandboxException if the file cannot be read
+	 * @since 0.9.1
+	 */
+	default byte[] readBytes(String relativePath, long offset, int length) {
+		RangeReads.checkBytes(offset, length);
+		try (InputStream in = openInputStream(relativePath)) {
+			in.skipNBytes(offset);
+			return in.readNBytes(length);
+		}
+		catch (EOFException e) {
+			return new byte[0];
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	/**
+	 * Read a range of lines of a text file without transferring the rest of it.
+	 *
+	 * <p>
+	 * Lines are separated by {@code \n} and decoded as UTF-8, without their terminator; a
+	 * trailing {@code \r} is removed as well.
+	 * </p>
+	 * @param relativePath path relative to the sandbox working directory
+	 * @param fromLine the first line to read, starting at 1
+	 * @param toLine the last line to read, inclusive
+	 * @return the lines read, fewer than requested at the end of the file
+	 * @throws SandboxException if the file cannot be read
+	 * @since 0.9.1
+	 */
+	default List<String> readLines(String relativePath, int fromLine, int toLine) {
+		RangeReads.checkLines(fromLine, toLine);
+		try (InputStream in = openInputStream(relativePath)) {
+			return RangeReads.readLines(in, 1, fromLine, toLine);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	/**
+	 * Create a file in the sandbox working directory with binary content.
+	 * <p>
+	 * Parent directories are created automatically if they don't exist.
+	 * </p>
+	 * @param relativePath path relative to the sandbox working directory
+	 * @param content file content
+	 * @return this SandboxFiles for method chaining
+	 * @throws SandboxException if the file cannot be created
+	 * @since 0.9.1
+	 */
+	default SandboxFiles writeBytes(String relativePath, byte[] content) {
+		if (content == null) {
+			throw new IllegalArgumentException("Content cannot be null");
+		}
+		try (OutputStream out = openOutputStream(relativePath)) {
+			out.write(content);
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to create file: " + relativePath, e);
+		}
+	}
+
+	/**
+	 * Copy a file from the host into the sandbox working directory, streaming its
+	 * content.
+	 * <p>
+	 * Parent directories are created automatically if they don't exist.
+	 * </p>
+	 * @param source the host file to copy
+	 * @param relativePath destination path relative to the sandbox working directory
+	 * @return this SandboxFiles for method chaining
+	 * @throws SandboxException if the source cannot be read or the file cannot be created
+	 * @since 0.9.1
+	 */
+	default SandboxFiles copyFrom(Path source, String relativePath) {
+		if (source == null) {
+			throw new IllegalArgumentException("Source path cannot be null");
+		}
+		try (InputStream in = Files.newInputStream(source); OutputStream out = openOutputStream(relativePath)) {
+			in.transferTo(out);
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to copy " + source + " to " + relativePath, e);
+		}
+	}
+
+	/**
+	 * Copy a file from the sandbox working directory to the host, streaming its content.
+	 * <p>
+	 * Parent directories of the target are created automatically and an existing target
+	 * file is replaced.
+	 * </p>
+	 * @param relativePath source path relative to the sandbox working directory
+	 * @param target the host file to write
+	 * @return this SandboxFiles for method chaining
+	 * @throws SandboxException if the file cannot be read or the target cannot be written
+	 * @since 0.9.1
+	 */
+	default SandboxFiles copyTo(String relativePath, Path target) {
+		if (target == null) {
+			throw new IllegalArgumentException("Target path cannot be null");
+		}
+		try (InputStream in = openInputStream(relativePath)) {
+			Path parent = target.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+			Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to copy " + relativePath + " to " + target, e);
+		}
+	}
+
+	/**
+	 * Copy a host directory tree into the sandbox.
+	 * @param hostDir the host directory whose contents are copied
+	 * @param relativePath destination directory relative to the sandbox working
+	 * directory, created if needed
+	 * @return this SandboxFiles for method chaining
+	 * @throws SandboxException if the tree cannot be copied
+	 * @since 0.9.1
+	 * @see #importDirectory(Path, String, Predicate)
+	 */
+	default SandboxFiles importDirectory(Path hostDir, String relativePath) {
+		return importDirectory(hostDir, relativePath, path -> true);
+	}
+
+	/**
+	 * Copy the contents of a host directory tree into the sandbox, merging with and
+	 * overwriting what is already there.
+	 *
+	 * <p>
+	 * The tree is transferred as one streamed archive rather than file by file, so the
+	 * cost depends on the total size of the files rather than their number. Symbolic
+	 * links are copied as links, and executable files stay executable.
+	 * </p>
+	 * @param hostDir the host directory whose contents are copied
+	 * @param relativePath destination directory relative to the sandbox working
+	 * directory, created if needed
+	 * @param filter receives each path relative to {@code hostDir} and returns whether to
+	 * copy it; rejecting a directory skips everything below it
+	 * @return this SandboxFiles for method chaining
+	 * @throws SandboxException if the tree cannot be copied
+	 * @since 0.9.1
+	 */
+	SandboxFiles importDirectory(Path hostDir, String relativePath, Predicate<Path> filter);
+
+	/**
+	 * Write the contents of a sandbox directory tree to a stream as a tar archive. Entry
+	 * names are relative to the exported directory.
+	 *
+	 * <p>
+	 * The archive is streamed as it is produced, so trees of any size can be exported
+	 * with constant memory. The stream is not closed.
+	 * </p>
+	 * @param relativePath directory relative to the sandbox working directory
+	 * @param tarStream the stream to write the archive to
+	 * @return this SandboxFiles for method chaining
+	 * @throws SandboxException if the directory cannot be archived or the stream cannot
+	 * be written
+	 * @since 0.9.1
+	 * @see TarArchives
+	 */
+	SandboxFiles exportDirectory(String relativePath, OutputStream tarStream);
+
+	/**
+	 * Watch a directory for changes and push them to a listener, instead of polling
+	 * {@link #list(String, int)}.
+	 *
+	 * <p>
+	 * Each backend uses its native notification facility, so events arrive shortly after
+	 * the change without repeated listings. The watch is established when this method
+	 * returns: every change made afterwards is reported, or an
+	 * {@link FileEvent.Type#OVERFLOW} event signals that some were lost.
+	 * </p>
+	 * @param relativePath directory relative to the sandbox working directory
+	 * @param recursive whether to also watch all subdirectories, including ones created
+	 * later
+	 * @param listener receives the events
+	 * @return the watch, which the caller must close
+	 * @throws SandboxException if the path is not a directory or the watch cannot be
+	 * established
+	 * @since 0.9.1
+	 */
+	FileWatch watch(String relativePath, boolean recursive, FileWatchListener listener);
+
+	/**
+	 * Make a sandbox directory reflect a host directory, copying only what changed.
+	 *
+	 * <p>
+	 * Files are compared by SHA-256 content hash. Files missing or different in the
+	 * sandbox are copied in one transfer, and files deleted on the host since the
+	 * previous sync of the same directory are deleted in the sandbox. Files that only
+	 * exist in the sandbox, such as build output, are left alone. The hashes of the last
+	 * sync are kept, so syncing an unchanged tree again costs a single call to the
+	 * sandbox. Only regular files are synced.
+	 * </p>
+	 * @param hostDir the host directory
+	 * @param targetDir the directory relative to the sandbox working directory, created
+	 * if needed
+	 * @return the files added, updated and deleted
+	 * @throws SandboxException if the directories cannot be compared or the changes
+	 * cannot be applied
+	 * @since 0.9.1
+	 * @see DirectorySync
+	 */
+	SyncResult sync(Path hostDir, String targetDir);
+
+	/**
+	 * Find regular files by name without listing the tree.
+	 *
+	 * <p>
+	 * The search runs as a single process in the sandbox and results are streamed as they
+	 * are found. The stream must be closed, for example with try-with-resources; closing
+	 * it early stops the search. Hidden files are included and symbolic links are not
+	 * followed.
+	 * </p>
+	 * @param relativePath directory relative to the sandbox working directory
+	 * @param globs file name globs such as {@code *.java}, any of which must match; empty
+	 * to match all files
+	 * @param maxDepth the maximum depth, 1 for the files directly in the directory
+	 * @return the paths relative to the directory, using {@code /} separators
+	 * @throws SandboxException if the search fails, possibly only when the stream is
+	 * consumed
+	 * @since 0.9.1
+	 */
+	Stream<String> find(String relativePath, List<String> globs, int maxDepth);
+
+	/**
+	 * Search the content of files without reading them over the wire.
+	 *
+	 * <p>
+	 * The search runs as a single process in the sandbox, with ripgrep when it is
+	 * available, and matching lines are streamed as they are found. The stream must be
+	 * closed, for example with try-with-resources; closing it early stops the search.
+	 * Binary files are skipped. The regular expression dialect depends on the backend, so
+	 * stick to syntax common to Java, ripgrep and POSIX extended regular expressions.
+	 * </p>
+	 * @param relativePath directory relative to the sandbox working directory
+	 * @param regex the regular expression, matched anywhere in a line
+	 * @param globs file name globs such as {@code *.java}, any of which must match; empty
+	 * to search all files
+	 * @param maxMatches the maximum number of matches to return
+	 * @return the matching lines, with paths relative to the directory
+	 * @throws SandboxException if the search fails, possibly only when the stream is
+	 * consumed
+	 * @since 0.9.1
+	 */
+	Stream<GrepMatch> grep(String relativePath, String regex, List<String> globs, int maxMatches);
+
 	/**
 	 * Check if a file or directory exists in the sandbox.
 	 * @param relativePath path relative to the sandbox working directory
@@ -99,6 +432,33 @@ public interface SandboxFiles {
 	 */
 	boolean exists(String relativePath);
 
+	/**
+	 * Get the type, size and modification time of a file or directory without listing its
+	 * parent.
+	 * @param relativePath path relative to the sandbox working directory
+	 * @return the entry, with {@link FileEntry#path()} set to {@code relativePath}, or
+	 * empty if nothing exists at the path
+	 * @throws SandboxException if the path cannot be inspected
+	 * @since 0.9.1
+	 */
+	Optional<FileEntry> stat(String relativePath);
+
+	/**
+	 * Get the entries of many paths at once. Remote implementations inspect the whole
+	 * batch in a single round trip instead of one per path.
+	 * @param relativePaths paths relative to the sandbox working directory
+	 * @return the entries of the paths that exist, keyed by path in the order requested
+	 * @throws SandboxException if the paths cannot be inspected
+	 * @since 0.9.1
+	 */
+	default Map<String, FileEntry> statAll(List<String> relativePaths) {
+		Map<String, FileEntry> entries = new LinkedHashMap<>();
+		for (String relativePath : relativePaths) {
+			stat(relativePath).ifPresent(entry -> entries.put(relativePath, entry));
+		}
+		return entries;
+	}
+
 	/**
 	 * List files and directories at the specified path.
 	 * <p>
@@ -120,6 +480,68 @@ public interface SandboxFiles {
 	 */
 	List<FileEntry> list(String relativePath, int maxDepth);
 
+	/**
+	 * List files and directories lazily, for trees too large to hold in memory.
+	 *
+	 * <p>
+	 * Unlike {@link #list(String, int)}, entries are produced while the tree is being
+	 * traversed and are not sorted; a directory is returned before its contents. The
+	 * stream must be closed, for example with try-with-resources; closing it early, or
+	 * short-circuiting with operations such as {@link Stream#limit(long)}, stops the
+	 * traversal.
+	 * </p>
+	 * @param relativePath directory relative to the sandbox working directory
+	 * @param maxDepth maximum depth to traverse (1 for immediate children only)
+	 * @return the entries, with paths relative to the sandbox working directory as in
+	 * {@link #list(String, int)}
+	 * @throws SandboxException if the path does not exist or is not a directory, possibly
+	 * only when the stream is consumed
+	 * @throws IllegalArgumentException if {@code maxDepth} is less than 1
+	 * @since 0.9.1
+	 */
+	Stream<FileEntry> walk(String relativePath, int maxDepth);
+
+	/**
+	 * List files and directories lazily in pages of at most {@code pageSize} entries, for
+	 * callers that process or forward a listing in batches.
+	 * @param relativePath directory relative to the sandbox working directory
+	 * @param maxDepth maximum depth to traverse (1 for immediate children only)
+	 * @param pageSize the maximum number of entries per page
+	 * @return the pages, none of them empty, which the caller must close
+	 * @throws SandboxException if the path does not exist or is not a directory, possibly
+	 * only when the stream is consumed
+	 * @since 0.9.1
+	 * @see #walk(String, int)
+	 */
+	default Stream<List<FileEntry>> walkPages(String relativePath, int maxDepth, int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be at least 1");
+		}
+		Stream<FileEntry> entries = walk(relativePath, maxDepth);
+		Iterator<FileEntry> iterator = entries.iterator();
+		Iterator<List<FileEntry>> pages = new Iterator<>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public List<FileEntry> next() {
+				List<FileEntry> page = new ArrayList<>(Math.min(pageSize, 1024));
+				do {
+					page.add(iterator.next());
+				}
+				while (page.size() < pageSize && iterator.hasNext());
+				return page;
+			}
+
+		};
+		return StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(entries::close);
+	}
+
 	/**
 	 * Delete a file or empty directory.
 	 * <p>
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures sandbox operations and reports them to a {@link SandboxMetrics} listener.
+ *
+ * <p>
+ * Sandbox implementations create one meter for their backend and route each public
+ * operation through it. When the listener is {@link SandboxMetrics#NOOP} the operations
+ * run without any measuring overhead, and {@link #files(SandboxFiles)} returns the files
+ * accessor unchanged.
+ * </p>
+ *
+ * <p>
+ * Commands that library code runs on a sandbox for its own purposes, such as the
+ * workspace reset of a {@link SandboxPool}, are wrapped in {@link #internal(Supplier)}
+ * and reported as {@link SandboxMetrics#EXEC_INTERNAL} so that they can be told apart
+ * from the caller's own commands. Helper commands that sandbox implementations run for
+ * {@link SandboxFiles} operations do not go through the meter at all; they are part of
+ * the measured file operation.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class SandboxMeter {
+
+	private static final Logger logger = LoggerFactory.getLogger(SandboxMeter.class);
+
+	private static final ThreadLocal<Boolean> INTERNAL = ThreadLocal.withInitial(() -> false);
+
+	private final SandboxMetrics metrics;
+
+	private final String backend;
+
+	/**
+	 * Create a meter.
+	 * @param metrics the listener receiving events, may be {@code null} for none
+	 * @param backend the backend name reported in events
+	 */
+	public SandboxMeter(SandboxMetrics metrics, String backend) {
+		this.metrics = (metrics != null) ? metrics : SandboxMetrics.NOOP;
+		this.backend = backend;
+	}
+
+	/**
+	 * Whether events are recorded.
+	 * @return false if the listener is {@link SandboxMetrics#NOOP}
+	 */
+	public boolean isEnabled() {
+		return metrics != SandboxMetrics.NOOP;
+	}
+
+	/**
+	 * Run an action whose command executions on the current thread are reported as
+	 * {@link SandboxMetrics#EXEC_INTERNAL} rather than {@link SandboxMetrics#EXEC}.
+	 * @param <T> the result type
+	 * @param action the action running internal commands
+	 * @return the result of the action
+	 */
+	public static <T> T internal(Supplier<T> action) {
+		boolean outer = INTERNAL.get();
+		INTERNAL.set(true);
+		try {
+			return action.get();
+		}
+		finally {
+			INTERNAL.set(outer);
+		}
+	}
+
+	/**
+	 * Run and measure a command execution.
+	 * @param spec the executed command, whose command line and environment are reported
+	 * as the bytes sent into the sandbox
+	 * @param execution the execution
+	 * @return the execution result
+	 */
+	public ExecResult exec(ExecSpec spec, Supplier<ExecResult> execution) {
+		return measure(execOperation(), requestBytes(spec), execution, SandboxMeter::outputBytes, ExecResult::exitCode);
+	}
+
+	/**
+	 * Run and measure a batch executed in one round trip. The reported exit code is that
+	 * of the last command that ran.
+	 * @param specs the commands of the batch
+	 * @param execution the batch execution
+	 * @return the execution results
+	 */
+	public List<ExecResult> execBatch(List<ExecSpec> specs, Supplier<List<ExecResult>> execution) {
+		long bytesIn = (specs != null) ? specs.stream().mapToLong(SandboxMeter::requestBytes).sum() : 0;
+		return measure(SandboxMetrics.EXEC_BATCH, bytesIn, execution,
+				results -> results.stream().mapToLong(SandboxMeter::outputBytes).sum(),
+				results -> results.isEmpty() ? null : results.get(results.size() - 1).exitCode());
+	}
+
+	/**
+	 * Measure an asynchronous command execution from the call until the returned future
+	 * completes.
+	 * @param spec the executed command
+	 * @param execution starts the execution
+	 * @return the future returned by {@code execution}
+	 */
+	public CompletableFuture<ExecResult> execAsync(ExecSpec spec, Supplier<CompletableFuture<ExecResult>> execution) {
+		if (!isEnabled()) {
+			return execution.get();
+		}
+		String operation = execOperation();
+		long bytesIn = requestBytes(spec);
+		long start = System.nanoTime();
+		CompletableFuture<ExecResult> future;
+		try {
+			future = execution.get();
+		}
+		catch (RuntimeException e) {
+			report(operation, start, bytesIn, 0, null, e);
+			throw e;
+		}
+		future.whenComplete((result, error) -> {
+			if (error == null) {
+				report(operation, start, bytesIn, outputBytes(result), result.exitCode(), null);
+			}
+			else {
+				report(operation, start, bytesIn, 0, null, error);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Run and measure the start of an interactive process.
+	 * @param spec the started command
+	 * @param start starts the process
+	 * @return the started process
+	 */
+	public Process startInteractive(ExecSpec spec, Supplier<Process> start) {
+		return measure(SandboxMetrics.START_INTERACTIVE, requestBytes(spec), start, process -> 0, process -> null);
+	}
+
+	/**
+	 * Run and measure taking a snapshot.
+	 * @param snapshot takes the snapshot
+	 * @return the snapshot
+	 */
+	public SandboxSnapshot snapshot(Supplier<SandboxSnapshot> snapshot) {
+		return measure(SandboxMetrics.SNAPSHOT, 0, snapshot, result -> 0);
+	}
+
+	/**
+	 * Run and measure forking a sandbox.
+	 * @param fork creates the copy
+	 * @return the new sandbox
+	 */
+	public Sandbox fork(Supplier<Sandbox> fork) {
+		return measure(SandboxMetrics.FORK, 0, fork, result -> 0);
+	}
+
+	/**
+	 * Wrap a files accessor so that each of its operations is measured.
+	 * @param files the files accessor of the sandbox
+	 * @return a measuring accessor, or {@code files} itself if metrics are disabled
+	 */
+	public SandboxFiles files(SandboxFiles files) {
+		return isEnabled() ? new MeteredSandboxFiles(files, this) : files;
+	}
+
+	/**
+	 * Run and measure an operation that is not a command execution.
+	 * @param <T> the result type
+	 * @param operation the operation name
+	 * @param bytesIn bytes sent into the sandbox
+	 * @param action the operation
+	 * @param bytesOut computes the bytes returned from the sandbox from the result
+	 * @return the result of the operation
+	 */
+	public <T> T measure(String operation, long bytesIn, Supplier<T> action, ToLongFunction<? super T> bytesOut) {
+		return measure(operation, bytesIn, action, bytesOut, result -> null);
+	}
+
+	private <T> T measure(String operation, long bytesIn, Supplier<T> action, ToLongFunction<? super T> bytesOut,
+			Function<? super T, Integer> exitCode) {
+		if (!isEnabled()) {
+			return action.get();
+		}
+		long start = System.nanoTime();
+		T result;
+		try {
+			result = action.get();
+		}
+		catch (RuntimeException e) {
+			report(operation, start, bytesIn, 0, null, e);
+			throw e;
+		}
+		report(operation, start, bytesIn, bytesOut.applyAsLong(result), exitCode.apply(result), null);
+		return result;
+	}
+
+	private void report(String operation, long start, long bytesIn, long bytesOut, Integer exitCode, Throwable error) {
+		Duration latency = Duration.ofNanos(System.nanoTime() - start);
+		try {
+			metrics.record(new SandboxMetrics.Event(backend, operation, latency, bytesIn, bytesOut, exitCode,
+					exceptionType(error)));
+		}
+		catch (RuntimeException e) {
+			logger.warn("Sandbox metrics listener failed for {}", operation, e);
+		}
+	}
+
+	private static String exceptionType(Throwable error) {
+		if (error == null) {
+			return null;
+		}
+		Throwable cause = error;
+		while ((cause instanceof CompletionException || cause instanceof SandboxException)
+				&& cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause.getClass().getName();
+	}
+
+	private static String execOperation() {
+		return INTERNAL.get() ? SandboxMetrics.EXEC_INTERNAL : SandboxMetrics.EXEC;
+	}
+
+	/**
+	 * Bytes sent into the sandbox to start a command: its arguments and environment.
+	 * Commands have no stdin, so this is all of their input.
+	 */
+	private static long requestBytes(ExecSpec spec) {
+		if (spec == null) {
+			return 0;
+		}
+		long bytes = 0;
+		for (String arg : spec.command()) {
+			bytes += ExecResult.utf8Length(arg);
+		}
+		for (Map.Entry<String, String> entry : spec.env().entrySet()) {
+			bytes += ExecResult.utf8Length(entry.getKey()) + ExecResult.utf8Length(entry.getValue());
+		}
+		return bytes;
+	}
+
+	private static long outputBytes(ExecResult result) {
+		return result.stdoutBytes() + result.stderrBytes();
+	}
+
+}
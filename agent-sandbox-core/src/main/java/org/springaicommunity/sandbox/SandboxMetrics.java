@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Duration;
+
+/**
+ * Listener for sandbox operation metrics.
+ *
+ * <p>
+ * Sandboxes built with a metrics listener report one {@link Event} per command execution,
+ * interactive process start and {@link SandboxFiles} operation, whether it succeeded or
+ * failed. Events are delivered synchronously on the thread that ran the operation (or
+ * completed it, for asynchronous execution), so implementations should be fast and
+ * thread-safe; exceptions they throw are logged and otherwise ignored.
+ * </p>
+ *
+ * <p>
+ * The interface has no dependencies so that it can be bridged to any metrics library. For
+ * example, with Micrometer:
+ * </p>
+ *
+ * <pre>{@code
+ * SandboxMetrics metrics = event -> Timer.builder("sandbox.operation")
+ *     .tag("backend", event.backend())
+ *     .tag("operation", event.operation())
+ *     .tag("exception", String.valueOf(event.exceptionType()))
+ *     .register(registry)
+ *     .record(event.latency());
+ *
+ * Sandbox sandbox = DockerSandbox.builder().metrics(metrics).build();
+ * }</pre>
+ *
+ * @see SandboxMeter
+ * @since 0.9.1
+ */
+@FunctionalInterface
+public interface SandboxMetrics {
+
+	/** Operation name for {@link Sandbox#exec(ExecSpec)} and its variants. */
+	String EXEC = "exec";
+
+	/**
+	 * Operation name for commands that library code such as {@link SandboxPool} runs for
+	 * its own purposes; see {@link SandboxMeter#internal(java.util.function.Supplier)}.
+	 */
+	String EXEC_INTERNAL = "exec.internal";
+
+	/** Operation name for a batch run in one round trip by {@link Sandbox#execBatch}. */
+	String EXEC_BATCH = "execBatch";
+
+	/** Operation name for {@link Sandbox#startInteractive(ExecSpec)}. */
+	String START_INTERACTIVE = "startInteractive";
+
+	/** Operation name for {@link Sandbox#snapshot()}. */
+	String SNAPSHOT = "snapshot";
+
+	/** Operation name for {@link Sandbox#fork()}. */
+	String FORK = "fork";
+
+	/** Operation name for {@link SandboxFiles#create(String, String)}. */
+	String FILES_CREATE = "files.create";
+
+	/** Operation name for {@link SandboxFiles#createDirectory(String)}. */
+	String FILES_CREATE_DIRECTORY = "files.createDirectory";
+
+	/** Operation name for {@link SandboxFiles#setup(java.util.List)}. */
+	String FILES_SETUP = "files.setup";
+
+	/** Operation name for {@link SandboxFiles#read(String)}. */
+	String FILES_READ = "files.read";
+
+	/** Operation name for {@link SandboxFiles#readBytes(String)}. */
+	String FILES_READ_BYTES = "files.readBytes";
+
+	/** Operation name for {@link SandboxFiles#readBytes(String, long, int)}. */
+	String FILES_READ_RANGE = "files.readRange";
+
+	/** Operation name for {@link SandboxFiles#readLines(String, int, int)}. */
+	String FILES_READ_LINES = "files.readLines";
+
+	/** Operation name for {@link SandboxFiles#writeBytes(String, byte[])}. */
+	String FILES_WRITE_BYTES = "files.writeBytes";
+
+	/**
+	 * Operation name for {@link SandboxFiles#openInputStream(String)}; measures opening
+	 * the stream only.
+	 */
+	String FILES_OPEN_INPUT_STREAM = "files.openInputStream";
+
+	/**
+	 * Operation name for {@link SandboxFiles#openOutputStream(String)}; measures opening
+	 * the stream only.
+	 */
+	String FILES_OPEN_OUTPUT_STREAM = "files.openOutputStream";
+
+	/** Operation name for {@link SandboxFiles#copyFrom(java.nio.file.Path, String)}. */
+	String FILES_COPY_FROM = "files.copyFrom";
+
+	/** Operation name for {@link SandboxFiles#copyTo(String, java.nio.file.Path)}. */
+	String FILES_COPY_TO = "files.copyTo";
+
+	/**
+	 * Operation name for
+	 * {@link SandboxFiles#importDirectory(java.nio.file.Path, String, java.util.function.Predicate)}.
+	 */
+	String FILES_IMPORT_DIRECTORY = "files.importDirectory";
+
+	/**
+	 * Operation name for
+	 * {@link SandboxFiles#exportDirectory(String, java.io.OutputStream)}.
+	 */
+	String FILES_EXPORT_DIRECTORY = "files.exportDirectory";
+
+	/**
+	 * Operation name for {@link SandboxFiles#watch(String, boolean, FileWatchListener)};
+	 * measures starting the watch.
+	 */
+	String FILES_WATCH = "files.watch";
+
+	/** Operation name for {@link SandboxFiles#sync(java.nio.file.Path, String)}. */
+	String FILES_SYNC = "files.sync";
+
+	/**
+	 * Operation name for {@link SandboxFiles#find(String, java.util.List, int)}; measures
+	 * starting the search.
+	 */
+	String FILES_FIND = "files.find";
+
+	/**
+	 * Operation name for {@link SandboxFiles#grep(String, String, java.util.List, int)};
+	 * measures starting the search.
+	 */
+	String FILES_GREP = "files.grep";
+
+	/** Operation name for {@link SandboxFiles#exists(String)}. */
+	String FILES_EXISTS = "files.exists";
+
+	/** Operation name for {@link SandboxFiles#stat(String)}. */
+	String FILES_STAT = "files.stat";
+
+	/** Operation name for {@link SandboxFiles#statAll(java.util.List)}. */
+	String FILES_STAT_ALL = "files.statAll";
+
+	/** Operation name for {@link SandboxFiles#list(String, int)}. */
+	String FILES_LIST = "files.list";
+
+	/**
+	 * Operation name for {@link SandboxFiles#walk(String, int)}; measures starting the
+	 * traversal.
+	 */
+	String FILES_WALK = "files.walk";
+
+	/** Operation name for {@link SandboxFiles#delete(String, boolean)}. */
+	String FILES_DELETE = "files.delete";
+
+	/**
+	 * Listener that discards all events. Sandboxes use it when no listener is configured,
+	 * and skip measuring entirely.
+	 */
+	SandboxMetrics NOOP = event -> {
+	};
+
+	/**
+	 * Record a completed operation.
+	 * @param event the operation measurement
+	 */
+	void record(Event event);
+
+	/**
+	 * Measurement of one sandbox operation.
+	 *
+	 * @param backend the sandbox implementation, such as {@code local}, {@code docker} or
+	 * {@code e2b}
+	 * @param operation the operation name, one of the constants of {@link SandboxMetrics}
+	 * @param latency wall-clock time of the operation
+	 * @param bytesIn bytes sent into the sandbox, such as file content written or the
+	 * command line and environment of an execution
+	 * @param bytesOut bytes returned from the sandbox, such as command output (before any
+	 * output limit is applied) or file content read
+	 * @param exitCode the exit code of an execution, or {@code null} for other operations
+	 * and failed executions
+	 * @param exceptionType the class name of the failure, or {@code null} if the
+	 * operation succeeded; for a {@link SandboxException} with a cause this is the cause,
+	 * so that timeouts and I/O errors can be told apart
+	 */
+	record Event(String backend, String operation, Duration latency, long bytesIn, long bytesOut, Integer exitCode,
+			String exceptionType) {
+
+		/**
+		 * Whether the operation threw an exception. A command that ran but exited with a
+		 * non-zero code is not a failure in this sense.
+		 * @return true if the operation failed
+		 */
+		public boolean failed() {
+			return exceptionType != null;
+		}
+
+	}
+
+}
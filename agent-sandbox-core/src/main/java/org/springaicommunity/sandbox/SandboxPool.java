@@ -0,0 +1,528 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of pre-created sandboxes, for workloads where sandbox startup (starting a
+ * container, booting a VM) would otherwise dominate the latency of each task.
+ *
+ * <p>
+ * The pool creates its sandboxes in the background from a factory as soon as it is built,
+ * so it works with any implementation. {@link #acquire(Duration)} hands out an idle
+ * sandbox, waiting for one to be released if all are in use. {@link #release(Sandbox)}
+ * resets the workspace (deleting everything in the working directory with a single
+ * command and recreating the pool's initial files) before the sandbox is handed out
+ * again:
+ * </p>
+ *
+ * <pre>{@code
+ * try (SandboxPool pool = SandboxPool.builder(() -> DockerSandbox.builder().build())
+ *         .size(4)
+ *         .withFile("pom.xml", pomContent)
+ *         .build()) {
+ *     Sandbox sandbox = pool.acquire(Duration.ofSeconds(30));
+ *     try {
+ *         sandbox.exec(ExecSpec.of("mvn", "compile"));
+ *     }
+ *     finally {
+ *         pool.release(sandbox);
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>
+ * Idle sandboxes are checked periodically, and sandboxes that fail the health check, fail
+ * to reset, or were closed by the caller are replaced with new ones. Only the workspace
+ * is reset; processes started by a previous user and state outside the working directory
+ * survive a release. Closing the pool closes every sandbox, including those still in use.
+ * Health checks and resets are reported to a sandbox's {@link SandboxMetrics} as
+ * {@link SandboxMetrics#EXEC_INTERNAL} rather than as executions of the caller.
+ * </p>
+ *
+ * <p>
+ * Because a reset deletes the whole working directory, the pool refuses sandboxes whose
+ * working directory belongs to the caller, that is sandboxes that do not
+ * {@linkplain Sandbox#shouldCleanupOnClose() clean up on close}, such as a
+ * {@link LocalSandbox} built with an explicit working directory.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class SandboxPool implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SandboxPool.class);
+
+	private static final ExecSpec HEALTH_CHECK_COMMAND = ExecSpec.builder()
+		.command("true")
+		.timeout(Duration.ofSeconds(10))
+		.build();
+
+	/**
+	 * Command that empties the working directory when a sandbox is released.
+	 */
+	public static final ExecSpec DEFAULT_RESET_COMMAND = ExecSpec.builder()
+		.command("bash", "-c", "find . -mindepth 1 -delete")
+		.timeout(Duration.ofMinutes(2))
+		.build();
+
+	private final Supplier<? extends Sandbox> factory;
+
+	private final int size;
+
+	private final List<FileSpec> initialFiles;
+
+	private final Predicate<Sandbox> healthCheck;
+
+	private final ExecSpec resetCommand;
+
+	private final LinkedBlockingDeque<Sandbox> idle = new LinkedBlockingDeque<>();
+
+	private final Set<Sandbox> leased = ConcurrentHashMap.newKeySet();
+
+	private final ScheduledExecutorService scheduler;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong timeouts = new AtomicLong();
+
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	private final AtomicLong replaced = new AtomicLong();
+
+	private final AtomicLong creationFailures = new AtomicLong();
+
+	// Sandboxes that exist or are being created or reset; guarded by this
+	private int allocated;
+
+	private volatile boolean closed;
+
+	private SandboxPool(Builder builder) {
+		this.factory = builder.factory;
+		this.size = builder.size;
+		this.initialFiles = List.copyOf(builder.initialFiles);
+		this.healthCheck = builder.healthCheck;
+		this.resetCommand = builder.resetCommand;
+		this.scheduler = Executors
+			.newSingleThreadScheduledExecutor(new SandboxExecutors.DaemonThreadFactory("agent-sandbox-pool-"));
+		long interval = builder.healthCheckInterval.toMillis();
+		this.scheduler.scheduleWithFixedDelay(this::checkIdle, interval, interval, TimeUnit.MILLISECONDS);
+		replenish();
+	}
+
+	/**
+	 * Create a builder for a pool of sandboxes created by the given factory.
+	 * @param factory creates new sandboxes, for example
+	 * {@code () -> DockerSandbox.builder().build()}
+	 * @return a new builder
+	 */
+	public static Builder builder(Supplier<? extends Sandbox> factory) {
+		return new Builder(factory);
+	}
+
+	/**
+	 * Take an idle sandbox from the pool, waiting until one is available.
+	 * @param timeout maximum time to wait
+	 * @return a sandbox that must be handed back with {@link #release(Sandbox)}
+	 * @throws SandboxException wrapping a {@link TimeoutException} if no sandbox becomes
+	 * available in time
+	 * @throws IllegalStateException if the pool is closed
+	 */
+	public Sandbox acquire(Duration timeout) {
+		if (timeout == null || timeout.isNegative()) {
+			throw new IllegalArgumentException("Timeout must not be null or negative");
+		}
+		if (closed) {
+			throw new IllegalStateException("Sandbox pool is closed");
+		}
+		long start = System.nanoTime();
+		Sandbox sandbox = idle.pollFirst();
+		if (sandbox != null) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+			try {
+				sandbox = idle.pollFirst(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SandboxException("Interrupted while waiting for a sandbox", e);
+			}
+		}
+		long waited = System.nanoTime() - start;
+		totalWaitNanos.addAndGet(waited);
+		maxWaitNanos.accumulateAndGet(waited, Math::max);
+		if (sandbox == null) {
+			timeouts.incrementAndGet();
+			throw new SandboxException("No sandbox available within " + timeout,
+					new TimeoutException("Timed out waiting for a pooled sandbox", timeout));
+		}
+		leased.add(sandbox);
+		if (closed) {
+			// Raced with close(); make sure the sandbox does not escape
+			release(sandbox);
+			throw new IllegalStateException("Sandbox pool is closed");
+		}
+		return sandbox;
+	}
+
+	/**
+	 * Return a sandbox to the pool. Its workspace is reset in the background, after which
+	 * it can be acquired again. A sandbox that has been closed, or cannot be reset, is
+	 * discarded and replaced.
+	 * @param sandbox a sandbox obtained from {@link #acquire(Duration)}
+	 * @throws IllegalArgumentException if the sandbox is not currently leased from this
+	 * pool; releasing after the pool has been closed is a no-op
+	 */
+	public void release(Sandbox sandbox) {
+		if (sandbox == null) {
+			throw new IllegalArgumentException("Sandbox cannot be null");
+		}
+		if (!leased.remove(sandbox)) {
+			if (closed) {
+				// close() has already closed every leased sandbox
+				return;
+			}
+			throw new IllegalArgumentException("Sandbox was not acquired from this pool");
+		}
+		SandboxExecutors.defaultExecutor().execute(() -> {
+			if (closed) {
+				discard(sandbox);
+				return;
+			}
+			try {
+				if (sandbox.isClosed()) {
+					throw new SandboxException("Sandbox was closed while in use");
+				}
+				reset(sandbox);
+				idle.offerLast(sandbox);
+				if (closed && idle.remove(sandbox)) {
+					discard(sandbox);
+				}
+			}
+			catch (RuntimeException e) {
+				logger.warn("Replacing pooled sandbox that could not be reset", e);
+				replace(sandbox);
+			}
+		});
+	}
+
+	/**
+	 * Get a snapshot of the pool counters.
+	 * @return the current statistics
+	 */
+	public Stats stats() {
+		long acquired = hits.get() + misses.get();
+		return new Stats(size, idle.size(), leased.size(), hits.get(), misses.get(), timeouts.get(),
+				Duration.ofNanos(acquired > 0 ? totalWaitNanos.get() / acquired : 0),
+				Duration.ofNanos(maxWaitNanos.get()), replaced.get(), creationFailures.get());
+	}
+
+	/**
+	 * Check whether this pool has been closed.
+	 * @return true if closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Close the pool and every sandbox it created, including sandboxes still in use.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		scheduler.shutdownNow();
+		List<Sandbox> sandboxes = new ArrayList<>(leased);
+		leased.clear();
+		idle.drainTo(sandboxes);
+		sandboxes.forEach(this::discard);
+	}
+
+	private void reset(Sandbox sandbox) {
+		// One command rather than one delete per entry, which is a round trip each on
+		// remote sandboxes
+		ExecResult result = SandboxMeter.internal(() -> sandbox.exec(resetCommand));
+		if (result.failed()) {
+			throw new SandboxException("Failed to reset workspace: " + result.stderr());
+		}
+		if (!initialFiles.isEmpty()) {
+			sandbox.files().setup(initialFiles);
+		}
+	}
+
+	/**
+	 * Check idle sandboxes one at a time, replacing the unhealthy ones, and retry any
+	 * creations that failed earlier.
+	 */
+	private void checkIdle() {
+		for (Sandbox sandbox : new ArrayList<>(idle)) {
+			if (closed) {
+				return;
+			}
+			// Only check sandboxes that have not been acquired in the meantime
+			if (!idle.remove(sandbox)) {
+				continue;
+			}
+			if (isHealthy(sandbox)) {
+				idle.offerLast(sandbox);
+			}
+			else {
+				logger.warn("Replacing unhealthy pooled sandbox {}", sandbox);
+				replace(sandbox);
+			}
+		}
+		replenish();
+	}
+
+	private boolean isHealthy(Sandbox sandbox) {
+		try {
+			return !sandbox.isClosed() && SandboxMeter.internal(() -> healthCheck.test(sandbox));
+		}
+		catch (RuntimeException e) {
+			logger.debug("Health check of pooled sandbox failed", e);
+			return false;
+		}
+	}
+
+	private void replace(Sandbox sandbox) {
+		replaced.incrementAndGet();
+		synchronized (this) {
+			allocated--;
+		}
+		discard(sandbox);
+		replenish();
+	}
+
+	/**
+	 * Start creating sandboxes until the pool is back at its configured size.
+	 */
+	private void replenish() {
+		int missing;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			missing = size - allocated;
+			allocated += Math.max(missing, 0);
+		}
+		for (int i = 0; i < missing; i++) {
+			SandboxExecutors.defaultExecutor().execute(this::create);
+		}
+	}
+
+	private void create() {
+		Sandbox sandbox;
+		try {
+			sandbox = factory.get();
+			if (!sandbox.shouldCleanupOnClose()) {
+				discard(sandbox);
+				throw new IllegalStateException("Refusing to pool " + sandbox
+						+ ": its working directory belongs to the caller and would be emptied on every release");
+			}
+			if (!initialFiles.isEmpty()) {
+				sandbox.files().setup(initialFiles);
+			}
+		}
+		catch (RuntimeException e) {
+			// The next health check round retries the creation
+			creationFailures.incrementAndGet();
+			synchronized (this) {
+				allocated--;
+			}
+			logger.warn("Failed to create pooled sandbox", e);
+			return;
+		}
+		idle.offerLast(sandbox);
+		if (closed && idle.remove(sandbox)) {
+			discard(sandbox);
+		}
+	}
+
+	private void discard(Sandbox sandbox) {
+		try {
+			sandbox.close();
+		}
+		catch (RuntimeException e) {
+			logger.warn("Failed to close pooled sandbox", e);
+		}
+	}
+
+	/**
+	 * Snapshot of pool counters.
+	 *
+	 * @param size the configured number of sandboxes
+	 * @param idle sandboxes ready to be acquired
+	 * @param inUse sandboxes currently acquired
+	 * @param hits acquisitions served immediately by an idle sandbox
+	 * @param misses acquisitions that had to wait
+	 * @param timeouts acquisitions that gave up waiting
+	 * @param averageWait mean time spent in {@link SandboxPool#acquire(Duration)}
+	 * @param maxWait longest time spent in {@link SandboxPool#acquire(Duration)}
+	 * @param replaced sandboxes discarded and replaced because they were unhealthy,
+	 * closed or could not be reset
+	 * @param creationFailures sandbox creations that failed
+	 */
+	public record Stats(int size, int idle, int inUse, long hits, long misses, long timeouts, Duration averageWait,
+			Duration maxWait, long replaced, long creationFailures) {
+
+		/**
+		 * Fraction of acquisitions served without waiting.
+		 * @return the hit rate between 0 and 1, or 0 if nothing has been acquired yet
+		 */
+		public double hitRate() {
+			long acquisitions = hits + misses;
+			return acquisitions > 0 ? (double) hits / acquisitions : 0;
+		}
+
+	}
+
+	/**
+	 * Builder for {@link SandboxPool}.
+	 */
+	public static final class Builder {
+
+		private final Supplier<? extends Sandbox> factory;
+
+		private int size = 2;
+
+		private final List<FileSpec> initialFiles = new ArrayList<>();
+
+		private Predicate<Sandbox> healthCheck = sandbox -> sandbox.exec(HEALTH_CHECK_COMMAND).success();
+
+		private Duration healthCheckInterval = Duration.ofSeconds(30);
+
+		private ExecSpec resetCommand = DEFAULT_RESET_COMMAND;
+
+		private Builder(Supplier<? extends Sandbox> factory) {
+			if (factory == null) {
+				throw new IllegalArgumentException("Sandbox factory cannot be null");
+			}
+			this.factory = factory;
+		}
+
+		/**
+		 * Set the number of sandboxes kept by the pool (default 2).
+		 * @param size the pool size, at least 1
+		 * @return this builder
+		 */
+		public Builder size(int size) {
+			if (size < 1) {
+				throw new IllegalArgumentException("Pool size must be at least 1");
+			}
+			this.size = size;
+			return this;
+		}
+
+		/**
+		 * Add a file created in every sandbox when it joins the pool and after each
+		 * reset.
+		 * @param path relative path within the sandbox
+		 * @param content file content
+		 * @return this builder
+		 */
+		public Builder withFile(String path, String content) {
+			this.initialFiles.add(FileSpec.of(path, content));
+			return this;
+		}
+
+		/**
+		 * Add files created in every sandbox when it joins the pool and after each reset.
+		 * @param files list of file specifications
+		 * @return this builder
+		 */
+		public Builder withFiles(List<FileSpec> files) {
+			this.initialFiles.addAll(files);
+			return this;
+		}
+
+		/**
+		 * Set the check applied to idle sandboxes. The default runs {@code true} in the
+		 * sandbox and expects it to succeed.
+		 * @param healthCheck returns true for a usable sandbox; exceptions count as
+		 * unhealthy
+		 * @return this builder
+		 */
+		public Builder healthCheck(Predicate<Sandbox> healthCheck) {
+			if (healthCheck == null) {
+				throw new IllegalArgumentException("Health check cannot be null");
+			}
+			this.healthCheck = healthCheck;
+			return this;
+		}
+
+		/**
+		 * Set how often idle sandboxes are checked (default 30 seconds).
+		 * @param healthCheckInterval the delay between check rounds
+		 * @return this builder
+		 */
+		public Builder healthCheckInterval(Duration healthCheckInterval) {
+			if (healthCheckInterval == null || healthCheckInterval.isNegative() || healthCheckInterval.isZero()) {
+				throw new IllegalArgumentException("Health check interval must be positive");
+			}
+			this.healthCheckInterval = healthCheckInterval;
+			return this;
+		}
+
+		/**
+		 * Set the command that empties the working directory when a sandbox is released,
+		 * before the initial files are created again. It runs in the working directory
+		 * and must exit with status 0. The default is {@link #DEFAULT_RESET_COMMAND}.
+		 * @param resetCommand the reset command
+		 * @return this builder
+		 */
+		public Builder resetCommand(ExecSpec resetCommand) {
+			if (resetCommand == null) {
+				throw new IllegalArgumentException("Reset command cannot be null");
+			}
+			this.resetCommand = resetCommand;
+			return this;
+		}
+
+		/**
+		 * Build the pool and start creating its sandboxes in the background.
+		 * @return the new pool
+		 */
+		public SandboxPool build() {
+			return new SandboxPool(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+/**
+ * Runs bash scripts in a remote sandbox on behalf of helpers such as
+ * {@link DirectorySync} and {@link BlobStore}.
+ *
+ * @since 0.9.1
+ */
+@FunctionalInterface
+public interface SandboxShell {
+
+	/**
+	 * Run {@code bash -c script bash args...} in the sandbox working directory.
+	 * @param script the script
+	 * @param args the positional parameters of the script
+	 * @return the standard output
+	 * @throws SandboxException if the script exits with a non-zero status
+	 */
+	String run(String script, String... args);
+
+}
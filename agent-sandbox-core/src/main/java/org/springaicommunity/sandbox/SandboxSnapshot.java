@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+/**
+ * A saved state of a sandbox from which any number of independent sandboxes can be
+ * created.
+ *
+ * <p>
+ * Snapshots let an expensive preparation (cloning a repository, downloading dependencies,
+ * compiling) run once and be reused by many sandboxes:
+ * </p>
+ *
+ * <pre>{@code
+ * try (SandboxSnapshot prepared = sandbox.snapshot()) {
+ *     for (Agent agent : variants) {
+ *         try (Sandbox copy = prepared.newSandbox()) {
+ *             agent.run(copy);
+ *         }
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>
+ * Changes made in the source sandbox after the snapshot was taken, or in any sandbox
+ * created from it, are not visible to the others. Each created sandbox must be closed by
+ * the caller; closing the snapshot does not close them.
+ * </p>
+ *
+ * @see Sandbox#snapshot()
+ * @since 0.9.1
+ */
+public interface SandboxSnapshot extends AutoCloseable {
+
+	/**
+	 * Create a new sandbox starting from the saved state.
+	 * @return the new sandbox, which the caller must close
+	 * @throws SandboxException if the sandbox cannot be created
+	 * @throws IllegalStateException if the snapshot has been closed
+	 */
+	Sandbox newSandbox();
+
+	/**
+	 * Release the resources held by the snapshot, such as a saved copy of the workspace
+	 * or a container image. Sandboxes already created from it are unaffected.
+	 */
+	@Override
+	void close();
+
+}
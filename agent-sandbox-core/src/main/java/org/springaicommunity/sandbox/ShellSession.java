@@ -0,0 +1,341 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-lived bash shell in a sandbox that runs commands one after another.
+ *
+ * <p>
+ * Commands run in the same shell process, so the working directory, exported environment
+ * variables, shell functions and options persist between calls, and process startup (and,
+ * for remote sandboxes, the network round trip to create a process) is paid once per
+ * session instead of once per command:
+ * </p>
+ *
+ * <pre>{@code
+ * try (ShellSession session = sandbox.openSession()) {
+ *     session.exec("cd project && export MAVEN_OPTS=-Xmx1g");
+ *     ExecResult result = session.exec("mvn -q compile");
+ * }
+ * }</pre>
+ *
+ * <p>
+ * Each command is passed to {@code eval} with stdin redirected from {@code /dev/null},
+ * then the shell prints a sentinel line containing a per-session nonce, a sequence number
+ * and the exit status to stdout, and a matching sentinel to stderr. Output up to the
+ * sentinels belongs to the command, which recovers the exit code and keeps stdout and
+ * stderr apart without a process per command. Commands that end the shell itself, such as
+ * {@code exit}, close the session.
+ * </p>
+ *
+ * <p>
+ * If a command times out or the calling thread is interrupted, the shell cannot be
+ * brought back to a known state, so the session is closed (killing the command) and a
+ * {@link SandboxException} is thrown. Sessions are thread-safe; concurrent calls run one
+ * at a time.
+ * </p>
+ *
+ * @see Sandbox#openSession()
+ * @since 0.9.1
+ */
+public final class ShellSession implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShellSession.class);
+
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final Process process;
+
+	private final OutputStream stdin;
+
+	private final FrameReader stdout;
+
+	private final FrameReader stderr;
+
+	private final String marker = "__AGENT_SANDBOX_" + UUID.randomUUID().toString().replace("-", "") + "__";
+
+	private long sequence;
+
+	private volatile boolean closed;
+
+	/**
+	 * Create a session over a running shell. The process must run a bash shell reading
+	 * commands from its stdin, such as one started by
+	 * {@code sandbox.startInteractive(ExecSpec.of("bash"))}.
+	 * @param process the shell process; owned by the session from now on
+	 * @throws SandboxException if the shell cannot be initialized
+	 */
+	public ShellSession(Process process) {
+		if (process == null) {
+			throw new IllegalArgumentException("Process cannot be null");
+		}
+		this.process = process;
+		this.stdin = process.getOutputStream();
+		this.stdout = new FrameReader(process.getInputStream());
+		this.stderr = new FrameReader(process.getErrorStream());
+		SandboxExecutors.defaultExecutor().execute(stdout::pump);
+		SandboxExecutors.defaultExecutor().execute(stderr::pump);
+		try {
+			write("__agent_sandbox_marker=" + quote(marker) + "\n");
+		}
+		catch (IOException e) {
+			process.destroyForcibly();
+			throw new SandboxException("Failed to initialize shell session", e);
+		}
+	}
+
+	/**
+	 * Run a command in the session and wait for it without a time limit.
+	 * @param command the shell command line
+	 * @return the execution result
+	 * @throws SandboxException if the session is closed or terminates while running the
+	 * command
+	 */
+	public ExecResult exec(String command) {
+		return exec(command, null);
+	}
+
+	/**
+	 * Run a command in the session and wait for it.
+	 * @param command the shell command line
+	 * @param timeout maximum time to wait, or {@code null} to wait indefinitely
+	 * @return the execution result
+	 * @throws SandboxException if the session is closed or terminates while running the
+	 * command, or wrapping a {@link TimeoutException} if the timeout elapses, in which
+	 * case the session is closed
+	 */
+	public synchronized ExecResult exec(String command, Duration timeout) {
+		if (command == null || command.isBlank()) {
+			throw new IllegalArgumentException("Command cannot be null or empty");
+		}
+		if (closed) {
+			throw new IllegalStateException("Shell session is closed");
+		}
+		long seq = ++sequence;
+		long deadline = (timeout != null) ? System.nanoTime() + timeout.toNanos() : NO_DEADLINE;
+		long startTime = System.nanoTime();
+		try {
+			// The first printf must directly follow eval to report its status
+			String script = "eval " + quote(command) + " < /dev/null\n"
+					+ "printf '%s:%d:%d\\n' \"$__agent_sandbox_marker\" " + seq + " \"$?\"\n"
+					+ "printf '%s:%d:\\n' \"$__agent_sandbox_marker\" " + seq + " >&2\n";
+			write(script);
+			byte[] sentinel = (marker + ":" + seq + ":").getBytes(StandardCharsets.UTF_8);
+			Frame out = stdout.await(sentinel, deadline);
+			Frame err = stderr.await(sentinel, deadline);
+			if (out == null || err == null) {
+				terminate();
+				throw new SandboxException("Command timed out after " + timeout,
+						new TimeoutException("Command timed out", timeout));
+			}
+			int exitCode = Integer.parseInt(out.trailer().trim());
+			Duration duration = Duration.ofNanos(System.nanoTime() - startTime);
+			return new ExecResult(exitCode, out.content(), err.content(), duration);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			terminate();
+			throw new SandboxException("Shell session command interrupted", e);
+		}
+		catch (IOException e) {
+			terminate();
+			throw new SandboxException("Shell session terminated while running command", e);
+		}
+	}
+
+	/**
+	 * Check whether the session can still run commands.
+	 * @return true if the session is open and its shell is running
+	 */
+	public boolean isOpen() {
+		return !closed && process.isAlive();
+	}
+
+	/**
+	 * Close the session. Asks the shell to exit, then kills it and any command still
+	 * running if it does not exit promptly.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			write("exit\n");
+			stdin.close();
+			if (process.waitFor(1, TimeUnit.SECONDS)) {
+				return;
+			}
+		}
+		catch (IOException e) {
+			logger.debug("Shell session stdin already closed", e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		process.destroyForcibly();
+	}
+
+	/**
+	 * Kill the shell and the command it is running without waiting for either.
+	 */
+	private void terminate() {
+		closed = true;
+		try {
+			process.descendants().forEach(ProcessHandle::destroyForcibly);
+		}
+		catch (UnsupportedOperationException e) {
+			// Remote processes have no local handle; destroying them kills the command
+		}
+		process.destroyForcibly();
+	}
+
+	private void write(String text) throws IOException {
+		stdin.write(text.getBytes(StandardCharsets.UTF_8));
+		stdin.flush();
+	}
+
+	private static String quote(String value) {
+		return "'" + value.replace("'", "'\\''") + "'";
+	}
+
+	/**
+	 * Output of one command: everything before the sentinel, and the rest of the sentinel
+	 * line after the matched prefix.
+	 */
+	private record Frame(String content, String trailer) {
+	}
+
+	/**
+	 * Drains one stream of the shell into a buffer and splits it at sentinel lines.
+	 */
+	private static final class FrameReader {
+
+		private final InputStream input;
+
+		private byte[] buffer = new byte[8192];
+
+		private int length;
+
+		private boolean eof;
+
+		private IOException failure;
+
+		FrameReader(InputStream input) {
+			this.input = input;
+		}
+
+		void pump() {
+			byte[] chunk = new byte[8192];
+			try {
+				int n;
+				while ((n = input.read(chunk)) >= 0) {
+					append(chunk, n);
+				}
+			}
+			catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+				}
+			}
+			finally {
+				synchronized (this) {
+					eof = true;
+					notifyAll();
+				}
+			}
+		}
+
+		private synchronized void append(byte[] chunk, int n) {
+			if (length + n > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + n));
+			}
+			System.arraycopy(chunk, 0, buffer, length, n);
+			length += n;
+			notifyAll();
+		}
+
+		/**
+		 * Wait for the sentinel line starting with {@code prefix} and remove it, and the
+		 * output before it, from the buffer.
+		 * @return the frame, or {@code null} if the deadline passed first
+		 * @throws IOException if the stream ended without the sentinel
+		 */
+		synchronized Frame await(byte[] prefix, long deadline) throws InterruptedException, IOException {
+			int from = 0;
+			while (true) {
+				int at = indexOf(prefix, from);
+				if (at >= 0) {
+					int lineEnd = indexOf(new byte[] { '\n' }, at + prefix.length);
+					if (lineEnd >= 0) {
+						return take(at, at + prefix.length, lineEnd);
+					}
+				}
+				else {
+					from = Math.max(0, length - prefix.length + 1);
+				}
+				if (eof) {
+					throw (failure != null) ? failure : new IOException("Shell exited");
+				}
+				if (deadline == NO_DEADLINE) {
+					wait();
+					continue;
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return null;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+		}
+
+		private Frame take(int sentinelStart, int trailerStart, int lineEnd) {
+			String content = new String(buffer, 0, sentinelStart, StandardCharsets.UTF_8);
+			String trailer = new String(buffer, trailerStart, lineEnd - trailerStart, StandardCharsets.UTF_8);
+			int consumed = lineEnd + 1;
+			System.arraycopy(buffer, consumed, buffer, 0, length - consumed);
+			length -= consumed;
+			return new Frame(content, trailer);
+		}
+
+		private int indexOf(byte[] target, int from) {
+			outer: for (int i = from; i <= length - target.length; i++) {
+				for (int j = 0; j < target.length; j++) {
+					if (buffer[i + j] != target[j]) {
+						continue outer;
+					}
+				}
+				return i;
+			}
+			return -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * In-memory pipe connecting an {@link OutputStream} to an {@link InputStream}.
+ *
+ * <p>
+ * Unlike {@link java.io.PipedInputStream}, the pipe does not track which threads read and
+ * write, so either side may be used from any number of short-lived threads (such as
+ * virtual threads). By default writes never block and the buffer grows as needed; a pipe
+ * created with a capacity instead blocks writers while that many bytes are unread,
+ * keeping memory constant when streaming large content. Reads block until data is
+ * available or the output side has been closed, after which they return the remaining
+ * bytes and then end-of-stream.
+ * </p>
+ *
+ * <p>
+ * Remote sandbox implementations use pipes to expose transport-level output as the
+ * streams of a {@link RemoteProcess}.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class StreamPipe {
+
+	private final Object lock = new Object();
+
+	private final int capacity;
+
+	private byte[] buffer = new byte[8192];
+
+	private int start;
+
+	private int end;
+
+	private boolean writeClosed;
+
+	private boolean readClosed;
+
+	private final InputStream inputStream = new PipeInputStream();
+
+	private final OutputStream outputStream = new PipeOutputStream();
+
+	/**
+	 * Create a pipe whose buffer grows as needed, so writes never block.
+	 */
+	public StreamPipe() {
+		this.capacity = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Create a pipe that blocks writers while {@code capacity} bytes are unread.
+	 * @param capacity the maximum number of unread bytes
+	 * @since 0.9.1
+	 */
+	public StreamPipe(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Get the reading side of this pipe.
+	 * @return the input stream
+	 */
+	public InputStream inputStream() {
+		return inputStream;
+	}
+
+	/**
+	 * Get the writing side of this pipe. Closing it signals end-of-stream to the reader.
+	 * @return the output stream
+	 */
+	public OutputStream outputStream() {
+		return outputStream;
+	}
+
+	private final class PipeInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			int n = read(single, 0, 1);
+			return (n < 0) ? -1 : (single[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			synchronized (lock) {
+				while (start == end) {
+					if (writeClosed || readClosed) {
+						return -1;
+					}
+					try {
+						lock.wait();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while reading from pipe");
+					}
+				}
+				int n = Math.min(len, end - start);
+				System.arraycopy(buffer, start, b, off, n);
+				start += n;
+				lock.notifyAll();
+				return n;
+			}
+		}
+
+		@Override
+		public int available() {
+			synchronized (lock) {
+				return end - start;
+			}
+		}
+
+		@Override
+		public void close() {
+			synchronized (lock) {
+				readClosed = true;
+				start = end;
+				lock.notifyAll();
+			}
+		}
+
+	}
+
+	private final class PipeOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			synchronized (lock) {
+				if (writeClosed) {
+					throw new IOException("Pipe closed");
+				}
+				while (len > 0) {
+					if (readClosed) {
+						// Nobody will read the data; discard it like a closed process
+						// stream
+						return;
+					}
+					int n = Math.min(len, capacity - (end - start));
+					if (n == 0) {
+						awaitSpace();
+						continue;
+					}
+					ensureCapacity(n);
+					System.arraycopy(b, off, buffer, end, n);
+					end += n;
+					off += n;
+					len -= n;
+					lock.notifyAll();
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			synchronized (lock) {
+				writeClosed = true;
+				lock.notifyAll();
+			}
+		}
+
+		private void awaitSpace() throws IOException {
+			try {
+				lock.wait();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while writing to pipe");
+			}
+			if (writeClosed) {
+				throw new IOException("Pipe closed");
+			}
+		}
+
+		private void ensureCapacity(int len) {
+			if (end + len <= buffer.length) {
+				return;
+			}
+			int size = end - start;
+			if (size + len <= buffer.length / 2) {
+				System.arraycopy(buffer, start, buffer, 0, size);
+			}
+			else {
+				int length = Math.max(Math.min(buffer.length * 2, capacity), size + len);
+				buffer = Arrays.copyOfRange(buffer, start, start + length);
+			}
+			start = 0;
+			end = size;
+		}
+
+	}
+
+}
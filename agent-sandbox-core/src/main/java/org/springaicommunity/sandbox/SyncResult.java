@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Outcome of {@link SandboxFiles#sync(java.nio.file.Path, String)}.
+ *
+ * @param added files copied that did not exist in the sandbox
+ * @param updated files copied because their content differed
+ * @param deleted files removed because they were deleted on the host since the previous
+ * sync
+ * @param unchanged number of files that were already up to date
+ * @since 0.9.1
+ */
+public record SyncResult(List<String> added, List<String> updated, List<String> deleted, int unchanged) {
+
+	public SyncResult {
+		added = List.copyOf(Objects.requireNonNull(added, "added cannot be null"));
+		updated = List.copyOf(Objects.requireNonNull(updated, "updated cannot be null"));
+		deleted = List.copyOf(Objects.requireNonNull(deleted, "deleted cannot be null"));
+	}
+
+	/**
+	 * Checks if the sync changed anything in the sandbox.
+	 * @return true if any file was copied or deleted
+	 */
+	public boolean hasChanges() {
+		return !added.isEmpty() || !updated.isEmpty() || !deleted.isEmpty();
+	}
+
+}
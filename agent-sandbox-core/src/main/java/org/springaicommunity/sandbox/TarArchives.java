@@ -0,0 +1,199 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+
+/**
+ * Streams directory trees as tar archives.
+ *
+ * <p>
+ * Sandbox implementations use these helpers to implement
+ * {@link SandboxFiles#importDirectory(Path, String, Predicate)} and
+ * {@link SandboxFiles#exportDirectory(String, OutputStream)} with one archive transfer
+ * instead of one round trip per file. Entries are written as they are read, so memory use
+ * does not depend on the size of the tree. Neither method closes the streams it is given.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class TarArchives {
+
+	private static final int REGULAR_FILE_TYPE = 0100000;
+
+	private static final int FILE_MODE = 0100644;
+
+	private static final int EXECUTABLE_FILE_MODE = 0100755;
+
+	private TarArchives() {
+	}
+
+	/**
+	 * Write the contents of a host directory as a tar archive. Entry names are relative
+	 * to {@code directory}, which itself is not included. Symbolic links are stored as
+	 * links rather than followed.
+	 * @param directory the directory to archive
+	 * @param filter receives each path relative to {@code directory}; rejecting a
+	 * directory skips everything below it
+	 * @param out the stream to write the archive to
+	 * @throws IOException if the directory cannot be read or the archive cannot be
+	 * written
+	 */
+	public static void write(Path directory, Predicate<Path> filter, OutputStream out) throws IOException {
+		TarArchiveOutputStream tar = newOutputStream(out);
+		Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if (dir.equals(directory)) {
+					return FileVisitResult.CONTINUE;
+				}
+				Path relative = directory.relativize(dir);
+				if (!filter.test(relative)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				TarArchiveEntry entry = new TarArchiveEntry(entryName(relative) + "/");
+				entry.setModTime(attrs.lastModifiedTime().toMillis());
+				tar.putArchiveEntry(entry);
+				tar.closeArchiveEntry();
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Path relative = directory.relativize(file);
+				if (!filter.test(relative)) {
+					return FileVisitResult.CONTINUE;
+				}
+				if (attrs.isSymbolicLink()) {
+					TarArchiveEntry entry = new TarArchiveEntry(entryName(relative), TarConstants.LF_SYMLINK);
+					entry.setLinkName(Files.readSymbolicLink(file).toString());
+					tar.putArchiveEntry(entry);
+					tar.closeArchiveEntry();
+				}
+				else if (attrs.isRegularFile()) {
+					TarArchiveEntry entry = new TarArchiveEntry(entryName(relative));
+					entry.setSize(attrs.size());
+					entry.setMode(fileMode(file));
+					entry.setModTime(attrs.lastModifiedTime().toMillis());
+					tar.putArchiveEntry(entry);
+					Files.copy(file, tar);
+					tar.closeArchiveEntry();
+				}
+				// Sockets, devices and other special files are not archived
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+		tar.finish();
+		tar.flush();
+	}
+
+	/**
+	 * Tar mode of a regular host file: its POSIX permission bits, or {@code 0644} /
+	 * {@code 0755} depending on whether it is executable on file systems without POSIX
+	 * permissions.
+	 * @param file the host file
+	 * @return the mode, including the regular file type bits
+	 * @throws IOException if the permissions cannot be read
+	 */
+	public static int fileMode(Path file) throws IOException {
+		Set<PosixFilePermission> permissions;
+		try {
+			permissions = Files.getPosixFilePermissions(file);
+		}
+		catch (UnsupportedOperationException e) {
+			return Files.isExecutable(file) ? EXECUTABLE_FILE_MODE : FILE_MODE;
+		}
+		int mode = REGULAR_FILE_TYPE;
+		for (PosixFilePermission permission : permissions) {
+			mode |= 0400 >> permission.ordinal();
+		}
+		return mode;
+	}
+
+	/**
+	 * Copy a tar archive, removing leading path components from every entry name, like
+	 * {@code tar --strip-components}. Entries with no name left, such as the stripped
+	 * directories themselves, are dropped.
+	 * @param in the archive to read
+	 * @param out the stream to write the rewritten archive to
+	 * @param stripComponents the number of leading components to remove
+	 * @throws IOException if the archive cannot be read or written
+	 */
+	public static void copy(InputStream in, OutputStream out, int stripComponents) throws IOException {
+		TarArchiveInputStream source = new TarArchiveInputStream(in);
+		TarArchiveOutputStream target = newOutputStream(out);
+		TarArchiveEntry entry;
+		while ((entry = source.getNextTarEntry()) != null) {
+			String name = strip(entry.getName(), stripComponents);
+			if (name.isEmpty() || "/".equals(name)) {
+				continue;
+			}
+			entry.setName(name);
+			if (entry.isLink()) {
+				entry.setLinkName(strip(entry.getLinkName(), stripComponents));
+			}
+			target.putArchiveEntry(entry);
+			if (entry.isFile()) {
+				source.transferTo(target);
+			}
+			target.closeArchiveEntry();
+		}
+		target.finish();
+		target.flush();
+	}
+
+	private static TarArchiveOutputStream newOutputStream(OutputStream out) {
+		TarArchiveOutputStream tar = new TarArchiveOutputStream(out);
+		tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+		tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+		return tar;
+	}
+
+	private static String entryName(Path relative) {
+		return relative.toString().replace(File.separatorChar, '/');
+	}
+
+	private static String strip(String name, int components) {
+		String result = name;
+		for (int i = 0; i < components; i++) {
+			int slash = result.indexOf('/');
+			if (slash < 0) {
+				return "";
+			}
+			result = result.substring(slash + 1);
+		}
+		return result;
+	}
+
+}
@@ -24,18 +24,43 @@ public class TimeoutException extends RuntimeException {
 
 	private final Duration timeout;
 
+	private final int terminatedProcesses;
+
 	public TimeoutException(String message, Duration timeout) {
-		super(message);
-		this.timeout = timeout;
+		this(message, timeout, 0);
 	}
 
 	public TimeoutException(String message, Duration timeout, Throwable cause) {
 		super(message, cause);
 		this.timeout = timeout;
+		this.terminatedProcesses = 0;
+	}
+
+	/**
+	 * Create an exception for a command whose processes were terminated on timeout.
+	 * @param message the detail message
+	 * @param timeout the timeout that expired
+	 * @param terminatedProcesses the number of processes terminated
+	 * @since 0.9.1
+	 */
+	public TimeoutException(String message, Duration timeout, int terminatedProcesses) {
+		super(message);
+		this.timeout = timeout;
+		this.terminatedProcesses = terminatedProcesses;
 	}
 
 	public Duration getTimeout() {
 		return timeout;
 	}
 
+	/**
+	 * Get the number of processes, the command and its descendants, that were terminated
+	 * when the timeout expired.
+	 * @return the number of terminated processes, or 0 if the sandbox does not report it
+	 * @since 0.9.1
+	 */
+	public int getTerminatedProcesses() {
+		return terminatedProcesses;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes sandbox workspaces, either on the calling thread or in the background.
+ *
+ * <p>
+ * {@link #deleteInBackground(Path)} first renames the directory to a hidden sibling, so
+ * the path is free again as soon as it returns, and then deletes the renamed tree on a
+ * shared pool of at most {@value #MAX_PARALLELISM} daemon threads. Each directory is
+ * scanned with {@link Files#walkFileTree} to a depth of one and its subdirectories are
+ * deleted as parallel subtasks. Because the threads are daemons, deletions still pending
+ * when the JVM exits are abandoned; call {@link #awaitPendingDeletions(Duration)} on
+ * shutdown to let them finish.
+ * </p>
+ *
+ * @since 0.9.1
+ * @see LocalSandbox.Builder#asyncCleanup(boolean)
+ */
+public final class WorkspaceCleaner {
+
+	private static final Logger logger = LoggerFactory.getLogger(WorkspaceCleaner.class);
+
+	private static final int MAX_PARALLELISM = 4;
+
+	private static final Set<CompletableFuture<Void>> pending = ConcurrentHashMap.newKeySet();
+
+	private WorkspaceCleaner() {
+	}
+
+	/**
+	 * Delete a directory tree on the calling thread, in a single walk that deletes each
+	 * directory after its contents. Symbolic links are deleted, not followed. Files that
+	 * cannot be deleted are logged and skipped.
+	 * @param directory the directory to delete, which may not exist
+	 * @throws IOException if the tree cannot be walked
+	 */
+	public static void delete(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				deleteQuietly(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				if (!(e instanceof NoSuchFileException)) {
+					logger.warn("Failed to delete: {}", file, e);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+				deleteQuietly(dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+	/**
+	 * Move a directory tree out of the way and delete it in the background. When the
+	 * directory cannot be renamed, for example because its parent is not writable, it is
+	 * deleted in place.
+	 * @param directory the directory to delete, which may not exist
+	 * @return a future completed once the tree is deleted; failures to delete individual
+	 * files are logged, so it never completes exceptionally
+	 */
+	public static CompletableFuture<Void> deleteInBackground(Path directory) {
+		if (!Files.exists(directory)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		Path target = moveToTrash(directory);
+		CompletableFuture<Void> deletion = CompletableFuture
+			.runAsync(() -> new DeleteTask(target).invoke(), Pool.INSTANCE)
+			.exceptionally(e -> {
+				logger.warn("Failed to delete: {}", target, e);
+				return null;
+			});
+		pending.add(deletion);
+		deletion.whenComplete((result, error) -> pending.remove(deletion));
+		return deletion;
+	}
+
+	/**
+	 * Wait for the background deletions started so far to finish.
+	 * @param timeout the maximum time to wait
+	 * @return true if all of them finished, false if the timeout expired first
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	public static boolean awaitPendingDeletions(Duration timeout) throws InterruptedException {
+		CompletableFuture<?>[] deletions = pending.toArray(new CompletableFuture<?>[0]);
+		try {
+			CompletableFuture.allOf(deletions).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			return true;
+		}
+		catch (TimeoutException e) {
+			return false;
+		}
+		catch (ExecutionException e) {
+			// Not reached: deletions log their failures and complete normally
+			return true;
+		}
+	}
+
+	/**
+	 * Get the number of background deletions that have not finished.
+	 * @return the number of pending deletions
+	 */
+	public static int pendingDeletions() {
+		return pending.size();
+	}
+
+	private static Path moveToTrash(Path directory) {
+		Path trash = directory.resolveSibling("." + directory.getFileName() + ".deleting-" + UUID.randomUUID());
+		try {
+			return Files.move(directory, trash, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			logger.debug("Cannot rename {} atomically, deleting it in place", directory);
+		}
+		catch (IOException e) {
+			logger.debug("Cannot rename {}, deleting it in place", directory, e);
+		}
+		return directory;
+	}
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		}
+		catch (IOException e) {
+			logger.warn("Failed to delete: {}", path, e);
+		}
+	}
+
+	/**
+	 * Deletes the files of one directory, its subdirectories in parallel and then the
+	 * directory itself.
+	 */
+	private static final class DeleteTask extends RecursiveAction {
+
+		private final Path directory;
+
+		DeleteTask(Path directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		protected void compute() {
+			List<DeleteTask> subdirectories = new ArrayList<>();
+			try {
+				Files.walkFileTree(directory, Set.of(), 1, new SimpleFileVisitor<>() {
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						// Entries at the maximum depth, including directories, are
+						// visited as files; links report their own attributes
+						if (attrs.isDirectory()) {
+							subdirectories.add(new DeleteTask(file));
+						}
+						else {
+							deleteQuietly(file);
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException e) {
+						if (!(e instanceof NoSuchFileException)) {
+							logger.warn("Failed to delete: {}", file, e);
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+				});
+			}
+			catch (IOException e) {
+				logger.warn("Failed to delete: {}", directory, e);
+			}
+			invokeAll(subdirectories);
+			deleteQuietly(directory);
+		}
+
+	}
+
+	/**
+	 * Pool created on the first background deletion.
+	 */
+	private static final class Pool {
+
+		private static final AtomicInteger counter = new AtomicInteger();
+
+		static final ForkJoinPool INSTANCE = new ForkJoinPool(
+				Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()), pool -> {
+					ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+					thread.setName("agent-sandbox-cleanup-" + counter.incrementAndGet());
+					return thread;
+				}, null, false);
+
+	}
+
+}
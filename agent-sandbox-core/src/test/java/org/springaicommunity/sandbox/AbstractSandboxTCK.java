@@ -16,12 +16,31 @@
 
 package org.springaicommunity.sandbox;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -244,6 +263,170 @@ public abstract class AbstractSandboxTCK {
 		assertThat(result.stderr()).doesNotContain("to-stdout");
 	}
 
+	/**
+	 * Test streaming execution. Verifies that output is delivered to the listener while
+	 * the command runs and that the streamed chunks add up to the captured result.
+	 */
+	@Test
+	void testStreamingOutput() throws Exception {
+		// Arrange: Command that writes, pauses, then writes again to both streams
+		ExecSpec streamTest = ExecSpec.builder()
+			.shellCommand("echo 'first-line'; echo 'err-line' >&2; sleep 2; echo 'second-line'")
+			.timeout(Duration.ofSeconds(30))
+			.build();
+		StringBuilder streamedStdout = new StringBuilder();
+		StringBuilder streamedStderr = new StringBuilder();
+		AtomicReference<Instant> firstChunkAt = new AtomicReference<>();
+
+		// Act
+		ExecResult result = sandbox.exec(streamTest, chunk -> {
+			firstChunkAt.compareAndSet(null, chunk.timestamp());
+			synchronized (streamedStdout) {
+				(chunk.isStdout() ? streamedStdout : streamedStderr).append(chunk.text());
+			}
+		});
+		Instant finishedAt = Instant.now();
+
+		// Assert: Streamed output matches the captured result
+		assertThat(result.success()).isTrue();
+		synchronized (streamedStdout) {
+			assertThat(streamedStdout.toString()).isEqualTo(result.stdout());
+			assertThat(streamedStderr.toString()).isEqualTo(result.stderr());
+		}
+		assertThat(result.stdout()).contains("first-line", "second-line");
+		assertThat(result.stderr()).contains("err-line");
+		// First output arrived before the command's sleep finished
+		assertThat(firstChunkAt.get()).isNotNull();
+		assertThat(Duration.between(firstChunkAt.get(), finishedAt)).isGreaterThan(Duration.ofSeconds(1));
+	}
+
+	/**
+	 * Verify that an asynchronous execution completes with the command result.
+	 */
+	@Test
+	void testExecAsync() throws Exception {
+		CompletableFuture<ExecResult> future = sandbox.execAsync(ExecSpec.of("echo", "async"));
+
+		ExecResult result = future.get(30, TimeUnit.SECONDS);
+
+		assertThat(result.success()).isTrue();
+		assertThat(result.stdout().trim()).isEqualTo("async");
+	}
+
+	/**
+	 * Verify that cancelling an asynchronous execution kills the process before it can
+	 * finish its work.
+	 */
+	@Test
+	void testExecAsyncCancellationKillsProcess() throws Exception {
+		CompletableFuture<ExecResult> future = sandbox
+			.execAsync(ExecSpec.builder().shellCommand("sleep 2 && touch cancelled.txt").build());
+		Thread.sleep(500);
+
+		assertThat(future.cancel(true)).isTrue();
+		assertThat(future.isCancelled()).isTrue();
+
+		Thread.sleep(3000);
+		assertThat(sandbox.files().exists("cancelled.txt")).isFalse();
+	}
+
+	/**
+	 * Verify that a batch returns one result per command with its own output and exit
+	 * code, and that it can stop at the first failure.
+	 */
+	@Test
+	void testExecBatch() {
+		ExecSpec failing = ExecSpec.builder()
+			.shellCommand("echo \"$BATCH_VAR\"; echo 'to-stderr' >&2; exit 3")
+			.env("BATCH_VAR", "second")
+			.build();
+		List<ExecSpec> specs = List.of(ExecSpec.of("echo", "first"), failing,
+				ExecSpec.builder().shellCommand("printf 'third'").build());
+
+		List<ExecResult> results = sandbox.execBatch(specs);
+
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0).stdout()).isEqualTo("first\n");
+		assertThat(results.get(0).exitCode()).isEqualTo(0);
+		assertThat(results.get(1).stdout()).isEqualTo("second\n");
+		assertThat(results.get(1).stderr()).isEqualTo("to-stderr\n");
+		assertThat(results.get(1).exitCode()).isEqualTo(3);
+		assertThat(results.get(2).stdout()).isEqualTo("third");
+
+		List<ExecResult> stopped = sandbox.execBatch(specs, true);
+
+		assertThat(stopped).extracting(ExecResult::exitCode).containsExactly(0, 3);
+	}
+
+	/**
+	 * Verify that interrupting a batch kills the whole batch, so that the commands after
+	 * the running one never start.
+	 */
+	@Test
+	void testExecBatchInterruptionStopsRemainingCommands() throws Exception {
+		List<ExecSpec> specs = List.of(ExecSpec.builder().shellCommand("sleep 5").build(),
+				ExecSpec.builder().shellCommand("touch batch-marker.txt").build());
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		Thread runner = new Thread(() -> {
+			try {
+				sandbox.execBatch(specs);
+			}
+			catch (RuntimeException e) {
+				failure.set(e);
+			}
+		});
+		runner.start();
+		Thread.sleep(1000);
+
+		runner.interrupt();
+		runner.join(10_000);
+
+		assertThat(failure.get()).isInstanceOf(SandboxException.class);
+		Thread.sleep(6000);
+		assertThat(sandbox.files().exists("batch-marker.txt")).isFalse();
+	}
+
+	/**
+	 * Verify that a shell session keeps its working directory and exported environment
+	 * between commands and separates stdout, stderr and exit codes per command.
+	 */
+	@Test
+	void testShellSession() {
+		try (ShellSession session = sandbox.openSession()) {
+			assertThat(session.exec("mkdir -p session-dir && cd session-dir && export SESSION_VAR=kept").exitCode())
+				.isEqualTo(0);
+
+			ExecResult result = session.exec("pwd; echo \"$SESSION_VAR\"; echo 'to-stderr' >&2; false");
+
+			assertThat(result.stdout()).endsWith("session-dir\nkept\n");
+			assertThat(result.stderr()).isEqualTo("to-stderr\n");
+			assertThat(result.exitCode()).isEqualTo(1);
+			assertThat(session.exec("printf 'no newline'").stdout()).isEqualTo("no newline");
+		}
+	}
+
+	/**
+	 * Verify that an output limit keeps the head and tail of each stream and reports the
+	 * full byte count.
+	 */
+	@Test
+	void testOutputLimit() {
+		ExecSpec spec = ExecSpec.builder()
+			.shellCommand("seq 1 100000; echo 'only-error' >&2")
+			.outputLimit(16, 16)
+			.timeout(Duration.ofSeconds(30))
+			.build();
+
+		ExecResult result = sandbox.exec(spec);
+
+		assertThat(result.success()).isTrue();
+		assertThat(result.stdout()).startsWith("1\n2\n3\n").endsWith("99999\n100000\n").contains("bytes truncated");
+		assertThat(result.stdoutBytes()).isEqualTo(588895L);
+		assertThat(result.stdoutTruncated()).isTrue();
+		assertThat(result.stderr()).isEqualTo("only-error\n");
+		assertThat(result.stderrTruncated()).isFalse();
+	}
+
 	/**
 	 * Test multiple command execution functionality. Verifies that multiple commands can
 	 * be executed sequentially in the same sandbox.
@@ -467,4 +650,336 @@ public abstract class AbstractSandboxTCK {
 		assertThat(sandbox.files().exists("chain2.txt")).isFalse();
 	}
 
+	/**
+	 * Test binary file content. Verifies that every byte value survives a round trip
+	 * unchanged, which UTF-8 text operations cannot guarantee.
+	 */
+	@Test
+	void testBinaryFileRoundTrip() throws Exception {
+		// Arrange: All byte values, including invalid UTF-8 sequences
+		byte[] content = new byte[512];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		// Act: Write and read back
+		sandbox.files().writeBytes("bin/data.bin", content);
+
+		// Assert: Same bytes, also as seen from inside the sandbox
+		assertThat(sandbox.files().readBytes("bin/data.bin")).isEqualTo(content);
+		ExecResult result = sandbox.exec(ExecSpec.builder().shellCommand("wc -c < bin/data.bin").build());
+		assertThat(result.stdout().trim()).isEqualTo("512");
+	}
+
+	/**
+	 * Test streaming file transfer. Verifies that streams and host file copies move
+	 * content larger than typical I/O buffers intact.
+	 */
+	@Test
+	void testStreamingFileTransfer() throws Exception {
+		byte[] content = new byte[1024 * 1024 + 17];
+		new Random(42).nextBytes(content);
+		Path hostDir = Files.createTempDirectory("tck-transfer-");
+		try {
+			Path source = Files.write(hostDir.resolve("source.bin"), content);
+
+			// Act: Host -> sandbox, copy within the sandbox through streams, -> host
+			sandbox.files().copyFrom(source, "transfer/copied.bin");
+			try (InputStream in = sandbox.files().openInputStream("transfer/copied.bin");
+					OutputStream out = sandbox.files().openOutputStream("transfer/streamed.bin")) {
+				in.transferTo(out);
+			}
+			Path target = hostDir.resolve("out/target.bin");
+			sandbox.files().copyTo("transfer/streamed.bin", target);
+
+			// Assert
+			assertThat(Files.readAllBytes(target)).isEqualTo(content);
+		}
+		finally {
+			try (Stream<Path> paths = Files.walk(hostDir)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * Test directory import and export. Verifies that a host tree arrives intact with
+	 * filtered paths left out, and that the export archive is relative to the exported
+	 * directory.
+	 */
+	@Test
+	void testImportExportDirectory() throws Exception {
+		Path hostDir = Files.createTempDirectory("tck-import-");
+		try {
+			// Arrange: Sources, a binary file, an executable and a directory to filter
+			// out
+			Files.createDirectories(hostDir.resolve("src/main"));
+			Files.writeString(hostDir.resolve("src/main/App.java"), "class App {}");
+			Files.write(hostDir.resolve("logo.bin"), new byte[] { 0, (byte) 0xFF, (byte) 0xC3, 0x28 });
+			Path script = Files.writeString(hostDir.resolve("run.sh"), "#!/bin/sh\necho ran\n");
+			script.toFile().setExecutable(true);
+			Files.createDirectories(hostDir.resolve("target"));
+			Files.writeString(hostDir.resolve("target/App.class"), "compiled");
+
+			// Act: Import without target/
+			sandbox.files().importDirectory(hostDir, "imported", path -> !path.startsWith("target"));
+
+			// Assert: Content, permissions and filtering
+			assertThat(sandbox.files().read("imported/src/main/App.java")).isEqualTo("class App {}");
+			assertThat(sandbox.files().readBytes("imported/logo.bin"))
+				.isEqualTo(new byte[] { 0, (byte) 0xFF, (byte) 0xC3, 0x28 });
+			ExecResult result = sandbox.exec(ExecSpec.builder().shellCommand("./imported/run.sh").build());
+			assertThat(result.stdout().trim()).isEqualTo("ran");
+			assertThat(sandbox.files().exists("imported/target")).isFalse();
+
+			// Act: Export the imported tree
+			ByteArrayOutputStream archive = new ByteArrayOutputStream();
+			sandbox.files().exportDirectory("imported", archive);
+
+			// Assert: Entry names are relative to the exported directory
+			List<String> names = new ArrayList<>();
+			try (TarArchiveInputStream tar = new TarArchiveInputStream(
+					new ByteArrayInputStream(archive.toByteArray()))) {
+				TarArchiveEntry entry;
+				while ((entry = tar.getNextTarEntry()) != null) {
+					names.add(entry.getName());
+				}
+			}
+			assertThat(names).contains("src/main/App.java", "logo.bin", "run.sh");
+			assertThat(names).noneMatch(name -> name.startsWith("imported") || name.startsWith("."));
+		}
+		finally {
+			try (Stream<Path> paths = Files.walk(hostDir)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	@Test
+	void testSnapshotAndFork() throws Exception {
+		// Arrange: Prepare the workspace
+		sandbox.files().create("state/prepared.txt", "prepared");
+
+		try (SandboxSnapshot snapshot = sandbox.snapshot()) {
+			// Act: Change the source after the snapshot
+			sandbox.files().create("state/prepared.txt", "changed in source");
+
+			try (Sandbox first = snapshot.newSandbox(); Sandbox second = snapshot.newSandbox()) {
+				first.files().create("state/prepared.txt", "changed in first");
+
+				// Assert: Each copy starts from the snapshot and is independent
+				assertThat(first.files().read("state/prepared.txt")).isEqualTo("changed in first");
+				assertThat(second.files().read("state/prepared.txt")).isEqualTo("prepared");
+				ExecResult result = second.exec(ExecSpec.builder().shellCommand("cat state/prepared.txt").build());
+				assertThat(result.stdout().trim()).isEqualTo("prepared");
+			}
+		}
+
+		// Act: Fork the current state
+		try (Sandbox fork = sandbox.fork()) {
+			fork.files().create("state/forked.txt", "fork only");
+
+			// Assert: The fork sees the source state and its writes stay private
+			assertThat(fork.files().read("state/prepared.txt")).isEqualTo("changed in source");
+			assertThat(sandbox.files().exists("state/forked.txt")).isFalse();
+		}
+	}
+
+	@Test
+	void testWatchDirectory() throws Exception {
+		// Arrange: Watch a directory tree
+		sandbox.files().createDirectory("watched");
+		BlockingQueue<FileEvent> events = new LinkedBlockingQueue<>();
+
+		try (FileWatch watch = sandbox.files().watch("watched", true, events::add)) {
+			assertThat(watch.isActive()).isTrue();
+
+			// Act & Assert: Changes in new subdirectories are reported
+			sandbox.files().create("watched/sub/output.txt", "built");
+			assertThat(awaitEvent(events, FileEvent.Type.CREATED, "sub/output.txt")).isTrue();
+
+			sandbox.files().delete("watched/sub/output.txt");
+			assertThat(awaitEvent(events, FileEvent.Type.DELETED, "sub/output.txt")).isTrue();
+		}
+	}
+
+	@Test
+	void testSyncDirectory() throws Exception {
+		// Arrange: A host project
+		Path hostDir = Files.createTempDirectory("tck-sync-");
+		try {
+			Files.writeString(hostDir.resolve("keep.txt"), "keep");
+			Files.writeString(hostDir.resolve("edit.txt"), "v1");
+			Files.createDirectories(hostDir.resolve("src"));
+			Files.writeString(hostDir.resolve("src/remove.txt"), "remove");
+
+			// Act & Assert: First sync copies everything
+			SyncResult first = sandbox.files().sync(hostDir, "synced");
+			assertThat(first.added()).contains("keep.txt", "edit.txt", "src/remove.txt");
+			assertThat(sandbox.files().read("synced/src/remove.txt")).isEqualTo("remove");
+
+			// Act & Assert: Syncing an unchanged tree changes nothing
+			sandbox.files().create("synced/build.log", "sandbox only");
+			SyncResult unchanged = sandbox.files().sync(hostDir, "synced");
+			assertThat(unchanged.hasChanges()).isFalse();
+			assertThat(unchanged.unchanged()).isEqualTo(3);
+
+			// Act: Edit, delete and add on the host
+			Files.writeString(hostDir.resolve("edit.txt"), "v2");
+			Files.delete(hostDir.resolve("src/remove.txt"));
+			Files.writeString(hostDir.resolve("src/new.txt"), "new");
+			SyncResult changed = sandbox.files().sync(hostDir, "synced");
+
+			// Assert: Only the differences are applied; sandbox-only files survive
+			assertThat(changed.added()).isEqualTo(List.of("src/new.txt"));
+			assertThat(changed.updated()).isEqualTo(List.of("edit.txt"));
+			assertThat(changed.deleted()).isEqualTo(List.of("src/remove.txt"));
+			assertThat(sandbox.files().read("synced/edit.txt")).isEqualTo("v2");
+			assertThat(sandbox.files().read("synced/src/new.txt")).isEqualTo("new");
+			assertThat(sandbox.files().exists("synced/src/remove.txt")).isFalse();
+			assertThat(sandbox.files().read("synced/build.log")).isEqualTo("sandbox only");
+		}
+		finally {
+			try (Stream<Path> paths = Files.walk(hostDir)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	private static boolean awaitEvent(BlockingQueue<FileEvent> events, FileEvent.Type type, String path)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (System.nanoTime() < deadline) {
+			FileEvent event = events.poll(100, TimeUnit.MILLISECONDS);
+			if (event != null && event.type() == type && event.path().equals(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	void testFindAndGrep() {
+		// Arrange: A small project with a binary file and a nested directory
+		sandbox.files()
+			.create("search/pom.xml", "<project/>")
+			.create("search/src/Main.java", "class Main {\n\t// TODO first\n}\n")
+			.create("search/src/deep/Util.java", "class Util {\n\t// TODO second\n\t// TODO third\n}\n")
+			.writeBytes("search/data.bin", new byte[] { 'T', 'O', 'D', 'O', 0, 1, 2 });
+
+		// Act & Assert: find filters by name and depth
+		try (Stream<String> found = sandbox.files().find("search", List.of("*.java"), Integer.MAX_VALUE)) {
+			assertThat(found.toList()).containsExactlyInAnyOrder("src/Main.java", "src/deep/Util.java");
+		}
+		try (Stream<String> found = sandbox.files().find("search", List.of(), 2)) {
+			assertThat(found.toList()).containsExactlyInAnyOrder("pom.xml", "data.bin", "src/Main.java");
+		}
+
+		// Act & Assert: grep reports path, line number and text, skipping binary files
+		try (Stream<GrepMatch> matches = sandbox.files().grep("search", "TODO (first|second)", List.of("*.java"), 10)) {
+			assertThat(matches.toList()).containsExactlyInAnyOrder(new GrepMatch("src/Main.java", 2, "\t// TODO first"),
+					new GrepMatch("src/deep/Util.java", 2, "\t// TODO second"));
+		}
+		try (Stream<GrepMatch> matches = sandbox.files().grep("search", "TODO", List.of(), 2)) {
+			assertThat(matches.toList()).hasSize(2);
+		}
+		try (Stream<GrepMatch> matches = sandbox.files().grep("search", "absent", List.of(), 10)) {
+			assertThat(matches.toList()).isEmpty();
+		}
+	}
+
+	@Test
+	void testReadRanges() {
+		// Arrange: A text file longer than one line index stride, with CRLF and no final
+		// newline
+		StringBuilder text = new StringBuilder();
+		for (int i = 1; i <= 600; i++) {
+			text.append("line ").append(i).append(i == 300 ? "\r\n" : "\n");
+		}
+		text.append("last");
+		sandbox.files().create("ranges/big.txt", text.toString());
+		byte[] binary = new byte[1000];
+		new Random(7).nextBytes(binary);
+		sandbox.files().writeBytes("ranges/data.bin", binary);
+
+		// Act & Assert: Byte ranges, including one crossing and one past the end
+		assertThat(sandbox.files().readBytes("ranges/data.bin", 100, 50))
+			.isEqualTo(Arrays.copyOfRange(binary, 100, 150));
+		assertThat(sandbox.files().readBytes("ranges/data.bin", 990, 50))
+			.isEqualTo(Arrays.copyOfRange(binary, 990, 1000));
+		assertThat(sandbox.files().readBytes("ranges/data.bin", 2000, 10)).isEmpty();
+
+		// Act & Assert: Line ranges, read twice to exercise any cached index
+		assertThat(sandbox.files().readLines("ranges/big.txt", 299, 301)).containsExactly("line 299", "line 300",
+				"line 301");
+		assertThat(sandbox.files().readLines("ranges/big.txt", 299, 301)).containsExactly("line 299", "line 300",
+				"line 301");
+		assertThat(sandbox.files().readLines("ranges/big.txt", 1, 2)).containsExactly("line 1", "line 2");
+		assertThat(sandbox.files().readLines("ranges/big.txt", 600, 700)).containsExactly("line 600", "last");
+		assertThat(sandbox.files().readLines("ranges/big.txt", 900, 910)).isEmpty();
+
+		// Act & Assert: Missing files fail
+		assertThatThrownBy(() -> sandbox.files().readLines("ranges/missing.txt", 1, 2))
+			.isInstanceOf(SandboxException.class);
+	}
+
+	@Test
+	void testStat() {
+		// Arrange
+		sandbox.files().create("stat/file.txt", "12345").createDirectory("stat/dir");
+
+		// Act & Assert: A file and a directory
+		FileEntry file = sandbox.files().stat("stat/file.txt").orElseThrow();
+		assertThat(file.isFile()).isTrue();
+		assertThat(file.name()).isEqualTo("file.txt");
+		assertThat(file.path()).isEqualTo("stat/file.txt");
+		assertThat(file.size()).isEqualTo(5);
+		assertThat(file.modifiedTime()).isAfter(Instant.now().minus(Duration.ofHours(1)));
+		assertThat(sandbox.files().stat("stat/dir").orElseThrow().isDirectory()).isTrue();
+		assertThat(sandbox.files().stat("stat/missing.txt")).isEmpty();
+
+		// Act & Assert: A batch keeps the requested order and omits missing paths
+		Map<String, FileEntry> entries = sandbox.files()
+			.statAll(List.of("stat/dir", "stat/missing.txt", "stat/file.txt"));
+		assertThat(entries.keySet()).containsExactly("stat/dir", "stat/file.txt");
+		assertThat(entries.get("stat/file.txt").size()).isEqualTo(5);
+	}
+
+	@Test
+	void testWalk() {
+		// Arrange: A nested tree
+		sandbox.files()
+			.create("walk/top.txt", "top")
+			.create("walk/a/middle.txt", "middle")
+			.create("walk/a/b/bottom.txt", "bottom");
+
+		// Act & Assert: Depth is honoured and paths are relative to the working directory
+		try (Stream<FileEntry> entries = sandbox.files().walk("walk", 1)) {
+			assertThat(entries.map(FileEntry::path).toList()).containsExactlyInAnyOrder("walk/top.txt", "walk/a");
+		}
+		try (Stream<FileEntry> entries = sandbox.files().walk("walk", Integer.MAX_VALUE)) {
+			List<FileEntry> all = entries.toList();
+			assertThat(all).extracting(FileEntry::path)
+				.containsExactlyInAnyOrder("walk/top.txt", "walk/a", "walk/a/middle.txt", "walk/a/b",
+						"walk/a/b/bottom.txt");
+			assertThat(all.stream().filter(e -> e.path().equals("walk/a/b/bottom.txt")).findFirst().get().size())
+				.isEqualTo(6);
+		}
+
+		// Act & Assert: The walk can stop early and be read in pages
+		try (Stream<FileEntry> entries = sandbox.files().walk("walk", Integer.MAX_VALUE)) {
+			assertThat(entries.limit(2).toList()).hasSize(2);
+		}
+		try (Stream<List<FileEntry>> pages = sandbox.files().walkPages("walk", Integer.MAX_VALUE, 2)) {
+			assertThat(pages.map(List::size).toList()).containsExactly(2, 2, 1);
+		}
+
+		// Act & Assert: A missing directory fails
+		assertThatThrownBy(() -> {
+			try (Stream<FileEntry> entries = sandbox.files().walk("walk/missing", 1)) {
+				entries.count();
+			}
+		}).isInstanceOf(SandboxException.class);
+	}
+
 }
\ No newline at end of file
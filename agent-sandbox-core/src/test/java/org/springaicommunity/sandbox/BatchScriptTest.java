@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springaicommunity.sandbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link BatchScript}, running the generated script with a local bash.
+ */
+class BatchScriptTest {
+
+	private LocalSandbox sandbox;
+
+	@BeforeEach
+	void setUp() {
+		sandbox = LocalSandbox.builder().tempDirectory("batch-script-test-").build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		sandbox.close();
+	}
+
+	@Test
+	void splitsOutputPerCommand() {
+		ExecSpec noNewline = ExecSpec.builder().shellCommand("printf 'no newline'").build();
+		ExecSpec failing = ExecSpec.builder()
+			.shellCommand("echo \"$GREETING\"; echo oops >&2; exit 3")
+			.env("GREETING", "it's")
+			.build();
+		BatchScript batch = new BatchScript(List.of(noNewline, failing, ExecSpec.of("echo", "a b", "c")), false, null);
+
+		List<ExecResult> results = run(batch);
+
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0).stdout()).isEqualTo("no newline");
+		assertThat(results.get(0).exitCode()).isEqualTo(0);
+		assertThat(results.get(1).stdout()).isEqualTo("it's\n");
+		assertThat(results.get(1).stderr()).isEqualTo("oops\n");
+		assertThat(results.get(1).exitCode()).isEqualTo(3);
+		assertThat(results.get(2).stdout()).isEqualTo("a b c\n");
+		assertThat(results.get(2).stderr()).isEmpty();
+	}
+
+	@Test
+	void stopsOnFirstFailure() {
+		List<ExecSpec> specs = List.of(ExecSpec.of("true"), ExecSpec.of("false"), ExecSpec.of("echo", "x"));
+		BatchScript batch = new BatchScript(specs, true, null);
+
+		List<ExecResult> results = run(batch);
+
+		assertThat(results).extracting(ExecResult::exitCode).containsExactly(0, 1);
+	}
+
+	@Test
+	void timedOutCommandFailsTheBatch() {
+		BatchScript batch = new BatchScript(
+				List.of(ExecSpec.of("true"),
+						ExecSpec.builder().shellCommand("sleep 5").timeout(Duration.ofMillis(300)).build()),
+				false, null);
+
+		assertThatThrownBy(() -> run(batch)).isInstanceOf(SandboxException.class)
+			.hasCauseInstanceOf(TimeoutException.class);
+	}
+
+	@Test
+	void limitedCommandsAreTrimmedInTheSandbox() {
+		ExecSpec chatty = ExecSpec.builder()
+			.shellCommand("head -c 100000 /dev/zero | tr '\\0' x; printf END; echo err >&2")
+			.outputLimit(4, 3)
+			.build();
+		ExecSpec quiet = ExecSpec.builder().shellCommand("echo done").outputLimit(16, 16).build();
+		BatchScript batch = new BatchScript(List.of(chatty, quiet), false, null);
+
+		ExecResult combined = sandbox
+			.exec(ExecSpec.builder().command("bash", "-c", batch.script()).outputLimit(batch.outputLimit()).build());
+		List<ExecResult> results = batch.parse(combined.stdout(), combined.stderr());
+
+		assertThat(combined.truncated()).isFalse();
+		assertThat(results.get(0).stdout()).startsWith("xxxx").endsWith("END");
+		assertThat(results.get(0).stdoutBytes()).isEqualTo(100003);
+		assertThat(results.get(0).stdoutTruncated()).isTrue();
+		assertThat(results.get(0).stderr()).isEqualTo("err\n");
+		assertThat(results.get(0).stderrTruncated()).isFalse();
+		assertThat(results.get(1).stdout()).isEqualTo("done\n");
+	}
+
+	@Test
+	void outputLimitCoversEveryCommandPlusFraming() {
+		ExecSpec limited = ExecSpec.builder().command("true").outputLimit(100, 50).build();
+		BatchScript bounded = new BatchScript(List.of(limited, limited), false, null);
+		BatchScript unbounded = new BatchScript(List.of(limited, ExecSpec.of("true")), false, null);
+
+		assertThat(bounded.outputLimit().maxBytes()).isGreaterThan(300);
+		assertThat(unbounded.outputLimit()).isNull();
+	}
+
+	private List<ExecResult> run(BatchScript batch) {
+		ExecResult result = sandbox.exec(ExecSpec.of("bash", "-c", batch.script()));
+		return batch.parse(result.stdout(), result.stderr());
+	}
+
+}
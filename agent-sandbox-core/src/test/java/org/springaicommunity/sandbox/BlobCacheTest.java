@@ -0,0 +1,271 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link BlobCache} and {@link BlobStore}.
+ */
+class BlobCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void cacheShouldEvictLeastRecentlyUsedContent() {
+		BlobCache cache = new BlobCache(300, 0);
+		cache.add("store", "a", 100);
+		cache.add("store", "b", 100);
+		cache.add("store", "c", 100);
+		assertThat(cache.contains("store", "a")).isTrue();
+
+		cache.add("store", "d", 100);
+
+		assertThat(cache.size()).isEqualTo(300);
+		assertThat(cache.contains("store", "b")).isFalse();
+		assertThat(cache.contains("store", "a")).isTrue();
+		assertThat(cache.contains("store", "d")).isTrue();
+	}
+
+	@Test
+	void cacheShouldNotTrackContentLargerThanBudget() {
+		BlobCache cache = new BlobCache(100, 0);
+		cache.add("store", "a", 50);
+		cache.add("store", "big", 101);
+
+		assertThat(cache.contains("store", "big")).isFalse();
+		assertThat(cache.contains("store", "a")).isTrue();
+	}
+
+	@Test
+	void removeStoreShouldForgetOnlyThatStore() {
+		BlobCache cache = new BlobCache(1000, 0);
+		cache.add("one", "a", 10);
+		cache.add("two", "a", 20);
+
+		cache.removeStore("one");
+
+		assertThat(cache.contains("one", "a")).isFalse();
+		assertThat(cache.contains("two", "a")).isTrue();
+		assertThat(cache.size()).isEqualTo(20);
+	}
+
+	@Test
+	void storeShouldCopyKnownContentInsteadOfUploading() throws IOException {
+		BlobCache cache = new BlobCache(1024 * 1024, 0);
+		BlobStoreSpec spec = BlobStoreSpec.shared(cache, "shared", tempDir.resolve("blobs").toString());
+		BlobStore first = BlobStore.open(spec, "first", new LocalShell());
+		BlobStore second = BlobStore.open(spec, "second", new LocalShell());
+		byte[] content = "shared content".getBytes(StandardCharsets.UTF_8);
+		AtomicInteger uploads = new AtomicInteger();
+
+		first.write(tempDir.resolve("one/file.txt").toString(), content,
+				() -> upload(tempDir.resolve("one/file.txt"), content, uploads));
+		second.write(tempDir.resolve("two/nested/file.txt").toString(), content,
+				() -> upload(tempDir.resolve("two/nested/file.txt"), content, uploads));
+
+		assertThat(uploads.get()).isEqualTo(1);
+		assertThat(Files.readAllBytes(tempDir.resolve("two/nested/file.txt"))).isEqualTo(content);
+		assertThat(cache.hits()).isEqualTo(1);
+	}
+
+	@Test
+	void storeShouldGiveCopiedFilesTheModeOfTheirSource() throws IOException {
+		BlobCache cache = new BlobCache(1024 * 1024, 0);
+		BlobStore store = BlobStore.open(BlobStoreSpec.shared(cache, "shared", tempDir.resolve("blobs").toString()),
+				"id", new LocalShell());
+		byte[] content = "#!/bin/sh\necho hi\n".getBytes(StandardCharsets.UTF_8);
+		Path script = Files.write(tempDir.resolve("run.sh"), content);
+		Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+		AtomicInteger uploads = new AtomicInteger();
+
+		store.write(tempDir.resolve("plain.txt").toString(), content,
+				() -> upload(tempDir.resolve("plain.txt"), content, uploads));
+		store.write(tempDir.resolve("copy.sh").toString(), script,
+				() -> upload(tempDir.resolve("copy.sh"), content, uploads));
+
+		assertThat(uploads.get()).isEqualTo(1);
+		assertThat(Files.isExecutable(tempDir.resolve("copy.sh"))).isTrue();
+		assertThat(Files.isExecutable(tempDir.resolve("plain.txt"))).isFalse();
+	}
+
+	@Test
+	void storeShouldUploadAgainWhenBlobIsMissing() throws IOException {
+		BlobCache cache = new BlobCache(1024 * 1024, 0);
+		Path blobs = tempDir.resolve("blobs");
+		BlobStore store = BlobStore.open(BlobStoreSpec.shared(cache, "shared", blobs.toString()), "id",
+				new LocalShell());
+		byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+		AtomicInteger uploads = new AtomicInteger();
+
+		store.write(tempDir.resolve("a.txt").toString(), content,
+				() -> upload(tempDir.resolve("a.txt"), content, uploads));
+		try (var files = Files.list(blobs)) {
+			for (Path blob : files.toList()) {
+				Files.delete(blob);
+			}
+		}
+		store.write(tempDir.resolve("b.txt").toString(), content,
+				() -> upload(tempDir.resolve("b.txt"), content, uploads));
+
+		assertThat(uploads.get()).isEqualTo(2);
+		assertThat(Files.readAllBytes(tempDir.resolve("b.txt"))).isEqualTo(content);
+	}
+
+	@Test
+	void storeShouldUploadSmallContentDirectly() {
+		BlobCache cache = new BlobCache(1024 * 1024, 1024);
+		LocalShell shell = new LocalShell();
+		BlobStore store = BlobStore.open(BlobStoreSpec.perSandbox(cache), "id", shell);
+		byte[] content = "small".getBytes(StandardCharsets.UTF_8);
+		AtomicInteger uploads = new AtomicInteger();
+
+		store.write(tempDir.resolve("a.txt").toString(), content,
+				() -> upload(tempDir.resolve("a.txt"), content, uploads));
+
+		assertThat(uploads.get()).isEqualTo(1);
+		assertThat(shell.scripts).isEmpty();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void closingPerSandboxStoreShouldForgetItsContent() {
+		BlobCache cache = new BlobCache(1024 * 1024, 0);
+		Path blobs = tempDir.resolve("blobs");
+		BlobStore store = BlobStore.open(new BlobStoreSpec(cache, null, blobs.toString()), "id", new LocalShell());
+		byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+
+		store.write(tempDir.resolve("a.txt").toString(), content,
+				() -> upload(tempDir.resolve("a.txt"), content, new AtomicInteger()));
+		store.write(tempDir.resolve("b.txt").toString(), content,
+				() -> upload(tempDir.resolve("b.txt"), content, new AtomicInteger()));
+		assertThat(cache.size()).isEqualTo(content.length);
+
+		store.close();
+
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void perSandboxStoreShouldKeepContentOnlyOnceWrittenTwice() throws IOException {
+		BlobCache cache = new BlobCache(1024 * 1024, 0);
+		Path blobs = tempDir.resolve("blobs");
+		LocalShell shell = new LocalShell();
+		BlobStore store = BlobStore.open(new BlobStoreSpec(cache, null, blobs.toString()), "id", shell);
+		byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+		AtomicInteger uploads = new AtomicInteger();
+
+		store.write(tempDir.resolve("a.txt").toString(), content,
+				() -> upload(tempDir.resolve("a.txt"), content, uploads));
+		assertThat(shell.scripts).isEmpty();
+		assertThat(Files.exists(blobs)).isFalse();
+
+		store.write(tempDir.resolve("b.txt").toString(), content,
+				() -> upload(tempDir.resolve("b.txt"), content, uploads));
+		store.write(tempDir.resolve("c.txt").toString(), content,
+				() -> upload(tempDir.resolve("c.txt"), content, uploads));
+
+		assertThat(uploads.get()).isEqualTo(2);
+		assertThat(Files.readAllBytes(tempDir.resolve("c.txt"))).isEqualTo(content);
+	}
+
+	@Test
+	void storeShouldDeleteBlobsEvictedFromCache() throws Exception {
+		BlobCache cache = new BlobCache(10, 0);
+		Path blobs = tempDir.resolve("blobs");
+		BlobStore store = BlobStore.open(BlobStoreSpec.shared(cache, "shared", blobs.toString()), "id",
+				new LocalShell());
+		byte[] first = "first-123".getBytes(StandardCharsets.UTF_8);
+		byte[] second = "second-12".getBytes(StandardCharsets.UTF_8);
+
+		store.write(tempDir.resolve("a.txt").toString(), first,
+				() -> upload(tempDir.resolve("a.txt"), first, new AtomicInteger()));
+		store.write(tempDir.resolve("b.txt").toString(), second,
+				() -> upload(tempDir.resolve("b.txt"), second, new AtomicInteger()));
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (blobCount(blobs) > 1 && System.nanoTime() < deadline) {
+			Thread.sleep(20);
+		}
+		assertThat(blobCount(blobs)).isEqualTo(1L);
+		assertThat(cache.size()).isEqualTo((long) second.length);
+		store.close();
+	}
+
+	private static long blobCount(Path blobs) throws IOException {
+		try (Stream<Path> files = Files.list(blobs)) {
+			return files.count();
+		}
+	}
+
+	private static void upload(Path target, byte[] content, AtomicInteger uploads) {
+		try {
+			Files.createDirectories(target.getParent());
+			Files.write(target, content);
+			uploads.incrementAndGet();
+		}
+		catch (IOException e) {
+			throw new SandboxException("Upload failed", e);
+		}
+	}
+
+	/**
+	 * Runs scripts with the local bash, standing in for a remote sandbox.
+	 */
+	private static final class LocalShell implements SandboxShell {
+
+		private final List<String> scripts = new ArrayList<>();
+
+		@Override
+		public String run(String script, String... args) {
+			scripts.add(script);
+			List<String> command = new ArrayList<>(List.of("bash", "-c", script, "bash"));
+			command.addAll(List.of(args));
+			try {
+				Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+				String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+				if (process.waitFor() != 0) {
+					throw new SandboxException("Script failed: " + output);
+				}
+				return output;
+			}
+			catch (IOException e) {
+				throw new SandboxException("Failed to run bash", e);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SandboxException("Interrupted", e);
+			}
+		}
+
+	}
+
+}
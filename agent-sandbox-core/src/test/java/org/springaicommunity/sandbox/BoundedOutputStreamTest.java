@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springaicommunity.sandbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link BoundedOutputStream}.
+ */
+class BoundedOutputStreamTest {
+
+	@Test
+	void outputWithinLimitIsKeptIntact() {
+		BoundedOutputStream stream = new BoundedOutputStream(new OutputLimit(4, 4));
+		stream.write(bytes("abc"), 0, 3);
+		stream.write(bytes("defgh"), 0, 5);
+
+		assertThat(stream.contentAsString()).isEqualTo("abcdefgh");
+		assertThat(stream.totalBytes()).isEqualTo(8L);
+		assertThat(stream.isTruncated()).isFalse();
+	}
+
+	@Test
+	void keepsHeadAndTailOfLargeOutput() {
+		BoundedOutputStream stream = new BoundedOutputStream(new OutputLimit(3, 3));
+		for (int i = 0; i < 10; i++) {
+			stream.write(bytes("0123456789"), 0, 10);
+		}
+
+		assertThat(stream.contentAsString()).isEqualTo("012\n... [94 bytes truncated] ...\n789");
+		assertThat(stream.totalBytes()).isEqualTo(100L);
+		assertThat(stream.isTruncated()).isTrue();
+	}
+
+	@Test
+	void tailWrapsAroundRingBuffer() {
+		BoundedOutputStream stream = new BoundedOutputStream(new OutputLimit(0, 5));
+		for (char c = 'a'; c <= 'z'; c++) {
+			stream.write(c);
+		}
+
+		assertThat(stream.contentAsString()).endsWith("vwxyz");
+		assertThat(stream.totalBytes()).isEqualTo(26L);
+	}
+
+	@Test
+	void multiByteCharactersCutByLimitAreDropped() {
+		// Each euro sign is three bytes; the limits cut through the first and last one
+		BoundedOutputStream stream = new BoundedOutputStream(new OutputLimit(4, 4));
+		byte[] euros = bytes("€€€€€");
+		stream.write(euros, 0, euros.length);
+
+		assertThat(stream.contentAsString()).isEqualTo("€\n... [9 bytes truncated] ...\n€");
+		assertThat(stream.isTruncated()).isTrue();
+	}
+
+	@Test
+	void unboundedStreamCapturesEverything() {
+		BoundedOutputStream stream = new BoundedOutputStream(null);
+		byte[] data = bytes("x".repeat(100_000));
+		stream.write(data, 0, data.length);
+
+		assertThat(stream.contentAsString()).hasSize(100_000);
+		assertThat(stream.isTruncated()).isFalse();
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springaicommunity.sandbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ChunkingOutputStream}.
+ */
+class ChunkingOutputStreamTest {
+
+	@Test
+	void writesAreCapturedAndPublished() throws Exception {
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		List<OutputChunk> chunks = new ArrayList<>();
+
+		try (ChunkingOutputStream stream = new ChunkingOutputStream(OutputChunk.Type.STDERR, capture, chunks::add)) {
+			stream.write("hello ".getBytes(StandardCharsets.UTF_8));
+			stream.write("world".getBytes(StandardCharsets.UTF_8));
+		}
+
+		assertThat(capture.toString(StandardCharsets.UTF_8)).isEqualTo("hello world");
+		assertThat(chunks).extracting(OutputChunk::text).containsExactly("hello ", "world");
+		assertThat(chunks).allMatch(OutputChunk::isStderr);
+	}
+
+	@Test
+	void multiByteCharacterSplitAcrossWritesIsNotBroken() throws Exception {
+		byte[] euro = "€".getBytes(StandardCharsets.UTF_8);
+		List<OutputChunk> chunks = new ArrayList<>();
+
+		ChunkingOutputStream stream = new ChunkingOutputStream(OutputChunk.Type.STDOUT, new ByteArrayOutputStream(),
+				chunks::add);
+		stream.write(new byte[] { 'a', euro[0] });
+		stream.write(new byte[] { euro[1], euro[2], 'b' });
+		stream.finish();
+
+		assertThat(chunks).extracting(OutputChunk::text).containsExactly("a", "€b");
+	}
+
+	@Test
+	void finishFlushesIncompleteTrailingBytes() throws Exception {
+		byte[] euro = "€".getBytes(StandardCharsets.UTF_8);
+		List<OutputChunk> chunks = new ArrayList<>();
+
+		ChunkingOutputStream stream = new ChunkingOutputStream(OutputChunk.Type.STDOUT, new ByteArrayOutputStream(),
+				chunks::add);
+		stream.write(new byte[] { 'x', euro[0] });
+		stream.finish();
+		stream.finish();
+
+		assertThat(chunks).extracting(OutputChunk::text).containsExactly("x", "�");
+	}
+
+}
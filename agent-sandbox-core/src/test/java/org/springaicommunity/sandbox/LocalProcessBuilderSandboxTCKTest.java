@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+/**
+ * TCK test implementation for LocalSandbox with the
+ * {@link LocalSandbox.ExecEngine#PROCESS_BUILDER} exec engine.
+ */
+class LocalProcessBuilderSandboxTCKTest extends AbstractSandboxTCK {
+
+	@TempDir
+	private Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		this.sandbox = LocalSandbox.builder()
+			.workingDirectory(tempDir)
+			.execEngine(LocalSandbox.ExecEngine.PROCESS_BUILDER)
+			.build();
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests that {@link LocalSandbox} terminates the whole process tree of a timed out
+ * command with both exec engines.
+ */
+class ProcessTreeTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void timeoutShouldTerminateDescendants() throws Exception {
+		for (LocalSandbox.ExecEngine engine : LocalSandbox.ExecEngine.values()) {
+			try (Sandbox sandbox = LocalSandbox.builder().workingDirectory(tempDir).execEngine(engine).build()) {
+				ExecSpec spec = ExecSpec.builder()
+					.shellCommand("sleep 30 & echo $! > child.pid; wait")
+					.timeout(Duration.ofSeconds(1))
+					.build();
+
+				assertThatThrownBy(() -> sandbox.exec(spec)).isInstanceOf(SandboxException.class)
+					.satisfies(
+							e -> assertThat(((TimeoutException) e.getCause()).getTerminatedProcesses()).isEqualTo(2));
+
+				long childPid = Long.parseLong(Files.readString(tempDir.resolve("child.pid")).trim());
+				assertThat(ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false)).isFalse();
+			}
+		}
+	}
+
+	@Test
+	void processesIgnoringSigtermShouldBeKilledAfterGracePeriod() {
+		for (LocalSandbox.ExecEngine engine : LocalSandbox.ExecEngine.values()) {
+			try (Sandbox sandbox = LocalSandbox.builder()
+				.workingDirectory(tempDir)
+				.execEngine(engine)
+				.killGracePeriod(Duration.ofMillis(200))
+				.build()) {
+				ExecSpec spec = ExecSpec.builder()
+					.shellCommand("trap '' TERM; sleep 30")
+					.timeout(Duration.ofMillis(500))
+					.build();
+				long start = System.nanoTime();
+
+				assertThatThrownBy(() -> sandbox.exec(spec)).isInstanceOf(SandboxException.class)
+					.satisfies(e -> assertThat(e.getCause()).isInstanceOf(TimeoutException.class));
+
+				assertThat(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 10).isTrue();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springaicommunity.sandbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link SandboxExecutors}.
+ */
+class SandboxExecutorsTest {
+
+	@Test
+	void cancelInterruptsTaskWithoutLeakingTheInterrupt() throws Exception {
+		AtomicBoolean interruptedAfterTask = new AtomicBoolean(true);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(1);
+		Executor executor = runnable -> new Thread(() -> {
+			runnable.run();
+			interruptedAfterTask.set(Thread.currentThread().isInterrupted());
+			finished.countDown();
+		}).start();
+
+		CompletableFuture<Boolean> future = SandboxExecutors.supplyAsync(() -> {
+			started.countDown();
+			try {
+				Thread.sleep(10_000);
+				return false;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return true;
+			}
+		}, executor);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		future.cancel(true);
+
+		assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(future.isCancelled()).isTrue();
+		assertThat(interruptedAfterTask.get()).isFalse();
+	}
+
+	@Test
+	void interruptsNotCausedByCancelAreKept() {
+		CompletableFuture<String> future = SandboxExecutors.supplyAsync(() -> {
+			Thread.currentThread().interrupt();
+			return "done";
+		}, Runnable::run);
+
+		assertThat(future.join()).isEqualTo("done");
+		assertThat(Thread.interrupted()).isTrue();
+	}
+
+}
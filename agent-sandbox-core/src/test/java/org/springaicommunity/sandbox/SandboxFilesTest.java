@@ -170,6 +170,16 @@ class SandboxFilesTest {
 		}
 	}
 
+	@Test
+	void listWithDepthZeroShouldReturnNoEntries() {
+		try (LocalSandbox sandbox = LocalSandbox.builder().tempDirectory("test-").build()) {
+			sandbox.files().create("dir/file.txt", "content");
+
+			assertThat(sandbox.files().list("dir", 0)).isEmpty();
+			assertThatThrownBy(() -> sandbox.files().walk("dir", 0)).isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
 	@Test
 	void fileSpecOfShouldCreateFileSpec() {
 		FileSpec spec = FileSpec.of("path/to/file.txt", "content");
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link SandboxMetrics} reporting by {@link LocalSandbox}.
+ */
+class SandboxMetricsTest {
+
+	private final List<SandboxMetrics.Event> events = new CopyOnWriteArrayList<>();
+
+	private LocalSandbox sandbox;
+
+	@BeforeEach
+	void setUp() {
+		sandbox = LocalSandbox.builder().tempDirectory("sandbox-metrics-test-").metrics(events::add).build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		sandbox.close();
+	}
+
+	@Test
+	void recordsExecutions() {
+		sandbox.exec(ExecSpec.builder().shellCommand("printf 'abc'; printf 'de' >&2; exit 2").build());
+
+		assertThat(events).hasSize(1);
+		SandboxMetrics.Event event = events.get(0);
+		assertThat(event.backend()).isEqualTo("local");
+		assertThat(event.operation()).isEqualTo(SandboxMetrics.EXEC);
+		assertThat(event.exitCode()).isEqualTo(2);
+		assertThat(event.bytesOut()).isEqualTo(5);
+		assertThat(event.failed()).isFalse();
+		assertThat(event.latency()).isGreaterThan(Duration.ZERO);
+	}
+
+	@Test
+	void reportsCommandLineAndEnvironmentAsBytesIn() {
+		sandbox.exec(ExecSpec.builder().command("echo", "hé").env("A", "b").build());
+
+		assertThat(events.get(0).bytesIn()).isEqualTo(9);
+	}
+
+	@Test
+	void internalExecutionsAreReportedSeparately() {
+		SandboxMeter.internal(() -> sandbox.exec(ExecSpec.of("true")));
+		sandbox.exec(ExecSpec.of("true"));
+
+		assertThat(events).extracting(SandboxMetrics.Event::operation)
+			.containsExactly(SandboxMetrics.EXEC_INTERNAL, SandboxMetrics.EXEC);
+	}
+
+	@Test
+	void recordsFailuresWithTheirCause() {
+		ExecSpec spec = ExecSpec.builder().shellCommand("sleep 5").timeout(Duration.ofMillis(200)).build();
+
+		assertThatThrownBy(() -> sandbox.exec(spec)).isInstanceOf(SandboxException.class);
+
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).exceptionType()).isEqualTo(TimeoutException.class.getName());
+		assertThat(events.get(0).exitCode()).isNull();
+	}
+
+	@Test
+	void recordsChainedFileOperations() {
+		sandbox.files().create("a.txt", "héllo").createDirectory("dir");
+		String content = sandbox.files().read("a.txt");
+
+		assertThat(content).isEqualTo("héllo");
+		assertThat(events).extracting(SandboxMetrics.Event::operation)
+			.containsExactly(SandboxMetrics.FILES_CREATE, SandboxMetrics.FILES_CREATE_DIRECTORY,
+					SandboxMetrics.FILES_READ);
+		assertThat(events.get(0).bytesIn()).isEqualTo(6);
+		assertThat(events.get(2).bytesOut()).isEqualTo(6);
+	}
+
+	@Test
+	void listenerFailuresDoNotBreakOperations() {
+		try (LocalSandbox failing = LocalSandbox.builder().tempDirectory("sandbox-metrics-test-").metrics(event -> {
+			throw new IllegalStateException("broken listener");
+		}).build()) {
+			assertThat(failing.exec(ExecSpec.of("echo", "ok")).stdout()).isEqualTo("ok\n");
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link SandboxPool} backed by {@link LocalSandbox}.
+ */
+class SandboxPoolTest {
+
+	private static final Duration WAIT = Duration.ofSeconds(10);
+
+	private SandboxPool pool;
+
+	@AfterEach
+	void tearDown() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	@Test
+	void releaseResetsWorkspace() {
+		pool = newPool(1).withFile("seed/input.txt", "seed").build();
+
+		Sandbox sandbox = pool.acquire(WAIT);
+		sandbox.files().create("output.txt", "result").create("seed/input.txt", "changed");
+		pool.release(sandbox);
+		Sandbox again = pool.acquire(WAIT);
+
+		assertThat(again).isSameAs(sandbox);
+		assertThat(again.files().exists("output.txt")).isFalse();
+		assertThat(again.files().list(".")).extracting(FileEntry::name).containsExactly("seed");
+		assertThat(again.files().read("seed/input.txt")).isEqualTo("seed");
+		assertThat(pool.stats().inUse()).isEqualTo(1);
+	}
+
+	@Test
+	void acquireTimesOutWhenAllSandboxesAreInUse() {
+		pool = newPool(1).build();
+		pool.acquire(WAIT);
+
+		assertThatThrownBy(() -> pool.acquire(Duration.ofMillis(100))).isInstanceOf(SandboxException.class)
+			.hasCauseInstanceOf(TimeoutException.class);
+
+		SandboxPool.Stats stats = pool.stats();
+		assertThat(stats.timeouts()).isEqualTo(1);
+		assertThat(stats.hits() + stats.misses()).isEqualTo(2);
+		assertThat(stats.maxWait()).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+	}
+
+	@Test
+	void closedSandboxIsReplaced() {
+		pool = newPool(1).build();
+		Sandbox sandbox = pool.acquire(WAIT);
+		sandbox.close();
+		pool.release(sandbox);
+
+		Sandbox replacement = pool.acquire(WAIT);
+
+		assertThat(replacement).isNotSameAs(sandbox);
+		assertThat(replacement.isClosed()).isFalse();
+		assertThat(pool.stats().replaced()).isEqualTo(1);
+	}
+
+	@Test
+	void unhealthyIdleSandboxIsReplaced() {
+		AtomicBoolean healthy = new AtomicBoolean(true);
+		pool = newPool(1).healthCheck(sandbox -> healthy.get()).healthCheckInterval(Duration.ofMillis(50)).build();
+		Sandbox original = pool.acquire(WAIT);
+		pool.release(original);
+
+		healthy.set(false);
+		awaitTrue(() -> pool.stats().replaced() > 0);
+		healthy.set(true);
+		Sandbox replacement = pool.acquire(WAIT);
+
+		assertThat(replacement).isNotSameAs(original);
+		assertThat(original.isClosed()).isTrue();
+	}
+
+	@Test
+	void closeClosesSandboxesInUse() {
+		pool = newPool(2).build();
+		Sandbox sandbox = pool.acquire(WAIT);
+
+		pool.close();
+
+		assertThat(sandbox.isClosed()).isTrue();
+		assertThatThrownBy(() -> pool.acquire(WAIT)).isInstanceOf(IllegalStateException.class);
+		pool.release(sandbox);
+	}
+
+	@Test
+	void sandboxWithCallerOwnedWorkingDirectoryIsRefused(@TempDir Path workDir) throws IOException {
+		Path userFile = Files.writeString(workDir.resolve("keep.txt"), "keep");
+		pool = SandboxPool.builder(() -> LocalSandbox.builder().workingDirectory(workDir).build()).build();
+
+		awaitTrue(() -> pool.stats().creationFailures() >= 2);
+
+		assertThat(pool.stats().idle()).isEqualTo(0);
+		assertThat(Files.readString(userFile)).isEqualTo("keep");
+	}
+
+	private static SandboxPool.Builder newPool(int size) {
+		return SandboxPool.builder(() -> LocalSandbox.builder().tempDirectory("sandbox-pool-test-").build()).size(size);
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + WAIT.toNanos();
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("Condition not met within " + WAIT);
+			}
+			try {
+				Thread.sleep(20);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ShellSession} over a local bash.
+ */
+class ShellSessionTest {
+
+	private LocalSandbox sandbox;
+
+	private ShellSession session;
+
+	@BeforeEach
+	void setUp() {
+		sandbox = LocalSandbox.builder().tempDirectory("shell-session-test-").build();
+		session = sandbox.openSession();
+	}
+
+	@AfterEach
+	void tearDown() {
+		session.close();
+		sandbox.close();
+	}
+
+	@Test
+	void keepsShellStateBetweenCommands() {
+		session.exec("greet() { echo \"hello $1\"; }; cd /tmp; COUNT=1");
+		session.exec("COUNT=$((COUNT + 1))");
+
+		ExecResult result = session.exec("greet \"$COUNT\"; pwd");
+
+		assertThat(result.stdout()).isEqualTo("hello 2\n/tmp\n");
+		assertThat(result.exitCode()).isEqualTo(0);
+	}
+
+	@Test
+	void survivesSyntaxErrorsAndStdinReaders() {
+		ExecResult syntaxError = session.exec("if then fi");
+		ExecResult stdinReader = session.exec("cat; echo 'it'\"'\"'s done'");
+
+		assertThat(syntaxError.exitCode()).isNotEqualTo(0);
+		assertThat(syntaxError.stderr()).contains("syntax error");
+		assertThat(stdinReader.stdout()).isEqualTo("it's done\n");
+		assertThat(session.isOpen()).isTrue();
+	}
+
+	@Test
+	void exitClosesTheSession() {
+		assertThatThrownBy(() -> session.exec("exit 4")).isInstanceOf(SandboxException.class);
+		assertThat(session.isOpen()).isFalse();
+	}
+
+	@Test
+	void timeoutKillsTheSession() {
+		assertThatThrownBy(() -> session.exec("sleep 5", Duration.ofMillis(300))).isInstanceOf(SandboxException.class)
+			.hasCauseInstanceOf(TimeoutException.class);
+		assertThat(session.isOpen()).isFalse();
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link StreamPipe}.
+ */
+class StreamPipeTest {
+
+	@Test
+	void boundedPipeTransfersMoreThanItsCapacity() throws Exception {
+		StreamPipe pipe = new StreamPipe(1024);
+		byte[] content = new byte[100_000];
+		new Random(7).nextBytes(content);
+
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try (OutputStream out = pipe.outputStream()) {
+				out.write(content);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		try (InputStream in = pipe.inputStream()) {
+			assertThat(in.readAllBytes()).isEqualTo(content);
+		}
+		writer.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void boundedPipeBlocksWriterUntilRead() throws Exception {
+		StreamPipe pipe = new StreamPipe(4);
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try {
+				pipe.outputStream().write(new byte[] { 1, 2, 3, 4, 5, 6 });
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		Thread.sleep(100);
+		assertThat(writer.isDone()).isFalse();
+		assertThat(pipe.inputStream().available()).isEqualTo(4);
+
+		byte[] buffer = new byte[4];
+		assertThat(pipe.inputStream().read(buffer)).isEqualTo(4);
+		writer.get(5, TimeUnit.SECONDS);
+		assertThat(pipe.inputStream().available()).isEqualTo(2);
+	}
+
+	@Test
+	void closingReaderReleasesBlockedWriter() throws Exception {
+		StreamPipe pipe = new StreamPipe(4);
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try {
+				pipe.outputStream().write(new byte[64]);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		Thread.sleep(100);
+		pipe.inputStream().close();
+		writer.get(5, TimeUnit.SECONDS);
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TarArchives}.
+ */
+class TarArchivesTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void writesFilteredTreeRelativeToDirectory() throws IOException {
+		Files.createDirectories(tempDir.resolve("src/main"));
+		Files.writeString(tempDir.resolve("src/main/App.java"), "class App {}");
+		Files.createDirectories(tempDir.resolve(".git"));
+		Files.writeString(tempDir.resolve(".git/HEAD"), "ref");
+
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		TarArchives.write(tempDir, path -> !path.startsWith(".git"), archive);
+
+		assertThat(entries(archive.toByteArray()))
+			.isEqualTo(Map.of("src/", "", "src/main/", "", "src/main/App.java", "class App {}"));
+	}
+
+	@Test
+	void copyStripsLeadingComponents() throws IOException {
+		Files.createDirectories(tempDir.resolve("project/docs"));
+		Files.writeString(tempDir.resolve("project/docs/README.md"), "# Readme");
+		ByteArrayOutputStream original = new ByteArrayOutputStream();
+		TarArchives.write(tempDir, path -> true, original);
+
+		ByteArrayOutputStream stripped = new ByteArrayOutputStream();
+		TarArchives.copy(new ByteArrayInputStream(original.toByteArray()), stripped, 1);
+
+		assertThat(entries(stripped.toByteArray())).isEqualTo(Map.of("docs/", "", "docs/README.md", "# Readme"));
+	}
+
+	@Test
+	void fileModeKeepsPosixPermissions() throws IOException {
+		Path script = tempDir.resolve("run.sh");
+		Files.writeString(script, "#!/bin/sh");
+		Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-x---"));
+
+		assertThat(TarArchives.fileMode(script)).isEqualTo(0100750);
+	}
+
+	private static Map<String, String> entries(byte[] archive) throws IOException {
+		Map<String, String> entries = new LinkedHashMap<>();
+		try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(archive))) {
+			TarArchiveEntry entry;
+			while ((entry = tar.getNextTarEntry()) != null) {
+				entries.put(entry.getName(), new String(tar.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		return entries;
+	}
+
+}
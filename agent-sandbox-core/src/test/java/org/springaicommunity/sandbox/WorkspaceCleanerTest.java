@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link WorkspaceCleaner} and asynchronous cleanup of {@link LocalSandbox}.
+ */
+class WorkspaceCleanerTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void deleteShouldRemoveTreeWithoutFollowingLinks() throws IOException {
+		Path outside = Files.writeString(tempDir.resolve("outside.txt"), "keep");
+		Path workspace = createTree(tempDir.resolve("workspace"));
+		Files.createSymbolicLink(workspace.resolve("link"), tempDir);
+
+		WorkspaceCleaner.delete(workspace);
+
+		assertThat(Files.exists(workspace)).isFalse();
+		assertThat(Files.readString(outside)).isEqualTo("keep");
+	}
+
+	@Test
+	void deleteInBackgroundShouldFreeThePathImmediately() throws Exception {
+		Path workspace = createTree(tempDir.resolve("workspace"));
+
+		WorkspaceCleaner.deleteInBackground(workspace);
+
+		assertThat(Files.exists(workspace)).isFalse();
+		assertThat(WorkspaceCleaner.awaitPendingDeletions(Duration.ofSeconds(30))).isTrue();
+		try (Stream<Path> remaining = Files.list(tempDir)) {
+			assertThat(remaining.toList()).isEmpty();
+		}
+	}
+
+	@Test
+	void sandboxShouldCleanUpInBackgroundOnClose() throws Exception {
+		LocalSandbox sandbox = LocalSandbox.builder()
+			.tempDirectory("cleanup-test-")
+			.asyncCleanup(true)
+			.withFile("a/b/c.txt", "content")
+			.build();
+		Path workDir = sandbox.workDir();
+
+		sandbox.close();
+
+		assertThat(Files.exists(workDir)).isFalse();
+		assertThat(WorkspaceCleaner.awaitPendingDeletions(Duration.ofSeconds(30))).isTrue();
+		try (Stream<Path> siblings = Files.list(workDir.getParent())) {
+			assertThat(
+					siblings.filter(p -> p.getFileName().toString().startsWith("." + workDir.getFileName())).toList())
+				.isEmpty();
+		}
+	}
+
+	private static Path createTree(Path root) throws IOException {
+		for (int i = 0; i < 5; i++) {
+			Path dir = Files.createDirectories(root.resolve("dir" + i).resolve("nested"));
+			for (int j = 0; j < 20; j++) {
+				Files.writeString(dir.resolve("file" + j + ".txt"), "content " + j);
+				Files.writeString(dir.getParent().resolve("file" + j + ".txt"), "content " + j);
+			}
+		}
+		return root;
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.docker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springaicommunity.sandbox.FileEvent;
+import org.springaicommunity.sandbox.FileWatch;
+import org.springaicommunity.sandbox.FileWatchListener;
+import org.springaicommunity.sandbox.SandboxException;
+import org.springaicommunity.sandbox.SandboxExecutors;
+
+/**
+ * {@link FileWatch} for {@link DockerSandbox} that streams the output of
+ * {@code inotifywait -m} running in the container.
+ *
+ * <p>
+ * Writes are reported once per {@code close_write} rather than for every
+ * {@code write(2)}, so a large file produces a single {@link FileEvent.Type#MODIFIED}
+ * event. The image must provide {@code inotifywait} (package {@code inotify-tools});
+ * otherwise starting the watch fails with an error saying so.
+ * </p>
+ */
+final class DockerFileWatch implements FileWatch {
+
+	private static final Logger logger = LoggerFactory.getLogger(DockerFileWatch.class);
+
+	/** Recursive watches register every directory of the tree before they are ready. */
+	private static final Duration SETUP_TIMEOUT = Duration.ofSeconds(60);
+
+	private static final String READY_LINE = "Watches established.";
+
+	private static final String SCRIPT = "command -v inotifywait >/dev/null 2>&1"
+			+ " || { echo 'inotifywait not found in the image; install inotify-tools' >&2; exit 127; }; "
+			+ "test -d \"$1\" || { echo \"Path is not a directory: $1\" >&2; exit 3; }; "
+			+ "exec inotifywait -m %s-e create -e close_write -e attrib -e delete -e moved_from -e moved_to"
+			+ " --format '%%e|%%w%%f' -- \"$1\"";
+
+	private final Process process;
+
+	private final String directory;
+
+	private final FileWatchListener listener;
+
+	private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+	private final StringBuilder errors = new StringBuilder();
+
+	private volatile boolean active = true;
+
+	private DockerFileWatch(Process process, String directory, FileWatchListener listener) {
+		this.process = process;
+		this.directory = directory;
+		this.listener = listener;
+	}
+
+	/**
+	 * Start watching a directory and wait until the watches are established.
+	 * @param sandbox the sandbox to run the watcher in
+	 * @param directory absolute path of the directory in the container
+	 * @param recursive whether to watch subdirectories
+	 * @param listener receives the events
+	 * @return the established watch
+	 * @throws SandboxException if the watch cannot be established
+	 */
+	static DockerFileWatch start(DockerSandbox sandbox, String directory, boolean recursive,
+			FileWatchListener listener) {
+		String script = String.format(SCRIPT, recursive ? "-r " : "");
+		Process process = sandbox.startCommand(List.of("bash", "-c", script, "bash", directory), Map.of());
+		DockerFileWatch watch = new DockerFileWatch(process, directory, listener);
+		SandboxExecutors.defaultExecutor().execute(watch::readErrors);
+		SandboxExecutors.defaultExecutor().execute(watch::readEvents);
+		watch.awaitReady();
+		return watch;
+	}
+
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+
+	@Override
+	public void close() {
+		active = false;
+		process.destroy();
+	}
+
+	private void awaitReady() {
+		try {
+			ready.get(SETUP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new SandboxException("Interrupted while watching " + directory, e);
+		}
+		catch (ExecutionException e) {
+			close();
+			throw new SandboxException("Failed to watch " + directory + ": " + e.getCause().getMessage());
+		}
+		catch (TimeoutException e) {
+			close();
+			throw new SandboxException("Timed out after " + SETUP_TIMEOUT + " establishing watches on " + directory);
+		}
+	}
+
+	/**
+	 * inotifywait reports on stderr when its watches are in place, and why it failed.
+	 */
+	private void readErrors() {
+		try (BufferedReader reader = reader(process.getErrorStream())) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(READY_LINE)) {
+					ready.complete(null);
+				}
+				else if (!ready.isDone()) {
+					errors.append(errors.length() > 0 ? "; " : "").append(line);
+				}
+				else {
+					logger.debug("inotifywait: {}", line);
+				}
+			}
+		}
+		catch (IOException e) {
+			logger.debug("Watch error stream for {} ended", directory, e);
+		}
+		finally {
+			ready.completeExceptionally(new IOException(errors.length() > 0 ? errors.toString() : "watcher exited"));
+		}
+	}
+
+	private void readEvents() {
+		try (BufferedReader reader = reader(process.getInputStream())) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				handle(line);
+			}
+		}
+		catch (IOException e) {
+			logger.debug("Watch event stream for {} ended", directory, e);
+		}
+		finally {
+			active = false;
+		}
+	}
+
+	private void handle(String line) {
+		int separator = line.indexOf('|');
+		if (separator < 0) {
+			return;
+		}
+		List<String> events = List.of(line.substring(0, separator).split(","));
+		FileEvent.Type type;
+		if (events.contains("Q_OVERFLOW")) {
+			type = FileEvent.Type.OVERFLOW;
+		}
+		else if (events.contains("CREATE") || events.contains("MOVED_TO")) {
+			type = FileEvent.Type.CREATED;
+		}
+		else if (events.contains("DELETE") || events.contains("MOVED_FROM")) {
+			type = FileEvent.Type.DELETED;
+		}
+		else if (events.contains("CLOSE_WRITE") || events.contains("ATTRIB")) {
+			type = FileEvent.Type.MODIFIED;
+		}
+		else {
+			return;
+		}
+		String path = (type == FileEvent.Type.OVERFLOW) ? "" : relativize(line.substring(separator + 1));
+		if (!active) {
+			return;
+		}
+		try {
+			listener.onEvent(FileEvent.of(type, path));
+		}
+		catch (RuntimeException e) {
+			logger.warn("File watch listener failed for {} {}", type, path, e);
+		}
+	}
+
+	private String relativize(String path) {
+		String prefix = directory.endsWith("/") ? directory : directory + "/";
+		if (path.startsWith(prefix)) {
+			return path.substring(prefix.length());
+		}
+		return path.equals(directory) ? "" : path;
+	}
+
+	private static BufferedReader reader(InputStream in) {
+		return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+
+}
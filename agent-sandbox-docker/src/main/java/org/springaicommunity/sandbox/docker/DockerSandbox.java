@@ -16,20 +16,46 @@
 package org.springaicommunity.sandbox.docker;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Frame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springaicommunity.sandbox.BatchScript;
+import org.springaicommunity.sandbox.BlobCache;
+import org.springaicommunity.sandbox.BlobStoreSpec;
+import org.springaicommunity.sandbox.BoundedOutputStream;
+import org.springaicommunity.sandbox.ChunkingOutputStream;
 import org.springaicommunity.sandbox.ExecResult;
 import org.springaicommunity.sandbox.ExecSpec;
 import org.springaicommunity.sandbox.ExecSpecCustomizer;
+import org.springaicommunity.sandbox.OutputChunk;
+import org.springaicommunity.sandbox.OutputLimit;
+import org.springaicommunity.sandbox.OutputListener;
+import org.springaicommunity.sandbox.RemoteProcess;
 import org.springaicommunity.sandbox.Sandbox;
 import org.springaicommunity.sandbox.SandboxException;
+import org.springaicommunity.sandbox.SandboxExecutors;
 import org.springaicommunity.sandbox.SandboxFiles;
+import org.springaicommunity.sandbox.SandboxMeter;
+import org.springaicommunity.sandbox.SandboxMetrics;
+import org.springaicommunity.sandbox.SandboxSnapshot;
+import org.springaicommunity.sandbox.StreamPipe;
 import org.springaicommunity.sandbox.TimeoutException;
+import org.testcontainers.containers.Container;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.utility.DockerImageName;
 
@@ -69,11 +95,55 @@ public final class DockerSandbox implements Sandbox {
 
 	private static final Path WORK_DIR = Path.of("/work");
 
+	/**
+	 * Environment variable that tags every process started by an exec, so that the
+	 * process and its children can be found and killed from a separate exec.
+	 */
+	private static final String EXEC_ID_ENV = "AGENT_SANDBOX_EXEC_ID";
+
+	/**
+	 * Default time a timed out or cancelled command and the processes it started are
+	 * given to exit after {@code SIGTERM} before they are killed.
+	 */
+	public static final Duration DEFAULT_KILL_GRACE_PERIOD = Duration.ofSeconds(5);
+
+	/**
+	 * Finds the live processes tagged with the exec token in {@code $1} by scanning
+	 * {@code /proc}, sends them {@code SIGTERM}, polls every 100 ms for at most
+	 * {@code $2} polls and sends {@code SIGKILL} to the rest. Prints how many processes
+	 * were found. Zombies count as exited, since the container's init does not reap them.
+	 */
+	private static final String TERMINATE_SCRIPT = "marker=$1\n" + "polls=$2\n" + "pids=''\n" + "count=0\n"
+			+ "for p in /proc/[0-9]*; do\n"
+			+ "  if tr '\\0' '\\n' 2>/dev/null < \"$p/environ\" | grep -qxF \"$marker\"; then\n"
+			+ "    pids=\"$pids ${p#/proc/}\"\n" + "    count=$((count + 1))\n" + "  fi\n" + "done\n"
+			+ "[ -n \"$pids\" ] && kill -TERM $pids 2>/dev/null\n"
+			+ "while [ -n \"$pids\" ] && [ \"$polls\" -gt 0 ]; do\n" + "  sleep 0.1\n" + "  polls=$((polls - 1))\n"
+			+ "  alive=''\n" + "  for pid in $pids; do\n"
+			+ "    state=$(sed 's/.*) //' \"/proc/$pid/stat\" 2>/dev/null | cut -c1)\n"
+			+ "    [ -n \"$state\" ] && [ \"$state\" != Z ] && alive=\"$alive $pid\"\n" + "  done\n" + "  pids=$alive\n"
+			+ "done\n" + "[ -n \"$pids\" ] && kill -KILL $pids 2>/dev/null\n" + "echo \"$count\"\n";
+
+	/** Repository of the images committed by {@link #snapshot()}. */
+	private static final String SNAPSHOT_REPOSITORY = "agent-sandbox-snapshot";
+
 	private final GenericContainer<?> container;
 
 	private final List<ExecSpecCustomizer> customizers;
 
-	private final DockerSandboxFiles sandboxFiles;
+	private final SandboxFiles sandboxFiles;
+
+	private final Executor executor;
+
+	private final SandboxMetrics metrics;
+
+	private final SandboxMeter meter;
+
+	private final BlobStoreSpec blobStoreSpec;
+
+	private final DockerSandboxFiles workspace;
+
+	private final Duration killGracePeriod;
 
 	private volatile boolean closed = false;
 
@@ -98,12 +168,24 @@ public final class DockerSandbox implements Sandbox {
 	 * @param customizers list of customizers to apply before execution
 	 */
 	public DockerSandbox(String baseImage, List<ExecSpecCustomizer> customizers) {
+		this(baseImage, customizers, SandboxExecutors.defaultExecutor(), SandboxMetrics.NOOP, null,
+				DEFAULT_KILL_GRACE_PERIOD);
+	}
+
+	private DockerSandbox(String baseImage, List<ExecSpecCustomizer> customizers, Executor executor,
+			SandboxMetrics metrics, BlobStoreSpec blobStoreSpec, Duration killGracePeriod) {
 		this.customizers = List.copyOf(customizers);
+		this.executor = executor;
+		this.killGracePeriod = killGracePeriod;
+		this.metrics = metrics;
+		this.blobStoreSpec = blobStoreSpec;
+		this.meter = new SandboxMeter(metrics, "docker");
 		this.container = new GenericContainer<>(DockerImageName.parse(baseImage)).withWorkingDirectory("/work")
 			.withCommand("sleep", "infinity");
 
 		container.start();
-		this.sandboxFiles = new DockerSandboxFiles(this, container);
+		this.workspace = new DockerSandboxFiles(this, container, blobStoreSpec);
+		this.sandboxFiles = meter.files(workspace);
 		logger.debug("Started DockerSandbox with image: {} and {} customizers", baseImage, customizers.size());
 	}
 
@@ -122,6 +204,30 @@ public final class DockerSandbox implements Sandbox {
 
 	@Override
 	public ExecResult exec(ExecSpec spec) {
+		return meter.exec(spec, () -> execInternal(spec, null));
+	}
+
+	@Override
+	public ExecResult exec(ExecSpec spec, OutputListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Output listener cannot be null");
+		}
+		return meter.exec(spec, () -> execInternal(spec, listener));
+	}
+
+	/**
+	 * Execute a command asynchronously on this sandbox's executor. Cancelling the
+	 * returned future kills the command and every process it started inside the
+	 * container.
+	 * @param spec the execution specification
+	 * @return a future completed with the execution result
+	 */
+	@Override
+	public CompletableFuture<ExecResult> execAsync(ExecSpec spec) {
+		return SandboxExecutors.supplyAsync(() -> exec(spec), executor);
+	}
+
+	private ExecResult execInternal(ExecSpec spec, OutputListener listener) {
 		if (closed) {
 			throw new IllegalStateException("Sandbox is closed");
 		}
@@ -147,73 +253,240 @@ public final class DockerSandbox implements Sandbox {
 		finalCommandList.addAll(processedCommand); // These become $1, $2, ...
 
 		try {
-			// For environment variables, we need to set them in the shell command
-			// since TestContainers execInContainer doesn't support env variables directly
-			List<String> commandWithEnv = new ArrayList<>();
-			commandWithEnv.add("bash");
-			commandWithEnv.add("-lc");
-
-			// Build shell command that sets environment variables and then executes the
-			// command
-			StringBuilder shellScript = new StringBuilder();
-			for (var entry : customizedSpec.env().entrySet()) {
-				shellScript.append("export ")
-					.append(entry.getKey())
-					.append("='")
-					.append(entry.getValue())
-					.append("'; ");
-			}
-			shellScript.append("exec \"$@\"");
-
-			commandWithEnv.add(shellScript.toString());
-			commandWithEnv.add("bash"); // This becomes $0 for the script
-			commandWithEnv.addAll(processedCommand); // These become $1, $2, ...
-
-			// Execute with timeout
-			org.testcontainers.containers.Container.ExecResult result;
-			if (customizedSpec.timeout() != null) {
-				// TestContainers doesn't have built-in timeout support for
-				// execInContainer,
-				// so we need to implement it ourselves
-				var future = java.util.concurrent.CompletableFuture.supplyAsync(() -> {
-					try {
-						return this.container.execInContainer(commandWithEnv.toArray(new String[0]));
-					}
-					catch (Exception e) {
-						throw new RuntimeException(e);
-					}
-				});
+			String execToken = UUID.randomUUID().toString();
+			List<String> commandWithEnv = loginShellCommand(processedCommand, customizedSpec.env());
 
-				try {
-					result = future.get(customizedSpec.timeout().toMillis(),
-							java.util.concurrent.TimeUnit.MILLISECONDS);
-				}
-				catch (java.util.concurrent.TimeoutException e) {
-					future.cancel(true);
-					throw new TimeoutException("Command timed out after " + customizedSpec.timeout(),
-							customizedSpec.timeout());
-				}
-				catch (java.util.concurrent.ExecutionException e) {
-					Throwable cause = e.getCause();
-					if (cause instanceof RuntimeException) {
-						throw (RuntimeException) cause;
-					}
-					throw new IOException("Failed to execute command", cause);
+			// Run through the Docker exec API rather than execInContainer so output
+			// frames are consumed as they arrive instead of after the process exits
+			return runInContainer(commandWithEnv, execToken, customizedSpec.timeout(), customizedSpec.outputLimit(),
+					startTime, listener);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Command execution interrupted", e);
+		}
+		catch (TimeoutException e) {
+			throw new SandboxException("Command timed out", e);
+		}
+		catch (Exception e) {
+			throw new SandboxException("Failed to execute command in container", e);
+		}
+	}
+
+	/**
+	 * Start the command attached to stdin, stdout and stderr of a Docker exec. The
+	 * returned process is killed by {@link Process#destroy()} like a cancelled
+	 * {@link #execAsync(ExecSpec)}, and ends with the container when the sandbox is
+	 * closed.
+	 * @param spec the execution specification containing command, environment, etc.
+	 * @return the started process
+	 */
+	@Override
+	public Process startInteractive(ExecSpec spec) {
+		return meter.startInteractive(spec, () -> startExec(spec));
+	}
+
+	private Process startExec(ExecSpec spec) {
+		var customizedSpec = applyCustomizers(spec);
+		var command = customizedSpec.command();
+		if (command.isEmpty()) {
+			throw new IllegalArgumentException("Command cannot be null or empty");
+		}
+		return startCommand(processCommand(command), customizedSpec.env());
+	}
+
+	/**
+	 * Start a command attached to a Docker exec without applying customizers. Used by
+	 * helpers such as file watches that run their own tooling in the container.
+	 * @param command the command and arguments
+	 * @param env environment variables for the command
+	 * @return the started process
+	 */
+	Process startCommand(List<String> command, Map<String, String> env) {
+		if (closed) {
+			throw new IllegalStateException("Sandbox is closed");
+		}
+		String execToken = UUID.randomUUID().toString();
+		List<String> commandWithEnv = loginShellCommand(command, env);
+		try {
+			DockerClient dockerClient = container.getDockerClient();
+			String execId = dockerClient.execCreateCmd(container.getContainerId())
+				.withAttachStdin(true)
+				.withAttachStdout(true)
+				.withAttachStderr(true)
+				.withEnv(execIdEnv(execToken))
+				.withCmd(commandWithEnv.toArray(new String[0]))
+				.exec()
+				.getId();
+			logger.debug("DockerSandbox starting interactive process: {}", command.get(0));
+			return new ExecProcess(dockerClient, execId, () -> killExec(execToken));
+		}
+		catch (Exception e) {
+			throw new SandboxException("Failed to start interactive process", e);
+		}
+	}
+
+	/**
+	 * Wrap a command in a login shell that exports the environment, then replaces itself
+	 * with the command.
+	 */
+	private static List<String> loginShellCommand(List<String> command, Map<String, String> env) {
+		// Environment variables are exported inside the login shell so that profile
+		// scripts sourced by bash -l cannot override them
+		List<String> commandWithEnv = new ArrayList<>();
+		commandWithEnv.add("bash");
+		commandWithEnv.add("-lc");
+
+		// Build shell command that sets environment variables and then executes the
+		// command
+		StringBuilder shellScript = new StringBuilder();
+		for (var entry : env.entrySet()) {
+			shellScript.append("export ").append(entry.getKey()).append("='").append(entry.getValue()).append("'; ");
+		}
+		shellScript.append("exec \"$@\"");
+
+		commandWithEnv.add(shellScript.toString());
+		commandWithEnv.add("bash"); // This becomes $0 for the script
+		commandWithEnv.addAll(command); // These become $1, $2, ...
+		return commandWithEnv;
+	}
+
+	private ExecResult runInContainer(List<String> command, String execToken, Duration timeout, OutputLimit outputLimit,
+			Instant startTime, OutputListener listener) throws IOException, InterruptedException {
+		DockerClient dockerClient = container.getDockerClient();
+		String execId = dockerClient.execCreateCmd(container.getContainerId())
+			.withAttachStdout(true)
+			.withAttachStderr(true)
+			.withEnv(execIdEnv(execToken))
+			.withCmd(command.toArray(new String[0]))
+			.exec()
+			.getId();
+
+		BoundedOutputStream stdoutStream = new BoundedOutputStream(outputLimit);
+		BoundedOutputStream stderrStream = new BoundedOutputStream(outputLimit);
+		ChunkingOutputStream stdoutChunks = listener != null
+				? new ChunkingOutputStream(OutputChunk.Type.STDOUT, stdoutStream, listener) : null;
+		ChunkingOutputStream stderrChunks = listener != null
+				? new ChunkingOutputStream(OutputChunk.Type.STDERR, stderrStream, listener) : null;
+		FrameCallback frames = new FrameCallback(stdoutChunks != null ? stdoutChunks : stdoutStream,
+				stderrChunks != null ? stderrChunks : stderrStream);
+
+		try (FrameCallback callback = dockerClient.execStartCmd(execId).exec(frames)) {
+			if (timeout != null) {
+				if (!callback.awaitCompletion(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+					// Closing the attach stream does not stop the exec, so terminate it
+					// before reporting the timeout
+					int terminated = terminateExec(execToken);
+					throw new TimeoutException("Command timed out after " + timeout, timeout, terminated);
 				}
 			}
 			else {
-				// No timeout specified
-				result = this.container.execInContainer(commandWithEnv.toArray(new String[0]));
+				callback.awaitCompletion();
 			}
+		}
+		catch (InterruptedException e) {
+			// Closing the attach stream does not stop the exec, so kill it explicitly
+			killExec(execToken);
+			throw e;
+		}
+		if (stdoutChunks != null) {
+			stdoutChunks.finish();
+			stderrChunks.finish();
+		}
+
+		Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+		var duration = Duration.between(startTime, Instant.now());
+		return ExecResult.of(exitCode != null ? exitCode.intValue() : -1, stdoutStream, stderrStream, duration);
+	}
+
+	/**
+	 * Run the whole batch as one framed script in a single login shell, avoiding an exec
+	 * round trip and a {@code bash -l} startup per command.
+	 * @param specs the commands to execute
+	 * @param stopOnFirstFailure whether to stop after the first failing command
+	 * @return the results of the commands that ran
+	 */
+	@Override
+	public List<ExecResult> execBatch(List<ExecSpec> specs, boolean stopOnFirstFailure) {
+		return meter.execBatch(specs, () -> execBatchInternal(specs, stopOnFirstFailure));
+	}
+
+	private List<ExecResult> execBatchInternal(List<ExecSpec> specs, boolean stopOnFirstFailure) {
+		if (closed) {
+			throw new IllegalStateException("Sandbox is closed");
+		}
+		if (specs == null || specs.isEmpty()) {
+			throw new IllegalArgumentException("Batch must contain at least one command");
+		}
+
+		List<ExecSpec> customizedSpecs = specs.stream().map(this::applyCustomizers).toList();
+		BatchScript batch = new BatchScript(customizedSpecs, stopOnFirstFailure, null);
+		String execToken = UUID.randomUUID().toString();
+		List<String> command = List.of("bash", "-lc", batch.script());
 
-			var duration = Duration.between(startTime, Instant.now());
-			return new ExecResult(result.getExitCode(), result.getStdout(), result.getStderr(), duration);
+		try {
+			ExecResult result = runInContainer(command, execToken, batch.timeout(), batch.outputLimit(), Instant.now(),
+					null);
+			return batch.parse(result.stdout(), result.stderr());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Command execution interrupted", e);
 		}
 		catch (TimeoutException e) {
 			throw new SandboxException("Command timed out", e);
 		}
+		catch (SandboxException e) {
+			throw e;
+		}
 		catch (Exception e) {
-			throw new SandboxException("Failed to execute command in container", e);
+			throw new SandboxException("Failed to execute batch in container", e);
+		}
+	}
+
+	/**
+	 * Environment of a Docker exec carrying its token. It is set on the exec itself
+	 * rather than exported by the shell, so that it is in {@code /proc/<pid>/environ} of
+	 * the shell and every subshell it forks, not only of the programs it executes; a
+	 * batch shell killed this way cannot go on to run its remaining commands.
+	 */
+	private static List<String> execIdEnv(String execToken) {
+		return List.of(EXEC_ID_ENV + "=" + execToken);
+	}
+
+	/**
+	 * Terminate every process tagged with the given exec token in the background, because
+	 * the calling thread has been interrupted.
+	 */
+	private void killExec(String execToken) {
+		SandboxExecutors.defaultExecutor().execute(() -> terminateExec(execToken));
+	}
+
+	/**
+	 * Terminate every process tagged with the given exec token, waiting at most the kill
+	 * grace period. The token is inherited through the environment, so it finds the
+	 * command's descendants even when they start their own process group or session; the
+	 * PID reported by Docker for the exec is in the host's PID namespace and cannot be
+	 * signalled from inside the container.
+	 * @return the number of processes terminated, or 0 if they could not be found
+	 */
+	private int terminateExec(String execToken) {
+		String polls = String.valueOf(killGracePeriod.toMillis() / 100);
+		try {
+			Container.ExecResult result = container.execInContainer("sh", "-c", TERMINATE_SCRIPT, "sh",
+					EXEC_ID_ENV + "=" + execToken, polls);
+			int terminated = Integer.parseInt(result.getStdout().trim());
+			logger.debug("Terminated {} processes of exec {}", terminated, execToken);
+			return terminated;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while terminating processes of exec {}", execToken);
+			return 0;
+		}
+		catch (Exception e) {
+			logger.warn("Failed to terminate processes of exec {}", execToken, e);
+			return 0;
 		}
 	}
 
@@ -235,6 +508,38 @@ public final class DockerSandbox implements Sandbox {
 		return customizedSpec;
 	}
 
+	/**
+	 * Commit the container's file system to a local image; new sandboxes start containers
+	 * from that image with this sandbox's customizers. Image layers are shared, so only
+	 * the files changed since the container started are written. Running processes and
+	 * anything stored in volumes are not part of the snapshot. Closing the snapshot
+	 * removes the image.
+	 */
+	@Override
+	public SandboxSnapshot snapshot() {
+		return meter.snapshot(this::commit);
+	}
+
+	private SandboxSnapshot commit() {
+		if (closed) {
+			throw new IllegalStateException("Sandbox is closed");
+		}
+		String tag = UUID.randomUUID().toString();
+		try {
+			container.getDockerClient()
+				.commitCmd(container.getContainerId())
+				.withRepository(SNAPSHOT_REPOSITORY)
+				.withTag(tag)
+				.exec();
+		}
+		catch (RuntimeException e) {
+			throw new SandboxException("Failed to commit container " + container.getContainerId(), e);
+		}
+		String image = SNAPSHOT_REPOSITORY + ":" + tag;
+		logger.debug("Committed DockerSandbox container to image {}", image);
+		return new DockerSnapshot(image);
+	}
+
 	@Override
 	public void close() {
 		if (closed) {
@@ -243,6 +548,7 @@ public final class DockerSandbox implements Sandbox {
 
 		closed = true;
 		logger.debug("Stopping DockerSandbox container");
+		workspace.release();
 
 		try {
 			container.stop();
@@ -294,6 +600,144 @@ public final class DockerSandbox implements Sandbox {
 				customizers.size(), closed);
 	}
 
+	/**
+	 * Snapshot backed by a committed image.
+	 */
+	private final class DockerSnapshot implements SandboxSnapshot {
+
+		private final String image;
+
+		private final DockerClient dockerClient = container.getDockerClient();
+
+		private volatile boolean released;
+
+		DockerSnapshot(String image) {
+			this.image = image;
+		}
+
+		@Override
+		public Sandbox newSandbox() {
+			if (released) {
+				throw new IllegalStateException("Snapshot is closed");
+			}
+			try {
+				return new DockerSandbox(image, customizers, executor, metrics, blobStoreSpec, killGracePeriod);
+			}
+			catch (RuntimeException e) {
+				throw new SandboxException("Failed to start container from snapshot " + image, e);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (released) {
+				return;
+			}
+			released = true;
+			try {
+				dockerClient.removeImageCmd(image).withForce(true).exec();
+				logger.debug("Removed snapshot image {}", image);
+			}
+			catch (RuntimeException e) {
+				logger.warn("Failed to remove snapshot image {}", image, e);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "DockerSnapshot{image=" + image + "}";
+		}
+
+	}
+
+	/**
+	 * Routes exec attach frames to the stdout and stderr capture streams.
+	 */
+	private static class FrameCallback extends ResultCallback.Adapter<Frame> {
+
+		private final OutputStream stdout;
+
+		private final OutputStream stderr;
+
+		FrameCallback(OutputStream stdout, OutputStream stderr) {
+			this.stdout = stdout;
+			this.stderr = stderr;
+		}
+
+		@Override
+		public void onNext(Frame frame) {
+			byte[] payload = frame.getPayload();
+			if (payload == null || payload.length == 0) {
+				return;
+			}
+			try {
+				switch (frame.getStreamType()) {
+					case STDOUT, RAW -> stdout.write(payload, 0, payload.length);
+					case STDERR -> stderr.write(payload, 0, payload.length);
+					default -> {
+					}
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+	}
+
+	/**
+	 * Process handle for an interactive Docker exec. Output frames are fed into the
+	 * process streams; stdin is copied to the exec by docker-java from a pipe.
+	 */
+	private static final class ExecProcess extends RemoteProcess {
+
+		private final StreamPipe stdin = new StreamPipe();
+
+		private final Runnable killer;
+
+		ExecProcess(DockerClient dockerClient, String execId, Runnable killer) {
+			this.killer = killer;
+			dockerClient.execStartCmd(execId)
+				.withStdIn(stdin.inputStream())
+				.exec(new FrameCallback(stdoutSink(), stderrSink()) {
+
+					@Override
+					public void onComplete() {
+						super.onComplete();
+						Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+						exited(exitCode != null ? exitCode.intValue() : -1);
+					}
+
+					@Override
+					public void onError(Throwable throwable) {
+						super.onError(throwable);
+						logger.debug("Interactive exec {} failed", execId, throwable);
+						exited(-1);
+					}
+
+				});
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return stdin.outputStream();
+		}
+
+		@Override
+		public void destroy() {
+			if (isAlive()) {
+				killer.run();
+			}
+			try {
+				stdin.outputStream().close();
+			}
+			catch (IOException e) {
+				// Pipe streams do not fail on close
+			}
+		}
+
+	}
+
 	/**
 	 * Builder for creating DockerSandbox instances with fluent configuration.
 	 */
@@ -305,6 +749,14 @@ public final class DockerSandbox implements Sandbox {
 
 		private List<org.springaicommunity.sandbox.FileSpec> initialFiles = new ArrayList<>();
 
+		private Executor executor = SandboxExecutors.defaultExecutor();
+
+		private SandboxMetrics metrics = SandboxMetrics.NOOP;
+
+		private BlobStoreSpec blobStoreSpec;
+
+		private Duration killGracePeriod = DEFAULT_KILL_GRACE_PERIOD;
+
 		/**
 		 * Set the Docker image to use for the sandbox.
 		 * @param image the Docker image name
@@ -346,13 +798,71 @@ public final class DockerSandbox implements Sandbox {
 			return this;
 		}
 
+		/**
+		 * Set the executor used by {@link DockerSandbox#execAsync(ExecSpec)}. Defaults to
+		 * {@link SandboxExecutors#defaultExecutor()}, which uses virtual threads when
+		 * available.
+		 * @param executor the executor for asynchronous execution
+		 * @return this builder
+		 */
+		public Builder executor(Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("Executor cannot be null");
+			}
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Set the listener that receives a measurement of every command execution,
+		 * interactive process start and file operation.
+		 * @param metrics the metrics listener
+		 * @return this builder
+		 */
+		public Builder metrics(SandboxMetrics metrics) {
+			if (metrics == null) {
+				throw new IllegalArgumentException("Metrics cannot be null");
+			}
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * Keep uploaded content in a blob store, so that writing the same content again
+		 * copies it inside the container instead of uploading it.
+		 * @param blobStoreSpec the blob store, often {@link BlobStoreSpec#perSandbox}
+		 * with a {@link BlobCache} shared by all sandboxes
+		 * @return this builder
+		 */
+		public Builder blobStore(BlobStoreSpec blobStoreSpec) {
+			this.blobStoreSpec = blobStoreSpec;
+			return this;
+		}
+
+		/**
+		 * Set how long a command and the processes it started are given to exit after
+		 * {@code SIGTERM} when it times out or is cancelled, before they are sent
+		 * {@code SIGKILL}. Defaults to {@link #DEFAULT_KILL_GRACE_PERIOD}.
+		 * @param killGracePeriod the grace period, zero to kill right away
+		 * @return this builder
+		 * @since 0.9.1
+		 */
+		public Builder killGracePeriod(Duration killGracePeriod) {
+			if (killGracePeriod == null || killGracePeriod.isNegative()) {
+				throw new IllegalArgumentException("Kill grace period cannot be null or negative");
+			}
+			this.killGracePeriod = killGracePeriod;
+			return this;
+		}
+
 		/**
 		 * Build the DockerSandbox instance.
 		 * @return a new DockerSandbox
 		 * @throws SandboxException if the sandbox cannot be created
 		 */
 		public DockerSandbox build() {
-			DockerSandbox sandbox = new DockerSandbox(image, customizers);
+			DockerSandbox sandbox = new DockerSandbox(image, customizers, executor, metrics, blobStoreSpec,
+					killGracePeriod);
 
 			// Setup initial files
 			if (!initialFiles.isEmpty()) {
@@ -16,15 +16,48 @@
 
 package org.springaicommunity.sandbox.docker;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.springaicommunity.sandbox.BlobStore;
+import org.springaicommunity.sandbox.BlobStoreSpec;
+import org.springaicommunity.sandbox.DirectorySync;
 import org.springaicommunity.sandbox.FileEntry;
 import org.springaicommunity.sandbox.FileSpec;
 import org.springaicommunity.sandbox.FileType;
+import org.springaicommunity.sandbox.FileWatch;
+import org.springaicommunity.sandbox.FileWatchListener;
+import org.springaicommunity.sandbox.GrepMatch;
+import org.springaicommunity.sandbox.RangeReads;
+import org.springaicommunity.sandbox.RemoteSearch;
 import org.springaicommunity.sandbox.Sandbox;
 import org.springaicommunity.sandbox.SandboxException;
+import org.springaicommunity.sandbox.SandboxExecutors;
 import org.springaicommunity.sandbox.SandboxFiles;
+import org.springaicommunity.sandbox.StreamPipe;
+import org.springaicommunity.sandbox.SyncResult;
+import org.springaicommunity.sandbox.TarArchives;
 import org.testcontainers.containers.Container.ExecResult;
 import org.testcontainers.containers.GenericContainer;
 
@@ -36,24 +69,49 @@ import org.testcontainers.containers.GenericContainer;
  * are created and read inside the running container.
  * </p>
  *
+ * <p>
+ * Binary content is transferred as tar archives through the Docker archive API, streamed
+ * through a bounded pipe so that memory use does not depend on the file size. Streams
+ * opened with {@link #openOutputStream(String)} spool to a host temp file, because a tar
+ * entry must declare its size up front, and are uploaded when closed. Directory trees are
+ * imported and exported as a single archive.
+ * </p>
+ *
  * @author Mark Pollack
  * @since 0.1.0
  */
 class DockerSandboxFiles implements SandboxFiles {
 
+	private static final int PIPE_CAPACITY = 256 * 1024;
+
+	/** Paths per {@code find} command, keeping the arguments well below ARG_MAX. */
+	private static final int STAT_BATCH_SIZE = 1000;
+
 	private final DockerSandbox sandbox;
 
 	private final GenericContainer<?> container;
 
-	DockerSandboxFiles(DockerSandbox sandbox, GenericContainer<?> container) {
+	private final DirectorySync directorySync;
+
+	private final BlobStore blobStore;
+
+	DockerSandboxFiles(DockerSandbox sandbox, GenericContainer<?> container, BlobStoreSpec blobStoreSpec) {
 		this.sandbox = sandbox;
 		this.container = container;
+		this.directorySync = DirectorySync.overShell(this, this::runShell);
+		this.blobStore = BlobStore.open(blobStoreSpec, container.getContainerId(), this::runShell);
 	}
 
 	@Override
 	public SandboxFiles create(String relativePath, String content) {
+		String fullPath = "/work/" + relativePath;
+		blobStore.write(fullPath, content.getBytes(StandardCharsets.UTF_8),
+				() -> writeText(relativePath, fullPath, content));
+		return this;
+	}
+
+	private void writeText(String relativePath, String fullPath, String content) {
 		try {
-			String fullPath = "/work/" + relativePath;
 
 			// Create parent directories
 			String parentDir = getParentPath(fullPath);
@@ -74,7 +132,6 @@ class DockerSandboxFiles implements SandboxFiles {
 			if (writeResult.getExitCode() != 0) {
 				throw new SandboxException("Failed to create file: " + relativePath + " - " + writeResult.getStderr());
 			}
-			return this;
 		}
 		catch (SandboxException e) {
 			throw e;
@@ -128,6 +185,140 @@ class DockerSandboxFiles implements SandboxFiles {
 		}
 	}
 
+	@Override
+	public byte[] readBytes(String relativePath, long offset, int length) {
+		return RangeReads.readBytes(this::runShell, "/work/" + relativePath, offset, length);
+	}
+
+	@Override
+	public List<String> readLines(String relativePath, int fromLine, int toLine) {
+		return RangeReads.readLines(this::runShell, "/work/" + relativePath, fromLine, toLine);
+	}
+
+	@Override
+	public InputStream openInputStream(String relativePath) {
+		String fullPath = "/work/" + relativePath;
+		InputStream archive = null;
+		try {
+			archive = container.getDockerClient()
+				.copyArchiveFromContainerCmd(container.getContainerId(), fullPath)
+				.exec();
+			TarArchiveInputStream tar = new TarArchiveInputStream(archive);
+			TarArchiveEntry entry = tar.getNextTarEntry();
+			if (entry == null || !entry.isFile()) {
+				throw new SandboxException("Not a regular file: " + relativePath);
+			}
+			// The tar stream ends with the entry, so callers read exactly the file
+			// content
+			return tar;
+		}
+		catch (SandboxException e) {
+			closeQuietly(archive);
+			throw e;
+		}
+		catch (Exception e) {
+			closeQuietly(archive);
+			throw new SandboxException("Failed to read file: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public OutputStream openOutputStream(String relativePath) {
+		try {
+			Path spool = Files.createTempFile("agent-sandbox-upload-", ".tmp");
+			return new SpoolingOutputStream(relativePath, spool);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to create file: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public SandboxFiles writeBytes(String relativePath, byte[] content) {
+		if (content == null) {
+			throw new IllegalArgumentException("Content cannot be null");
+		}
+		blobStore.write("/work/" + relativePath, content, () -> upload(relativePath, content.length,
+				TarArchiveEntry.DEFAULT_FILE_MODE, new ByteArrayInputStream(content)));
+		return this;
+	}
+
+	@Override
+	public SandboxFiles copyFrom(Path source, String relativePath) {
+		if (source == null) {
+			throw new IllegalArgumentException("Source path cannot be null");
+		}
+		blobStore.write("/work/" + relativePath, source, () -> {
+			try (InputStream in = Files.newInputStream(source)) {
+				upload(relativePath, Files.size(source), TarArchives.fileMode(source), in);
+			}
+			catch (IOException e) {
+				throw new SandboxException("Failed to copy " + source + " to " + relativePath, e);
+			}
+		});
+		return this;
+	}
+
+	@Override
+	public SandboxFiles importDirectory(Path hostDir, String relativePath, Predicate<Path> filter) {
+		if (hostDir == null || !Files.isDirectory(hostDir)) {
+			throw new IllegalArgumentException("Host directory does not exist: " + hostDir);
+		}
+		copyArchiveToContainer(resolveDirectory(relativePath), out -> TarArchives.write(hostDir, filter, out),
+				"Failed to import " + hostDir + " to " + relativePath);
+		return this;
+	}
+
+	@Override
+	public SandboxFiles exportDirectory(String relativePath, OutputStream tarStream) {
+		String fullPath = resolveDirectory(relativePath);
+		try {
+			ExecResult testResult = container.execInContainer("test", "-d", fullPath);
+			if (testResult.getExitCode() != 0) {
+				throw new SandboxException("Path is not a directory: " + relativePath);
+			}
+			// Docker archives the directory under its own name; strip it so entries are
+			// relative to the directory
+			try (InputStream archive = container.getDockerClient()
+				.copyArchiveFromContainerCmd(container.getContainerId(), fullPath)
+				.exec()) {
+				TarArchives.copy(archive, tarStream, 1);
+			}
+			return this;
+		}
+		catch (SandboxException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new SandboxException("Failed to export directory: " + relativePath, e);
+		}
+	}
+
+	@Override
+	public FileWatch watch(String relativePath, boolean recursive, FileWatchListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener cannot be null");
+		}
+		return DockerFileWatch.start(sandbox, resolveDirectory(relativePath), recursive, listener);
+	}
+
+	@Override
+	public SyncResult sync(Path hostDir, String targetDir) {
+		return directorySync.sync(hostDir, targetDir);
+	}
+
+	@Override
+	public Stream<String> find(String relativePath, List<String> globs, int maxDepth) {
+		return RemoteSearch.find(command -> sandbox.startCommand(command, Map.of()), "/work/" + relativePath, globs,
+				maxDepth);
+	}
+
+	@Override
+	public Stream<GrepMatch> grep(String relativePath, String regex, List<String> globs, int maxMatches) {
+		return RemoteSearch.grep(command -> sandbox.startCommand(command, Map.of()), "/work/" + relativePath, regex,
+				globs, maxMatches);
+	}
+
 	@Override
 	public boolean exists(String relativePath) {
 		try {
@@ -182,17 +373,10 @@ class DockerSandboxFiles implements SandboxFiles {
 					}
 					String[] parts = line.split("\\|", 4);
 					if (parts.length >= 4) {
-						FileType type = "d".equals(parts[0]) ? FileType.DIRECTORY : FileType.FILE;
-						long size = type == FileType.DIRECTORY ? 0 : Long.parseLong(parts[1]);
-						// parts[2] is epoch seconds with decimal, parse to Instant
-						double epochSeconds = Double.parseDouble(parts[2]);
-						Instant modifiedTime = Instant.ofEpochSecond((long) epochSeconds,
-								(long) ((epochSeconds % 1) * 1_000_000_000));
 						String absolutePath = parts[3];
 						// Convert to relative path from workdir
 						String path = absolutePath.startsWith("/work/") ? absolutePath.substring(6) : absolutePath;
-						String name = path.contains("/") ? path.substring(path.lastIndexOf('/') + 1) : path;
-						entries.add(new FileEntry(name, type, path, size, modifiedTime));
+						entries.add(parseEntry(parts, path));
 					}
 				}
 			}
@@ -206,6 +390,80 @@ class DockerSandboxFiles implements SandboxFiles {
 		}
 	}
 
+	/**
+	 * Streams the output of {@code find} as it is produced instead of buffering, sorting
+	 * and splitting it like {@link #list(String, int)}.
+	 */
+	@Override
+	public Stream<FileEntry> walk(String relativePath, int maxDepth) {
+		return RemoteSearch.walk(command -> sandbox.startCommand(command, Map.of()), "/work/" + relativePath,
+				relativePath, maxDepth);
+	}
+
+	@Override
+	public Optional<FileEntry> stat(String relativePath) {
+		return Optional.ofNullable(statAll(List.of(relativePath)).get(relativePath));
+	}
+
+	/**
+	 * Inspects each batch of paths with one {@code find -maxdepth 0}, which prints the
+	 * same fields as {@link #list(String, int)} and skips the paths that do not exist.
+	 */
+	@Override
+	public Map<String, FileEntry> statAll(List<String> relativePaths) {
+		Map<String, FileEntry> entries = new LinkedHashMap<>();
+		for (int start = 0; start < relativePaths.size(); start += STAT_BATCH_SIZE) {
+			List<String> batch = relativePaths.subList(start, Math.min(start + STAT_BATCH_SIZE, relativePaths.size()));
+			Map<String, String> requested = new HashMap<>();
+			List<String> command = new ArrayList<>(List.of("find"));
+			for (String relativePath : batch) {
+				requested.put("/work/" + relativePath, relativePath);
+				command.add("/work/" + relativePath);
+			}
+			command.addAll(List.of("-maxdepth", "0", "-printf", "%y|%s|%T@|%p\\n"));
+			String output;
+			try {
+				// Exits with 1 when some paths do not exist
+				output = container.execInContainer(command.toArray(new String[0])).getStdout();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SandboxException("Interrupted while reading file attributes", e);
+			}
+			catch (IOException e) {
+				throw new SandboxException("Failed to read file attributes", e);
+			}
+			Map<String, FileEntry> found = new HashMap<>();
+			for (String line : output.split("\n")) {
+				String[] parts = line.split("\\|", 4);
+				String relativePath = (parts.length == 4) ? requested.get(parts[3]) : null;
+				if (relativePath != null) {
+					found.put(relativePath, parseEntry(parts, relativePath));
+				}
+			}
+			for (String relativePath : batch) {
+				FileEntry entry = found.get(relativePath);
+				if (entry != null) {
+					entries.put(relativePath, entry);
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Parse the {@code type|size|mtime|path} fields printed by {@code find}.
+	 */
+	private static FileEntry parseEntry(String[] parts, String path) {
+		FileType type = "d".equals(parts[0]) ? FileType.DIRECTORY : FileType.FILE;
+		long size = type == FileType.DIRECTORY ? 0 : Long.parseLong(parts[1]);
+		// parts[2] is epoch seconds with decimal, parse to Instant
+		double epochSeconds = Double.parseDouble(parts[2]);
+		Instant modifiedTime = Instant.ofEpochSecond((long) epochSeconds, (long) ((epochSeconds % 1) * 1_000_000_000));
+		String name = path.contains("/") ? path.substring(path.lastIndexOf('/') + 1) : path;
+		return new FileEntry(name, type, path, size, modifiedTime);
+	}
+
 	@Override
 	public SandboxFiles delete(String relativePath) {
 		return delete(relativePath, false);
@@ -255,6 +513,117 @@ class DockerSandboxFiles implements SandboxFiles {
 		return sandbox;
 	}
 
+	/**
+	 * Release the blob store once the container is gone.
+	 */
+	void release() {
+		blobStore.close();
+	}
+
+	/**
+	 * Upload content as a single-entry tar archive with the given file mode.
+	 */
+	private void upload(String relativePath, long size, int mode, InputStream content) {
+		String fullPath = "/work/" + relativePath;
+		String parentDir = getParentPath(fullPath);
+		String fileName = fullPath.substring(parentDir.length() + 1);
+		copyArchiveToContainer(parentDir, out -> {
+			TarArchiveOutputStream tar = new TarArchiveOutputStream(out);
+			tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+			TarArchiveEntry entry = new TarArchiveEntry(fileName);
+			entry.setSize(size);
+			entry.setMode(mode);
+			tar.putArchiveEntry(entry);
+			content.transferTo(tar);
+			tar.closeArchiveEntry();
+			tar.finish();
+			tar.flush();
+		}, "Failed to create file: " + relativePath);
+	}
+
+	/**
+	 * Create a directory and extract a tar archive into it. The archive is written on
+	 * another thread into a bounded pipe that Docker reads from.
+	 */
+	private void copyArchiveToContainer(String remoteDir, ArchiveWriter archive, String errorMessage) {
+		StreamPipe pipe = new StreamPipe(PIPE_CAPACITY);
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try (OutputStream out = pipe.outputStream()) {
+				archive.write(out);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, SandboxExecutors.defaultExecutor());
+		try {
+			ExecResult mkdirResult = container.execInContainer("mkdir", "-p", remoteDir);
+			if (mkdirResult.getExitCode() != 0) {
+				throw new SandboxException("Failed to create directory: " + remoteDir + " - " + mkdirResult.getStderr()
+						+ mkdirResult.getStdout());
+			}
+			container.getDockerClient()
+				.copyArchiveToContainerCmd(container.getContainerId())
+				.withRemotePath(remoteDir)
+				.withTarInputStream(pipe.inputStream())
+				.exec();
+			writer.join();
+		}
+		catch (SandboxException e) {
+			throw e;
+		}
+		catch (CompletionException e) {
+			Throwable cause = (e.getCause() instanceof UncheckedIOException) ? e.getCause().getCause() : e.getCause();
+			throw new SandboxException(errorMessage, cause);
+		}
+		catch (Exception e) {
+			throw new SandboxException(errorMessage, e);
+		}
+		finally {
+			// Unblocks the writer if Docker stopped reading early
+			closeQuietly(pipe.inputStream());
+		}
+	}
+
+	/**
+	 * Run a helper script directly in the container, bypassing the sandbox's metered exec
+	 * so that it is reported only as part of the file operation that needed it.
+	 */
+	private String runShell(String script, String... args) {
+		List<String> command = new ArrayList<>(List.of("bash", "-c", script, "bash"));
+		command.addAll(List.of(args));
+		try {
+			ExecResult result = container.execInContainer(command.toArray(new String[0]));
+			if (result.getExitCode() != 0) {
+				throw new SandboxException(
+						"Command failed with exit code " + result.getExitCode() + " - " + result.getStderr());
+			}
+			return result.getStdout();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Interrupted while running command", e);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to run command", e);
+		}
+	}
+
+	private static void closeQuietly(InputStream in) {
+		if (in != null) {
+			try {
+				in.close();
+			}
+			catch (IOException e) {
+				// Already failing
+			}
+		}
+	}
+
+	private String resolveDirectory(String relativePath) {
+		String trimmed = relativePath.replaceAll("/+$", "");
+		return (trimmed.isEmpty() || ".".equals(trimmed)) ? "/work" : "/work/" + trimmed;
+	}
+
 	private String getParentPath(String path) {
 		int lastSlash = path.lastIndexOf('/');
 		if (lastSlash > 0) {
@@ -263,4 +632,56 @@ class DockerSandboxFiles implements SandboxFiles {
 		return null;
 	}
 
+	/**
+	 * Writes a tar archive to a stream.
+	 */
+	@FunctionalInterface
+	private interface ArchiveWriter {
+
+		void write(OutputStream out) throws IOException;
+
+	}
+
+	/**
+	 * Buffers written content in a host temp file and uploads it on close.
+	 */
+	private final class SpoolingOutputStream extends FilterOutputStream {
+
+		private final String relativePath;
+
+		private final Path spool;
+
+		private boolean closed;
+
+		SpoolingOutputStream(String relativePath, Path spool) throws IOException {
+			super(Files.newOutputStream(spool));
+			this.relativePath = relativePath;
+			this.spool = spool;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				super.close();
+				copyFrom(spool, relativePath);
+			}
+			catch (SandboxException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			finally {
+				Files.deleteIfExists(spool);
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental decoder for the Connect streaming envelope format: 1 byte flags, 4 bytes
+ * big-endian length, then the message. Response bytes are fed in as they arrive and each
+ * complete message is handed to a {@link MessageHandler}; partial envelopes are buffered
+ * until the rest arrives.
+ *
+ * <p>
+ * Instances are not thread-safe; use one per response stream.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+final class ConnectEnvelopeDecoder {
+
+	/**
+	 * Flag marking the end-of-stream message that carries trailers.
+	 */
+	static final int FLAG_END_STREAM = 0x02;
+
+	private static final int HEADER_SIZE = 5;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+	/**
+	 * Receives decoded envelopes.
+	 */
+	@FunctionalInterface
+	interface MessageHandler {
+
+		void onMessage(int flags, byte[] data) throws IOException;
+
+	}
+
+	/**
+	 * Append response bytes and dispatch every envelope that is now complete.
+	 * @param chunk the bytes that arrived
+	 * @param handler receives complete messages in order
+	 * @throws IOException if an envelope is malformed or the handler fails
+	 */
+	void feed(ByteBuffer chunk, MessageHandler handler) throws IOException {
+		ensureCapacity(chunk.remaining());
+		buffer.put(chunk);
+		buffer.flip();
+		try {
+			while (buffer.remaining() >= HEADER_SIZE) {
+				int start = buffer.position();
+				int length = buffer.getInt(start + 1);
+				if (length < 0) {
+					throw new IOException("Invalid envelope length: " + length);
+				}
+				if (buffer.remaining() - HEADER_SIZE < length) {
+					break;
+				}
+				int flags = buffer.get(start) & 0xFF;
+				byte[] data = new byte[length];
+				buffer.position(start + HEADER_SIZE);
+				buffer.get(data);
+				handler.onMessage(flags, data);
+			}
+		}
+		finally {
+			buffer.compact();
+		}
+	}
+
+	/**
+	 * Whether bytes of an incomplete envelope are still buffered.
+	 * @return true if the stream ended in the middle of an envelope
+	 */
+	boolean hasPartialMessage() {
+		return buffer.position() > 0;
+	}
+
+	private void ensureCapacity(int additional) {
+		if (buffer.remaining() >= additional) {
+			return;
+		}
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + additional));
+		buffer.flip();
+		larger.put(buffer);
+		buffer = larger;
+	}
+
+}
@@ -25,8 +25,8 @@ import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springaicommunity.sandbox.SandboxException;
@@ -47,14 +47,28 @@ class E2BApiClient {
 
 	private final E2BConfig config;
 
+	private final E2BClientContext context;
+
 	private final HttpClient httpClient;
 
-	private final ObjectMapper objectMapper;
+	private final ObjectReader reader;
+
+	private final ObjectWriter writer;
 
-	E2BApiClient(E2BConfig config) {
+	E2BApiClient(E2BConfig config, E2BClientContext context) {
 		this.config = config;
-		this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
-		this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		this.context = context;
+		this.httpClient = context.httpClient();
+		this.reader = context.reader();
+		this.writer = context.writer();
+	}
+
+	/**
+	 * The shared infrastructure this client sends its requests through.
+	 * @return the client context
+	 */
+	E2BClientContext context() {
+		return context;
 	}
 
 	/**
@@ -67,7 +81,7 @@ class E2BApiClient {
 	SandboxResponse createSandbox(String templateId, long timeoutSeconds, Map<String, String> envVars) {
 		try {
 			CreateSandboxRequest request = new CreateSandboxRequest(templateId, timeoutSeconds, envVars, true);
-			String body = objectMapper.writeValueAsString(request);
+			String body = writer.writeValueAsString(request);
 
 			HttpRequest httpRequest = HttpRequest.newBuilder()
 				.uri(URI.create(config.apiUrl() + "/sandboxes"))
@@ -85,7 +99,7 @@ class E2BApiClient {
 						"Failed to create sandbox: " + response.statusCode() + " - " + response.body());
 			}
 
-			SandboxResponse sandboxResponse = objectMapper.readValue(response.body(), SandboxResponse.class);
+			SandboxResponse sandboxResponse = reader.readValue(response.body(), SandboxResponse.class);
 			logger.debug("Created sandbox: {}", sandboxResponse.sandboxId());
 			return sandboxResponse;
 		}
@@ -189,7 +203,7 @@ class E2BApiClient {
 						"Failed to reconnect to sandbox: " + response.statusCode() + " - " + response.body());
 			}
 
-			SandboxResponse sandboxResponse = objectMapper.readValue(response.body(), SandboxResponse.class);
+			SandboxResponse sandboxResponse = reader.readValue(response.body(), SandboxResponse.class);
 			logger.debug("Reconnected to sandbox: {}", sandboxResponse.sandboxId());
 			return sandboxResponse;
 		}
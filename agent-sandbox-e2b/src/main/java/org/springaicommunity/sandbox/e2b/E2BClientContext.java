@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP and JSON infrastructure shared by E2B sandboxes.
+ *
+ * <p>
+ * Every sandbox built with the same context sends its E2B API and envd requests through a
+ * single {@link HttpClient}, so they share one selector thread and one connection pool
+ * instead of two per sandbox. The client prefers HTTP/2, so concurrent requests to
+ * {@code api.e2b.dev} are multiplexed over one connection. JSON is read and written with
+ * shared, pre-configured {@link ObjectReader} and {@link ObjectWriter} instances.
+ * </p>
+ *
+ * <p>
+ * Sandboxes use the {@linkplain #defaultContext() default context} unless
+ * {@link E2BSandbox.Builder#clientContext(E2BClientContext)} sets another one. Instances
+ * are thread-safe.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+public final class E2BClientContext {
+
+	private static final Logger logger = LoggerFactory.getLogger(E2BClientContext.class);
+
+	/**
+	 * Default timeout for establishing a connection.
+	 */
+	public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+	private static final Duration PREWARM_TIMEOUT = Duration.ofSeconds(10);
+
+	private final HttpClient httpClient;
+
+	private final ObjectReader reader;
+
+	private final ObjectWriter writer;
+
+	private E2BClientContext(Builder builder) {
+		HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.connectTimeout(builder.connectTimeout);
+		if (builder.executor != null) {
+			clientBuilder.executor(builder.executor);
+		}
+		this.httpClient = clientBuilder.build();
+		ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
+				false);
+		this.reader = objectMapper.reader();
+		this.writer = objectMapper.writer();
+	}
+
+	/**
+	 * Get the context shared by all sandboxes that do not set their own.
+	 * @return the default context
+	 */
+	public static E2BClientContext defaultContext() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 * Create a builder for a context with its own HTTP client.
+	 * @return a new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Open a connection to the E2B API ahead of the first sandbox, so that creating it
+	 * does not pay for the TCP and TLS handshakes.
+	 * @param config the configuration naming the API URL
+	 * @return a future completed once the connection is established, never exceptionally
+	 */
+	public CompletableFuture<Void> prewarm(E2BConfig config) {
+		return prewarm(config.apiUrl());
+	}
+
+	/**
+	 * Open a connection to a host ahead of the first request. The response status is
+	 * ignored; only the connection matters.
+	 * @param url any URL on the host
+	 * @return a future completed once the connection is established, never exceptionally
+	 */
+	public CompletableFuture<Void> prewarm(String url) {
+		HttpRequest request = HttpRequest.newBuilder()
+			.uri(URI.create(url))
+			.method("HEAD", HttpRequest.BodyPublishers.noBody())
+			.timeout(PREWARM_TIMEOUT)
+			.build();
+		return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, error) -> {
+			if (error != null) {
+				logger.debug("Failed to prewarm connection to {}: {}", url, error.getMessage());
+			}
+			else {
+				logger.debug("Prewarmed connection to {} ({})", url, response.version());
+			}
+			return null;
+		});
+	}
+
+	HttpClient httpClient() {
+		return httpClient;
+	}
+
+	ObjectReader reader() {
+		return reader;
+	}
+
+	ObjectWriter writer() {
+		return writer;
+	}
+
+	private static final class DefaultHolder {
+
+		private static final E2BClientContext INSTANCE = builder().build();
+
+	}
+
+	/**
+	 * Builder for {@link E2BClientContext}.
+	 */
+	public static final class Builder {
+
+		private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+		private Executor executor;
+
+		private Builder() {
+		}
+
+		/**
+		 * Set the timeout for establishing a connection. Defaults to
+		 * {@link #DEFAULT_CONNECT_TIMEOUT}.
+		 * @param connectTimeout the connect timeout
+		 * @return this builder
+		 */
+		public Builder connectTimeout(Duration connectTimeout) {
+			if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero()) {
+				throw new IllegalArgumentException("Connect timeout must be positive");
+			}
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		/**
+		 * Set the executor the HTTP client runs its asynchronous tasks and response
+		 * handlers on. Defaults to the client's own cached thread pool.
+		 * @param executor the executor
+		 * @return this builder
+		 */
+		public Builder executor(Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("Executor cannot be null");
+			}
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Build the context.
+		 * @return a new context
+		 */
+		public E2BClientContext build() {
+			return new E2BClientContext(this);
+		}
+
+	}
+
+}
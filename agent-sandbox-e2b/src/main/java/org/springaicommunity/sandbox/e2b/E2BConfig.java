@@ -44,12 +44,16 @@ public final class E2BConfig {
 
 	private final String template;
 
+	private final Duration killGracePeriod;
+
 	private E2BConfig(Builder builder) {
 		this.apiKey = Objects.requireNonNull(builder.apiKey, "API key cannot be null");
 		this.apiUrl = builder.apiUrl != null ? builder.apiUrl : DEFAULT_API_URL;
 		this.domain = builder.domain != null ? builder.domain : DEFAULT_DOMAIN;
 		this.timeout = builder.timeout != null ? builder.timeout : DEFAULT_TIMEOUT;
 		this.template = builder.template != null ? builder.template : DEFAULT_TEMPLATE;
+		this.killGracePeriod = builder.killGracePeriod != null ? builder.killGracePeriod
+				: E2BSandbox.DEFAULT_KILL_GRACE_PERIOD;
 	}
 
 	public String apiKey() {
@@ -72,6 +76,16 @@ public final class E2BConfig {
 		return template;
 	}
 
+	/**
+	 * Time a command that ran out of time is given to exit after SIGTERM before it is
+	 * sent SIGKILL.
+	 * @return the kill grace period
+	 * @since 0.9.1
+	 */
+	public Duration killGracePeriod() {
+		return killGracePeriod;
+	}
+
 	/**
 	 * Creates a new builder with the API key from the E2B_API_KEY environment variable.
 	 * @return a new builder
@@ -106,6 +120,8 @@ public final class E2BConfig {
 
 		private String template;
 
+		private Duration killGracePeriod;
+
 		public Builder apiKey(String apiKey) {
 			this.apiKey = apiKey;
 			return this;
@@ -131,6 +147,14 @@ public final class E2BConfig {
 			return this;
 		}
 
+		public Builder killGracePeriod(Duration killGracePeriod) {
+			if (killGracePeriod != null && killGracePeriod.isNegative()) {
+				throw new IllegalArgumentException("Kill grace period cannot be negative");
+			}
+			this.killGracePeriod = killGracePeriod;
+			return this;
+		}
+
 		public E2BConfig build() {
 			return new E2BConfig(this);
 		}
@@ -15,8 +15,14 @@
  */
 package org.springaicommunity.sandbox.e2b;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -28,21 +34,33 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.awaitility.Awaitility;
 import org.awaitility.core.ConditionTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springaicommunity.sandbox.BoundedOutputStream;
+import org.springaicommunity.sandbox.ChunkingOutputStream;
 import org.springaicommunity.sandbox.ExecResult;
 import org.springaicommunity.sandbox.FileEntry;
 import org.springaicommunity.sandbox.FileType;
+import org.springaicommunity.sandbox.FileWatch;
+import org.springaicommunity.sandbox.FileWatchListener;
+import org.springaicommunity.sandbox.OutputChunk;
+import org.springaicommunity.sandbox.OutputLimit;
+import org.springaicommunity.sandbox.OutputListener;
 import org.springaicommunity.sandbox.SandboxException;
+import org.springaicommunity.sandbox.StreamPipe;
 import org.springaicommunity.sandbox.TimeoutException;
 
 /**
@@ -76,30 +94,49 @@ class E2BEnvdClient {
 
 	private final HttpClient httpClient;
 
-	private final ObjectMapper objectMapper;
+	private final ObjectReader reader;
+
+	private final ObjectWriter writer;
+
+	private final Duration killGracePeriod;
 
 	private static final Duration READY_TIMEOUT = Duration.ofSeconds(60);
 
-	private static final Duration READY_POLL_INTERVAL = Duration.ofMillis(500);
+	private static final Duration READY_INITIAL_POLL_INTERVAL = Duration.ofMillis(20);
+
+	private static final Duration READY_MAX_POLL_INTERVAL = Duration.ofMillis(500);
 
 	private static final String HEALTH_ENDPOINT = "/health";
 
-	E2BEnvdClient(String envdUrl, String accessToken) {
+	private static final Duration FILE_TIMEOUT = Duration.ofSeconds(30);
+
+	private static final int UPLOAD_PIPE_CAPACITY = 256 * 1024;
+
+	private static final Duration WATCH_START_TIMEOUT = Duration.ofSeconds(30);
+
+	static final Duration START_EVENT_TIMEOUT = Duration.ofSeconds(10);
+
+	E2BEnvdClient(String envdUrl, String accessToken, Duration killGracePeriod, E2BClientContext context) {
 		this.envdUrl = envdUrl;
 		this.accessToken = accessToken;
-		this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
-		this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		this.httpClient = context.httpClient();
+		this.reader = context.reader();
+		this.writer = context.writer();
+		this.killGracePeriod = killGracePeriod;
 	}
 
 	/**
-	 * Waits for the envd service to become ready using Awaitility.
+	 * Waits for the envd service to become ready using Awaitility. Polls start a few tens
+	 * of milliseconds apart and back off exponentially, so a sandbox that boots quickly
+	 * is picked up quickly. The first poll also opens the TLS connection that later
+	 * requests reuse.
 	 * @throws SandboxException if the service doesn't become ready within the timeout
 	 */
 	void waitForReady() {
 		try {
 			Awaitility.await()
 				.atMost(READY_TIMEOUT.toSeconds(), TimeUnit.SECONDS)
-				.pollInterval(READY_POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS)
+				.pollInterval((pollCount, previous) -> readyPollInterval(pollCount))
 				.pollDelay(Duration.ZERO)
 				.ignoreExceptions()
 				.until(this::isEnvdReady);
@@ -111,6 +148,17 @@ class E2BEnvdClient {
 		}
 	}
 
+	/**
+	 * The delay before a readiness poll: doubling from
+	 * {@link #READY_INITIAL_POLL_INTERVAL} up to {@link #READY_MAX_POLL_INTERVAL}.
+	 * @param pollCount the number of the poll, starting at 1
+	 * @return the delay
+	 */
+	static Duration readyPollInterval(int pollCount) {
+		Duration interval = READY_INITIAL_POLL_INTERVAL.multipliedBy(1L << Math.min(Math.max(pollCount - 1, 0), 16));
+		return (interval.compareTo(READY_MAX_POLL_INTERVAL) < 0) ? interval : READY_MAX_POLL_INTERVAL;
+	}
+
 	/**
 	 * Checks if the envd service is ready by calling the health endpoint.
 	 * @return true if the service is ready
@@ -167,162 +215,353 @@ class E2BEnvdClient {
 	 * @return the execution result
 	 */
 	ExecResult runCommand(List<String> command, String workDir, Map<String, String> envVars, Duration timeout) {
+		return runCommand(command, workDir, envVars, timeout, null, null);
+	}
+
+	/**
+	 * Executes a command in the sandbox, streaming output to a listener as process events
+	 * arrive.
+	 * @param command the command and arguments
+	 * @param workDir the working directory
+	 * @param envVars environment variables
+	 * @param timeout command timeout
+	 * @param outputLimit output budget per stream, may be {@code null} to capture all
+	 * output
+	 * @param listener receives output chunks as they arrive, may be {@code null}
+	 * @return the execution result
+	 */
+	ExecResult runCommand(List<String> command, String workDir, Map<String, String> envVars, Duration timeout,
+			OutputLimit outputLimit, OutputListener listener) {
+		CompletableFuture<ExecResult> future = runCommandAsync(command, workDir, envVars, timeout, outputLimit,
+				listener);
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof SandboxException sandboxException) {
+				throw sandboxException;
+			}
+			throw new SandboxException("Failed to execute command", e.getCause());
+		}
+		catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Command execution interrupted",
+					new TimeoutException("Command execution was interrupted", timeout));
+		}
+	}
+
+	/**
+	 * Executes a command in the sandbox without blocking a thread while it runs.
+	 *
+	 * <p>
+	 * The request is sent with {@link HttpClient#sendAsync} and the process event stream
+	 * is decoded as it arrives. The returned future completes exceptionally with a
+	 * {@link SandboxException} on failure or timeout. Cancelling it, or a timeout, closes
+	 * the stream and kills the remote process.
+	 * </p>
+	 * @param command the command and arguments
+	 * @param workDir the working directory
+	 * @param envVars environment variables
+	 * @param timeout command timeout
+	 * @param outputLimit output budget per stream, may be {@code null} to capture all
+	 * output
+	 * @param listener receives output chunks as they arrive, may be {@code null}
+	 * @return a future completed with the execution result
+	 */
+	CompletableFuture<ExecResult> runCommandAsync(List<String> command, String workDir, Map<String, String> envVars,
+			Duration timeout, OutputLimit outputLimit, OutputListener listener) {
 		Instant startTime = Instant.now();
+		HttpRequest httpRequest;
 		try {
-			// Build the process config for E2B
-			// E2B expects either direct command+args or shell command via bash -l -c
-			ProcessConfig processConfig;
+			httpRequest = buildStartRequest(command, workDir, envVars, false);
+		}
+		catch (IOException e) {
+			return CompletableFuture.failedFuture(new SandboxException("Failed to execute command", e));
+		}
 
-			if (command.size() >= 3 && "bash".equals(command.get(0)) && "-c".equals(command.get(1))) {
-				// Already a shell command (bash -c "script") - run via bash -l -c
-				// directly
-				String shellScript = command.get(2);
-				processConfig = new ProcessConfig("/bin/bash", List.of("-l", "-c", shellScript),
-						envVars != null ? envVars : Map.of(), workDir);
+		BoundedOutputStream stdoutStream = new BoundedOutputStream(outputLimit);
+		BoundedOutputStream stderrStream = new BoundedOutputStream(outputLimit);
+		ProcessEventSubscriber subscriber = new ProcessEventSubscriber(reader,
+				listener != null ? new ChunkingOutputStream(OutputChunk.Type.STDOUT, stdoutStream, listener)
+						: stdoutStream,
+				listener != null ? new ChunkingOutputStream(OutputChunk.Type.STDERR, stderrStream, listener)
+						: stderrStream);
+
+		// The exchange completes once the remote process has exited and its stream ended
+		CompletableFuture<HttpResponse<Integer>> exchange = httpClient.sendAsync(httpRequest,
+				startBodyHandler(subscriber));
+		AtomicBoolean terminating = new AtomicBoolean();
+
+		CompletableFuture<ExecResult> result = new CompletableFuture<>();
+		// The timeout bounds the entire exchange, including the streaming response. It
+		// applies to a copy so that the exchange itself keeps reading while the process
+		// is given its grace period.
+		exchange.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((response, error) -> {
+			if (error == null) {
+				Duration duration = Duration.between(startTime, Instant.now());
+				result.complete(ExecResult.of(response.body(), stdoutStream, stderrStream, duration));
+			}
+			else if (unwrap(error) instanceof java.util.concurrent.TimeoutException
+					&& terminating.compareAndSet(false, true)) {
+				terminate(subscriber, exchange).thenAccept(terminated -> result
+					.completeExceptionally(new SandboxException("Command execution timed out", new TimeoutException(
+							"Command execution timed out after " + timeout, timeout, terminated))));
 			}
 			else {
-				// Regular command - join and wrap in bash -l -c
-				String cmd = String.join(" ", command);
-				processConfig = new ProcessConfig("/bin/bash", List.of("-l", "-c", cmd),
-						envVars != null ? envVars : Map.of(), workDir);
+				result.completeExceptionally(toSandboxException(error, timeout));
 			}
+		});
+		result.whenComplete((execResult, error) -> {
+			if (error != null && !exchange.isDone() && terminating.compareAndSet(false, true)) {
+				// Cancelled or failed while the remote process is still running
+				terminate(subscriber, exchange);
+			}
+		});
+		return result;
+	}
 
-			// Create StartRequest per process.proto
-			StartRequest request = new StartRequest(processConfig, false);
+	/**
+	 * Stops the remote process of a command: {@code SIGTERM} first, then {@code SIGKILL}
+	 * if its stream has not ended within the kill grace period. The exchange is cancelled
+	 * afterwards so that no connection is left behind. A process that has not reported
+	 * its pid yet is given {@link #START_EVENT_TIMEOUT} to do so while its stream keeps
+	 * being read; only if it still has not started is the exchange dropped unsignalled.
+	 * @param subscriber the subscriber reading the process events
+	 * @param exchange the process.Process/Start exchange
+	 * @return a future completed with the number of processes that were signalled
+	 */
+	private CompletableFuture<Integer> terminate(ProcessEventSubscriber subscriber,
+			CompletableFuture<HttpResponse<Integer>> exchange) {
+		return subscriber.pid()
+			.copy()
+			.orTimeout(START_EVENT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+			.thenCompose(processId -> stop(processId, subscriber, exchange))
+			.exceptionally(error -> {
+				logger.debug("Process did not start, dropping its event stream", error);
+				subscriber.abort();
+				exchange.cancel(true);
+				return 0;
+			});
+	}
 
-			String jsonBody = objectMapper.writeValueAsString(request);
-			byte[] envelopedBody = encodeEnvelope(jsonBody);
+	private CompletableFuture<Integer> stop(int processId, ProcessEventSubscriber subscriber,
+			CompletableFuture<HttpResponse<Integer>> exchange) {
+		CompletableFuture<Boolean> exited = exchange.handle((response, error) -> true);
+		CompletableFuture<Boolean> stopped = killGracePeriod.isZero() ? CompletableFuture.completedFuture(false)
+				: sendSignal(processId, "SIGNAL_SIGTERM").thenCompose(sent -> exited)
+					.completeOnTimeout(false, killGracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+		return stopped
+			.thenCompose(
+					done -> done ? CompletableFuture.completedFuture(null) : sendSignal(processId, "SIGNAL_SIGKILL"))
+			.handle((ignored, error) -> {
+				subscriber.abort();
+				exchange.cancel(true);
+				return 1;
+			});
+	}
 
-			// Don't set HTTP-level timeout - we'll use CompletableFuture.orTimeout
-			// instead
-			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-				.uri(URI.create(envdUrl + "/process.Process/Start"))
-				.header("Content-Type", CONTENT_TYPE_CONNECT_STREAM)
-				.header("Connect-Protocol-Version", "1")
-				.header("Connect-Content-Encoding", "identity")
-				.POST(HttpRequest.BodyPublishers.ofByteArray(envelopedBody));
+	private static Throwable unwrap(Throwable error) {
+		Throwable cause = error;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+				&& cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
 
-			// Add access token if present
-			if (accessToken != null && !accessToken.isEmpty()) {
-				requestBuilder.header("X-Access-Token", accessToken);
-			}
+	/**
+	 * Starts a process with stdin enabled and returns a handle to it once envd reports
+	 * its pid. Unlike {@link #runCommandAsync}, no timeout applies; the process runs
+	 * until it exits or is destroyed.
+	 * @param command the command and arguments
+	 * @param workDir the working directory
+	 * @param envVars environment variables
+	 * @return the started process
+	 */
+	Process startProcess(List<String> command, String workDir, Map<String, String> envVars) {
+		HttpRequest httpRequest;
+		try {
+			httpRequest = buildStartRequest(command, workDir, envVars, true);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to start interactive process", e);
+		}
+		E2BProcess process = new E2BProcess(this, reader);
+		process.attach(httpClient.sendAsync(httpRequest, startBodyHandler(process.subscriber())));
+		process.awaitStarted(Duration.ofSeconds(30));
+		return process;
+	}
 
-			HttpRequest httpRequest = requestBuilder.build();
+	/**
+	 * Writes to the stdin of a process via process.Process/SendInput.
+	 * @param pid the process id
+	 * @param data the bytes to send
+	 * @throws IOException if the request fails
+	 */
+	void sendInput(int pid, byte[] data) throws IOException {
+		String encoded = java.util.Base64.getEncoder().encodeToString(data);
+		sendUnary("/process.Process/SendInput",
+				new SendInputRequest(new ProcessSelector(pid), new ProcessInput(encoded)));
+	}
 
-			logger.debug("Executing command: {} {} in {}", processConfig.cmd(), processConfig.args(), workDir);
+	/**
+	 * Closes the stdin of a process via process.Process/CloseStdin, so that the process
+	 * reads end-of-file.
+	 * @param pid the process id
+	 * @throws IOException if the request fails
+	 */
+	void closeStdin(int pid) throws IOException {
+		sendUnary("/process.Process/CloseStdin", new CloseStdinRequest(new ProcessSelector(pid)));
+	}
 
-			// Use CompletableFuture with orTimeout for proper timeout handling
-			// This ensures the entire operation (including streaming response) is bounded
-			HttpResponse<byte[]> response = CompletableFuture.supplyAsync(() -> {
-				try {
-					return httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
-				}
-				catch (IOException | InterruptedException e) {
-					if (e instanceof InterruptedException) {
-						Thread.currentThread().interrupt();
-					}
-					throw new RuntimeException(e);
-				}
-			}).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).get();
+	private void sendUnary(String path, Object request) throws IOException {
+		HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+			.uri(URI.create(envdUrl + path))
+			.header("Content-Type", CONTENT_TYPE_JSON)
+			.header("Connect-Protocol-Version", "1")
+			.POST(HttpRequest.BodyPublishers.ofString(writer.writeValueAsString(request)))
+			.timeout(Duration.ofSeconds(30));
 
-			Duration duration = Duration.between(startTime, Instant.now());
+		if (accessToken != null && !accessToken.isEmpty()) {
+			requestBuilder.header("X-Access-Token", accessToken);
+		}
 
+		try {
+			HttpResponse<String> response = httpClient.send(requestBuilder.build(),
+					HttpResponse.BodyHandlers.ofString());
 			if (response.statusCode() != 200) {
-				String errorBody = new String(response.body(), StandardCharsets.UTF_8);
-				logger.error("Command execution failed: {} - {}", response.statusCode(), errorBody);
-				throw new SandboxException("Command execution failed: " + response.statusCode() + " - " + errorBody);
+				throw new IOException(path + " failed: " + response.statusCode() + " - " + response.body());
 			}
-
-			// Parse streaming response - Connect protocol uses binary envelope format
-			return parseStreamingResponse(response.body(), duration);
-		}
-		catch (ExecutionException e) {
-			// Unwrap the cause - orTimeout wraps TimeoutException in ExecutionException
-			Throwable cause = e.getCause();
-			if (cause instanceof java.util.concurrent.TimeoutException) {
-				throw new SandboxException("Command execution timed out",
-						new TimeoutException("Command execution timed out after " + timeout, timeout));
-			}
-			if (cause instanceof RuntimeException && cause.getCause() instanceof IOException) {
-				throw new SandboxException("Failed to execute command", cause.getCause());
-			}
-			throw new SandboxException("Failed to execute command", cause);
 		}
 		catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
-			throw new SandboxException("Command execution interrupted",
-					new TimeoutException("Command execution was interrupted", timeout));
-		}
-		catch (IOException e) {
-			throw new SandboxException("Failed to execute command", e);
+			throw new java.io.InterruptedIOException(path + " interrupted");
 		}
 	}
 
 	/**
-	 * Parses the streaming response from process.Process/Start.
-	 * <p>
-	 * The response contains ProcessEvent messages with start, data (stdout/stderr), and
-	 * end events, each wrapped in a Connect binary envelope.
-	 * </p>
+	 * Body handler for process.Process/Start that streams a 200 response through the
+	 * subscriber and turns any other status into a {@link SandboxException}.
 	 */
-	private ExecResult parseStreamingResponse(byte[] responseBody, Duration duration) throws IOException {
-		StringBuilder stdout = new StringBuilder();
-		StringBuilder stderr = new StringBuilder();
-		int exitCode = -1;
+	private HttpResponse.BodyHandler<Integer> startBodyHandler(ProcessEventSubscriber subscriber) {
+		return responseInfo -> {
+			if (responseInfo.statusCode() == 200) {
+				return subscriber;
+			}
+			// Connect protocol errors arrive as a JSON body with a non-200 status
+			return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+					errorBody -> {
+						logger.error("Command execution failed: {} - {}", responseInfo.statusCode(), errorBody);
+						throw new SandboxException(
+								"Command execution failed: " + responseInfo.statusCode() + " - " + errorBody);
+					});
+		};
+	}
+
+	/**
+	 * Build the process config for E2B, which expects either direct command+args or a
+	 * shell command via bash -l -c.
+	 */
+	static ProcessConfig processConfig(List<String> command, String workDir, Map<String, String> envVars) {
+		Map<String, String> envs = envVars != null ? envVars : Map.of();
+		if (command.size() >= 3 && "bash".equals(command.get(0)) && "-c".equals(command.get(1))) {
+			// Already a shell command (bash -c "script" [name args...]) - run via
+			// bash -l -c directly, keeping the positional parameters
+			List<String> args = new ArrayList<>(List.of("-l", "-c"));
+			args.addAll(command.subList(2, command.size()));
+			return new ProcessConfig("/bin/bash", args, envs, workDir);
+		}
+		// Regular command - join and wrap in bash -l -c
+		return new ProcessConfig("/bin/bash", List.of("-l", "-c", String.join(" ", command)), envs, workDir);
+	}
 
-		logger.debug("Response body length: {} bytes", responseBody.length);
+	private HttpRequest buildStartRequest(List<String> command, String workDir, Map<String, String> envVars,
+			boolean stdin) throws IOException {
+		ProcessConfig processConfig = processConfig(command, workDir, envVars);
 
-		// Parse Connect envelope format and extract JSON messages
-		List<String> messages = parseEnvelopes(responseBody);
+		// Create StartRequest per process.proto
+		StartRequest request = new StartRequest(processConfig, stdin);
 
-		logger.debug("Parsed {} messages from envelopes", messages.size());
+		String jsonBody = writer.writeValueAsString(request);
+		byte[] envelopedBody = encodeEnvelope(jsonBody);
 
-		for (String json : messages) {
-			logger.debug("Parsing event JSON: {}", json);
-			EventWrapper wrapper = objectMapper.readValue(json, EventWrapper.class);
-			ProcessEvent event = wrapper.event();
-			if (event == null) {
-				continue;
-			}
-			if (event.start() != null) {
-				logger.debug("Process started with PID: {}", event.start().pid());
-			}
-			if (event.data() != null) {
-				DataEvent data = event.data();
-				if (data.stdout() != null) {
-					String decoded = decodeBase64(data.stdout());
-					logger.debug("Stdout data: [{}]", decoded);
-					stdout.append(decoded);
-				}
-				if (data.stderr() != null) {
-					String decoded = decodeBase64(data.stderr());
-					logger.debug("Stderr data: [{}]", decoded);
-					stderr.append(decoded);
-				}
-			}
-			if (event.end() != null) {
-				exitCode = event.end().getExitCode();
-				logger.debug("Command completed with exit code: {}", exitCode);
-			}
+		// No HTTP-level timeout - the command timeout is applied to the whole exchange
+		HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+			.uri(URI.create(envdUrl + "/process.Process/Start"))
+			.header("Content-Type", CONTENT_TYPE_CONNECT_STREAM)
+			.header("Connect-Protocol-Version", "1")
+			.header("Connect-Content-Encoding", "identity")
+			.POST(HttpRequest.BodyPublishers.ofByteArray(envelopedBody));
+
+		// Add access token if present
+		if (accessToken != null && !accessToken.isEmpty()) {
+			requestBuilder.header("X-Access-Token", accessToken);
 		}
 
-		return new ExecResult(exitCode, stdout.toString(), stderr.toString(), duration);
+		logger.debug("Executing command: {} {} in {}", processConfig.cmd(), processConfig.args(), workDir);
+		return requestBuilder.build();
+	}
+
+	private static SandboxException toSandboxException(Throwable error, Duration timeout) {
+		Throwable cause = unwrap(error);
+		if (cause instanceof SandboxException sandboxException) {
+			return sandboxException;
+		}
+		if (cause instanceof java.util.concurrent.TimeoutException) {
+			return new SandboxException("Command execution timed out",
+					new TimeoutException("Command execution timed out after " + timeout, timeout));
+		}
+		return new SandboxException("Failed to execute command", cause);
 	}
 
 	/**
-	 * Decodes base64-encoded string from the API response.
+	 * Sends SIGKILL to a process via process.Process/SendSignal. Failures are only logged
+	 * since the process may already have exited.
+	 * @param pid the process id
 	 */
-	private String decodeBase64(String encoded) {
-		if (encoded == null || encoded.isEmpty()) {
-			return "";
-		}
+	void killProcess(int pid) {
+		sendSignal(pid, "SIGNAL_SIGKILL");
+	}
+
+	/**
+	 * Sends a signal to a process via process.Process/SendSignal. Failures are only
+	 * logged since the process may already have exited.
+	 * @param pid the process id
+	 * @param signal the envd signal name, such as {@code SIGNAL_SIGTERM}
+	 * @return a future completed once envd has answered, never exceptionally
+	 */
+	private CompletableFuture<Void> sendSignal(int pid, String signal) {
+		HttpRequest.Builder requestBuilder;
 		try {
-			return new String(java.util.Base64.getDecoder().decode(encoded));
+			SendSignalRequest request = new SendSignalRequest(new ProcessSelector(pid), signal);
+			requestBuilder = HttpRequest.newBuilder()
+				.uri(URI.create(envdUrl + "/process.Process/SendSignal"))
+				.header("Content-Type", CONTENT_TYPE_JSON)
+				.header("Connect-Protocol-Version", "1")
+				.POST(HttpRequest.BodyPublishers.ofString(writer.writeValueAsString(request)))
+				.timeout(Duration.ofSeconds(30));
 		}
-		catch (IllegalArgumentException e) {
-			// Not base64 encoded, return as-is
-			return encoded;
+		catch (IOException e) {
+			logger.debug("Failed to send {} to process {}", signal, pid, e);
+			return CompletableFuture.completedFuture(null);
+		}
+
+		if (accessToken != null && !accessToken.isEmpty()) {
+			requestBuilder.header("X-Access-Token", accessToken);
 		}
+
+		return httpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofString())
+			.handle((response, error) -> {
+				if (error != null || response.statusCode() != 200) {
+					logger.debug("Failed to send {} to process {}: {}", signal, pid,
+							error != null ? error.getMessage() : response.body());
+				}
+				else {
+					logger.debug("Sent {} to process {}", signal, pid);
+				}
+				return null;
+			});
 	}
 
 	/**
@@ -339,65 +578,104 @@ class E2BEnvdClient {
 	}
 
 	/**
-	 * Parses Connect streaming envelope format from binary response. Returns list of JSON
-	 * strings extracted from envelopes.
+	 * Writes a file to the sandbox using the /files REST endpoint.
+	 * @param path the file path
+	 * @param content the file content
 	 */
-	private List<String> parseEnvelopes(byte[] responseBody) {
-		List<String> messages = new ArrayList<>();
-		ByteBuffer buffer = ByteBuffer.wrap(responseBody);
+	void writeFile(String path, String content) {
+		writeFile(path, content.getBytes(StandardCharsets.UTF_8));
+	}
 
-		while (buffer.remaining() >= 5) {
-			byte flags = buffer.get();
-			int length = buffer.getInt();
+	/**
+	 * Writes binary content to a file in the sandbox using the /files REST endpoint.
+	 * @param path the file path
+	 * @param content the file content
+	 */
+	void writeFile(String path, byte[] content) {
+		writeFile(path, () -> new ByteArrayInputStream(content), content.length, FILE_TIMEOUT);
+	}
 
-			if (buffer.remaining() < length) {
-				logger.warn("Incomplete envelope: expected {} bytes, have {}", length, buffer.remaining());
-				break;
-			}
+	/**
+	 * Writes a file to the sandbox using the /files REST endpoint, streaming the content
+	 * into the request body.
+	 * @param path the file path
+	 * @param content supplies the file content; the stream is read once and closed
+	 * @param length the content length, or -1 if unknown
+	 * @param timeout the request timeout, or {@code null} for none
+	 */
+	void writeFile(String path, Supplier<? extends InputStream> content, long length, Duration timeout) {
+		try {
+			checkWriteResponse(path, sendFile(path, content, length, timeout).get());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SandboxException("Failed to write file: " + path, e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = (e.getCause() instanceof UncheckedIOException) ? e.getCause().getCause() : e.getCause();
+			throw new SandboxException("Failed to write file: " + path, cause);
+		}
+	}
+
+	/**
+	 * Opens a stream that uploads a file to the sandbox as it is written. Written bytes
+	 * pass through a bounded pipe into the request body; the upload completes when the
+	 * stream is closed.
+	 * @param path the file path
+	 * @return the upload stream
+	 */
+	OutputStream openFileForWrite(String path) {
+		StreamPipe pipe = new StreamPipe(UPLOAD_PIPE_CAPACITY);
+		CompletableFuture<HttpResponse<String>> response = sendFile(path, pipe::inputStream, -1, null);
+		return new UploadStream(path, pipe, response);
+	}
 
-			byte[] data = new byte[length];
-			buffer.get(data);
-			String json = new String(data, StandardCharsets.UTF_8);
+	private CompletableFuture<HttpResponse<String>> sendFile(String path, Supplier<? extends InputStream> content,
+			long length, Duration timeout) {
+		// Use multipart/form-data with the file content
+		String boundary = "----E2BFileBoundary" + System.currentTimeMillis();
+		byte[] head = ("--" + boundary + "\r\n" + "Content-Disposition: form-data; name=\"file\"; filename=\"" + path
+				+ "\"\r\n" + "Content-Type: application/octet-stream\r\n\r\n")
+			.getBytes(StandardCharsets.UTF_8);
+		byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+		HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers
+			.ofInputStream(() -> new SequenceInputStream(new ByteArrayInputStream(head),
+					new SequenceInputStream(content.get(), new ByteArrayInputStream(tail))));
+		if (length >= 0) {
+			body = HttpRequest.BodyPublishers.fromPublisher(body, head.length + length + tail.length);
+		}
 
-			// flags & 0x02 indicates end-of-stream (trailers)
-			if ((flags & 0x02) != 0) {
-				logger.debug("Received end-of-stream envelope");
-				// Trailers may contain error info, but for now we skip them
-				continue;
-			}
+		HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+			.uri(URI.create(envdUrl + "/files?path=" + java.net.URLEncoder.encode(path, StandardCharsets.UTF_8)))
+			.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+			.POST(body);
+		if (timeout != null) {
+			requestBuilder.timeout(timeout);
+		}
 
-			messages.add(json);
+		if (accessToken != null && !accessToken.isEmpty()) {
+			requestBuilder.header("X-Access-Token", accessToken);
 		}
 
-		return messages;
+		return httpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static void checkWriteResponse(String path, HttpResponse<String> response) {
+		if (response.statusCode() != 200 && response.statusCode() != 201) {
+			throw new SandboxException("Failed to write file: " + response.statusCode() + " - " + response.body());
+		}
 	}
 
 	/**
-	 * Writes a file to the sandbox using the /files REST endpoint.
+	 * Reads a file from the sandbox using the /files REST endpoint.
 	 * @param path the file path
-	 * @param content the file content
+	 * @return the file content
 	 */
-	void writeFile(String path, String content) {
+	String readFile(String path) {
 		try {
-			// Use multipart/form-data with the file content
-			String boundary = "----E2BFileBoundary" + System.currentTimeMillis();
-			byte[] fileContent = content.getBytes(StandardCharsets.UTF_8);
-
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			// Multipart header
-			baos.write(("--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
-			baos.write(("Content-Disposition: form-data; name=\"file\"; filename=\"" + path + "\"\r\n")
-				.getBytes(StandardCharsets.UTF_8));
-			baos.write("Content-Type: application/octet-stream\r\n\r\n".getBytes(StandardCharsets.UTF_8));
-			baos.write(fileContent);
-			baos.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
-
-			byte[] multipartBody = baos.toByteArray();
-
 			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
 				.uri(URI.create(envdUrl + "/files?path=" + java.net.URLEncoder.encode(path, StandardCharsets.UTF_8)))
-				.header("Content-Type", "multipart/form-data; boundary=" + boundary)
-				.POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody))
+				.GET()
 				.timeout(Duration.ofSeconds(30));
 
 			if (accessToken != null && !accessToken.isEmpty()) {
@@ -407,39 +685,106 @@ class E2BEnvdClient {
 			HttpRequest httpRequest = requestBuilder.build();
 			HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
 
-			if (response.statusCode() != 200 && response.statusCode() != 201) {
-				throw new SandboxException("Failed to write file: " + response.statusCode() + " - " + response.body());
+			if (response.statusCode() != 200) {
+				throw new SandboxException("Failed to read file: " + response.statusCode() + " - " + response.body());
 			}
+
+			return response.body();
 		}
 		catch (IOException | InterruptedException e) {
 			if (e instanceof InterruptedException) {
 				Thread.currentThread().interrupt();
 			}
-			throw new SandboxException("Failed to write file: " + path, e);
+			throw new SandboxException("Failed to read file: " + path, e);
 		}
 	}
 
 	/**
-	 * Reads a file from the sandbox using the /files REST endpoint.
+	 * Reads part of a file with an HTTP range request to the /files REST endpoint. If
+	 * envd answers with the whole file instead, the bytes before the range are skipped
+	 * and the rest of the response is discarded.
 	 * @param path the file path
-	 * @return the file content
+	 * @param offset the offset of the first byte
+	 * @param length the maximum number of bytes
+	 * @return the bytes, fewer than requested at the end of the file
 	 */
-	String readFile(String path) {
+	byte[] readFileRange(String path, long offset, int length) {
+		if (length == 0) {
+			if (!exists(path)) {
+				throw new SandboxException("Failed to read file: " + path + " - not found");
+			}
+			return new byte[0];
+		}
 		try {
 			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
 				.uri(URI.create(envdUrl + "/files?path=" + java.net.URLEncoder.encode(path, StandardCharsets.UTF_8)))
+				.header("Range", "bytes=" + offset + "-" + (offset + length - 1))
 				.GET()
-				.timeout(Duration.ofSeconds(30));
+				.timeout(FILE_TIMEOUT);
+
+			if (accessToken != null && !accessToken.isEmpty()) {
+				requestBuilder.header("X-Access-Token", accessToken);
+			}
+
+			HttpResponse<InputStream> response = httpClient.send(requestBuilder.build(),
+					HttpResponse.BodyHandlers.ofInputStream());
+
+			try (InputStream body = response.body()) {
+				if (response.statusCode() == 206) {
+					return body.readNBytes(length);
+				}
+				if (response.statusCode() == 200) {
+					try {
+						body.skipNBytes(offset);
+					}
+					catch (EOFException e) {
+						return new byte[0];
+					}
+					return body.readNBytes(length);
+				}
+				if (response.statusCode() == 416) {
+					// The range starts past the end of the file
+					return new byte[0];
+				}
+				String error = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+				throw new SandboxException("Failed to read file: " + response.statusCode() + " - " + error);
+			}
+		}
+		catch (IOException | InterruptedException e) {
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			throw new SandboxException("Failed to read file: " + path, e);
+		}
+	}
+
+	/**
+	 * Opens a file in the sandbox for reading using the /files REST endpoint. The
+	 * response body is returned unread, so the content streams as the caller reads it.
+	 * @param path the file path
+	 * @return the file content stream, which the caller must close
+	 */
+	InputStream openFile(String path) {
+		try {
+			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+				.uri(URI.create(envdUrl + "/files?path=" + java.net.URLEncoder.encode(path, StandardCharsets.UTF_8)))
+				.GET()
+				.timeout(FILE_TIMEOUT);
 
 			if (accessToken != null && !accessToken.isEmpty()) {
 				requestBuilder.header("X-Access-Token", accessToken);
 			}
 
 			HttpRequest httpRequest = requestBuilder.build();
-			HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+			HttpResponse<InputStream> response = httpClient.send(httpRequest,
+					HttpResponse.BodyHandlers.ofInputStream());
 
 			if (response.statusCode() != 200) {
-				throw new SandboxException("Failed to read file: " + response.statusCode() + " - " + response.body());
+				String error;
+				try (InputStream body = response.body()) {
+					error = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+				}
+				throw new SandboxException("Failed to read file: " + response.statusCode() + " - " + error);
 			}
 
 			return response.body();
@@ -452,6 +797,49 @@ class E2BEnvdClient {
 		}
 	}
 
+	/**
+	 * Watches a directory using the filesystem.Filesystem/WatchDir streaming RPC and
+	 * returns once envd reports the watch as established. Events are decoded as they
+	 * arrive; no thread blocks while the watch is open.
+	 * @param path the directory path
+	 * @param recursive whether to watch subdirectories
+	 * @param listener receives the events
+	 * @return the established watch
+	 */
+	FileWatch watchDir(String path, boolean recursive, FileWatchListener listener) {
+		byte[] envelopedBody;
+		try {
+			envelopedBody = encodeEnvelope(writer.writeValueAsString(new WatchDirRequest(path, recursive)));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to watch directory: " + path, e);
+		}
+		HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+			.uri(URI.create(envdUrl + "/filesystem.Filesystem/WatchDir"))
+			.header("Content-Type", CONTENT_TYPE_CONNECT_STREAM)
+			.header("Connect-Protocol-Version", "1")
+			.header("Connect-Content-Encoding", "identity")
+			.POST(HttpRequest.BodyPublishers.ofByteArray(envelopedBody));
+		if (accessToken != null && !accessToken.isEmpty()) {
+			requestBuilder.header("X-Access-Token", accessToken);
+		}
+
+		E2BFileWatch watch = new E2BFileWatch(reader, listener);
+		watch.attach(httpClient.sendAsync(requestBuilder.build(), responseInfo -> {
+			if (responseInfo.statusCode() == 200) {
+				return watch;
+			}
+			return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+					errorBody -> {
+						throw new SandboxException(
+								"Failed to watch directory: " + responseInfo.statusCode() + " - " + errorBody);
+					});
+		}));
+		watch.awaitStarted(WATCH_START_TIMEOUT);
+		logger.debug("Watching {} (recursive={})", path, recursive);
+		return watch;
+	}
+
 	/**
 	 * Lists files in a directory using filesystem.Filesystem/ListDir RPC.
 	 * @param path the directory path
@@ -461,7 +849,7 @@ class E2BEnvdClient {
 	List<FileEntry> listFiles(String path, int depth) {
 		try {
 			ListDirRequest request = new ListDirRequest(path, depth);
-			String body = objectMapper.writeValueAsString(request);
+			String body = writer.writeValueAsString(request);
 
 			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
 				.uri(URI.create(envdUrl + "/filesystem.Filesystem/ListDir"))
@@ -488,7 +876,7 @@ class E2BEnvdClient {
 			}
 
 			logger.debug("ListDir response: {}", response.body());
-			ListDirResponse listResponse = objectMapper.readValue(response.body(), ListDirResponse.class);
+			ListDirResponse listResponse = reader.readValue(response.body(), ListDirResponse.class);
 			List<FileEntry> entries = new ArrayList<>();
 
 			if (listResponse.entries() != null) {
@@ -534,6 +922,53 @@ class E2BEnvdClient {
 		return Instant.ofEpochSecond(modTime.seconds(), modTime.nanos());
 	}
 
+	/**
+	 * Gets the entry of a file or directory using the filesystem.Filesystem/Stat RPC. The
+	 * request is sent asynchronously, so that a batch of them shares one round trip.
+	 * @param path the path
+	 * @return a future completing with the entry, or empty if the path does not exist
+	 */
+	CompletableFuture<Optional<FileEntry>> stat(String path) {
+		String body;
+		try {
+			body = writer.writeValueAsString(new StatRequest(path));
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to stat: " + path, e);
+		}
+
+		HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+			.uri(URI.create(envdUrl + "/filesystem.Filesystem/Stat"))
+			.header("Content-Type", CONTENT_TYPE_JSON)
+			.header("Connect-Protocol-Version", "1")
+			.POST(HttpRequest.BodyPublishers.ofString(body))
+			.timeout(Duration.ofSeconds(30));
+
+		if (accessToken != null && !accessToken.isEmpty()) {
+			requestBuilder.header("X-Access-Token", accessToken);
+		}
+
+		return httpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofString())
+			.thenApply(response -> {
+				if (response.statusCode() == 404
+						|| (response.statusCode() != 200 && response.body().contains("not_found"))) {
+					return Optional.empty();
+				}
+				if (response.statusCode() != 200) {
+					throw new SandboxException(
+							"Failed to stat " + path + ": " + response.statusCode() + " - " + response.body());
+				}
+				try {
+					EntryInfo dto = reader.readValue(response.body(), StatResponse.class).entry();
+					return Optional.of(new FileEntry(dto.name(), mapFileType(dto.type()), dto.path(), dto.size(),
+							parseModifiedTime(dto.modifiedTime())));
+				}
+				catch (IOException e) {
+					throw new SandboxException("Failed to parse stat response for " + path, e);
+				}
+			});
+	}
+
 	/**
 	 * Checks if a file exists using filesystem.Filesystem/Stat RPC.
 	 * @param path the file path
@@ -542,7 +977,7 @@ class E2BEnvdClient {
 	boolean exists(String path) {
 		try {
 			StatRequest request = new StatRequest(path);
-			String body = objectMapper.writeValueAsString(request);
+			String body = writer.writeValueAsString(request);
 
 			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
 				.uri(URI.create(envdUrl + "/filesystem.Filesystem/Stat"))
@@ -581,7 +1016,7 @@ class E2BEnvdClient {
 
 		try {
 			RemoveRequest request = new RemoveRequest(path);
-			String body = objectMapper.writeValueAsString(request);
+			String body = writer.writeValueAsString(request);
 
 			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
 				.uri(URI.create(envdUrl + "/filesystem.Filesystem/Remove"))
@@ -625,7 +1060,7 @@ class E2BEnvdClient {
 	void makeDir(String path) {
 		try {
 			MakeDirRequest request = new MakeDirRequest(path);
-			String body = objectMapper.writeValueAsString(request);
+			String body = writer.writeValueAsString(request);
 
 			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
 				.uri(URI.create(envdUrl + "/filesystem.Filesystem/MakeDir"))
@@ -659,6 +1094,76 @@ class E2BEnvdClient {
 		}
 	}
 
+	/**
+	 * Stream returned by {@link #openFileForWrite(String)}; feeds the request body of an
+	 * upload already in flight.
+	 */
+	private static final class UploadStream extends OutputStream {
+
+		private final String path;
+
+		private final StreamPipe pipe;
+
+		private final CompletableFuture<HttpResponse<String>> response;
+
+		private boolean closed;
+
+		UploadStream(String path, StreamPipe pipe, CompletableFuture<HttpResponse<String>> response) {
+			this.path = path;
+			this.pipe = pipe;
+			this.response = response;
+			// Release a writer blocked on the full pipe if the request ends early
+			response.whenComplete((result, error) -> {
+				try {
+					pipe.inputStream().close();
+				}
+				catch (IOException e) {
+					logger.debug("Failed to close upload pipe", e);
+				}
+			});
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (response.isDone()) {
+				throw new IOException("Upload ended before the content was written: " + path);
+			}
+			pipe.outputStream().write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			pipe.outputStream().close();
+			try {
+				checkWriteResponse(path, response.get());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				response.cancel(true);
+				throw new InterruptedIOException("Interrupted while uploading " + path);
+			}
+			catch (ExecutionException e) {
+				throw new IOException("Failed to write file: " + path, e.getCause());
+			}
+			catch (SandboxException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+
+	}
+
 	// Request/Response DTOs for process.Process/Start (per process.proto)
 
 	record StartRequest(ProcessConfig process, boolean stdin) {
@@ -667,17 +1172,29 @@ class E2BEnvdClient {
 	record ProcessConfig(String cmd, List<String> args, Map<String, String> envs, String cwd) {
 	}
 
-	// Streaming response - each message has an "event" wrapper
-	record EventWrapper(ProcessEvent event) {
+	// Streaming response - each message has an "event" wrapper holding one of start,
+	// data or end. Data events are decoded by ProcessEventSubscriber directly.
+	record StartEvent(int pid) {
 	}
 
-	record ProcessEvent(StartEvent start, DataEvent data, EndEvent end) {
+	// Request DTOs for process.Process/SendSignal
+
+	record SendSignalRequest(ProcessSelector process, String signal) {
 	}
 
-	record StartEvent(int pid) {
+	record ProcessSelector(int pid) {
+	}
+
+	// Request DTOs for process.Process/SendInput and process.Process/CloseStdin
+
+	record SendInputRequest(ProcessSelector process, ProcessInput input) {
+	}
+
+	// Bytes are base64 encoded in the JSON mapping of process.proto
+	record ProcessInput(String stdin) {
 	}
 
-	record DataEvent(String stdout, String stderr) {
+	record CloseStdinRequest(ProcessSelector process) {
 	}
 
 	record EndEvent(@JsonProperty("exit_code") Integer exitCode, boolean exited, String status) {
@@ -743,6 +1260,19 @@ class E2BEnvdClient {
 	record RemoveRequest(String path) {
 	}
 
+	record WatchDirRequest(String path, boolean recursive) {
+	}
+
+	// Streaming response - exactly one of the events is set per message
+	record WatchDirResponse(WatchStartEvent start, FilesystemEvent filesystem) {
+	}
+
+	record WatchStartEvent() {
+	}
+
+	record FilesystemEvent(String name, String type) {
+	}
+
 	record MakeDirRequest(String path) {
 	}
 
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springaicommunity.sandbox.FileEvent;
+import org.springaicommunity.sandbox.FileWatch;
+import org.springaicommunity.sandbox.FileWatchListener;
+import org.springaicommunity.sandbox.SandboxException;
+
+/**
+ * {@link FileWatch} backed by the filesystem.Filesystem/WatchDir event stream of envd.
+ *
+ * <p>
+ * The watch is the body subscriber of the streaming response: envd first sends a start
+ * event once its watches are registered, then one event per change. Closing the watch
+ * cancels the response, which ends the watch on the envd side.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+final class E2BFileWatch implements FileWatch, HttpResponse.BodySubscriber<Void> {
+
+	private static final Logger logger = LoggerFactory.getLogger(E2BFileWatch.class);
+
+	private final ObjectReader reader;
+
+	private final FileWatchListener listener;
+
+	private final ConnectEnvelopeDecoder decoder = new ConnectEnvelopeDecoder();
+
+	private final CompletableFuture<Void> started = new CompletableFuture<>();
+
+	private final CompletableFuture<Void> body = new CompletableFuture<>();
+
+	private volatile Flow.Subscription subscription;
+
+	private volatile boolean active = true;
+
+	E2BFileWatch(ObjectReader reader, FileWatchListener listener) {
+		this.reader = reader;
+		this.listener = listener;
+	}
+
+	/**
+	 * Track the WatchDir exchange; the watch ends when its event stream ends.
+	 */
+	void attach(CompletableFuture<HttpResponse<Void>> exchange) {
+		exchange.whenComplete((response, error) -> {
+			active = false;
+			if (error != null) {
+				logger.debug("Watch event stream failed", error);
+				started.completeExceptionally(error);
+			}
+			else {
+				started.completeExceptionally(new SandboxException("Watch ended before it was established"));
+			}
+		});
+	}
+
+	/**
+	 * Wait until envd reports that the watch is established.
+	 * @throws SandboxException if the watch fails or is not established in time
+	 */
+	void awaitStarted(Duration timeout) {
+		try {
+			started.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (ExecutionException e) {
+			close();
+			Throwable cause = (e.getCause() instanceof CompletionException) ? e.getCause().getCause() : e.getCause();
+			if (cause instanceof SandboxException sandboxException) {
+				throw sandboxException;
+			}
+			throw new SandboxException("Failed to watch directory", cause);
+		}
+		catch (java.util.concurrent.TimeoutException e) {
+			close();
+			throw new SandboxException("Watch was not established within " + timeout, e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new SandboxException("Interrupted while establishing watch", e);
+		}
+	}
+
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+
+	@Override
+	public void close() {
+		active = false;
+		Flow.Subscription current = subscription;
+		if (current != null) {
+			current.cancel();
+		}
+	}
+
+	@Override
+	public CompletionStage<Void> getBody() {
+		return body;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		if (active) {
+			subscription.request(1);
+		}
+		else {
+			subscription.cancel();
+		}
+	}
+
+	@Override
+	public void onNext(List<ByteBuffer> items) {
+		try {
+			for (ByteBuffer item : items) {
+				decoder.feed(item, this::onMessage);
+			}
+			subscription.request(1);
+		}
+		catch (IOException | RuntimeException e) {
+			subscription.cancel();
+			body.completeExceptionally(e);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		body.completeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		body.complete(null);
+	}
+
+	private void onMessage(int flags, byte[] data) throws IOException {
+		if ((flags & ConnectEnvelopeDecoder.FLAG_END_STREAM) != 0) {
+			// Errors of a streaming call, such as a missing directory, arrive in the
+			// end-of-stream message
+			JsonNode error = reader.readTree(data).path("error");
+			if (!error.isMissingNode()) {
+				throw new SandboxException("Failed to watch directory: " + error.path("code").asText() + " - "
+						+ error.path("message").asText());
+			}
+			return;
+		}
+		E2BEnvdClient.WatchDirResponse response = reader.readValue(data, E2BEnvdClient.WatchDirResponse.class);
+		if (response.start() != null) {
+			started.complete(null);
+		}
+		if (response.filesystem() != null) {
+			emit(response.filesystem());
+		}
+	}
+
+	private void emit(E2BEnvdClient.FilesystemEvent event) {
+		FileEvent.Type type = switch (String.valueOf(event.type())) {
+			case "EVENT_TYPE_CREATE" -> FileEvent.Type.CREATED;
+			case "EVENT_TYPE_WRITE", "EVENT_TYPE_CHMOD" -> FileEvent.Type.MODIFIED;
+			case "EVENT_TYPE_REMOVE", "EVENT_TYPE_RENAME" -> FileEvent.Type.DELETED;
+			default -> null;
+		};
+		if (type == null || event.name() == null || !active) {
+			return;
+		}
+		try {
+			listener.onEvent(FileEvent.of(type, event.name()));
+		}
+		catch (RuntimeException e) {
+			logger.warn("File watch listener failed for {} {}", type, event.name(), e);
+		}
+	}
+
+}
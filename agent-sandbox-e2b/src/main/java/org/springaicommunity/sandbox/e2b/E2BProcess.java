@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springaicommunity.sandbox.RemoteProcess;
+import org.springaicommunity.sandbox.SandboxException;
+
+/**
+ * Process handle for an interactive process started via process.Process/Start with stdin
+ * enabled.
+ *
+ * <p>
+ * Output arrives through the event stream of the start request. Bytes written to
+ * {@link #getOutputStream()} are buffered and sent with process.Process/SendInput on each
+ * {@code flush()}, so callers should flush after each complete message; closing the
+ * stream closes the remote stdin. {@link #destroy()} sends SIGKILL.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+final class E2BProcess extends RemoteProcess {
+
+	private static final Logger logger = LoggerFactory.getLogger(E2BProcess.class);
+
+	private final E2BEnvdClient client;
+
+	private final ProcessEventSubscriber subscriber;
+
+	private final StdinStream stdin = new StdinStream();
+
+	private volatile int pid = -1;
+
+	E2BProcess(E2BEnvdClient client, ObjectReader reader) {
+		this.client = client;
+		this.subscriber = new ProcessEventSubscriber(reader, stdoutSink(), stderrSink());
+	}
+
+	ProcessEventSubscriber subscriber() {
+		return subscriber;
+	}
+
+	/**
+	 * Track the start exchange; the process exits when its event stream ends.
+	 */
+	void attach(CompletableFuture<HttpResponse<Integer>> exchange) {
+		exchange.whenComplete((response, error) -> {
+			if (error != null) {
+				logger.debug("Interactive process event stream failed", error);
+				subscriber.pid().completeExceptionally(error);
+				exited(-1);
+			}
+			else {
+				exited(response.body());
+			}
+		});
+	}
+
+	/**
+	 * Wait until envd reports the pid of the started process.
+	 * @throws SandboxException if the process fails to start in time
+	 */
+	void awaitStarted(Duration timeout) {
+		try {
+			pid = subscriber.pid().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof SandboxException sandboxException) {
+				throw sandboxException;
+			}
+			throw new SandboxException("Failed to start interactive process", e.getCause());
+		}
+		catch (java.util.concurrent.TimeoutException e) {
+			destroy();
+			throw new SandboxException("Interactive process did not start within " + timeout, e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			destroy();
+			throw new SandboxException("Interrupted while starting interactive process", e);
+		}
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return stdin;
+	}
+
+	@Override
+	public void destroy() {
+		// If the process has not started yet, keep reading until the start event names
+		// the process to kill, and only drop the exchange if it never arrives
+		subscriber.pid()
+			.copy()
+			.orTimeout(E2BEnvdClient.START_EVENT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+			.whenComplete((processId, error) -> {
+				if (error == null) {
+					client.killProcess(processId);
+				}
+				else {
+					subscriber.abort();
+				}
+			});
+	}
+
+	/**
+	 * Buffers stdin writes and sends them to envd on flush.
+	 */
+	private final class StdinStream extends OutputStream {
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		private boolean closed;
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			ensureOpen();
+			buffer.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			ensureOpen();
+			buffer.write(b, off, len);
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			ensureOpen();
+			if (buffer.size() == 0) {
+				return;
+			}
+			byte[] data = buffer.toByteArray();
+			buffer.reset();
+			client.sendInput(pid, data);
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			if (isAlive()) {
+				flush();
+				closed = true;
+				client.closeStdin(pid);
+			}
+			closed = true;
+		}
+
+		private void ensureOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (!isAlive()) {
+				throw new IOException("Process has exited");
+			}
+		}
+
+	}
+
+}
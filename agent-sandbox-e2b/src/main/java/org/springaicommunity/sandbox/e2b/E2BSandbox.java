@@ -15,6 +15,9 @@
  */
 package org.springaicommunity.sandbox.e2b;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
@@ -22,15 +25,23 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springaicommunity.sandbox.BatchScript;
+import org.springaicommunity.sandbox.BlobCache;
+import org.springaicommunity.sandbox.BlobStoreSpec;
 import org.springaicommunity.sandbox.ExecResult;
 import org.springaicommunity.sandbox.ExecSpec;
 import org.springaicommunity.sandbox.FileSpec;
+import org.springaicommunity.sandbox.OutputListener;
 import org.springaicommunity.sandbox.Sandbox;
 import org.springaicommunity.sandbox.SandboxException;
 import org.springaicommunity.sandbox.SandboxFiles;
+import org.springaicommunity.sandbox.SandboxMeter;
+import org.springaicommunity.sandbox.SandboxMetrics;
+import org.springaicommunity.sandbox.SandboxSnapshot;
 
 /**
  * E2B cloud sandbox implementation using remote Firecracker microVMs.
@@ -68,6 +79,13 @@ public final class E2BSandbox implements Sandbox {
 
 	private static final Duration DEFAULT_COMMAND_TIMEOUT = Duration.ofMinutes(2);
 
+	/**
+	 * Default time a command that timed out or was cancelled is given to exit after
+	 * {@code SIGTERM} before it is sent {@code SIGKILL}.
+	 * @since 0.9.1
+	 */
+	public static final Duration DEFAULT_KILL_GRACE_PERIOD = Duration.ofSeconds(5);
+
 	private final String sandboxId;
 
 	private final E2BConfig config;
@@ -76,16 +94,52 @@ public final class E2BSandbox implements Sandbox {
 
 	private final E2BEnvdClient envdClient;
 
-	private final E2BSandboxFiles sandboxFiles;
+	private final Map<String, String> envVars;
+
+	private final E2BSandboxFiles workspace;
+
+	private final SandboxFiles sandboxFiles;
+
+	private final SandboxMetrics metrics;
+
+	private final SandboxMeter meter;
+
+	private final BlobStoreSpec blobStoreSpec;
 
 	private volatile boolean closed = false;
 
-	private E2BSandbox(String sandboxId, E2BConfig config, E2BApiClient apiClient, E2BEnvdClient envdClient) {
+	private volatile StartupTimings startupTimings;
+
+	private E2BSandbox(String sandboxId, E2BConfig config, E2BApiClient apiClient, E2BEnvdClient envdClient,
+			Map<String, String> envVars, SandboxMetrics metrics, BlobStoreSpec blobStoreSpec) {
 		this.sandboxId = sandboxId;
 		this.config = config;
 		this.apiClient = apiClient;
 		this.envdClient = envdClient;
-		this.sandboxFiles = new E2BSandboxFiles(this, envdClient, WORK_DIR.toString());
+		this.envVars = Map.copyOf(envVars);
+		this.metrics = metrics;
+		this.meter = new SandboxMeter(metrics, "e2b");
+		this.blobStoreSpec = blobStoreSpec;
+		this.workspace = new E2BSandboxFiles(this, envdClient, WORK_DIR.toString(), blobStoreSpec);
+		this.sandboxFiles = meter.files(workspace);
+	}
+
+	/**
+	 * Connect to the envd service of a created or resumed sandbox and wait until it is
+	 * ready.
+	 */
+	private static E2BSandbox open(E2BApiClient.SandboxResponse response, E2BConfig config, E2BApiClient apiClient,
+			Map<String, String> envVars, SandboxMetrics metrics, BlobStoreSpec blobStoreSpec) {
+		String envdUrl = apiClient.getEnvdUrl(response.sandboxId(), response.domain());
+		E2BEnvdClient envdClient = new E2BEnvdClient(envdUrl, response.envdAccessToken(), config.killGracePeriod(),
+				apiClient.context());
+
+		// Wait for the envd service to become ready
+		logger.debug("Waiting for envd service to become ready...");
+		envdClient.waitForReady();
+		logger.debug("Envd service is ready");
+
+		return new E2BSandbox(response.sandboxId(), config, apiClient, envdClient, envVars, metrics, blobStoreSpec);
 	}
 
 	/**
@@ -122,24 +176,100 @@ public final class E2BSandbox implements Sandbox {
 
 	@Override
 	public ExecResult exec(ExecSpec spec) {
+		return meter.exec(spec, () -> execInternal(spec, null));
+	}
+
+	@Override
+	public ExecResult exec(ExecSpec spec, OutputListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Output listener cannot be null");
+		}
+		return meter.exec(spec, () -> execInternal(spec, listener));
+	}
+
+	/**
+	 * Execute a command asynchronously. The request is sent with the non-blocking
+	 * {@code HttpClient.sendAsync} and process events are decoded as they arrive, so no
+	 * thread is held while the command runs. Cancelling the returned future kills the
+	 * remote process.
+	 * @param spec the execution specification
+	 * @return a future completed with the execution result
+	 */
+	@Override
+	public CompletableFuture<ExecResult> execAsync(ExecSpec spec) {
+		return meter.execAsync(spec, () -> {
+			try {
+				checkExecutable(spec);
+			}
+			catch (RuntimeException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+			return envdClient.runCommandAsync(processCommand(spec.command()), WORK_DIR.toString(),
+					new HashMap<>(spec.env()), commandTimeout(spec), spec.outputLimit(), null);
+		});
+	}
+
+	/**
+	 * Run the whole batch as one framed script in a single envd process, so the batch
+	 * costs one round trip instead of one per command. Commands without a timeout get the
+	 * default command timeout, as with {@link #exec(ExecSpec)}.
+	 * @param specs the commands to execute
+	 * @param stopOnFirstFailure whether to stop after the first failing command
+	 * @return the results of the commands that ran
+	 */
+	@Override
+	public List<ExecResult> execBatch(List<ExecSpec> specs, boolean stopOnFirstFailure) {
 		if (closed) {
 			throw new IllegalStateException("Sandbox is closed");
 		}
+		return meter.execBatch(specs, () -> {
+			BatchScript batch = new BatchScript(specs, stopOnFirstFailure, DEFAULT_COMMAND_TIMEOUT);
+			ExecResult result = envdClient.runCommand(List.of("bash", "-c", batch.script()), WORK_DIR.toString(),
+					Map.of(), batch.timeout(), batch.outputLimit(), null);
+			return batch.parse(result.stdout(), result.stderr());
+		});
+	}
 
-		List<String> command = spec.command();
-		if (command.isEmpty()) {
-			throw new IllegalArgumentException("Command cannot be empty");
-		}
+	/**
+	 * Start a process with stdin enabled. Output streams in over the envd event stream,
+	 * and each {@code flush()} of the process output stream sends the buffered input in
+	 * one request. No command timeout applies to interactive processes.
+	 * @param spec the execution specification containing command, environment, etc.
+	 * @return the started process
+	 */
+	@Override
+	public Process startInteractive(ExecSpec spec) {
+		return meter.startInteractive(spec, () -> {
+			checkExecutable(spec);
+			return envdClient.startProcess(processCommand(spec.command()), WORK_DIR.toString(),
+					new HashMap<>(spec.env()));
+		});
+	}
+
+	private ExecResult execInternal(ExecSpec spec, OutputListener listener) {
+		checkExecutable(spec);
 
 		// Handle shell command marker
-		List<String> processedCommand = processCommand(command);
+		List<String> processedCommand = processCommand(spec.command());
 
 		// Merge environment variables
 		Map<String, String> envVars = new HashMap<>(spec.env());
 
-		Duration timeout = spec.timeout() != null ? spec.timeout() : DEFAULT_COMMAND_TIMEOUT;
+		return envdClient.runCommand(processedCommand, WORK_DIR.toString(), envVars, commandTimeout(spec),
+				spec.outputLimit(), listener);
+	}
 
-		return envdClient.runCommand(processedCommand, WORK_DIR.toString(), envVars, timeout);
+	private void checkExecutable(ExecSpec spec) {
+		if (closed) {
+			throw new IllegalStateException("Sandbox is closed");
+		}
+		if (spec.command().isEmpty()) {
+			throw new IllegalArgumentException("Command cannot be empty");
+		}
+	}
+
+	private static Duration commandTimeout(ExecSpec spec) {
+		return spec.timeout() != null ? spec.timeout() : DEFAULT_COMMAND_TIMEOUT;
 	}
 
 	private List<String> processCommand(List<String> command) {
@@ -165,6 +295,53 @@ public final class E2BSandbox implements Sandbox {
 		return true;
 	}
 
+	/**
+	 * Save the working directory ({@code /home/user}) to a tar archive on the host. New
+	 * sandboxes are created from the same template, timeout and environment variables,
+	 * then the archive is unpacked into their working directory. Files outside the
+	 * working directory, installed packages and running processes are not part of the
+	 * snapshot; bake those into a custom template instead. Closing the snapshot deletes
+	 * the archive.
+	 */
+	@Override
+	public SandboxSnapshot snapshot() {
+		return meter.snapshot(this::saveWorkspace);
+	}
+
+	private SandboxSnapshot saveWorkspace() {
+		if (closed) {
+			throw new IllegalStateException("Sandbox is closed");
+		}
+		Path archive;
+		try {
+			archive = Files.createTempFile("agent-sandbox-e2b-snapshot-", ".tar");
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to create snapshot archive", e);
+		}
+		try (OutputStream out = Files.newOutputStream(archive)) {
+			workspace.exportDirectory(".", out);
+		}
+		catch (IOException | RuntimeException e) {
+			deleteQuietly(archive);
+			if (e instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new SandboxException("Failed to write snapshot archive", e);
+		}
+		logger.debug("Saved workspace of sandbox {} to {}", sandboxId, archive);
+		return new E2BSnapshot(archive);
+	}
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		}
+		catch (IOException e) {
+			logger.warn("Failed to delete snapshot archive: {}", path, e);
+		}
+	}
+
 	@Override
 	public void close() {
 		if (closed) {
@@ -173,6 +350,7 @@ public final class E2BSandbox implements Sandbox {
 
 		closed = true;
 		logger.debug("Closing E2BSandbox: {}", sandboxId);
+		workspace.release();
 
 		try {
 			apiClient.killSandbox(sandboxId);
@@ -191,11 +369,97 @@ public final class E2BSandbox implements Sandbox {
 		return sandboxId;
 	}
 
+	/**
+	 * Gets how long each phase of starting this sandbox took.
+	 * @return the startup timings
+	 * @since 0.9.1
+	 */
+	public StartupTimings startupTimings() {
+		return startupTimings;
+	}
+
+	private void started(Instant requested, Instant created, Instant ready) {
+		Instant seeded = Instant.now();
+		this.startupTimings = new StartupTimings(Duration.between(requested, created), Duration.between(created, ready),
+				Duration.between(ready, seeded));
+		logger.debug("Started sandbox {}: {}", sandboxId, startupTimings);
+	}
+
 	@Override
 	public String toString() {
 		return String.format("E2BSandbox{sandboxId=%s, template=%s, closed=%s}", sandboxId, config.template(), closed);
 	}
 
+	/**
+	 * Snapshot holding the working directory as a tar archive on the host.
+	 */
+	private final class E2BSnapshot implements SandboxSnapshot {
+
+		private final Path archive;
+
+		private volatile boolean released;
+
+		E2BSnapshot(Path archive) {
+			this.archive = archive;
+		}
+
+		@Override
+		public Sandbox newSandbox() {
+			if (released) {
+				throw new IllegalStateException("Snapshot is closed");
+			}
+			Instant requested = Instant.now();
+			E2BApiClient.SandboxResponse response = apiClient.createSandbox(config.template(),
+					config.timeout().toSeconds(), envVars);
+			Instant created = Instant.now();
+			E2BSandbox sandbox = open(response, config, apiClient, envVars, metrics, blobStoreSpec);
+			Instant ready = Instant.now();
+			try {
+				sandbox.workspace.importArchive(archive, ".");
+				sandbox.started(requested, created, ready);
+				return sandbox;
+			}
+			catch (RuntimeException e) {
+				sandbox.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!released) {
+				released = true;
+				deleteQuietly(archive);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "E2BSnapshot{archive=" + archive + "}";
+		}
+
+	}
+
+	/**
+	 * How long each phase of starting a sandbox took.
+	 *
+	 * @param create creating or resuming the sandbox through the E2B API
+	 * @param ready waiting for the envd service in the sandbox to answer
+	 * @param seed writing the initial files, or the snapshot a sandbox was forked from
+	 * @since 0.9.1
+	 */
+	public record StartupTimings(Duration create, Duration ready, Duration seed) {
+
+		/**
+		 * Gets the time from requesting the sandbox until it was ready to use.
+		 * @return the sum of all phases
+		 */
+		public Duration total() {
+			return create.plus(ready).plus(seed);
+		}
+
+	}
+
 	/**
 	 * Builder for creating E2BSandbox instances.
 	 */
@@ -217,6 +481,14 @@ public final class E2BSandbox implements Sandbox {
 
 		private List<FileSpec> initialFiles = new ArrayList<>();
 
+		private SandboxMetrics metrics = SandboxMetrics.NOOP;
+
+		private BlobStoreSpec blobStoreSpec;
+
+		private Duration killGracePeriod = DEFAULT_KILL_GRACE_PERIOD;
+
+		private E2BClientContext clientContext;
+
 		/**
 		 * Set the E2B API key.
 		 * @param apiKey the API key
@@ -319,6 +591,63 @@ public final class E2BSandbox implements Sandbox {
 			return this;
 		}
 
+		/**
+		 * Set the listener that receives a measurement of every command execution,
+		 * interactive process start and file operation.
+		 * @param metrics the metrics listener
+		 * @return this builder
+		 */
+		public Builder metrics(SandboxMetrics metrics) {
+			if (metrics == null) {
+				throw new IllegalArgumentException("Metrics cannot be null");
+			}
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * Keep uploaded content in a blob store, so that writing the same content again
+		 * copies it inside the sandbox instead of uploading it.
+		 * @param blobStoreSpec the blob store, often {@link BlobStoreSpec#perSandbox}
+		 * with a {@link BlobCache} shared by all sandboxes
+		 * @return this builder
+		 */
+		public Builder blobStore(BlobStoreSpec blobStoreSpec) {
+			this.blobStoreSpec = blobStoreSpec;
+			return this;
+		}
+
+		/**
+		 * Set how long a command is given to exit after {@code SIGTERM} when it times out
+		 * or is cancelled, before it is sent {@code SIGKILL}. Defaults to
+		 * {@link #DEFAULT_KILL_GRACE_PERIOD}.
+		 * @param killGracePeriod the grace period, zero to kill right away
+		 * @return this builder
+		 * @since 0.9.1
+		 */
+		public Builder killGracePeriod(Duration killGracePeriod) {
+			if (killGracePeriod == null || killGracePeriod.isNegative()) {
+				throw new IllegalArgumentException("Kill grace period cannot be null or negative");
+			}
+			this.killGracePeriod = killGracePeriod;
+			return this;
+		}
+
+		/**
+		 * Share HTTP connections and JSON codecs with other sandboxes built with the same
+		 * context. Defaults to {@link E2BClientContext#defaultContext()}.
+		 * @param clientContext the client context
+		 * @return this builder
+		 * @since 0.9.1
+		 */
+		public Builder clientContext(E2BClientContext clientContext) {
+			if (clientContext == null) {
+				throw new IllegalArgumentException("Client context cannot be null");
+			}
+			this.clientContext = clientContext;
+			return this;
+		}
+
 		/**
 		 * Build the E2BSandbox instance.
 		 * @return a new E2BSandbox
@@ -335,7 +664,10 @@ public final class E2BSandbox implements Sandbox {
 						"E2B API key is required. Set via builder or E2B_API_KEY environment variable.");
 			}
 
-			E2BConfig.Builder configBuilder = E2BConfig.builder(resolvedApiKey).template(template).timeout(timeout);
+			E2BConfig.Builder configBuilder = E2BConfig.builder(resolvedApiKey)
+				.template(template)
+				.timeout(timeout)
+				.killGracePeriod(killGracePeriod);
 
 			if (apiUrl != null) {
 				configBuilder.apiUrl(apiUrl);
@@ -345,8 +677,10 @@ public final class E2BSandbox implements Sandbox {
 			}
 
 			E2BConfig config = configBuilder.build();
-			E2BApiClient apiClient = new E2BApiClient(config);
+			E2BApiClient apiClient = new E2BApiClient(config,
+					clientContext != null ? clientContext : E2BClientContext.defaultContext());
 
+			Instant requested = Instant.now();
 			E2BApiClient.SandboxResponse response;
 			if (sandboxId != null) {
 				// Reconnect to existing sandbox
@@ -357,20 +691,25 @@ public final class E2BSandbox implements Sandbox {
 				response = apiClient.createSandbox(template, timeout.toSeconds(), envVars);
 			}
 
-			String envdUrl = apiClient.getEnvdUrl(response.sandboxId(), response.domain());
-			E2BEnvdClient envdClient = new E2BEnvdClient(envdUrl, response.envdAccessToken());
-
-			// Wait for the envd service to become ready
-			logger.debug("Waiting for envd service to become ready...");
-			envdClient.waitForReady();
-			logger.debug("Envd service is ready");
+			Instant created = Instant.now();
 
-			E2BSandbox sandbox = new E2BSandbox(response.sandboxId(), config, apiClient, envdClient);
+			E2BSandbox sandbox = open(response, config, apiClient, envVars, metrics, blobStoreSpec);
+			Instant ready = Instant.now();
 
-			// Setup initial files
+			// Setup initial files, uploaded concurrently
 			if (!initialFiles.isEmpty()) {
-				sandbox.files().setup(initialFiles);
+				try {
+					sandbox.files().setup(initialFiles);
+				}
+				catch (RuntimeException e) {
+					if (sandboxId == null) {
+						// Do not leave a sandbox nobody holds a reference to running
+						sandbox.close();
+					}
+					throw e;
+				}
 			}
+			sandbox.started(requested, created, ready);
 
 			return sandbox;
 		}
@@ -15,12 +15,51 @@
  */
 package org.springaicommunity.sandbox.e2b;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.springaicommunity.sandbox.BlobStore;
+import org.springaicommunity.sandbox.BlobStoreSpec;
+import org.springaicommunity.sandbox.DirectorySync;
+import org.springaicommunity.sandbox.ExecResult;
 import org.springaicommunity.sandbox.FileEntry;
 import org.springaicommunity.sandbox.FileSpec;
+import org.springaicommunity.sandbox.FileWatch;
+import org.springaicommunity.sandbox.FileWatchListener;
+import org.springaicommunity.sandbox.GrepMatch;
+import org.springaicommunity.sandbox.RangeReads;
+import org.springaicommunity.sandbox.RemoteSearch;
 import org.springaicommunity.sandbox.Sandbox;
+import org.springaicommunity.sandbox.SandboxException;
+import org.springaicommunity.sandbox.SandboxExecutors;
 import org.springaicommunity.sandbox.SandboxFiles;
+import org.springaicommunity.sandbox.StreamPipe;
+import org.springaicommunity.sandbox.SyncResult;
+import org.springaicommunity.sandbox.TarArchives;
 
 /**
  * E2B implementation of {@link SandboxFiles}.
@@ -29,32 +68,56 @@ import org.springaicommunity.sandbox.SandboxFiles;
  * Provides file operations for {@link E2BSandbox} using the E2B envd service.
  * </p>
  *
+ * <p>
+ * Directory trees are moved as one tar archive: an import streams the archive into a
+ * temporary file in the sandbox and extracts it with a single {@code tar} process, and an
+ * export does the reverse.
+ * </p>
+ *
  * @author Mark Pollack
  * @since 0.1.0
  */
 class E2BSandboxFiles implements SandboxFiles {
 
+	private static final int PIPE_CAPACITY = 256 * 1024;
+
+	private static final Duration ARCHIVE_TIMEOUT = Duration.ofMinutes(10);
+
+	/** Stat requests in flight at once. */
+	private static final int STAT_BATCH_SIZE = 64;
+
+	/** Uploads in flight at once while setting up files. */
+	private static final int SETUP_BATCH_SIZE = 16;
+
 	private final E2BSandbox sandbox;
 
 	private final E2BEnvdClient envdClient;
 
 	private final String workDir;
 
-	E2BSandboxFiles(E2BSandbox sandbox, E2BEnvdClient envdClient, String workDir) {
+	private final DirectorySync directorySync;
+
+	private final BlobStore blobStore;
+
+	E2BSandboxFiles(E2BSandbox sandbox, E2BEnvdClient envdClient, String workDir, BlobStoreSpec blobStoreSpec) {
 		this.sandbox = sandbox;
 		this.envdClient = envdClient;
 		this.workDir = workDir;
+		this.directorySync = DirectorySync.overShell(this, this::runCheckedShell);
+		this.blobStore = BlobStore.open(blobStoreSpec, sandbox.sandboxId(), this::runCheckedShell);
 	}
 
 	@Override
 	public SandboxFiles create(String relativePath, String content) {
 		String fullPath = resolvePath(relativePath);
-		// Ensure parent directory exists
-		String parentDir = getParentPath(fullPath);
-		if (parentDir != null) {
-			envdClient.makeDir(parentDir);
-		}
-		envdClient.writeFile(fullPath, content);
+		blobStore.write(fullPath, content.getBytes(StandardCharsets.UTF_8), () -> {
+			// Ensure parent directory exists
+			String parentDir = getParentPath(fullPath);
+			if (parentDir != null) {
+				envdClient.makeDir(parentDir);
+			}
+			envdClient.writeFile(fullPath, content);
+		});
 		return this;
 	}
 
@@ -65,10 +128,34 @@ class E2BSandboxFiles implements SandboxFiles {
 		return this;
 	}
 
+	/**
+	 * Uploads the files of each batch concurrently, so a batch costs about one round
+	 * trip. The first failure is rethrown once the rest of its batch has finished.
+	 */
 	@Override
 	public SandboxFiles setup(List<FileSpec> files) {
-		for (FileSpec file : files) {
-			create(file.path(), file.content());
+		for (int start = 0; start < files.size(); start += SETUP_BATCH_SIZE) {
+			List<FileSpec> batch = files.subList(start, Math.min(start + SETUP_BATCH_SIZE, files.size()));
+			List<CompletableFuture<SandboxFiles>> uploads = new ArrayList<>();
+			for (FileSpec file : batch) {
+				uploads.add(SandboxExecutors.supplyAsync(() -> create(file.path(), file.content()),
+						SandboxExecutors.defaultExecutor()));
+			}
+			SandboxException failure = null;
+			for (int i = 0; i < batch.size(); i++) {
+				try {
+					uploads.get(i).join();
+				}
+				catch (CompletionException e) {
+					if (failure == null) {
+						failure = (e.getCause() instanceof SandboxException sandboxException) ? sandboxException
+								: new SandboxException("Failed to create file: " + batch.get(i).path(), e.getCause());
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
 		}
 		return this;
 	}
@@ -79,12 +166,229 @@ class E2BSandboxFiles implements SandboxFiles {
 		return envdClient.readFile(fullPath);
 	}
 
+	@Override
+	public byte[] readBytes(String relativePath, long offset, int length) {
+		RangeReads.checkBytes(offset, length);
+		return envdClient.readFileRange(resolvePath(relativePath), offset, length);
+	}
+
+	@Override
+	public List<String> readLines(String relativePath, int fromLine, int toLine) {
+		return RangeReads.readLines(this::runCheckedShell, resolvePath(relativePath), fromLine, toLine);
+	}
+
+	@Override
+	public InputStream openInputStream(String relativePath) {
+		return envdClient.openFile(resolvePath(relativePath));
+	}
+
+	@Override
+	public OutputStream openOutputStream(String relativePath) {
+		return envdClient.openFileForWrite(createParentDirectory(relativePath));
+	}
+
+	@Override
+	public SandboxFiles writeBytes(String relativePath, byte[] content) {
+		if (content == null) {
+			throw new IllegalArgumentException("Content cannot be null");
+		}
+		blobStore.write(resolvePath(relativePath), content,
+				() -> envdClient.writeFile(createParentDirectory(relativePath), content));
+		return this;
+	}
+
+	@Override
+	public SandboxFiles copyFrom(Path source, String relativePath) {
+		if (source == null) {
+			throw new IllegalArgumentException("Source path cannot be null");
+		}
+		blobStore.write(resolvePath(relativePath), source, () -> {
+			long size;
+			try {
+				size = Files.size(source);
+			}
+			catch (IOException e) {
+				throw new SandboxException("Failed to copy " + source + " to " + relativePath, e);
+			}
+			envdClient.writeFile(createParentDirectory(relativePath), () -> {
+				try {
+					return Files.newInputStream(source);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, size, null);
+		});
+		return this;
+	}
+
+	@Override
+	public SandboxFiles importDirectory(Path hostDir, String relativePath, Predicate<Path> filter) {
+		if (hostDir == null || !Files.isDirectory(hostDir)) {
+			throw new IllegalArgumentException("Host directory does not exist: " + hostDir);
+		}
+		String targetDir = resolvePath(relativePath);
+		String archive = temporaryArchive("import");
+		StreamPipe pipe = new StreamPipe(PIPE_CAPACITY);
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try (OutputStream out = pipe.outputStream()) {
+				TarArchives.write(hostDir, filter, out);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, SandboxExecutors.defaultExecutor());
+		try {
+			envdClient.writeFile(archive, pipe::inputStream, -1, null);
+			writer.join();
+			extractArchive(archive, targetDir, hostDir + " to " + relativePath);
+			return this;
+		}
+		catch (CompletionException e) {
+			Throwable cause = (e.getCause() instanceof UncheckedIOException) ? e.getCause().getCause() : e.getCause();
+			throw new SandboxException("Failed to import " + hostDir + " to " + relativePath, cause);
+		}
+		finally {
+			closeQuietly(pipe.inputStream());
+			removeQuietly(archive);
+		}
+	}
+
+	/**
+	 * Upload a tar archive from the host and unpack it into a directory of the sandbox.
+	 * @param hostArchive the tar archive on the host
+	 * @param relativePath the target directory, created if missing
+	 * @throws SandboxException if the upload or extraction fails
+	 */
+	void importArchive(Path hostArchive, String relativePath) {
+		String archive = temporaryArchive("import");
+		try {
+			envdClient.writeFile(archive, () -> {
+				try {
+					return Files.newInputStream(hostArchive);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, Files.size(hostArchive), null);
+			extractArchive(archive, resolvePath(relativePath), hostArchive + " to " + relativePath);
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to import " + hostArchive + " to " + relativePath, e);
+		}
+		finally {
+			removeQuietly(archive);
+		}
+	}
+
+	private void extractArchive(String archive, String targetDir, String description) {
+		ExecResult result = runShell("mkdir -p \"$1\" && tar -xf \"$2\" -C \"$1\"", targetDir, archive);
+		if (result.failed()) {
+			throw new SandboxException("Failed to import " + description + " - " + result.stderr());
+		}
+	}
+
+	@Override
+	public SandboxFiles exportDirectory(String relativePath, OutputStream tarStream) {
+		String sourceDir = resolvePath(relativePath);
+		String archive = temporaryArchive("export");
+		try {
+			ExecResult result = runShell("test -d \"$1\" || exit 3; tar -cf \"$2\" -C \"$1\" .", sourceDir, archive);
+			if (result.exitCode() == 3) {
+				throw new SandboxException("Path is not a directory: " + relativePath);
+			}
+			if (result.failed()) {
+				throw new SandboxException("Failed to export directory: " + relativePath + " - " + result.stderr());
+			}
+			// Entries are archived as ./name; strip the leading "." component
+			try (InputStream in = envdClient.openFile(archive)) {
+				TarArchives.copy(in, tarStream, 1);
+			}
+			return this;
+		}
+		catch (IOException e) {
+			throw new SandboxException("Failed to export directory: " + relativePath, e);
+		}
+		finally {
+			removeQuietly(archive);
+		}
+	}
+
+	@Override
+	public FileWatch watch(String relativePath, boolean recursive, FileWatchListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener cannot be null");
+		}
+		return envdClient.watchDir(resolvePath(relativePath), recursive, listener);
+	}
+
+	@Override
+	public SyncResult sync(Path hostDir, String targetDir) {
+		return directorySync.sync(hostDir, targetDir);
+	}
+
+	@Override
+	public Stream<String> find(String relativePath, List<String> globs, int maxDepth) {
+		return RemoteSearch.find(command -> envdClient.startProcess(command, workDir, Map.of()),
+				resolvePath(relativePath), globs, maxDepth);
+	}
+
+	@Override
+	public Stream<GrepMatch> grep(String relativePath, String regex, List<String> globs, int maxMatches) {
+		return RemoteSearch.grep(command -> envdClient.startProcess(command, workDir, Map.of()),
+				resolvePath(relativePath), regex, globs, maxMatches);
+	}
+
 	@Override
 	public boolean exists(String relativePath) {
 		String fullPath = resolvePath(relativePath);
 		return envdClient.exists(fullPath);
 	}
 
+	@Override
+	public Optional<FileEntry> stat(String relativePath) {
+		return join(envdClient.stat(resolvePath(relativePath)), relativePath)
+			.map(entry -> withPath(entry, relativePath));
+	}
+
+	/**
+	 * Sends the Stat requests of each batch concurrently, so a batch costs about one
+	 * round trip.
+	 */
+	@Override
+	public Map<String, FileEntry> statAll(List<String> relativePaths) {
+		Map<String, FileEntry> entries = new LinkedHashMap<>();
+		for (int start = 0; start < relativePaths.size(); start += STAT_BATCH_SIZE) {
+			List<String> batch = relativePaths.subList(start, Math.min(start + STAT_BATCH_SIZE, relativePaths.size()));
+			List<CompletableFuture<Optional<FileEntry>>> stats = new ArrayList<>();
+			for (String relativePath : batch) {
+				stats.add(envdClient.stat(resolvePath(relativePath)));
+			}
+			for (int i = 0; i < batch.size(); i++) {
+				String relativePath = batch.get(i);
+				join(stats.get(i), relativePath)
+					.ifPresent(entry -> entries.put(relativePath, withPath(entry, relativePath)));
+			}
+		}
+		return entries;
+	}
+
+	private static Optional<FileEntry> join(CompletableFuture<Optional<FileEntry>> stat, String relativePath) {
+		try {
+			return stat.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof SandboxException sandboxException) {
+				throw sandboxException;
+			}
+			throw new SandboxException("Failed to stat: " + relativePath, e.getCause());
+		}
+	}
+
+	private static FileEntry withPath(FileEntry entry, String relativePath) {
+		return new FileEntry(entry.name(), entry.type(), relativePath, entry.size(), entry.modifiedTime());
+	}
+
 	@Override
 	public List<FileEntry> list(String relativePath) {
 		return list(relativePath, 1);
@@ -96,6 +400,54 @@ class E2BSandboxFiles implements SandboxFiles {
 		return envdClient.listFiles(fullPath, maxDepth);
 	}
 
+	/**
+	 * Walks the tree breadth first with one {@code ListDir} of depth 1 per directory.
+	 * envd has no cursor for {@code ListDir}, so each directory is a page: only the
+	 * directory being consumed and the queue of directories still to visit are held in
+	 * memory, and closing the stream early stops issuing requests.
+	 */
+	@Override
+	public Stream<FileEntry> walk(String relativePath, int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Max depth must be at least 1");
+		}
+		Deque<Map.Entry<String, Integer>> directories = new ArrayDeque<>();
+		directories.add(Map.entry(relativePath, 1));
+		Iterator<FileEntry> iterator = new Iterator<>() {
+
+			private Iterator<FileEntry> page = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!page.hasNext() && !directories.isEmpty()) {
+					Map.Entry<String, Integer> directory = directories.poll();
+					String prefix = directory.getKey().isEmpty() ? "" : directory.getKey().replaceAll("/*$", "/");
+					List<FileEntry> entries = new ArrayList<>();
+					for (FileEntry entry : envdClient.listFiles(resolvePath(directory.getKey()), 1)) {
+						FileEntry child = withPath(entry, prefix + entry.name());
+						entries.add(child);
+						if (child.isDirectory() && directory.getValue() < maxDepth) {
+							directories.add(Map.entry(child.path(), directory.getValue() + 1));
+						}
+					}
+					page = entries.iterator();
+				}
+				return page.hasNext();
+			}
+
+			@Override
+			public FileEntry next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return page.next();
+			}
+
+		};
+		return StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
 	@Override
 	public SandboxFiles delete(String relativePath) {
 		return delete(relativePath, false);
@@ -113,6 +465,13 @@ class E2BSandboxFiles implements SandboxFiles {
 		return sandbox;
 	}
 
+	/**
+	 * Release the blob store once the sandbox is gone.
+	 */
+	void release() {
+		blobStore.close();
+	}
+
 	private String resolvePath(String relativePath) {
 		if (relativePath.startsWith("/")) {
 			return relativePath;
@@ -123,6 +482,55 @@ class E2BSandboxFiles implements SandboxFiles {
 		return workDir + "/" + relativePath;
 	}
 
+	/**
+	 * Run a helper script directly through envd, bypassing the sandbox's metered exec so
+	 * that it is reported only as part of the file operation that needed it.
+	 */
+	private ExecResult runShell(String script, String... args) {
+		List<String> command = new ArrayList<>(List.of("bash", "-c", script, "bash"));
+		command.addAll(List.of(args));
+		return envdClient.runCommand(command, workDir, Map.of(), ARCHIVE_TIMEOUT);
+	}
+
+	private String runCheckedShell(String script, String... args) {
+		ExecResult result = runShell(script, args);
+		if (result.failed()) {
+			throw new SandboxException("Command failed with exit code " + result.exitCode() + " - " + result.stderr());
+		}
+		return result.stdout();
+	}
+
+	private void removeQuietly(String archive) {
+		try {
+			runShell("rm -f \"$1\"", archive);
+		}
+		catch (SandboxException e) {
+			// Best effort; the archive is in /tmp
+		}
+	}
+
+	private static String temporaryArchive(String kind) {
+		return "/tmp/agent-sandbox-" + kind + "-" + UUID.randomUUID() + ".tar";
+	}
+
+	private static void closeQuietly(InputStream in) {
+		try {
+			in.close();
+		}
+		catch (IOException e) {
+			// Only used to release a blocked writer
+		}
+	}
+
+	private String createParentDirectory(String relativePath) {
+		String fullPath = resolvePath(relativePath);
+		String parentDir = getParentPath(fullPath);
+		if (parentDir != null) {
+			envdClient.makeDir(parentDir);
+		}
+		return fullPath;
+	}
+
 	private String getParentPath(String path) {
 		int lastSlash = path.lastIndexOf('/');
 		if (lastSlash > 0) {
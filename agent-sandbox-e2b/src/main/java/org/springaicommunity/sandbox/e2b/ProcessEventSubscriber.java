@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking {@link HttpResponse.BodySubscriber} for the process.Process/Start event
+ * stream.
+ *
+ * <p>
+ * Response bytes are decoded as they arrive: the base64 output of data events is decoded
+ * straight into the stdout and stderr sinks, the start event records the process id and
+ * the end event records the exit code. The sinks are closed when the stream ends, and the
+ * body completes with the exit code. No thread blocks while the remote command runs.
+ * </p>
+ *
+ * @since 0.9.1
+ */
+final class ProcessEventSubscriber implements HttpResponse.BodySubscriber<Integer> {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProcessEventSubscriber.class);
+
+	private final ObjectReader reader;
+
+	private final OutputStream stdout;
+
+	private final OutputStream stderr;
+
+	private final ConnectEnvelopeDecoder decoder = new ConnectEnvelopeDecoder();
+
+	private final CompletableFuture<Integer> body = new CompletableFuture<>();
+
+	private final CompletableFuture<Integer> pid = new CompletableFuture<>();
+
+	private volatile Flow.Subscription subscription;
+
+	private volatile boolean aborted;
+
+	private int exitCode = -1;
+
+	private int messages;
+
+	ProcessEventSubscriber(ObjectReader reader, OutputStream stdout, OutputStream stderr) {
+		this.reader = reader;
+		this.stdout = stdout;
+		this.stderr = stderr;
+	}
+
+	/**
+	 * The process id reported by the start event.
+	 * @return a future completed once the process has started, or exceptionally if the
+	 * stream ends, fails or is aborted before that
+	 */
+	CompletableFuture<Integer> pid() {
+		return pid;
+	}
+
+	/**
+	 * Stop consuming the event stream, closing the underlying response.
+	 */
+	void abort() {
+		aborted = true;
+		Flow.Subscription current = subscription;
+		if (current != null) {
+			current.cancel();
+		}
+		pid.completeExceptionally(new IOException("Process event stream was aborted"));
+	}
+
+	@Override
+	public CompletionStage<Integer> getBody() {
+		return body;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		if (aborted) {
+			subscription.cancel();
+		}
+		else {
+			subscription.request(1);
+		}
+	}
+
+	@Override
+	public void onNext(List<ByteBuffer> items) {
+		try {
+			for (ByteBuffer item : items) {
+				decoder.feed(item, this::onMessage);
+			}
+			subscription.request(1);
+		}
+		catch (IOException | RuntimeException e) {
+			subscription.cancel();
+			pid.completeExceptionally(e);
+			body.completeExceptionally(e);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		pid.completeExceptionally(throwable);
+		body.completeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		if (decoder.hasPartialMessage()) {
+			logger.warn("Process event stream ended with an incomplete envelope");
+		}
+		logger.debug("Read {} messages from envelopes", messages);
+		pid.completeExceptionally(new IOException("Process event stream ended before the process started"));
+		try {
+			stdout.close();
+			stderr.close();
+			body.complete(exitCode);
+		}
+		catch (IOException e) {
+			body.completeExceptionally(e);
+		}
+	}
+
+	private void onMessage(int flags, byte[] data) throws IOException {
+		if ((flags & ConnectEnvelopeDecoder.FLAG_END_STREAM) != 0) {
+			// Trailers may contain error info, but for now we skip them
+			logger.debug("Received end-of-stream envelope");
+			return;
+		}
+		messages++;
+		if (logger.isTraceEnabled()) {
+			logger.trace("Parsing event JSON: {}", new String(data, StandardCharsets.UTF_8));
+		}
+		try (JsonParser parser = reader.createParser(data)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Process event is not a JSON object");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.currentName();
+				parser.nextToken();
+				if ("event".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+					onEvent(parser);
+				}
+				else {
+					parser.skipChildren();
+				}
+			}
+		}
+	}
+
+	private void onEvent(JsonParser parser) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			parser.nextToken();
+			if (parser.currentToken() != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			switch (field) {
+				case "start" -> {
+					int processId = parser.readValueAs(E2BEnvdClient.StartEvent.class).pid();
+					logger.debug("Process started with PID: {}", processId);
+					pid.complete(processId);
+				}
+				case "data" -> onData(parser);
+				case "end" -> {
+					exitCode = parser.readValueAs(E2BEnvdClient.EndEvent.class).getExitCode();
+					logger.debug("Command completed with exit code: {}", exitCode);
+				}
+				default -> parser.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Decodes the base64 output of a data event straight into the stdout and stderr
+	 * sinks, without materializing it as a string first.
+	 */
+	private void onData(JsonParser parser) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			JsonToken value = parser.nextToken();
+			OutputStream sink = switch (field) {
+				case "stdout" -> stdout;
+				case "stderr" -> stderr;
+				default -> null;
+			};
+			if (sink != null && value == JsonToken.VALUE_STRING) {
+				parser.readBinaryValue(sink);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+}
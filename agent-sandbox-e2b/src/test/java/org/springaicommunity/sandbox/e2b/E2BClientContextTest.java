@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link E2BClientContext}.
+ */
+class E2BClientContextTest {
+
+	@Test
+	void defaultContextIsShared() {
+		assertThat(E2BClientContext.defaultContext()).isSameAs(E2BClientContext.defaultContext());
+		assertThat(E2BClientContext.defaultContext().httpClient())
+			.isSameAs(E2BClientContext.defaultContext().httpClient());
+	}
+
+	@Test
+	void prewarmConnectsToHost() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		CopyOnWriteArrayList<String> methods = new CopyOnWriteArrayList<>();
+		server.createContext("/", exchange -> {
+			methods.add(exchange.getRequestMethod());
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+		});
+		server.start();
+		try {
+			E2BClientContext context = E2BClientContext.builder().connectTimeout(Duration.ofSeconds(5)).build();
+			E2BConfig config = E2BConfig.builder("test-key")
+				.apiUrl("http://127.0.0.1:" + server.getAddress().getPort())
+				.build();
+
+			context.prewarm(config).get(10, TimeUnit.SECONDS);
+
+			assertThat(methods).containsExactly("HEAD");
+		}
+		finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	void prewarmNeverFails() throws Exception {
+		E2BClientContext context = E2BClientContext.builder().connectTimeout(Duration.ofSeconds(1)).build();
+
+		assertThat(context.prewarm("http://127.0.0.1:1").get(10, TimeUnit.SECONDS)).isNull();
+	}
+
+	@Test
+	void builderRejectsInvalidValues() {
+		assertThatThrownBy(() -> E2BClientContext.builder().connectTimeout(Duration.ZERO))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> E2BClientContext.builder().executor(null))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.springaicommunity.sandbox.ExecResult;
+import org.springaicommunity.sandbox.SandboxException;
+import org.springaicommunity.sandbox.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link E2BEnvdClient} that do not need a sandbox.
+ */
+class E2BEnvdClientTest {
+
+	@Test
+	void readyPollIntervalBacksOffExponentially() {
+		assertThat(E2BEnvdClient.readyPollInterval(1)).isEqualTo(Duration.ofMillis(20));
+		assertThat(E2BEnvdClient.readyPollInterval(2)).isEqualTo(Duration.ofMillis(40));
+		assertThat(E2BEnvdClient.readyPollInterval(4)).isEqualTo(Duration.ofMillis(160));
+		assertThat(E2BEnvdClient.readyPollInterval(6)).isEqualTo(Duration.ofMillis(500));
+		assertThat(E2BEnvdClient.readyPollInterval(Integer.MAX_VALUE)).isEqualTo(Duration.ofMillis(500));
+	}
+
+	@Test
+	void shellCommandKeepsPositionalParameters() {
+		E2BEnvdClient.ProcessConfig config = E2BEnvdClient.processConfig(
+				List.of("bash", "-c", "tar -xf \"$2\" -C \"$1\"", "bash", "/work", "/tmp/a.tar"), "/work", Map.of());
+
+		assertThat(config.cmd()).isEqualTo("/bin/bash");
+		assertThat(config.args()).containsExactly("-l", "-c", "tar -xf \"$2\" -C \"$1\"", "bash", "/work",
+				"/tmp/a.tar");
+	}
+
+	@Test
+	void plainCommandRunsThroughLoginShell() {
+		E2BEnvdClient.ProcessConfig config = E2BEnvdClient.processConfig(List.of("echo", "hello"), "/work", null);
+
+		assertThat(config.args()).containsExactly("-l", "-c", "echo hello");
+		assertThat(config.envs()).isEqualTo(Map.of());
+	}
+
+	@Test
+	void timeoutBeforeStartEventStillKillsTheProcess() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		CopyOnWriteArrayList<String> signals = new CopyOnWriteArrayList<>();
+		CountDownLatch killed = new CountDownLatch(1);
+		server.createContext("/process.Process/Start", exchange -> {
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream body = exchange.getResponseBody()) {
+				// The start event arrives only after the command has timed out
+				Thread.sleep(500);
+				body.write(envelope(0, "{\"event\":{\"start\":{\"pid\":42}}}"));
+				body.flush();
+				killed.await(10, TimeUnit.SECONDS);
+				body.write(envelope(0, "{\"event\":{\"end\":{\"exited\":true,\"status\":\"signal: killed\"}}}"));
+				body.write(envelope(ConnectEnvelopeDecoder.FLAG_END_STREAM, "{}"));
+			}
+			catch (InterruptedException | IOException e) {
+				// The client dropped the stream
+			}
+		});
+		server.createContext("/process.Process/SendSignal", exchange -> {
+			signals.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, response.length);
+			exchange.getResponseBody().write(response);
+			exchange.close();
+			killed.countDown();
+		});
+		server.start();
+		try {
+			E2BEnvdClient client = new E2BEnvdClient("http://127.0.0.1:" + server.getAddress().getPort(), null,
+					Duration.ZERO, E2BClientContext.defaultContext());
+
+			CompletableFuture<ExecResult> result = client.runCommandAsync(List.of("sleep", "5"), "/work", Map.of(),
+					Duration.ofMillis(100), null, null);
+
+			assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(SandboxException.class)
+				.hasRootCauseInstanceOf(TimeoutException.class);
+			assertThat(killed.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(signals).hasSize(1);
+			assertThat(signals.get(0)).contains("\"pid\":42").contains("SIGNAL_SIGKILL");
+		}
+		finally {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	private static byte[] envelope(int flags, String json) {
+		byte[] data = json.getBytes(StandardCharsets.UTF_8);
+		return ByteBuffer.allocate(5 + data.length).put((byte) flags).putInt(data.length).put(data).array();
+	}
+
+}
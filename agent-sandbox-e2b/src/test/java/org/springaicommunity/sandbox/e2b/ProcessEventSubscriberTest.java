@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 Spring AI Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springaicommunity.sandbox.e2b;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.jupiter.api.Test;
+import org.springaicommunity.sandbox.ChunkingOutputStream;
+import org.springaicommunity.sandbox.OutputChunk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ProcessEventSubscriber} decoding a process.Process/Start stream that
+ * arrives in arbitrary pieces.
+ */
+class ProcessEventSubscriberTest {
+
+	private final ObjectReader objectReader = E2BClientContext.defaultContext().reader();
+
+	@Test
+	void decodesEventsSplitAcrossChunks() throws Exception {
+		ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+		ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+		ProcessEventSubscriber subscriber = new ProcessEventSubscriber(objectReader, stdout, stderr);
+
+		byte[] stream = concat(envelope(0, "{\"event\":{\"start\":{\"pid\":42}}}"),
+				envelope(0, "{\"event\":{\"keepalive\":{}}}"), dataEnvelope("stdout", "hello ".getBytes()),
+				dataEnvelope("stderr", "oops".getBytes()), dataEnvelope("stdout", "world".getBytes()),
+				envelope(0, "{\"event\":{\"end\":{\"exited\":true,\"status\":\"exit status 3\"}}}"),
+				envelope(ConnectEnvelopeDecoder.FLAG_END_STREAM, "{}"));
+		feed(subscriber, stream, 7);
+
+		assertThat(subscriber.pid().getNow(-1)).isEqualTo(42);
+		assertThat(subscriber.getBody().toCompletableFuture().getNow(-1)).isEqualTo(3);
+		assertThat(stdout.toString(StandardCharsets.UTF_8)).isEqualTo("hello world");
+		assertThat(stderr.toString(StandardCharsets.UTF_8)).isEqualTo("oops");
+	}
+
+	@Test
+	void keepsMultiByteCharactersSplitAcrossDataEventsIntact() throws Exception {
+		List<OutputChunk> chunks = new ArrayList<>();
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		ProcessEventSubscriber subscriber = new ProcessEventSubscriber(objectReader,
+				new ChunkingOutputStream(OutputChunk.Type.STDOUT, capture, chunks::add), new ByteArrayOutputStream());
+
+		byte[] text = "größe €".getBytes(StandardCharsets.UTF_8);
+		// Split inside the three byte euro sign
+		int split = text.length - 2;
+		byte[] first = new byte[split];
+		byte[] second = new byte[text.length - split];
+		System.arraycopy(text, 0, first, 0, split);
+		System.arraycopy(text, split, second, 0, second.length);
+		feed(subscriber, concat(dataEnvelope("stdout", first), dataEnvelope("stdout", second)), 1);
+
+		StringBuilder streamed = new StringBuilder();
+		chunks.forEach(chunk -> streamed.append(chunk.text()));
+		assertThat(streamed.toString()).isEqualTo("größe €");
+		assertThat(capture.toString(StandardCharsets.UTF_8)).isEqualTo("größe €");
+	}
+
+	@Test
+	void decodesLargeOutput() throws Exception {
+		byte[] payload = new byte[3 * 1024 * 1024 + 1];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) i;
+		}
+		ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+		ProcessEventSubscriber subscriber = new ProcessEventSubscriber(objectReader, stdout,
+				new ByteArrayOutputStream());
+
+		feed(subscriber, dataEnvelope("stdout", payload), 16 * 1024);
+
+		assertThat(stdout.toByteArray()).isEqualTo(payload);
+	}
+
+	@Test
+	void pidFailsWhenStreamEndsBeforeStart() {
+		ProcessEventSubscriber subscriber = new ProcessEventSubscriber(objectReader, new ByteArrayOutputStream(),
+				new ByteArrayOutputStream());
+
+		feed(subscriber, dataEnvelope("stdout", "early".getBytes()), 4);
+
+		assertThat(subscriber.pid().isCompletedExceptionally()).isTrue();
+		assertThat(subscriber.getBody().toCompletableFuture().getNow(0)).isEqualTo(-1);
+	}
+
+	@Test
+	void pidFailsWhenStreamFails() {
+		ProcessEventSubscriber subscriber = new ProcessEventSubscriber(objectReader, new ByteArrayOutputStream(),
+				new ByteArrayOutputStream());
+
+		subscriber.onError(new IOException("connection reset"));
+
+		assertThat(subscriber.pid().isCompletedExceptionally()).isTrue();
+		assertThat(subscriber.getBody().toCompletableFuture().isCompletedExceptionally()).isTrue();
+	}
+
+	private static void feed(ProcessEventSubscriber subscriber, byte[] stream, int chunkSize) {
+		subscriber.onSubscribe(new Flow.Subscription() {
+
+			@Override
+			public void request(long n) {
+			}
+
+			@Override
+			public void cancel() {
+			}
+
+		});
+		for (int offset = 0; offset < stream.length; offset += chunkSize) {
+			int length = Math.min(chunkSize, stream.length - offset);
+			subscriber.onNext(List.of(ByteBuffer.wrap(stream, offset, length)));
+		}
+		subscriber.onComplete();
+	}
+
+	private static byte[] dataEnvelope(String stream, byte[] content) {
+		return envelope(0,
+				"{\"event\":{\"data\":{\"" + stream + "\":\"" + Base64.getEncoder().encodeToString(content) + "\"}}}");
+	}
+
+	private static byte[] envelope(int flags, String json) {
+		byte[] data = json.getBytes(StandardCharsets.UTF_8);
+		return ByteBuffer.allocate(5 + data.length).put((byte) flags).putInt(data.length).put(data).array();
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+
+}